@@ -192,6 +192,48 @@ public class UnicodeWriter extends Writer {
 	}
 
 
+	/**
+	 * Returns the BOM written by this class before text in the specified
+	 * encoding.
+	 *
+	 * @param encoding The encoding.
+	 * @return The BOM, or <code>null</code> if no BOM is written for the
+	 *         encoding.
+	 * @see #getWriteUtf8BOM()
+	 */
+	public static byte[] getBOM(String encoding) {
+
+		// NOTE: Creating an OutputStreamWriter with encoding "UTF-16" DOES
+		// write out the BOM; "UTF-16LE", "UTF-16BE", "UTF-32", "UTF-32LE"
+		// and "UTF-32BE" don't.
+		byte[] bom = null;
+		switch (encoding) {
+			case "UTF-8":
+				if (getWriteUtf8BOM()) {
+					bom = UTF8_BOM;
+				}
+				break;
+			case "UTF-16LE":
+				bom = UTF16LE_BOM;
+				break;
+			//case "UTF-16": // Already writes the BOM, so we don't
+			case "UTF-16BE":
+				bom = UTF16BE_BOM;
+				break;
+			case "UTF-32LE":
+				bom = UTF32LE_BOM;
+				break;
+			case "UTF-32":
+			case "UTF-32BE":
+				bom = UTF32BE_BOM;
+				break;
+		}
+
+		return bom==null ? null : bom.clone();
+
+	}
+
+
 	/**
 	 * Returns whether UTF-8 files should have a BOM in them when written.
 	 *
@@ -217,29 +259,9 @@ public class UnicodeWriter extends Writer {
 		internalOut = new OutputStreamWriter(out, encoding);
 
 		// Write the proper BOM if they specified a Unicode encoding.
-		// NOTE: Creating an OutputStreamWriter with encoding "UTF-16" DOES
-		// write out the BOM; "UTF-16LE", "UTF-16BE", "UTF-32", "UTF-32LE"
-		// and "UTF-32BE" don't.
-		switch (encoding) {
-			case "UTF-8":
-				if (getWriteUtf8BOM()) {
-					out.write(UTF8_BOM, 0, UTF8_BOM.length);
-				}
-				break;
-			case "UTF-16LE":
-				out.write(UTF16LE_BOM, 0, UTF16LE_BOM.length);
-				break;
-			//case "UTF-16": // Already writes the BOM, so we don't
-			case "UTF-16BE":
-				out.write(UTF16BE_BOM, 0, UTF16BE_BOM.length);
-				break;
-			case "UTF-32LE":
-				out.write(UTF32LE_BOM, 0, UTF32LE_BOM.length);
-				break;
-			case "UTF-32":
-			case "UTF-32BE":
-				out.write(UTF32BE_BOM, 0, UTF32BE_BOM.length);
-				break;
+		byte[] bom = getBOM(encoding);
+		if (bom!=null) {
+			out.write(bom, 0, bom.length);
 		}
 
 	}
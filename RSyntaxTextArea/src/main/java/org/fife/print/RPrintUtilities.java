@@ -13,9 +13,15 @@ import java.awt.Color;
 import java.awt.Font;
 import java.awt.FontMetrics;
 import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.font.FontRenderContext;
 import java.awt.print.PageFormat;
 import java.awt.print.Printable;
+import java.lang.ref.WeakReference;
+import java.util.Objects;
 
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import javax.swing.text.BadLocationException;
 import javax.swing.text.Document;
 import javax.swing.text.Element;
@@ -24,20 +30,26 @@ import javax.swing.text.Segment;
 import javax.swing.text.TabExpander;
 import javax.swing.text.Utilities;
 
+import org.fife.util.DynamicIntArray;
+
 
 
 /**
- * A collection of static methods useful for printing text from Swing text components.
+ * A collection of static methods useful for printing text from Swing text components.<p>
+ *
+ * Printing APIs call a <code>Printable</code> once (or more) per page.  So
+ * that each page can be printed without laying out all pages before it, the
+ * position in the document at which each page starts is remembered, for the
+ * most recently printed document and page layout.  Printing a page then
+ * starts at the first page whose start is known at or before it, usually
+ * the page itself, so printing a whole document is linear in its size.
+ * The page starts are discarded when the document changes.
  *
  * @author Robert Futrell
  * @version 1.0
  */
 public abstract class RPrintUtilities {
 
-	private static int currentDocLineNumber;		// The line number in the document we are currently on.
-	private static int numDocLines;				// The number of lines in the current document.
-	private static Element rootElement;			// The first Element (line) in the current document.
-
 	// The characters at which to break a line if implementing word wrap.
 	private static final char [] BREAK_CHARS = { ' ', '\t', ',', '.', ';', '?', '!' };
 
@@ -58,6 +70,61 @@ public abstract class RPrintUtilities {
 	 */
 	private static FontMetrics fm;
 
+	/**
+	 * The page starts of the document most recently printed.
+	 */
+	private static Pagination pagination;
+
+	private static final int MODE_MONOSPACED = 0;
+	private static final int MODE_MONOSPACED_WORD_WRAP = 1;
+	private static final int MODE_WORD_WRAP = 2;
+
+	/**
+	 * Paints printed lines with {@link Utilities#drawTabbedText}, in the
+	 * graphics context's current font and color.
+	 */
+	private static final LinePainter PLAIN_LINE_PAINTER = (g, text, offs, x, y, e) ->
+			Utilities.drawTabbedText(text, x, y, g, e, 0);
+
+
+	/**
+	 * Returns the text of a line in a document, with tabs expanded to spaces
+	 * and newlines removed.
+	 *
+	 * @param doc The document.
+	 * @param line The line.
+	 * @param tabSize The number of spaces to expand tabs to.  If this is
+	 *        <code>0</code>, tabs are removed.
+	 * @param s A segment to use to get the text.
+	 * @return The line's text.
+	 * @throws BadLocationException Never.
+	 */
+	private static String getExpandedLine(Document doc, Element line, int tabSize,
+								Segment s) throws BadLocationException {
+
+		int startOffs = line.getStartOffset();
+		doc.getText(startOffs, line.getEndOffset()-startOffs, s);
+
+		StringBuilder sb = new StringBuilder(s.count);
+		for (int i=s.offset; i<s.offset+s.count; i++) {
+			char ch = s.array[i];
+			if (ch=='\t') {
+				if (tabSize>0) {
+					int spacesNeeded = tabSize - (sb.length() % tabSize);
+					for (int j=0; j<spacesNeeded; j++) {
+						sb.append(' ');
+					}
+				}
+			}
+			else if (ch!='\n') {
+				sb.append(ch);
+			}
+		}
+
+		return sb.toString();
+
+	}
+
 
 	/**
 	 * Returns the position closest to, but before, position <code>maxCharsPerLine</code> in
@@ -88,6 +155,54 @@ public abstract class RPrintUtilities {
 	}
 
 
+	/**
+	 * Returns the page starts to use when printing a document, reusing
+	 * those of the previous call if the document and layout are the same.
+	 */
+	private static synchronized Pagination getPagination(Graphics g, Document doc,
+								int mode, PageFormat pageFormat, Font font, int tabSize) {
+
+		FontRenderContext frc = g instanceof Graphics2D ?
+				((Graphics2D)g).getFontRenderContext() : null;
+		if (pagination==null || !pagination.matches(doc, mode, pageFormat, font, tabSize, frc)) {
+			if (pagination!=null) {
+				pagination.dispose();
+			}
+			pagination = new Pagination(doc, mode, pageFormat, font, tabSize, frc);
+		}
+		return pagination;
+
+	}
+
+
+	/**
+	 * Prints a page, laying out the pages before it first if their starts
+	 * aren't known yet.
+	 *
+	 * @param g The graphics context to write to.
+	 * @param pagination The page starts.
+	 * @param pageIndex The page to print.
+	 * @param maxLinesPerPage The number of printed lines on a page.
+	 * @param y The y-coordinate of the baseline of the first printed line.
+	 * @param walker Prints (or lays out) printed lines.
+	 * @return One of the constants from {@code Printable}.
+	 */
+	private static int printPage(Graphics g, Pagination pagination, int pageIndex,
+								int maxLinesPerPage, int y, LineWalker walker) {
+		try {
+			int[] pos = pagination.getPageStart(pageIndex, maxLinesPerPage, walker);
+			if (pos==null) {
+				return Printable.NO_SUCH_PAGE;
+			}
+			walker.walk(g, pos, maxLinesPerPage, y);
+		} catch (BadLocationException ble) { // Never happens
+			ble.printStackTrace();
+			return Printable.NO_SUCH_PAGE;
+		}
+		return Printable.PAGE_EXISTS;
+	}
+
+
 	/**
 	 * Prints a <code>Document</code> using a monospaced font, and does no word wrapping (ie,
 	 * words will wrap mid-word to the next line).  This method is expected to be called from
@@ -104,25 +219,31 @@ public abstract class RPrintUtilities {
 	 */
 	public static int printDocumentMonospaced(Graphics g, Document doc, int fontSize, int pageIndex,
 							PageFormat pageFormat, int tabSize) {
+		return printDocumentMonospaced(g, doc, fontSize, pageIndex, pageFormat, tabSize, false);
+	}
+
 
+	/**
+	 * Prints a <code>Document</code> using a monospaced font, optionally word
+	 * wrapping.
+	 */
+	private static int printDocumentMonospaced(Graphics g, Document doc, int fontSize, int pageIndex,
+							PageFormat pageFormat, int tabSize, boolean wordWrap) {
+
+		Font font = new Font(Font.MONOSPACED, Font.PLAIN, fontSize);
 		g.setColor(Color.BLACK);
-		g.setFont(new Font(Font.MONOSPACED, Font.PLAIN, fontSize));
+		g.setFont(font);
 
 		// Initialize our static variables (these are used by our tab expander below).
 		tabSizeInSpaces = tabSize;
 		fm = g.getFontMetrics();
 
-		// Create our tab expander.
-		//RPrintTabExpander tabExpander = new RPrintTabExpander();
-
 		// Get width and height of characters in this monospaced font.
 		int fontWidth = fm.charWidth('w');	// Any character will do as font is monospaced.
 		int fontHeight = fm.getHeight();
 
-		int maxCharsPerLine = (int)pageFormat.getImageableWidth() / fontWidth;
-		int maxLinesPerPage = (int)pageFormat.getImageableHeight() / fontHeight;
-
-		final int startingLineNumber = maxLinesPerPage * pageIndex;
+		int maxCharsPerLine = Math.max(1, (int)pageFormat.getImageableWidth() / fontWidth);
+		int maxLinesPerPage = Math.max(1, (int)pageFormat.getImageableHeight() / fontHeight);
 
 		// The (x,y) coordinate to print at (in pixels, not characters).
 		// Since y is the baseline of where we'll start printing (not the top-left
@@ -130,84 +251,55 @@ public abstract class RPrintUtilities {
 		xOffset = (int)pageFormat.getImageableX();
 		int y = (int)pageFormat.getImageableY() + fm.getAscent() + 1;
 
-		// A counter to keep track of the number of lines that WOULD HAVE been
-		// printed if we were printing all lines.
-		int numPrintedLines = 0;
-
-		// Keep going while there are more lines in the document.
-		currentDocLineNumber = 0;						// Line number of the document we're currently on
-		rootElement = doc.getDefaultRootElement();		// To shorten accesses in our loop.
-		numDocLines = rootElement.getElementCount();	// The number of lines in our document.
-		while (currentDocLineNumber<numDocLines) {
-
-			// Get the line we are going to print.
-			String curLineString;
-			Element currentLine = rootElement.getElement(currentDocLineNumber);
-			int startOffs = currentLine.getStartOffset();
-			try {
-				curLineString = doc.getText(startOffs, currentLine.getEndOffset()-startOffs);
-			} catch (BadLocationException ble) { // Never happens
-				ble.printStackTrace();
-				return Printable.NO_SUCH_PAGE;
-			}
+		int x = xOffset;
+		Segment s = new Segment();
+		Element root = doc.getDefaultRootElement();
+		int numDocLines = root.getElementCount();
 
-			// Get rid of newlines, because they end up as boxes if you don't; this is a monospaced font.
-			curLineString = curLineString.replaceAll("\n", "");
+		// Positions are a document line, and an offset into its text with
+		// tabs expanded.
+		LineWalker walker = (g2, pos, count, y2) -> {
 
-			// Replace tabs with how many spaces they should be.
-			if (tabSizeInSpaces == 0) {
-				curLineString = curLineString.replaceAll("\t", "");
-			}
-			else {
-				int tabIndex = curLineString.indexOf('\t');
-				while (tabIndex > -1) {
-					int spacesNeeded = tabSizeInSpaces - (tabIndex % tabSizeInSpaces);
-                    StringBuilder stringBuilder = new StringBuilder();
-					for (int i=0; i<spacesNeeded; i++) {
-						stringBuilder.append(" ");
-					}
-					// Note that "\t" is actually a regex for this method.
-					curLineString = curLineString.replaceFirst("\t", stringBuilder.toString());
-					tabIndex = curLineString.indexOf('\t');
-				}
-			}
+			int walked = 0;
+			int expandedLine = -1;
+			String curLineString = null;
 
-			// If this document line is too long to fit on one printed line on the page,
-			// break it up into multiple lines.
-			while (curLineString.length() > maxCharsPerLine) {
+			while (walked<count && pos[0]<numDocLines) {
 
-				numPrintedLines++;
-				if (numPrintedLines > startingLineNumber) {
-						g.drawString(curLineString.substring(0,maxCharsPerLine), xOffset,y);
-						y += fontHeight;
-						if (numPrintedLines==startingLineNumber+maxLinesPerPage) {
-							return Printable.PAGE_EXISTS;
-						}
-	 			}
-
-				curLineString = curLineString.substring(maxCharsPerLine);
-
-			}
+				if (expandedLine!=pos[0]) {
+					curLineString = getExpandedLine(doc, root.getElement(pos[0]), tabSize, s);
+					expandedLine = pos[0];
+				}
 
-			currentDocLineNumber += 1; // We have printed one more line from the document.
+				// If this document line is too long to fit on one printed line on the page,
+				// break it up into multiple lines.
+				String rest = curLineString.substring(pos[1]);
+				if (rest.length() > maxCharsPerLine) {
+					int breakPoint = wordWrap ? getLineBreakPoint(rest, maxCharsPerLine) + 1 :
+							maxCharsPerLine;
+					rest = rest.substring(0, breakPoint);
+					pos[1] += breakPoint;
+				}
+				else {
+					pos[0]++; // We have printed one more line from the document.
+					pos[1] = 0;
+				}
 
-			numPrintedLines++;
-			if (numPrintedLines>startingLineNumber) {
-				g.drawString(curLineString, xOffset,y);
-				y += fontHeight;
-				if (numPrintedLines==startingLineNumber+maxLinesPerPage) {
-					return Printable.PAGE_EXISTS;
+				if (g2!=null) {
+					g2.drawString(rest, x, y2);
+					y2 += fontHeight;
 				}
+				walked++;
+
 			}
 
+			return walked;
 
-		}
+		};
 
-		// Now, the whole document has been "printed."  Decide if this page had any text on it or not.
-		if (numPrintedLines > startingLineNumber) {
-			return Printable.PAGE_EXISTS;
-		}
-		return Printable.NO_SUCH_PAGE;
+		Pagination pagination = getPagination(g, doc,
+				wordWrap ? MODE_MONOSPACED_WORD_WRAP : MODE_MONOSPACED, pageFormat, font, tabSize);
+		return printPage(g, pagination, pageIndex, maxLinesPerPage, y, walker);
 
 	}
 
@@ -229,113 +321,7 @@ public abstract class RPrintUtilities {
 	public static int printDocumentMonospacedWordWrap(Graphics g, Document doc,
 								int fontSize, int pageIndex,
 								PageFormat pageFormat, int tabSize) {
-
-		g.setColor(Color.BLACK);
-		g.setFont(new Font(Font.MONOSPACED, Font.PLAIN, fontSize));
-
-		// Initialize our static variables (these are used by our tab expander below).
-		tabSizeInSpaces = tabSize;
-		fm = g.getFontMetrics();
-
-		// Create our tab expander.
-		//RPrintTabExpander tabExpander = new RPrintTabExpander();
-
-		// Get width and height of characters in this monospaced font.
-		int fontWidth = fm.charWidth('w'); 	// Any character will do here, since font is monospaced.
-		int fontHeight = fm.getHeight();
-
-		int maxCharsPerLine = (int)pageFormat.getImageableWidth() / fontWidth;
-		int maxLinesPerPage = (int)pageFormat.getImageableHeight() / fontHeight;
-
-		final int startingLineNumber = maxLinesPerPage * pageIndex;
-
-		// The (x,y) coordinate to print at (in pixels, not characters).
-		// Since y is the baseline of where we'll start printing (not the top-left
-		// corner), we offset it by the font's ascent ( + 1 just for good measure).
-		xOffset = (int)pageFormat.getImageableX();
-		int y = (int)pageFormat.getImageableY() + fm.getAscent() + 1;
-
-		// A counter to keep track of the number of lines that WOULD HAVE been
-		// printed if we were printing all lines.
-		int numPrintedLines = 0;
-
-		// Keep going while there are more lines in the document.
-		currentDocLineNumber = 0;						// Line number of the document we're currently on
-		rootElement = doc.getDefaultRootElement();		// To shorten accesses in our loop.
-		numDocLines = rootElement.getElementCount();	// The number of lines in our document.
-		while (currentDocLineNumber<numDocLines) {
-
-			// Get the line we are going to print.
-			String curLineString;
-			Element currentLine = rootElement.getElement(currentDocLineNumber);
-			int startOffs = currentLine.getStartOffset();
-			try {
-				curLineString = doc.getText(startOffs, currentLine.getEndOffset()-startOffs);
-			} catch (BadLocationException ble) { // Never happens
-				ble.printStackTrace();
-				return Printable.NO_SUCH_PAGE;
-			}
-
-			// Remove newlines, because they end up as boxes if you don't; this is a monospaced font.
-			curLineString = curLineString.replaceAll("\n", "");
-
-			// Replace tabs with how many spaces they should be.
-			if (tabSizeInSpaces == 0) {
-				curLineString = curLineString.replaceAll("\t", "");
-			}
-			else {
-				int tabIndex = curLineString.indexOf('\t');
-				while (tabIndex > -1) {
-					int spacesNeeded = tabSizeInSpaces - (tabIndex % tabSizeInSpaces);
-                    StringBuilder stringBuilder = new StringBuilder();
-					for (int i=0; i<spacesNeeded; i++) {
-						stringBuilder.append(" ");
-					}
-					// Note that "\t" is actually a regex for this method.
-					curLineString = curLineString.replaceFirst("\t", stringBuilder.toString());
-					tabIndex = curLineString.indexOf('\t');
-				}
-			}
-
-			// If this document line is too long to fit on one printed line on the page,
-			// break it up into multiple lines.
-			while (curLineString.length() > maxCharsPerLine) {
-
-				int breakPoint = getLineBreakPoint(curLineString, maxCharsPerLine) + 1;
-
-				numPrintedLines++;
-				if (numPrintedLines > startingLineNumber) {
-						g.drawString(curLineString.substring(0,breakPoint), xOffset,y);
-						y += fontHeight;
-						if (numPrintedLines==startingLineNumber+maxLinesPerPage) {
-							return Printable.PAGE_EXISTS;
-						}
-	 			}
-
-				curLineString = curLineString.substring(breakPoint);
-
-			}
-
-			currentDocLineNumber += 1; // We have printed one more line from the document.
-
-			numPrintedLines++;
-			if (numPrintedLines>startingLineNumber) {
-				g.drawString(curLineString, xOffset,y);
-				y += fontHeight;
-				if (numPrintedLines==startingLineNumber+maxLinesPerPage) {
-					return Printable.PAGE_EXISTS;
-				}
-			}
-
-
-		}
-
-		// Now, the whole document has been "printed."  Decide if this page had any text on it or not.
-		if (numPrintedLines > startingLineNumber) {
-			return Printable.PAGE_EXISTS;
-		}
-		return Printable.NO_SUCH_PAGE;
-
+		return printDocumentMonospaced(g, doc, fontSize, pageIndex, pageFormat, tabSize, true);
 	}
 
 
@@ -358,20 +344,51 @@ public abstract class RPrintUtilities {
 										Font font, int pageIndex,
 										PageFormat pageFormat,
 										int tabSize) {
+		return printDocumentWordWrap(g, textComponent, font, pageIndex, pageFormat, tabSize,
+				PLAIN_LINE_PAINTER);
+	}
+
+
+	/**
+	 * Prints a <code>Document</code> using the specified font, word wrapping
+	 * on the characters ' ', '\t', '\n', ',', '.', and ';', and painting each
+	 * printed line with a custom painter.  This can be used to print text
+	 * with styles, such as syntax highlighting.  Lines are laid out with
+	 * <code>font</code>, so the painter should only use fonts with the same
+	 * character widths.  This method is expected to be called from Printable
+	 * 'print(Graphics g)' functions.
+	 *
+	 * @param g The graphics context to write to.
+	 * @param textComponent The <code>javax.swing.text.JTextComponent</code>
+	 *        whose text you're printing.
+	 * @param font The font to use for printing.  If <code>null</code>, then
+	 *        <code>textComponent</code>'s font is used.
+	 * @param pageIndex The page number to print.
+	 * @param pageFormat The format to print the page with.
+	 * @param tabSize The number of spaces to convert tabs to.
+	 * @param painter Paints each printed line.
+	 * @return One of the constants from {@code Printable}.
+	 */
+	public static int printDocumentWordWrap(Graphics g, JTextComponent textComponent,
+										Font font, int pageIndex,
+										PageFormat pageFormat,
+										int tabSize, LinePainter painter) {
 
 		// Initialize our graphics object.
+		if (font==null) {
+			font = textComponent.getFont();
+		}
 		g.setColor(Color.BLACK);
-		g.setFont(font!=null ? font : textComponent.getFont());
+		g.setFont(font);
 
 		// Initialize our static variables (these are used by our tab expander below).
 		tabSizeInSpaces = tabSize;
 		fm = g.getFontMetrics();
+		FontMetrics fm = RPrintUtilities.fm;
 		int fontHeight = fm.getHeight();
 
 		final int lineLengthInPixels = (int)pageFormat.getImageableWidth();
-		final int maxLinesPerPage = (int)pageFormat.getImageableHeight() / fontHeight;
-
-		final int startingLineNumber = maxLinesPerPage * pageIndex;
+		final int maxLinesPerPage = Math.max(1, (int)pageFormat.getImageableHeight() / fontHeight);
 
 		// Create our tab expander.
 		RPrintTabExpander tabExpander = new RPrintTabExpander();
@@ -382,131 +399,110 @@ public abstract class RPrintUtilities {
 		xOffset = (int)pageFormat.getImageableX();
 		int y = (int)pageFormat.getImageableY() + fm.getAscent() + 1;
 
-		// A counter to keep track of the number of lines that WOULD HAVE been
-		// printed if we were printing all lines.
-		int numPrintedLines = 0;
-
-		// Keep going while there are more lines in the document.
+		int x = xOffset;
 		Document doc = textComponent.getDocument();
-		rootElement = doc.getDefaultRootElement();
-		numDocLines = rootElement.getElementCount();		// The number of lines in our document.
-		currentDocLineNumber = 0;					// The line number of the document we're currently on.
-		int startingOffset = 0;						// Used when a line is so long it has to be wrapped.
-		while (currentDocLineNumber<numDocLines) {
-
-			Segment currentLineSeg = new Segment();
-
-			// Get the current line (as an Element), and its starting and ending offset in doc.
-			Element currentLine  = rootElement.getElement(currentDocLineNumber);
-			int currentLineStart = currentLine.getStartOffset();
-			int currentLineEnd   = currentLine.getEndOffset();
-
-			// Put the chars of this line in currentLineSeg, but only starting at our desired offset
-			// (because this line may be the second part of a wrapped line, so we'd start after the part
-			// that has already been printed).
-			try {
+		Element rootElement = doc.getDefaultRootElement();
+		int numDocLines = rootElement.getElementCount();		// The number of lines in our document.
+
+		// Positions are a document line, and an offset into it (used when a
+		// line is so long it has to be wrapped).
+		LineWalker walker = (g2, pos, count, y2) -> {
+
+			int walked = 0;
+
+			while (walked<count && pos[0]<numDocLines) {
+
+				Segment currentLineSeg = new Segment();
+
+				// Get the current line (as an Element), and its starting and ending offset in doc.
+				Element currentLine  = rootElement.getElement(pos[0]);
+				int currentLineStart = currentLine.getStartOffset();
+				int currentLineEnd   = currentLine.getEndOffset();
+				int startingOffset = pos[1];
+
+				// Put the chars of this line in currentLineSeg, but only starting at our desired offset
+				// (because this line may be the second part of a wrapped line, so we'd start after the part
+				// that has already been printed).
 				doc.getText(currentLineStart+startingOffset, currentLineEnd-(currentLineStart+startingOffset),
 							currentLineSeg);
-			} catch (BadLocationException ble) {
-				ble.printStackTrace();
-				return Printable.NO_SUCH_PAGE;
-			}
 
-			// Remove any spaces and/or tabs from the end of the segment (would cause problems if you left 'em).
-			currentLineSeg = removeEndingWhitespace(currentLineSeg);
+				// Remove any spaces and/or tabs from the end of the segment (would cause problems if you left 'em).
+				currentLineSeg = removeEndingWhitespace(currentLineSeg);
 
-			// Figure out how long the line is, in pixels.
-			int currentLineLengthInPixels = Utilities.getTabbedTextWidth(currentLineSeg, fm, 0, tabExpander, 0);
+				// Figure out how long the line is, in pixels.
+				int currentLineLengthInPixels = Utilities.getTabbedTextWidth(currentLineSeg, fm, 0, tabExpander, 0);
 
-			//System.err.println("'" + currentLineSeg + "' - " + currentLineLengthInPixels + "/" +
-			// LINE_LENGTH_IN_PIXELS);
-			// If it'll fit by itself on a printed line, great.
-			if (currentLineLengthInPixels <= lineLengthInPixels) {
-				currentDocLineNumber += 1; 	// We (will) have printed one more line from the document.
-				startingOffset = 0;			// Start at the first character in the new document line.
-			}
+				// If it'll fit by itself on a printed line, great.
+				if (currentLineLengthInPixels <= lineLengthInPixels) {
+					pos[0]++;	// We (will) have printed one more line from the document.
+					pos[1] = 0;	// Start at the first character in the new document line.
+				}
 
-			// If it doesn't fit on a printed line by itself (i.e., it needs to be wrapped)...
-			else {
-
-				// Loop while the current line is too long to fit on a printed line.
-				int currentPos = -1;
-				while (currentLineLengthInPixels > lineLengthInPixels) {
-
-					//System.err.println("'" + currentLineSeg + "' - " + currentLineLengthInPixels + "/" +
-					// LINE_LENGTH_IN_PIXELS);
-
-					// Remove any spaces and/or tabs from the end of the segment (would cause problems if you left 'em).
-					currentLineSeg = removeEndingWhitespace(currentLineSeg);
-
-					// currentPos will be the last position in the current text of a "line break character."
-					currentPos = -1;
-					String currentLineString = currentLineSeg.toString();
-					for (char breakChar : BREAK_CHARS) {
-						// "+1" below so we include the character on the line.
-						int pos = currentLineString.lastIndexOf(breakChar) + 1;
-						//if (pos>-1 && pos>currentPos)
-						//	currentPos = pos;
-						if (pos > 0 && pos > currentPos && pos != currentLineString.length()) {
-							currentPos = pos;
+				// If it doesn't fit on a printed line by itself (i.e., it needs to be wrapped)...
+				else {
+
+					// Loop while the current line is too long to fit on a printed line.
+					int currentPos = -1;
+					while (currentLineLengthInPixels > lineLengthInPixels) {
+
+						// Remove any spaces and/or tabs from the end of the segment (would cause problems
+						// if you left 'em).
+						currentLineSeg = removeEndingWhitespace(currentLineSeg);
+
+						// currentPos will be the last position in the current text of a "line break character."
+						currentPos = -1;
+						String currentLineString = currentLineSeg.toString();
+						for (char breakChar : BREAK_CHARS) {
+							// "+1" below so we include the character on the line.
+							int pos2 = currentLineString.lastIndexOf(breakChar) + 1;
+							if (pos2 > 0 && pos2 > currentPos && pos2 != currentLineString.length()) {
+								currentPos = pos2;
+							}
 						}
-					}
 
-					// If we didn't find a line break character, we'll simply break the line at
-					// the last character that fits on a printed line.
-					// So here, we set currentPos to be the position of the last character that fits
-					// on the current printed line.
-					if (currentPos == -1) {
-
-						// Fix currentLineSeg so that it contains exactly enough text to fit in
-						// LINE_LENGTH_IN_PIXELS pixels...
-						currentPos = 0;
-						do {
-							currentPos++;
-							try {
+						// If we didn't find a line break character, we'll simply break the line at
+						// the last character that fits on a printed line.
+						// So here, we set currentPos to be the position of the last character that fits
+						// on the current printed line.
+						if (currentPos == -1) {
+
+							// Fix currentLineSeg so that it contains exactly enough text to fit in
+							// LINE_LENGTH_IN_PIXELS pixels...
+							currentPos = 0;
+							do {
+								currentPos++;
 								doc.getText(currentLineStart+startingOffset, currentPos, currentLineSeg);
-							} catch (BadLocationException ble) {
-								ble.printStackTrace();
-								return Printable.NO_SUCH_PAGE;
-							}
-							currentLineLengthInPixels = Utilities.
-								getTabbedTextWidth(currentLineSeg, fm, 0, tabExpander, 0);
-						} while (currentLineLengthInPixels <= lineLengthInPixels);
-						currentPos--;
+								currentLineLengthInPixels = Utilities.
+									getTabbedTextWidth(currentLineSeg, fm, 0, tabExpander, 0);
+							} while (currentLineLengthInPixels <= lineLengthInPixels);
+							currentPos--;
 
-					}
+						}
 
-					try {
 						doc.getText((currentLineStart+startingOffset), currentPos, currentLineSeg);
-					} catch (BadLocationException ble) {
-						ble.printStackTrace();
-						return Printable.NO_SUCH_PAGE;
-					}
 
-					currentLineLengthInPixels = Utilities.getTabbedTextWidth(currentLineSeg, fm, 0, tabExpander, 0);
-				} // End of while (currentLineLengthInPixels > LINE_LENGTH_IN_PIXELS).
+						currentLineLengthInPixels = Utilities.getTabbedTextWidth(currentLineSeg, fm, 0,
+								tabExpander, 0);
+					} // End of while (currentLineLengthInPixels > LINE_LENGTH_IN_PIXELS).
 
-				startingOffset += currentPos;	// Where to start (offset from line's start), since this line wraps.
+					pos[1] += currentPos;	// Where to start (offset from line's start), since this line wraps.
 
-			} // End of else.
+				} // End of else.
 
-			numPrintedLines++;
-			if (numPrintedLines>startingLineNumber) {
-				//g.drawString(currentLineSeg.toString(), xOffset,y);
-				Utilities.drawTabbedText(currentLineSeg, xOffset,y, g, tabExpander, 0);
-				y += fontHeight;
-				if (numPrintedLines==startingLineNumber+maxLinesPerPage) {
-					return Printable.PAGE_EXISTS;
+				if (g2!=null) {
+					painter.paintLine(g2, currentLineSeg, currentLineStart+startingOffset, x, y2, tabExpander);
+					y2 += fontHeight;
 				}
+				walked++;
+
 			}
 
-		}
+			return walked;
 
-		// Now, the whole document has been "printed."  Decide if this page had any text on it or not.
-		if (numPrintedLines > startingLineNumber) {
-			return Printable.PAGE_EXISTS;
-		}
-		return Printable.NO_SUCH_PAGE;
+		};
+
+		Pagination pagination = getPagination(g, doc, MODE_WORD_WRAP, pageFormat, font, tabSize);
+		return printPage(g, pagination, pageIndex, maxLinesPerPage, y, walker);
 
 	}
 
@@ -530,6 +526,168 @@ public abstract class RPrintUtilities {
 	}
 
 
+	/**
+	 * Paints a printed line of text.
+	 *
+	 * @see RPrintUtilities#printDocumentWordWrap(Graphics, JTextComponent, Font, int, PageFormat, int, LinePainter)
+	 */
+	@FunctionalInterface
+	public interface LinePainter {
+
+		/**
+		 * Paints a printed line.  A document line too long to fit on one
+		 * printed line is split into several, each painted separately.
+		 *
+		 * @param g The graphics context to paint with.  Its font and color
+		 *        are the defaults for the text being printed.
+		 * @param text The text to paint.
+		 * @param offs The document offset of the text.
+		 * @param x The x-coordinate at which to paint.
+		 * @param y The y-coordinate of the baseline at which to paint.
+		 * @param e How to expand tabs.
+		 */
+		void paintLine(Graphics g, Segment text, int offs, int x, int y, TabExpander e);
+
+	}
+
+
+	/**
+	 * Prints, or just lays out, printed lines.
+	 */
+	private interface LineWalker {
+
+		/**
+		 * Walks over printed lines.
+		 *
+		 * @param g The graphics context to print with, or <code>null</code>
+		 *        to only lay out the lines.
+		 * @param pos The position of the first printed line.  This is
+		 *        updated to the position after the last one.
+		 * @param count The number of printed lines to walk over.
+		 * @param y The y-coordinate of the baseline of the first line.
+		 * @return The number of printed lines walked over.  This is less
+		 *         than <code>count</code> if the end of the document is
+		 *         reached.
+		 * @throws BadLocationException Never.
+		 */
+		int walk(Graphics g, int[] pos, int count, int y) throws BadLocationException;
+
+	}
+
+
+	/**
+	 * The positions at which a document's pages start, for one page layout.
+	 * These are computed as pages are printed, and discarded if the document
+	 * changes.
+	 */
+	private static final class Pagination implements DocumentListener {
+
+		private final WeakReference<Document> doc;
+		private final int mode;
+		private final double imageableX;
+		private final double imageableY;
+		private final double imageableWidth;
+		private final double imageableHeight;
+		private final Font font;
+		private final int tabSize;
+		private final FontRenderContext frc;
+
+		/**
+		 * The start of each page laid out so far, as a document line and an
+		 * offset into it.
+		 */
+		private final DynamicIntArray pageStarts;
+		private boolean complete;
+		private volatile boolean valid;
+
+		Pagination(Document doc, int mode, PageFormat pageFormat, Font font, int tabSize,
+					FontRenderContext frc) {
+			this.doc = new WeakReference<>(doc);
+			this.mode = mode;
+			imageableX = pageFormat.getImageableX();
+			imageableY = pageFormat.getImageableY();
+			imageableWidth = pageFormat.getImageableWidth();
+			imageableHeight = pageFormat.getImageableHeight();
+			this.font = font;
+			this.tabSize = tabSize;
+			this.frc = frc;
+			pageStarts = new DynamicIntArray();
+			pageStarts.add(0);
+			pageStarts.add(0);
+			valid = true;
+			doc.addDocumentListener(this);
+		}
+
+		@Override
+		public void changedUpdate(DocumentEvent e) {
+			// Attribute changes don't affect layout
+		}
+
+		void dispose() {
+			Document doc = this.doc.get();
+			if (doc!=null) {
+				doc.removeDocumentListener(this);
+			}
+		}
+
+		/**
+		 * Returns the start of a page, laying out pages until it if needed.
+		 *
+		 * @return The start of the page, or <code>null</code> if there is no
+		 *         such page.
+		 */
+		synchronized int[] getPageStart(int pageIndex, int linesPerPage, LineWalker walker)
+				throws BadLocationException {
+
+			while (pageStarts.getSize()/2<=pageIndex && !complete) {
+				int last = pageStarts.getSize() - 2;
+				int[] pos = { pageStarts.get(last), pageStarts.get(last + 1) };
+				int walked = walker.walk(null, pos, linesPerPage, 0);
+				Document doc = this.doc.get();
+				if (walked<linesPerPage || doc==null ||
+						pos[0]>=doc.getDefaultRootElement().getElementCount()) {
+					complete = true; // The next page would be empty
+				}
+				else if (pos[0]==pageStarts.get(last) && pos[1]==pageStarts.get(last + 1)) {
+					complete = true; // Nothing fits on a page
+				}
+				else {
+					pageStarts.add(pos[0]);
+					pageStarts.add(pos[1]);
+				}
+			}
+
+			if (pageIndex<pageStarts.getSize()/2) {
+				return new int[] { pageStarts.get(pageIndex*2), pageStarts.get(pageIndex*2 + 1) };
+			}
+			return null;
+
+		}
+
+		@Override
+		public void insertUpdate(DocumentEvent e) {
+			valid = false;
+		}
+
+		boolean matches(Document doc, int mode, PageFormat pageFormat, Font font, int tabSize,
+						FontRenderContext frc) {
+			return valid && this.doc.get()==doc && this.mode==mode &&
+					imageableX==pageFormat.getImageableX() &&
+					imageableY==pageFormat.getImageableY() &&
+					imageableWidth==pageFormat.getImageableWidth() &&
+					imageableHeight==pageFormat.getImageableHeight() &&
+					this.font.equals(font) && this.tabSize==tabSize &&
+					Objects.equals(this.frc, frc);
+		}
+
+		@Override
+		public void removeUpdate(DocumentEvent e) {
+			valid = false;
+		}
+
+	}
+
+
 	/**
 	 * A tab expander for the document currently being printed with the
 	 * font being used for the printing.
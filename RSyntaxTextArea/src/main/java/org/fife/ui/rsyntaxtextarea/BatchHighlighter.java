@@ -0,0 +1,269 @@
+/*
+ * 10/19/2026
+ *
+ * BatchHighlighter.java - Syntax highlights text without a text area.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * LICENSE file for details.
+ */
+package org.fife.ui.rsyntaxtextarea;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import javax.swing.text.Segment;
+
+import org.fife.ui.rtextarea.RTextArea;
+
+
+/**
+ * Syntax highlights text without an <code>RSyntaxTextArea</code> or
+ * <code>RSyntaxDocument</code>, for example in a server rendering
+ * highlighted code for many files.  Text is tokenized directly by a
+ * {@link TokenMaker}, and the tokens are either reported as spans or written
+ * as HTML.<p>
+ *
+ * Instances of this class are thread safe, and are intended to be shared.
+ * <code>TokenMaker</code>s are not thread safe and are somewhat expensive to
+ * create, so each instance keeps a pool of them per language; a thread
+ * borrows one while it tokenizes text and returns it when done.  The pool
+ * for a language grows to the largest number of threads that have
+ * highlighted text in that language at the same time.<p>
+ *
+ * HTML is written with the CSS classes of a {@link StyledTextExporter}.  Use
+ * {@link #writeStyleSheet(Writer)} to get the style sheet for them.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ */
+public class BatchHighlighter {
+
+	private final TokenMakerFactory tokenMakerFactory;
+	private final StyledTextExporter exporter;
+	private final ConcurrentMap<String, Queue<TokenMaker>> pools;
+
+
+	/**
+	 * Creates a highlighter that uses the default
+	 * <code>TokenMakerFactory</code>, and default styles for HTML.
+	 */
+	public BatchHighlighter() {
+		this(TokenMakerFactory.getDefaultInstance(), createDefaultExporter());
+	}
+
+
+	/**
+	 * Constructor.
+	 *
+	 * @param tmf The factory to create token makers with.
+	 * @param exporter Determines the styles used for HTML.
+	 */
+	public BatchHighlighter(TokenMakerFactory tmf, StyledTextExporter exporter) {
+		this.tokenMakerFactory = tmf;
+		this.exporter = exporter;
+		pools = new ConcurrentHashMap<>();
+	}
+
+
+	private static StyledTextExporter createDefaultExporter() {
+		Font font = RTextArea.getDefaultFont();
+		return new StyledTextExporter(new SyntaxScheme(font), font,
+				Color.BLACK, Color.WHITE);
+	}
+
+
+	/**
+	 * Returns the exporter determining the styles used for HTML.
+	 *
+	 * @return The exporter.
+	 */
+	public StyledTextExporter getExporter() {
+		return exporter;
+	}
+
+
+	/**
+	 * Returns the number of idle token makers pooled for a language.  This
+	 * is really only here for unit tests.
+	 *
+	 * @param syntaxStyle The language.
+	 * @return The number of pooled token makers.
+	 */
+	int getPooledTokenMakerCount(String syntaxStyle) {
+		Queue<TokenMaker> pool = pools.get(syntaxStyle);
+		return pool==null ? 0 : pool.size();
+	}
+
+
+	/**
+	 * Tokenizes text, reporting each token to a handler.
+	 *
+	 * @param text The text to tokenize.  Lines can end in <code>\n</code>
+	 *        or <code>\r\n</code>.
+	 * @param syntaxStyle The language of the text, e.g.
+	 *        {@link SyntaxConstants#SYNTAX_STYLE_JAVA}.
+	 * @param handler Receives the tokens.
+	 * @see #toHtml(CharSequence, String)
+	 */
+	public void highlight(CharSequence text, String syntaxStyle,
+			TokenSpanHandler handler) {
+		try {
+			tokenize(text, syntaxStyle, t -> {
+				for (; t!=null && t.isPaintable(); t=t.getNextToken()) {
+					int start = t.getOffset();
+					if (t.length()>0) {
+						handler.handleSpan(t.getType(), start, start + t.length());
+					}
+				}
+			});
+		} catch (IOException ioe) { // Never happens
+			throw new UncheckedIOException(ioe);
+		}
+	}
+
+
+	/**
+	 * Returns text as syntax highlighted HTML.
+	 *
+	 * @param text The text to highlight.  Lines can end in <code>\n</code>
+	 *        or <code>\r\n</code>.
+	 * @param syntaxStyle The language of the text.
+	 * @return The HTML, a <code>pre</code> element.
+	 * @see #writeHtml(CharSequence, String, Writer)
+	 * @see #highlight(CharSequence, String, TokenSpanHandler)
+	 */
+	public String toHtml(CharSequence text, String syntaxStyle) {
+		StringWriter w = new StringWriter(text.length() * 2);
+		try {
+			writeHtml(text, syntaxStyle, w);
+		} catch (IOException ioe) { // Never happens
+			throw new UncheckedIOException(ioe);
+		}
+		return w.toString();
+	}
+
+
+	/**
+	 * Tokenizes text one line at a time, with a pooled token maker.
+	 */
+	private void tokenize(CharSequence text, String syntaxStyle,
+			LineHandler handler) throws IOException {
+
+		int length = text.length();
+		char[] chars = new char[length];
+		if (text instanceof String) {
+			((String)text).getChars(0, length, chars, 0);
+		}
+		else {
+			for (int i=0; i<length; i++) {
+				chars[i] = text.charAt(i);
+			}
+		}
+
+		Queue<TokenMaker> pool = pools.computeIfAbsent(syntaxStyle,
+				key -> new ConcurrentLinkedQueue<>());
+		TokenMaker tokenMaker = pool.poll();
+		if (tokenMaker==null) {
+			tokenMaker = tokenMakerFactory.getTokenMaker(syntaxStyle);
+		}
+
+		try {
+
+			Segment s = new Segment();
+			s.array = chars;
+			int initialTokenType = TokenTypes.NULL;
+			int lineStart = 0;
+
+			while (true) {
+
+				int lineEnd = lineStart;
+				while (lineEnd<length && chars[lineEnd]!='\n') {
+					lineEnd++;
+				}
+				int contentEnd = lineEnd;
+				if (contentEnd>lineStart && chars[contentEnd - 1]=='\r') {
+					contentEnd--;
+				}
+
+				s.offset = lineStart;
+				s.count = contentEnd - lineStart;
+				Token t = tokenMaker.getTokenList(s, initialTokenType, lineStart);
+				handler.handleLine(t);
+
+				// The last token's type is the state the next line starts in
+				while (t.getNextToken()!=null) {
+					t = t.getNextToken();
+				}
+				initialTokenType = t.getType();
+
+				if (lineEnd==length) {
+					break;
+				}
+				lineStart = lineEnd + 1;
+
+			}
+
+		} finally {
+			pool.offer(tokenMaker);
+		}
+
+	}
+
+
+	/**
+	 * Writes text as syntax highlighted HTML.  The HTML is a single
+	 * <code>&lt;pre class="rsta"&gt;</code> element.
+	 *
+	 * @param text The text to highlight.  Lines can end in <code>\n</code>
+	 *        or <code>\r\n</code>.
+	 * @param syntaxStyle The language of the text.
+	 * @param w The writer to write to.
+	 * @throws IOException If an IO error occurs.
+	 * @see #toHtml(CharSequence, String)
+	 * @see #writeStyleSheet(Writer)
+	 */
+	public void writeHtml(CharSequence text, String syntaxStyle, Writer w)
+			throws IOException {
+		w.write("<pre class=\"rsta\">");
+		boolean[] firstLine = { true };
+		tokenize(text, syntaxStyle, t -> {
+			if (!firstLine[0]) {
+				w.write('\n');
+			}
+			firstLine[0] = false;
+			exporter.writeHtmlLine(t, w);
+		});
+		w.write("</pre>");
+	}
+
+
+	/**
+	 * Writes the CSS style sheet for the HTML generated by this class.
+	 *
+	 * @param w The writer to write to.
+	 * @throws IOException If an IO error occurs.
+	 */
+	public void writeStyleSheet(Writer w) throws IOException {
+		exporter.writeStyleSheet(w);
+	}
+
+
+	/**
+	 * Receives each line of tokens in text being tokenized.
+	 */
+	@FunctionalInterface
+	private interface LineHandler {
+
+		void handleLine(Token t) throws IOException;
+
+	}
+
+
+}
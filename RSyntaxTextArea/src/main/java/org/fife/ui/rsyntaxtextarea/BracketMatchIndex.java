@@ -0,0 +1,598 @@
+/*
+ * 10/19/2026
+ *
+ * BracketMatchIndex.java - Finds matching brackets without scanning.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * LICENSE file for details.
+ */
+package org.fife.ui.rsyntaxtextarea;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Element;
+
+
+/**
+ * Finds the bracket matching another in an {@link RSyntaxDocument} without
+ * scanning (and lexing) every line between the two.<p>
+ *
+ * For each kind of bracket (<code>{}</code>, <code>()</code> and
+ * <code>[]</code>) and language index that has been queried, each line is
+ * summarized by the number of closing brackets in it that are unmatched
+ * within the line, and the number of unmatched opening brackets.  Only
+ * brackets in {@link TokenTypes#SEPARATOR} tokens count, so brackets in
+ * strings and comments are ignored.  Summaries of consecutive lines combine,
+ * so lines are grouped into blocks of a few hundred, each with the combined
+ * summary of its lines.  A search skips over whole blocks that can't
+ * contain the match, and only looks at the lines of the block that does.
+ * Only the line containing the match, and the line containing the bracket
+ * being matched, are then scanned.  Blocks are kept in a simple list, not
+ * a tree, so a search is still linear in the number of lines it crosses,
+ * just a few hundred times faster than scanning them.<p>
+ *
+ * The document tells this index when a line's text changes, and when the
+ * lexer state at the end of a line changes (since that changes the tokens
+ * of the line below it).  Changed lines are only re-lexed when a search
+ * reaches their block.  Lexer states are brought up to date lazily by the
+ * document, so a search only brings them up to date through the blocks it
+ * visits.  Inserting or removing lines only changes the blocks containing
+ * them.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ * @see RSyntaxDocument#getMatchingBracketOffset(int)
+ */
+final class BracketMatchIndex {
+
+	/**
+	 * The brackets, opening brackets first.  A bracket's kind is its index
+	 * in this string, modulo 3.
+	 */
+	static final String BRACKETS = "{([})]";
+
+	/**
+	 * The number of lines in a new block.  Blocks are split when they grow
+	 * to twice this size.
+	 */
+	private static final int BLOCK_SIZE = 256;
+
+	private final RSyntaxDocument doc;
+
+	/**
+	 * The summaries of each kind of bracket in each language, keyed by
+	 * {@link #getKey(int, int)}.  These are created the first time a
+	 * bracket of that kind and language is matched.
+	 */
+	private final Map<Integer, LineSummaries> summaries;
+
+
+	/**
+	 * Constructor.
+	 *
+	 * @param doc The document to index.
+	 */
+	BracketMatchIndex(RSyntaxDocument doc) {
+		this.doc = doc;
+		summaries = new HashMap<>();
+	}
+
+
+	/**
+	 * Discards all summaries, e.g. when the document's language changes.
+	 */
+	void clear() {
+		summaries.clear();
+	}
+
+
+	private static int getKey(int languageIndex, int kind) {
+		return languageIndex*3 + kind;
+	}
+
+
+	/**
+	 * Returns the offset of the bracket matching another.
+	 *
+	 * @param offs The offset of a bracket.
+	 * @return The offset of the matching bracket, or <code>-1</code> if the
+	 *         character at <code>offs</code> isn't a bracket in a separator
+	 *         token, or it has no match.
+	 */
+	int getMatchingBracketOffset(int offs) {
+
+		Element map = doc.getDefaultRootElement();
+		int line = map.getElementIndex(offs);
+		int index;
+		try {
+			index = BRACKETS.indexOf(doc.charAt(offs));
+		} catch (BadLocationException ble) {
+			return -1;
+		}
+		if (index==-1) {
+			return -1;
+		}
+		Token t = RSyntaxUtilities.getTokenAtOffset(
+				doc.getTokenListForLine(line), offs);
+		if (t==null || t.getType()!=TokenTypes.SEPARATOR) {
+			return -1;
+		}
+
+		// Note that "t" is only valid until another line is lexed
+		int languageIndex = t.getLanguageIndex();
+		int kind = index % 3;
+		boolean forward = index<3;
+
+		// Look in the rest of this line first
+		Element elem = map.getElement(line);
+		int[] depth = { 1 };
+		int match = forward ?
+				scanLine(line, offs + 1, elem.getEndOffset(), true, depth, kind,
+					languageIndex) :
+				scanLine(line, elem.getStartOffset(), offs, false, depth, kind,
+					languageIndex);
+		if (match>-1) {
+			return match;
+		}
+
+		LineSummaries lines = getLineSummaries(languageIndex, kind);
+		int matchLine = forward ? lines.findForward(line + 1, depth) :
+				lines.findBackward(line - 1, depth);
+		if (matchLine==-1) {
+			return -1;
+		}
+		elem = map.getElement(matchLine);
+		return scanLine(matchLine, elem.getStartOffset(), elem.getEndOffset(),
+				forward, depth, kind, languageIndex);
+
+	}
+
+
+	private LineSummaries getLineSummaries(int languageIndex, int kind) {
+		return summaries.computeIfAbsent(getKey(languageIndex, kind),
+				key -> new LineSummaries(languageIndex, kind));
+	}
+
+
+	/**
+	 * Called when a line must be re-lexed, because its text or its initial
+	 * lexer state changed.
+	 *
+	 * @param line The line.
+	 */
+	void invalidate(int line) {
+		for (LineSummaries lines : summaries.values()) {
+			lines.invalidate(line);
+		}
+	}
+
+
+	/**
+	 * Called when lines are inserted into the document.
+	 *
+	 * @param line The index of the first line inserted.
+	 * @param count The number of lines inserted.
+	 */
+	void linesInserted(int line, int count) {
+		for (LineSummaries lines : summaries.values()) {
+			lines.linesInserted(line, count);
+		}
+	}
+
+
+	/**
+	 * Called when lines are removed from the document.
+	 *
+	 * @param line The index of the first line removed.
+	 * @param count The number of lines removed.
+	 */
+	void linesRemoved(int line, int count) {
+		for (LineSummaries lines : summaries.values()) {
+			lines.linesRemoved(line, count);
+		}
+	}
+
+
+	/**
+	 * Returns the offsets of the brackets of one kind and language in part
+	 * of a line, in document order.
+	 *
+	 * @return The offsets of the brackets, each one's complement if it's a
+	 *         closing bracket.  The array may be longer than the number of
+	 *         brackets, which is stored in <code>count[0]</code>.
+	 */
+	private int[] getBrackets(int line, int start, int end, int kind,
+			int languageIndex, int[] count) {
+
+		char open = BRACKETS.charAt(kind);
+		char close = BRACKETS.charAt(kind + 3);
+		int[] brackets = new int[8];
+		int n = 0;
+
+		for (Token t=doc.getTokenListForLine(line); t!=null && t.isPaintable();
+				t=t.getNextToken()) {
+			int tokenEnd = t.getEndOffset();
+			if (tokenEnd<=start) {
+				continue;
+			}
+			if (t.getOffset()>=end) {
+				break;
+			}
+			if (t.getType()!=TokenTypes.SEPARATOR ||
+					t.getLanguageIndex()!=languageIndex) {
+				continue;
+			}
+			char[] text = t.getTextArray();
+			int textOffs = t.getTextOffset() - t.getOffset();
+			int from = Math.max(start, t.getOffset());
+			int to = Math.min(end, tokenEnd);
+			for (int offs=from; offs<to; offs++) {
+				char ch = text[textOffs + offs];
+				if (ch==open || ch==close) {
+					if (n==brackets.length) {
+						brackets = Arrays.copyOf(brackets, n*2);
+					}
+					brackets[n++] = ch==open ? offs : ~offs;
+				}
+			}
+		}
+
+		count[0] = n;
+		return brackets;
+
+	}
+
+
+	/**
+	 * Scans part of a line for the bracket that brings a depth to
+	 * <code>0</code>.
+	 *
+	 * @param line The line.
+	 * @param start The start of the part of the line to scan.
+	 * @param end The end of the part of the line to scan, exclusive.
+	 * @param forward Whether to scan forward, looking for closing brackets.
+	 * @param depth The number of unmatched brackets to match.  This is
+	 *        updated if no match is found.
+	 * @param kind The kind of bracket.
+	 * @param languageIndex The language of the brackets.
+	 * @return The offset of the match, or <code>-1</code> if none was found.
+	 */
+	private int scanLine(int line, int start, int end, boolean forward,
+			int[] depth, int kind, int languageIndex) {
+
+		int[] count = new int[1];
+		int[] brackets = getBrackets(line, start, end, kind, languageIndex,
+				count);
+		int n = count[0];
+
+		for (int i=0; i<n; i++) {
+			int bracket = brackets[forward ? i : n - 1 - i];
+			boolean closing = bracket<0;
+			if (closing==forward) {
+				if (--depth[0]==0) {
+					return closing ? ~bracket : bracket;
+				}
+			}
+			else {
+				depth[0]++;
+			}
+		}
+
+		return -1;
+
+	}
+
+
+	/**
+	 * The summaries of every line for one kind of bracket in one language.
+	 */
+	private final class LineSummaries {
+
+		private final int languageIndex;
+		private final int kind;
+		private final List<Block> blocks;
+
+		LineSummaries(int languageIndex, int kind) {
+			this.languageIndex = languageIndex;
+			this.kind = kind;
+			blocks = new ArrayList<>();
+			linesInserted(0, doc.getDefaultRootElement().getElementCount());
+		}
+
+		private void computeSummary(Block block, int index, int line) {
+			int[] count = new int[1];
+			Element elem = doc.getDefaultRootElement().getElement(line);
+			int[] brackets = getBrackets(line, elem.getStartOffset(),
+					elem.getEndOffset(), kind, languageIndex, count);
+			int closes = 0;
+			int opens = 0;
+			for (int i=0; i<count[0]; i++) {
+				if (brackets[i]>=0) {
+					opens++;
+				}
+				else if (opens>0) {
+					opens--;
+				}
+				else {
+					closes++;
+				}
+			}
+			block.lines[index*2] = closes;
+			block.lines[index*2 + 1] = opens;
+		}
+
+		/**
+		 * Finds the first line, at or before <code>to</code>, containing an
+		 * opening bracket that brings a depth to <code>0</code>.
+		 */
+		int findBackward(int to, int[] depth) {
+
+			if (to<0) {
+				return -1;
+			}
+			int[] start = new int[1];
+			int b = getBlock(to, start);
+			int first = start[0];
+
+			for (; b>=0; b--) {
+				Block block = blocks.get(b);
+				update(block, first);
+				int last = to - first;
+				if (last>=block.count - 1 && block.opens<depth[0]) {
+					depth[0] += block.closes - block.opens;
+				}
+				else {
+					for (int i=Math.min(last, block.count - 1); i>=0; i--) {
+						int opens = block.lines[i*2 + 1];
+						if (opens>=depth[0]) {
+							return first + i;
+						}
+						depth[0] += block.lines[i*2] - opens;
+					}
+				}
+				if (b>0) {
+					first -= blocks.get(b - 1).count;
+				}
+			}
+
+			return -1;
+
+		}
+
+		/**
+		 * Finds the first line, at or after <code>from</code>, containing a
+		 * closing bracket that brings a depth to <code>0</code>.
+		 */
+		int findForward(int from, int[] depth) {
+
+			int[] start = new int[1];
+			int b = getBlock(from, start);
+			if (b==-1) {
+				return -1;
+			}
+			int first = start[0];
+
+			for (; b<blocks.size(); b++) {
+				Block block = blocks.get(b);
+				update(block, first);
+				int i = from - first;
+				if (i<=0 && block.closes<depth[0]) {
+					depth[0] += block.opens - block.closes;
+				}
+				else {
+					for (i=Math.max(i, 0); i<block.count; i++) {
+						int closes = block.lines[i*2];
+						if (closes>=depth[0]) {
+							return first + i;
+						}
+						depth[0] += block.lines[i*2 + 1] - closes;
+					}
+				}
+				first += block.count;
+			}
+
+			return -1;
+
+		}
+
+		/**
+		 * Returns the block containing a line.
+		 *
+		 * @param line The line.
+		 * @param start Returns the first line of the block, or the number of
+		 *        lines if <code>line</code> is past the last one.
+		 * @return The index of the block, or <code>-1</code> if the line is
+		 *         past the last one.
+		 */
+		private int getBlock(int line, int[] start) {
+			int first = 0;
+			for (int i=0; i<blocks.size(); i++) {
+				int count = blocks.get(i).count;
+				if (line<first + count) {
+					start[0] = first;
+					return i;
+				}
+				first += count;
+			}
+			start[0] = first;
+			return -1;
+		}
+
+		void invalidate(int line) {
+			int[] start = new int[1];
+			int b = getBlock(line, start);
+			if (b>-1) {
+				blocks.get(b).invalidate(line - start[0]);
+			}
+		}
+
+		void linesInserted(int line, int count) {
+
+			int[] start = new int[1];
+			int b = getBlock(line, start);
+			if (b==-1) { // Appending lines
+				if (blocks.isEmpty()) {
+					blocks.add(new Block(0));
+				}
+				b = blocks.size() - 1;
+				start[0] -= blocks.get(b).count;
+			}
+
+			Block block = blocks.get(b);
+			block.insert(line - start[0], count);
+			if (block.count>2*BLOCK_SIZE) {
+				List<Block> split = new ArrayList<>();
+				for (int i=0; i<block.count; i+=BLOCK_SIZE) {
+					split.add(block.copy(i, Math.min(BLOCK_SIZE, block.count - i)));
+				}
+				blocks.remove(b);
+				blocks.addAll(b, split);
+			}
+
+		}
+
+		void linesRemoved(int line, int count) {
+
+			int[] start = new int[1];
+			int b = getBlock(line, start);
+			int offs = line - start[0];
+
+			while (count>0 && b>-1 && b<blocks.size()) {
+				Block block = blocks.get(b);
+				int n = Math.min(count, block.count - offs);
+				block.remove(offs, n);
+				count -= n;
+				if (block.count==0) {
+					blocks.remove(b);
+				}
+				else {
+					b++;
+				}
+				offs = 0;
+			}
+
+			// Merge a small block left by the removal into the next one
+			int merged = Math.min(b, blocks.size() - 1) - 1;
+			if (merged>=0) {
+				Block block = blocks.get(merged);
+				Block next = blocks.get(merged + 1);
+				if ((block.count<BLOCK_SIZE/4 || next.count<BLOCK_SIZE/4) &&
+						block.count + next.count<=2*BLOCK_SIZE) {
+					block.append(next);
+					blocks.remove(merged + 1);
+				}
+			}
+
+		}
+
+		/**
+		 * Brings a block's summary up to date, re-lexing changed lines.
+		 *
+		 * @param block The block.
+		 * @param first The first line of the block.
+		 */
+		private void update(Block block, int first) {
+
+			// Changes to the lexer state at the ends of lines are found
+			// lazily, and invalidate the lines below them when they are
+			doc.getLastTokenTypeOnLine(first + block.count - 1);
+
+			if (block.dirty) {
+				int closes = 0;
+				int opens = 0;
+				for (int i=0; i<block.count; i++) {
+					if (block.lines[i*2]==-1) {
+						computeSummary(block, i, first + i);
+					}
+					int matched = Math.min(opens, block.lines[i*2]);
+					closes += block.lines[i*2] - matched;
+					opens += block.lines[i*2 + 1] - matched;
+				}
+				block.closes = closes;
+				block.opens = opens;
+				block.dirty = false;
+			}
+
+		}
+
+	}
+
+
+	/**
+	 * A block of consecutive lines' summaries, and their combined summary.
+	 */
+	private static final class Block {
+
+		/**
+		 * For each line, the number of unmatched closing brackets followed
+		 * by the number of unmatched opening brackets.  Lines to re-lex have
+		 * <code>-1</code> unmatched closing brackets.
+		 */
+		private int[] lines;
+		private int count;
+
+		private int closes;
+		private int opens;
+
+		/**
+		 * Whether lines were changed, inserted or removed since the
+		 * combined summary was computed.
+		 */
+		private boolean dirty;
+
+		Block(int capacity) {
+			lines = new int[Math.max(capacity, BLOCK_SIZE)*2];
+			dirty = true;
+		}
+
+		void append(Block block) {
+			ensureCapacity(count + block.count);
+			System.arraycopy(block.lines, 0, lines, count*2, block.count*2);
+			count += block.count;
+			dirty = true;
+		}
+
+		Block copy(int index, int n) {
+			Block block = new Block(n);
+			System.arraycopy(lines, index*2, block.lines, 0, n*2);
+			block.count = n;
+			return block;
+		}
+
+		private void ensureCapacity(int n) {
+			if (n*2>lines.length) {
+				lines = Arrays.copyOf(lines, Math.max(n*2, lines.length*3/2));
+			}
+		}
+
+		void insert(int index, int n) {
+			ensureCapacity(count + n);
+			System.arraycopy(lines, index*2, lines, (index + n)*2,
+					(count - index)*2);
+			for (int i=index; i<index+n; i++) {
+				lines[i*2] = -1;
+			}
+			count += n;
+			dirty = true;
+		}
+
+		void invalidate(int index) {
+			lines[index*2] = -1;
+			dirty = true;
+		}
+
+		void remove(int index, int n) {
+			System.arraycopy(lines, (index + n)*2, lines, index*2,
+					(count - index - n)*2);
+			count -= n;
+			dirty = true;
+		}
+
+	}
+
+
+}
@@ -72,7 +72,8 @@ class DefaultOccurrenceMarker implements OccurrenceMarker {
 
 	/**
 	 * Highlights all instances of tokens identical to <code>t</code> in the
-	 * specified document.
+	 * specified document.  Only tokens in the same language as
+	 * <code>t</code> (see {@link Token#getLanguageIndex()}) are highlighted.
 	 *
 	 * @param doc The document.
 	 * @param t The document whose relevant occurrences should be marked.
@@ -84,12 +85,19 @@ class DefaultOccurrenceMarker implements OccurrenceMarker {
 
 		char[] lexeme = t.getLexeme().toCharArray();
 		int type = t.getType();
+		int languageIndex = t.getLanguageIndex();
 		int lineCount = doc.getDefaultRootElement().getElementCount();
 
 		for (int i=0; i<lineCount; i++) {
+			// Skip lines with no text in the token's language, usually
+			// without lexing them
+			if (!doc.getLineContainsLanguage(i, languageIndex)) {
+				continue;
+			}
 			Token temp = doc.getTokenListForLine(i);
 			while (temp!=null && temp.isPaintable()) {
-				if (temp.is(type, lexeme)) {
+				if (temp.is(type, lexeme) &&
+						temp.getLanguageIndex()==languageIndex) {
 					try {
 						int end = temp.getEndOffset();
 						h.addMarkedOccurrenceHighlight(temp.getOffset(),end,p);
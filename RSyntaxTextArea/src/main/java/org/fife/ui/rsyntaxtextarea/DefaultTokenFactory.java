@@ -71,14 +71,17 @@ class DefaultTokenFactory implements TokenFactory {
 
 	/**
 	 * Adds tokens to the internal token list.  This is called whenever a
-	 * request is made and no more tokens are available.
+	 * request is made and no more tokens are available.  The list grows by
+	 * half its size (but at least <code>increment</code>) so lexing very long
+	 * lines doesn't copy it over and over.
 	 */
 	private void augmentTokenList() {
-		TokenImpl[] temp = new TokenImpl[size + increment];
+		int added = Math.max(increment, size / 2);
+		TokenImpl[] temp = new TokenImpl[size + added];
 		System.arraycopy(tokenList,0, temp,0, size);
-		size += increment;
+		size += added;
 		tokenList = temp;
-		for (int i=0; i<increment; i++) {
+		for (int i=0; i<added; i++) {
 			tokenList[size-i-1] = new TokenImpl();
 		}
 		//System.err.println("... size up to: " + size);
@@ -9,6 +9,7 @@
 package org.fife.ui.rsyntaxtextarea;
 
 import java.awt.Color;
+import java.awt.Font;
 import java.awt.FontMetrics;
 import java.awt.Graphics2D;
 import java.awt.geom.Rectangle2D;
@@ -52,7 +53,9 @@ public class DefaultTokenPainter implements TokenPainter {
 		int end = textOffs + charCount;
 		int flushLen = 0;
 		int flushIndex = textOffs;
-		FontMetrics fm = host.getFontMetricsForTokenType(token.getType());
+		TokenStyleTable styles = host.getTokenStyleTable(token);
+		FontMetrics fm = styles!=null ? styles.getFontMetrics(token.getType()) :
+			host.getFontMetricsForTokenType(token.getType());
 
 		for (int i=textOffs; i<end; i++) {
             if (text[i] == '\t') {
@@ -109,7 +112,7 @@ public class DefaultTokenPainter implements TokenPainter {
 	protected void paintBackground(float x, float y, float width, float height,
 							Graphics2D g, int fontAscent, RSyntaxTextArea host,
 							Color color) {
-		g.setColor(color);
+		setColor(g, color);
 		bgRect.setRect(x,y-fontAscent, width,height);
 		//g.fill(bgRect);
 		g.fillRect((int)x, (int)(y-fontAscent), (int)width, (int)height);
@@ -130,11 +133,27 @@ public class DefaultTokenPainter implements TokenPainter {
 		float nextX = x;
 		int flushLen = 0;
 		int flushIndex = textOffs;
-		Color fg = useSTC ? host.getSelectedTextColor() :
-			host.getForegroundForToken(token);
-		Color bg = selected ? null : host.getBackgroundForToken(token);
-		g.setFont(host.getFontForToken(token));
-		FontMetrics fm = host.getFontMetricsForToken(token);
+		int type = token.getType();
+		TokenStyleTable styles = host.getTokenStyleTable(token);
+		Color fg;
+		Color bg;
+		FontMetrics fm;
+		boolean underline;
+		if (styles!=null) {
+			fg = useSTC ? host.getSelectedTextColor() : styles.getForeground(type);
+			bg = selected ? null : styles.getBackground(token);
+			setFont(g, styles.getFont(type));
+			fm = styles.getFontMetrics(type);
+			underline = styles.getUnderline(type);
+		}
+		else {
+			fg = useSTC ? host.getSelectedTextColor() :
+				host.getForegroundForToken(token);
+			bg = selected ? null : host.getBackgroundForToken(token);
+			setFont(g, host.getFontForToken(token));
+			fm = host.getFontMetricsForToken(token);
+			underline = host.getUnderlineForToken(token);
+		}
 
 		for (int i=textOffs; i<end; i++) {
 			switch (text[i]) {
@@ -146,7 +165,7 @@ public class DefaultTokenPainter implements TokenPainter {
 									g, fm.getAscent(), host, bg);
 					}
 					if (flushLen > 0) {
-						g.setColor(fg);
+						setColor(g, fg);
 						g.drawChars(text, flushIndex, flushLen, (int)x,(int)y);
 						flushLen = 0;
 					}
@@ -171,12 +190,12 @@ public class DefaultTokenPainter implements TokenPainter {
 							g, host, r);
 				}
 			}
-			g.setColor(fg);
+			setColor(g, fg);
 			g.drawChars(text, flushIndex, flushLen, (int)x,(int)y);
 		}
 
-		if (host.getUnderlineForToken(token)) {
-			g.setColor(fg);
+		if (underline) {
+			setColor(g, fg);
 			int y2 = (int)(y+1);
 			g.drawLine(origX,y2, (int)nextX,y2);
 		}
@@ -208,6 +227,39 @@ public class DefaultTokenPainter implements TokenPainter {
 	}
 
 
+	/**
+	 * Sets the color of a graphics context, if it isn't already that color.
+	 * Consecutive tokens are usually painted in the same few colors, and not
+	 * all graphics contexts (e.g. printer ones) make redundant changes
+	 * free.
+	 *
+	 * @param g The graphics context.
+	 * @param color The color.
+	 */
+	static void setColor(Graphics2D g, Color color) {
+		// Compare against the paint, not the color, as the latter isn't
+		// updated when a non-Color paint is set.
+		if (g.getPaint()!=color) {
+			g.setColor(color);
+		}
+	}
+
+
+	/**
+	 * Sets the font of a graphics context, if it isn't already that font.
+	 * Changing the font of a graphics context invalidates its cached font
+	 * information, so we avoid doing so redundantly for consecutive tokens.
+	 *
+	 * @param g The graphics context.
+	 * @param font The font.
+	 */
+	static void setFont(Graphics2D g, Font font) {
+		if (g.getFont()!=font) {
+			g.setFont(font);
+		}
+	}
+
+
 	/**
 	 * Paints dotted "tab" lines; that is, lines that show where your caret
 	 * would go to on the line if you hit "tab".  This visual effect is usually
@@ -246,7 +298,9 @@ public class DefaultTokenPainter implements TokenPainter {
 		}
 
 		// Get the length of a tab.
-		FontMetrics fm = host.getFontMetricsForToken(token);
+		TokenStyleTable styles = host.getTokenStyleTable(token);
+		FontMetrics fm = styles!=null ? styles.getFontMetrics(token.getType()) :
+			host.getFontMetricsForToken(token);
 		int tabSize = host.getTabSize();
 		if (tabBuf==null || tabBuf.length<tabSize) {
 			tabBuf = new char[tabSize];
@@ -263,7 +317,7 @@ public class DefaultTokenPainter implements TokenPainter {
 
 		// Draw any tab lines.  Here we're assuming that "x" is the left
 		// margin of the editor.
-		g.setColor(host.getTabLineColor());
+		setColor(g, host.getTabLineColor());
 		int x0 = x + tabW;
 		int y0 = y - fm.getAscent();
 		if ((y0&1)>0) {
@@ -0,0 +1,339 @@
+/*
+ * 10/19/2026
+ *
+ * DocumentSnapshot.java - An immutable view of an RSyntaxDocument.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * LICENSE file for details.
+ */
+package org.fife.ui.rsyntaxtextarea;
+
+import java.util.Arrays;
+import java.util.function.Supplier;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Segment;
+
+import org.fife.ui.rtextarea.TextSnapshot;
+
+
+/**
+ * The state of an {@link RSyntaxDocument} at a point in time:  its text,
+ * its lines, and the "last token type" of each line.  Snapshots are
+ * created by {@link RSyntaxDocument#createSnapshot()}, and never change,
+ * so long-running work such as parsing can read one on a background thread
+ * without holding the document's lock, and check {@link #isStale()} to
+ * tell whether its results are still relevant.<p>
+ *
+ * Line offsets follow the document's own line elements:  the end offset
+ * of a line is the start offset of the next one, and the last line ends
+ * one past the end of the text.<p>
+ *
+ * The line map and any stale "last token type" values are computed the
+ * first time they're asked for, on the calling thread.  Instances are
+ * safe to use from multiple threads.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ * @see RSyntaxDocument#createSnapshot()
+ */
+public final class DocumentSnapshot {
+
+	private final RSyntaxDocument document;
+	private final long version;
+	private final int syntaxStyleVersion;
+	private final TextSnapshot text;
+
+	/**
+	 * The start offset of each line, or <code>null</code> until it's
+	 * needed.
+	 */
+	private int[] lineStarts;
+
+	/**
+	 * The "last token type" of each line.  Values for lines at or after
+	 * {@link #upToDateLines} may be stale.
+	 */
+	private final int[] lastTokenTypes;
+	private int upToDateLines;
+
+	/**
+	 * Creates token makers for computing stale "last token type" values,
+	 * or <code>null</code> if the document's token maker can't be
+	 * duplicated.
+	 */
+	private final Supplier<TokenMaker> tokenMakers;
+	private TokenMaker tokenMaker;
+
+
+	/**
+	 * Constructor.
+	 *
+	 * @param document The document.
+	 * @param version The document's version.
+	 * @param syntaxStyleVersion The document's syntax style version.
+	 * @param text The document's text.
+	 * @param lastTokenTypes The "last token type" of each line.  This
+	 *        array is not copied.
+	 * @param upToDateLines The number of lines, from the top, whose values
+	 *        in <code>lastTokenTypes</code> are up to date.
+	 * @param tokenMakers Creates token makers for computing the rest of
+	 *        them, or <code>null</code> if that isn't possible.
+	 */
+	DocumentSnapshot(RSyntaxDocument document, long version, int syntaxStyleVersion,
+			TextSnapshot text, int[] lastTokenTypes, int upToDateLines,
+			Supplier<TokenMaker> tokenMakers) {
+		this.document = document;
+		this.version = version;
+		this.syntaxStyleVersion = syntaxStyleVersion;
+		this.text = text;
+		this.lastTokenTypes = lastTokenTypes;
+		this.upToDateLines = upToDateLines;
+		this.tokenMakers = tokenMakers;
+	}
+
+
+	/**
+	 * Returns a character in the text.
+	 *
+	 * @param offs The offset of the character.
+	 * @return The character.
+	 * @throws IndexOutOfBoundsException If the offset is invalid.
+	 */
+	public char charAt(int offs) {
+		return text.charAt(offs);
+	}
+
+
+	/**
+	 * Returns a new instance of the document's token maker, for lexing this
+	 * snapshot's text.
+	 *
+	 * @return The token maker, or <code>null</code> if the document's token
+	 *         maker didn't come from its <code>TokenMakerFactory</code>, and
+	 *         so can't be duplicated.
+	 */
+	TokenMaker createTokenMaker() {
+		return tokenMakers!=null ? tokenMakers.get() : null;
+	}
+
+
+	/**
+	 * Returns the document this is a snapshot of.
+	 *
+	 * @return The document.
+	 */
+	public RSyntaxDocument getDocument() {
+		return document;
+	}
+
+
+	/**
+	 * Returns the "last token type" of a line, as
+	 * {@link RSyntaxDocument#getLastTokenTypeOnLine(int)} would have when
+	 * this snapshot was taken.<p>
+	 *
+	 * If the document's value was stale, and its token maker came from its
+	 * <code>TokenMakerFactory</code>, the value is computed by lexing this
+	 * snapshot's text with a new token maker.  Otherwise, the (possibly
+	 * stale) value is returned as is.
+	 *
+	 * @param line The line.
+	 * @return The last token type on the line.
+	 * @throws IndexOutOfBoundsException If the line is invalid.
+	 */
+	public synchronized int getLastTokenTypeOnLine(int line) {
+
+		if (line<0 || line>=lastTokenTypes.length) {
+			throw new IndexOutOfBoundsException("Invalid line: " + line);
+		}
+
+		if (line>=upToDateLines && tokenMakers!=null) {
+			if (tokenMaker==null) {
+				tokenMaker = tokenMakers.get();
+			}
+			Segment s = new Segment();
+			int prev = upToDateLines>0 ? lastTokenTypes[upToDateLines - 1] : Token.NULL;
+			for (int i=upToDateLines; i<=line; i++) {
+				getLineText(i, s);
+				prev = lastTokenTypes[i] = tokenMaker.getLastTokenTypeOnLine(s, prev);
+			}
+			upToDateLines = line + 1;
+		}
+
+		return lastTokenTypes[line];
+
+	}
+
+
+	/**
+	 * Returns the number of characters in the text.
+	 *
+	 * @return The length of the text.
+	 */
+	public int getLength() {
+		return text.length();
+	}
+
+
+	/**
+	 * Returns the number of lines.
+	 *
+	 * @return The number of lines.  This is always at least <code>1</code>.
+	 */
+	public int getLineCount() {
+		return lastTokenTypes.length;
+	}
+
+
+	/**
+	 * Returns the end offset of a line, like
+	 * <code>Element.getEndOffset()</code> for the document's line elements.
+	 *
+	 * @param line The line.
+	 * @return The offset after the line's newline.
+	 * @throws IndexOutOfBoundsException If the line is invalid.
+	 * @see #getLineStartOffset(int)
+	 */
+	public int getLineEndOffset(int line) {
+		int[] starts = getLineStarts();
+		if (line<0 || line>=starts.length) {
+			throw new IndexOutOfBoundsException("Invalid line: " + line);
+		}
+		return line + 1<starts.length ? starts[line + 1] : text.length() + 1;
+	}
+
+
+	/**
+	 * Returns the line containing an offset.
+	 *
+	 * @param offs The offset.  Offsets past the end of the text are on the
+	 *        last line.
+	 * @return The line.
+	 */
+	public int getLineOfOffset(int offs) {
+		int[] starts = getLineStarts();
+		int line = Arrays.binarySearch(starts, offs);
+		return line>=0 ? line : Math.max(0, -line - 2);
+	}
+
+
+	/**
+	 * Returns the start offset of a line.
+	 *
+	 * @param line The line.
+	 * @return The offset of the start of the line.
+	 * @throws IndexOutOfBoundsException If the line is invalid.
+	 * @see #getLineEndOffset(int)
+	 */
+	public int getLineStartOffset(int line) {
+		int[] starts = getLineStarts();
+		if (line<0 || line>=starts.length) {
+			throw new IndexOutOfBoundsException("Invalid line: " + line);
+		}
+		return starts[line];
+	}
+
+
+	/**
+	 * Returns the start offset of each line, computing them if necessary.
+	 *
+	 * @return The start offsets.
+	 */
+	private synchronized int[] getLineStarts() {
+
+		if (lineStarts==null) {
+			int[] starts = new int[lastTokenTypes.length];
+			int line = 1;
+			Segment s = new Segment();
+			s.setPartialReturn(true);
+			int offs = 0;
+			int length = text.length();
+			try {
+				while (offs<length) {
+					text.getText(offs, length - offs, s);
+					for (int i=0; i<s.count; i++) {
+						if (s.array[s.offset + i]=='\n') {
+							starts[line++] = offs + i + 1;
+						}
+					}
+					offs += s.count;
+				}
+			} catch (BadLocationException ble) { // Never happens
+				throw new InternalError(ble);
+			}
+			lineStarts = starts;
+		}
+
+		return lineStarts;
+
+	}
+
+
+	/**
+	 * Returns the text of a line, without its newline.
+	 *
+	 * @param line The line.
+	 * @param s Receives the text.  Its array must not be modified.
+	 * @throws IndexOutOfBoundsException If the line is invalid.
+	 */
+	public void getLineText(int line, Segment s) {
+		int start = getLineStartOffset(line);
+		try {
+			text.getText(start, getLineEndOffset(line) - 1 - start, s);
+		} catch (BadLocationException ble) { // Never happens
+			throw new InternalError(ble);
+		}
+	}
+
+
+	/**
+	 * Returns the text.
+	 *
+	 * @return The text.
+	 */
+	public TextSnapshot getText() {
+		return text;
+	}
+
+
+	/**
+	 * Returns some of the text.
+	 *
+	 * @param offs The start offset of the text.
+	 * @param len The length of the text.
+	 * @return The text.
+	 * @throws BadLocationException If the range is invalid.
+	 */
+	public String getText(int offs, int len) throws BadLocationException {
+		return text.getText(offs, len);
+	}
+
+
+	/**
+	 * Returns the document's version when this snapshot was taken.
+	 *
+	 * @return The version.
+	 * @see RSyntaxDocument#getVersion()
+	 * @see #isStale()
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+
+	/**
+	 * Returns whether the document's text or syntax style has changed since
+	 * this snapshot was taken.  A snapshot taken before a syntax style change
+	 * still has the text of the document, but its "last token type" values
+	 * and token maker are for the old language.  This doesn't need the
+	 * document's lock.
+	 *
+	 * @return Whether this snapshot is out of date.
+	 */
+	public boolean isStale() {
+		return document.getVersion()!=version ||
+				document.getSyntaxStyleVersion()!=syntaxStyleVersion;
+	}
+
+
+}
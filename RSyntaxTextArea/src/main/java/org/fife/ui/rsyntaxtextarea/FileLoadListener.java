@@ -0,0 +1,68 @@
+/*
+ * 10/19/2026
+ *
+ * FileLoadListener.java - Listens for the progress of an asynchronous file
+ * load in a TextEditorPane.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * LICENSE file for details.
+ */
+package org.fife.ui.rsyntaxtextarea;
+
+import java.io.IOException;
+import java.util.EventListener;
+
+
+/**
+ * Listens for the progress of a file being loaded asynchronously into a
+ * {@link TextEditorPane}.  All methods are called on the EDT.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ * @see TextEditorPane#loadAsync(FileLocation, String, FileLoadListener)
+ */
+public interface FileLoadListener extends EventListener {
+
+
+	/**
+	 * Called after each batch of text is appended to the editor.
+	 *
+	 * @param textArea The text area the file is being loaded into.
+	 * @param bytesRead The number of bytes read from the file so far.
+	 * @param totalBytes The total size of the file in bytes, or
+	 *        <code>-1</code> if it is not known (e.g. for remote files).
+	 */
+	void fileLoadProgress(TextEditorPane textArea, long bytesRead,
+						long totalBytes);
+
+
+	/**
+	 * Called when the file has been completely loaded.  At this point
+	 * the editor's file location, encoding and line separator have been
+	 * updated, its dirty flag is cleared and its undo history is empty.
+	 *
+	 * @param textArea The text area the file was loaded into.
+	 */
+	void fileLoadCompleted(TextEditorPane textArea);
+
+
+	/**
+	 * Called when the load was cancelled.  The editor is left empty,
+	 * referencing its previous file location.
+	 *
+	 * @param textArea The text area the file was being loaded into.
+	 */
+	void fileLoadCancelled(TextEditorPane textArea);
+
+
+	/**
+	 * Called when an IO error occurred loading the file.  The editor is
+	 * left empty, referencing its previous file location.
+	 *
+	 * @param textArea The text area the file was being loaded into.
+	 * @param e The error that occurred.
+	 */
+	void fileLoadFailed(TextEditorPane textArea, IOException e);
+
+
+}
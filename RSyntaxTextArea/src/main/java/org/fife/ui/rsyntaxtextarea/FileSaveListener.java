@@ -0,0 +1,57 @@
+/*
+ * 10/19/2026
+ *
+ * FileSaveListener.java - Listens for the progress of an asynchronous file
+ * save in a TextEditorPane.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * LICENSE file for details.
+ */
+package org.fife.ui.rsyntaxtextarea;
+
+import java.io.IOException;
+import java.util.EventListener;
+
+
+/**
+ * Listens for the progress of a file being saved asynchronously from a
+ * {@link TextEditorPane}.  All methods are called on the EDT.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ * @see TextEditorPane#saveAsync(FileSaveListener)
+ * @see TextEditorPane#saveAsAsync(FileLocation, FileSaveListener)
+ */
+public interface FileSaveListener extends EventListener {
+
+
+	/**
+	 * Called periodically as text is written.
+	 *
+	 * @param textArea The text area being saved.
+	 * @param charsWritten The number of characters written so far.
+	 * @param totalChars The total number of characters to write.
+	 */
+	void fileSaveProgress(TextEditorPane textArea, long charsWritten,
+						long totalChars);
+
+
+	/**
+	 * Called when the file has been completely saved.
+	 *
+	 * @param textArea The text area that was saved.
+	 */
+	void fileSaveCompleted(TextEditorPane textArea);
+
+
+	/**
+	 * Called when an IO error occurred saving the file.  For local files,
+	 * the file on disk is left untouched.
+	 *
+	 * @param textArea The text area being saved.
+	 * @param e The error that occurred.
+	 */
+	void fileSaveFailed(TextEditorPane textArea, IOException e);
+
+
+}
@@ -42,6 +42,25 @@ public class FoldingAwareIconRowHeader extends IconRowHeader {
 	}
 
 
+	/**
+	 * Returns the index of the last tracking icon that might be in the
+	 * visible area.
+	 *
+	 * @param root The root element of the document.
+	 * @return The index of the icon, or <code>-1</code> if none are.
+	 */
+	private int getLastPossiblyVisibleIconIndex(Element root) {
+		int bottomOffs = textArea.viewToModel(
+								new Point(0, visibleRect.y+visibleRect.height));
+		int bottomLine = root.getElementIndex(bottomOffs);
+		if (bottomLine+1<root.getElementCount()) {
+			int end = root.getElement(bottomLine+1).getStartOffset();
+			return getFirstTrackingIconIndexAtOrAfter(end) - 1;
+		}
+		return trackingIcons.size() - 1;
+	}
+
+
 	@Override
 	protected void paintComponent(Graphics g) {
 
@@ -148,7 +167,7 @@ public class FoldingAwareIconRowHeader extends IconRowHeader {
 		// Paint icons
 		if (trackingIcons!=null) {
 			int lastLine = textArea.getLineCount() - 1;
-			for (int i=trackingIcons.size()-1; i>=0; i--) { // Last to first
+			for (int i=getLastPossiblyVisibleIconIndex(root); i>=0; i--) { // Last to first
 				GutterIconInfo ti = getTrackingIcon(i);
 				int offs = ti.getMarkedOffset();
 				if (offs>=0 && offs<=doc.getLength()) {
@@ -214,7 +233,7 @@ public class FoldingAwareIconRowHeader extends IconRowHeader {
 		// Paint icons
 		if (trackingIcons!=null) {
 			int lastLine = textArea.getLineCount() - 1;
-			for (int i=trackingIcons.size()-1; i>=0; i--) { // Last to first
+			for (int i=getLastPossiblyVisibleIconIndex(root); i>=0; i--) { // Last to first
 				GutterIconInfo ti = getTrackingIcon(i);
 				Icon icon = ti.getIcon();
 				if (icon!=null) {
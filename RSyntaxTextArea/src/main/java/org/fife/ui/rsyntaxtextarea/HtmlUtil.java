@@ -5,6 +5,8 @@
 package org.fife.ui.rsyntaxtextarea;
 
 import java.awt.*;
+import java.io.IOException;
+import java.io.Writer;
 
 /**
  * Utility methods useful when generating HTML representations of RSTA content.
@@ -101,6 +103,66 @@ public final class HtmlUtil {
 	}
 
 
+	/**
+	 * Writes text escaped for use as the content of an HTML element.  Unlike
+	 * {@link #escapeForHtml(String, String, boolean)}, only the characters
+	 * that must be escaped are, and the output is 7-bit ASCII:  other
+	 * characters are written as numeric character references.
+	 *
+	 * @param text The text to write.
+	 * @param start The offset of the first character to write.
+	 * @param end The offset after the last character to write.
+	 * @param w The writer to write to.
+	 * @throws IOException If an IO error occurs.
+	 */
+	static void escapeForHtml(char[] text, int start, int end, Writer w)
+			throws IOException {
+
+		int lastWritten = start;
+
+		for (int i=start; i<end; i++) {
+
+			char ch = text[i];
+			String replacement;
+			switch (ch) {
+				case '&':
+					replacement = "&amp;";
+					break;
+				case '<':
+					replacement = "&lt;";
+					break;
+				case '>':
+					replacement = "&gt;";
+					break;
+				default:
+					if (ch<128) {
+						continue;
+					}
+					int cp = ch;
+					if (Character.isHighSurrogate(ch) && i + 1<end &&
+							Character.isLowSurrogate(text[i + 1])) {
+						cp = Character.toCodePoint(ch, text[i + 1]);
+						w.write(text, lastWritten, i - lastWritten);
+						i++;
+						lastWritten = i + 1;
+						w.write("&#" + cp + ";");
+						continue;
+					}
+					replacement = "&#" + cp + ";";
+					break;
+			}
+
+			w.write(text, lastWritten, i - lastWritten);
+			w.write(replacement);
+			lastWritten = i + 1;
+
+		}
+
+		w.write(text, lastWritten, end - lastWritten);
+
+	}
+
+
 	/**
 	 * Returns a hex string for the specified color, suitable for HTML.
 	 *
@@ -145,18 +207,36 @@ public final class HtmlUtil {
 	 * @return The HTML.
 	 */
 	public static String getTextAsHtml(RSyntaxTextArea textArea, int start, int end) {
+		Token tokenList = textArea.getTokenListFor(start, end);
+		return getTokensAsHtml(tokenList, textArea.getFont(),
+				textArea.getBackground(), TokenStyleResolver.of(textArea));
+	}
+
+
+	/**
+	 * Returns a token list as HTML.  This is the markup generated by
+	 * {@link #getTextAsHtml(RSyntaxTextArea, int, int)}.
+	 *
+	 * @param tokenList The tokens.
+	 * @param font The font of the text area the tokens are from.
+	 * @param background The background of the text area the tokens are
+	 *        from.  This may be <code>null</code>.
+	 * @param styles Determines the style of each token.
+	 * @return The HTML.
+	 */
+	static String getTokensAsHtml(Token tokenList, Font font, Color background,
+			TokenStyleResolver styles) {
 
 		// Create the selection as HTML
 		StringBuilder sb = new StringBuilder("<pre style=\"")
-			.append("font-family: '").append(textArea.getFont().getFamily()).append("', courier;");
-		if (textArea.getBackground() != null) { // May be null if it is an image
+			.append("font-family: '").append(font.getFamily()).append("', courier;");
+		if (background != null) { // May be null if it is an image
 			sb.append(" background: ")
-				.append(HtmlUtil.getHexString(textArea.getBackground()));
+				.append(HtmlUtil.getHexString(background));
 		}
 		sb.append("\">");
 
-		Token token = textArea.getTokenListFor(start, end);
-		for (Token t = token; t != null; t = t.getNextToken()) {
+		for (Token t = tokenList; t != null; t = t.getNextToken()) {
 
 			if (t.isPaintable()) {
 
@@ -164,7 +244,7 @@ public final class HtmlUtil {
 					sb.append("<br>");
 				}
 				else {
-					sb.append(TokenUtils.tokenToHtml(textArea, t));
+					sb.append(TokenUtils.tokenToHtml(t, styles));
 				}
 			}
 		}
@@ -0,0 +1,223 @@
+/*
+ * 10/19/2026
+ *
+ * LanguageRegionCache.java - Caches where each line switches languages.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * LICENSE file for details.
+ */
+package org.fife.ui.rsyntaxtextarea;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * Caches the language regions of the lines in an {@link RSyntaxDocument}.
+ * In documents with embedded languages, such as HTML with JavaScript and CSS,
+ * or PHP and JSP templates, a line's tokens each have a language index (see
+ * {@link Token#getLanguageIndex()}).  A line's regions are the runs of
+ * consecutive tokens with the same language index.<p>
+ *
+ * Knowing a line's regions without lexing it lets features that only care
+ * about the language at some offset, or about text in a single language
+ * (such as comment toggling or occurrence marking), skip the lexer.  Regions
+ * are recorded whenever the document lexes a line anyway, e.g. when
+ * painting it.<p>
+ *
+ * A line's regions depend only on its text and the lexer state at the end
+ * of the line above it.  The document invalidates a line when its text
+ * changes, and each entry records the state it was computed from, so
+ * entries for lines whose state changed are ignored without needing to be
+ * invalidated.  This keeps edits that change the state of many lines (such
+ * as opening a <code>&lt;script&gt;</code> tag) cheap.<p>
+ *
+ * Each entry is an <code>int</code> array:  the initial token type used to
+ * lex the line, followed by pairs of region start offsets (relative to the
+ * start of the line) and language indices.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ * @see RSyntaxDocument#getLanguageIndexAt(int)
+ * @see RSyntaxDocument#getLanguageRegionEndOffset(int)
+ */
+final class LanguageRegionCache {
+
+	/**
+	 * Entries indexed by line.  Lines past the end of this list, and
+	 * <code>null</code> entries, are not cached.
+	 */
+	private final List<int[]> lines;
+
+
+	LanguageRegionCache() {
+		lines = new ArrayList<>();
+	}
+
+
+	/**
+	 * Removes all entries.
+	 */
+	void clear() {
+		lines.clear();
+	}
+
+
+	/**
+	 * Returns the cached regions of a line.
+	 *
+	 * @param line The line.
+	 * @param initialTokenType The last token type of the line above.
+	 * @return The regions, or <code>null</code> if they aren't cached or
+	 *         were computed from a different initial token type.
+	 */
+	int[] get(int line, int initialTokenType) {
+		if (line>=lines.size()) {
+			return null;
+		}
+		int[] regions = lines.get(line);
+		return regions!=null && regions[0]==initialTokenType ? regions : null;
+	}
+
+
+	/**
+	 * Returns the index of the language region containing an offset.
+	 *
+	 * @param regions A line's regions.
+	 * @param offs The offset, relative to the start of the line.
+	 * @return The index of the region, starting at <code>0</code>.
+	 */
+	static int getRegion(int[] regions, int offs) {
+		int region = 0;
+		int count = getRegionCount(regions);
+		while (region+1<count && getRegionStart(regions, region+1)<=offs) {
+			region++;
+		}
+		return region;
+	}
+
+
+	/**
+	 * Returns the number of language regions in a line.
+	 *
+	 * @param regions The line's regions.
+	 * @return The number of regions.  This is always at least
+	 *         <code>1</code>.
+	 */
+	static int getRegionCount(int[] regions) {
+		return (regions.length - 1) / 2;
+	}
+
+
+	/**
+	 * Returns the language index of a region.
+	 *
+	 * @param regions A line's regions.
+	 * @param region The index of the region.
+	 * @return The language index.
+	 */
+	static int getRegionLanguageIndex(int[] regions, int region) {
+		return regions[2 + region*2];
+	}
+
+
+	/**
+	 * Returns the start offset of a region.
+	 *
+	 * @param regions A line's regions.
+	 * @param region The index of the region.
+	 * @return The start offset, relative to the start of the line.
+	 */
+	static int getRegionStart(int[] regions, int region) {
+		return regions[1 + region*2];
+	}
+
+
+	/**
+	 * Invalidates the entry of a line whose text changed.
+	 *
+	 * @param line The line.
+	 */
+	void invalidate(int line) {
+		if (line<lines.size()) {
+			lines.set(line, null);
+		}
+	}
+
+
+	/**
+	 * Called when lines are inserted into the document.
+	 *
+	 * @param line The index of the first line inserted.
+	 * @param count The number of lines inserted.
+	 */
+	void linesInserted(int line, int count) {
+		if (line<lines.size()) {
+			lines.addAll(line, Collections.nCopies(count, null));
+		}
+	}
+
+
+	/**
+	 * Called when lines are removed from the document.
+	 *
+	 * @param line The index of the first line removed.
+	 * @param count The number of lines removed.
+	 */
+	void linesRemoved(int line, int count) {
+		int end = Math.min(line + count, lines.size());
+		if (line<end) {
+			lines.subList(line, end).clear();
+		}
+	}
+
+
+	/**
+	 * Computes and caches the regions of a line from its tokens.
+	 *
+	 * @param line The line.
+	 * @param initialTokenType The last token type of the line above, used
+	 *        to lex the line.
+	 * @param tokens The line's tokens.
+	 * @param lineStart The start offset of the line.
+	 * @return The regions.
+	 */
+	int[] put(int line, int initialTokenType, Token tokens, int lineStart) {
+
+		int[] regions = new int[3];
+		regions[0] = initialTokenType;
+		int count = 0;
+
+		for (Token t=tokens; t!=null; t=t.getNextToken()) {
+			int languageIndex = t.getLanguageIndex();
+			if (!t.isPaintable()) {
+				// An empty line still has a language, e.g. in a script block
+				if (count==0) {
+					regions[2] = languageIndex;
+					count++;
+				}
+				break;
+			}
+			if (count==0 || languageIndex!=regions[count*2]) {
+				if (count>0) {
+					int[] temp = new int[regions.length + 2];
+					System.arraycopy(regions, 0, temp, 0, regions.length);
+					regions = temp;
+				}
+				regions[1 + count*2] = count==0 ? 0 : t.getOffset() - lineStart;
+				regions[2 + count*2] = languageIndex;
+				count++;
+			}
+		}
+
+		while (lines.size()<=line) {
+			lines.add(null);
+		}
+		lines.set(line, regions);
+		return regions;
+
+	}
+
+
+}
@@ -0,0 +1,609 @@
+/*
+ * 10/19/2026
+ *
+ * LargeFilePolicy.java - Turns off expensive features for large files.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * LICENSE file for details.
+ */
+package org.fife.ui.rsyntaxtextarea;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+import javax.swing.SwingUtilities;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.Document;
+import javax.swing.text.Element;
+
+
+/**
+ * Turns off features of an {@link RSyntaxTextArea} that don't scale to large
+ * files while its document is large, and turns them back on when it
+ * shrinks.  A document is considered large if it's longer than a maximum
+ * length, has more than a maximum number of lines, or has a line longer
+ * than a maximum line length.  Any of these checks can be disabled by
+ * setting its maximum to <code>0</code>.<p>
+ *
+ * Only features that are enabled when the document becomes large are
+ * turned off ("downgraded"), and only those are turned back on.  If the
+ * application re-enables a downgraded feature, the policy leaves it alone
+ * until the document is no longer large.  Whenever the set of downgraded
+ * features changes, the text area fires a property change event for
+ * {@link RSyntaxTextArea#DOWNGRADED_FEATURES_PROPERTY}, so the application
+ * can tell the user why something isn't available.<p>
+ *
+ * Very long lines are painted in segments by {@link SyntaxView} regardless
+ * of this policy (see {@link RSyntaxDocument#setLongLineThreshold(int)}),
+ * but only if word wrap is off, which is why {@link Feature#LINE_WRAP} is
+ * one of the features downgraded.<p>
+ *
+ * A policy is installed with
+ * {@link RSyntaxTextArea#setLargeFilePolicy(LargeFilePolicy)}.  Changes made
+ * to the document are checked as they happen, but features are turned off
+ * and on afterward, on the EDT, since doing so while the document is
+ * notifying its listeners could leave the text area's views out of sync.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ * @see RSyntaxTextArea#setLargeFilePolicy(LargeFilePolicy)
+ */
+public class LargeFilePolicy {
+
+	/**
+	 * The default maximum document length, in characters.
+	 */
+	public static final int DEFAULT_MAX_LENGTH = 10 * 1024 * 1024;
+
+	/**
+	 * The default maximum number of lines.
+	 */
+	public static final int DEFAULT_MAX_LINE_COUNT = 200_000;
+
+	/**
+	 * The default maximum line length, in characters.
+	 */
+	public static final int DEFAULT_MAX_LINE_LENGTH = 32 * 1024;
+
+	private RSyntaxTextArea textArea;
+	private Listener listener;
+	private Document doc;
+
+	private int maxLength;
+	private int maxLineCount;
+	private int maxLineLength;
+	private Set<Feature> features;
+
+	/**
+	 * The features currently turned off by this policy.
+	 */
+	private Set<Feature> downgraded;
+
+	/**
+	 * Features re-enabled by the application while the document is large.
+	 */
+	private Set<Feature> overridden;
+
+	/**
+	 * A line longer than the maximum line length, or <code>null</code> if
+	 * there isn't one.
+	 */
+	private Element longLine;
+
+	/**
+	 * Whether this policy is enabling or disabling features, so the property
+	 * change events it causes aren't taken as the application's doing.
+	 */
+	private boolean applying;
+
+	/**
+	 * Whether an update is scheduled on the EDT.
+	 */
+	private boolean updatePending;
+
+
+	/**
+	 * Constructor.  Creates a policy with the default thresholds, that
+	 * downgrades all features.
+	 */
+	public LargeFilePolicy() {
+		this(DEFAULT_MAX_LENGTH, DEFAULT_MAX_LINE_COUNT, DEFAULT_MAX_LINE_LENGTH);
+	}
+
+
+	/**
+	 * Constructor.  Creates a policy that downgrades all features.
+	 *
+	 * @param maxLength The maximum document length, in characters.
+	 * @param maxLineCount The maximum number of lines.
+	 * @param maxLineLength The maximum line length, in characters.
+	 */
+	public LargeFilePolicy(int maxLength, int maxLineCount, int maxLineLength) {
+		this.maxLength = Math.max(0, maxLength);
+		this.maxLineCount = Math.max(0, maxLineCount);
+		this.maxLineLength = Math.max(0, maxLineLength);
+		features = EnumSet.allOf(Feature.class);
+		downgraded = EnumSet.noneOf(Feature.class);
+		overridden = EnumSet.noneOf(Feature.class);
+	}
+
+
+	/**
+	 * Looks for another long line if the known one was shortened, or split
+	 * or joined with another line.
+	 */
+	private void checkLongLine() {
+		if (longLine!=null) {
+			Element root = doc.getDefaultRootElement();
+			int index = root.getElementIndex(longLine.getStartOffset());
+			if (root.getElement(index)!=longLine || !isLongLine(longLine)) {
+				longLine = null;
+				findLongLine(0, root.getElementCount() - 1);
+			}
+		}
+	}
+
+
+	/**
+	 * Looks for a long line in a range of lines.
+	 */
+	private void findLongLine(int firstLine, int lastLine) {
+		if (maxLineLength>0) {
+			Element root = doc.getDefaultRootElement();
+			for (int i=firstLine; i<=lastLine; i++) {
+				Element line = root.getElement(i);
+				if (isLongLine(line)) {
+					longLine = line;
+					return;
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Returns the features currently turned off by this policy.
+	 *
+	 * @return The downgraded features.  This will never be <code>null</code>.
+	 */
+	public Set<Feature> getDowngradedFeatures() {
+		return Collections.unmodifiableSet(EnumSet.copyOf(downgraded));
+	}
+
+
+	/**
+	 * Returns the features this policy turns off for large documents.
+	 *
+	 * @return The features.  This will never be <code>null</code>.
+	 * @see #setFeatures(Set)
+	 */
+	public Set<Feature> getFeatures() {
+		return Collections.unmodifiableSet(EnumSet.copyOf(features));
+	}
+
+
+	/**
+	 * Returns the maximum length of a document that isn't considered large.
+	 *
+	 * @return The maximum length, in characters.  <code>0</code> means
+	 *         documents aren't checked for their length.
+	 * @see #setMaxLength(int)
+	 */
+	public int getMaxLength() {
+		return maxLength;
+	}
+
+
+	/**
+	 * Returns the maximum number of lines in a document that isn't
+	 * considered large.
+	 *
+	 * @return The maximum number of lines.  <code>0</code> means documents
+	 *         aren't checked for their line count.
+	 * @see #setMaxLineCount(int)
+	 */
+	public int getMaxLineCount() {
+		return maxLineCount;
+	}
+
+
+	/**
+	 * Returns the maximum line length in a document that isn't considered
+	 * large.
+	 *
+	 * @return The maximum line length, in characters.  <code>0</code> means
+	 *         documents aren't checked for long lines.
+	 * @see #setMaxLineLength(int)
+	 */
+	public int getMaxLineLength() {
+		return maxLineLength;
+	}
+
+
+	/**
+	 * Returns the text area this policy is installed on.
+	 *
+	 * @return The text area, or <code>null</code> if this policy isn't
+	 *         installed.
+	 */
+	public RSyntaxTextArea getTextArea() {
+		return textArea;
+	}
+
+
+	/**
+	 * Installs this policy on a text area.  Its features are checked right
+	 * away.
+	 *
+	 * @param textArea The text area.
+	 * @throws IllegalStateException If this policy is already installed.
+	 * @see #uninstall()
+	 */
+	void install(RSyntaxTextArea textArea) {
+		if (this.textArea!=null) {
+			throw new IllegalStateException("Already installed");
+		}
+		this.textArea = textArea;
+		listener = new Listener();
+		textArea.addPropertyChangeListener(listener);
+		setDocument(textArea.getDocument());
+		update();
+	}
+
+
+	/**
+	 * Returns whether the text area's document is currently considered
+	 * large.
+	 *
+	 * @return Whether the document is large.  This is <code>false</code> if
+	 *         this policy isn't installed.
+	 */
+	public boolean isLargeFile() {
+		if (doc==null) {
+			return false;
+		}
+		if (maxLength>0 && doc.getLength()>maxLength) {
+			return true;
+		}
+		if (maxLineCount>0 && doc.getDefaultRootElement().getElementCount()>maxLineCount) {
+			return true;
+		}
+		return longLine!=null;
+	}
+
+
+	private boolean isEnabled(Feature feature) {
+		switch (feature) {
+			case BRACKET_MATCHING:
+				return textArea.isBracketMatchingEnabled();
+			case CODE_FOLDING:
+				return textArea.isCodeFoldingEnabled();
+			case LINE_WRAP:
+				return textArea.getLineWrap();
+			case MARK_OCCURRENCES:
+				return textArea.getMarkOccurrences();
+			case PARSERS:
+				return textArea.getParserCount()>0 && !textArea.isParsingSuspended();
+			case WHITESPACE_VISIBLE:
+			default:
+				return textArea.isWhitespaceVisible();
+		}
+	}
+
+
+	private boolean isLongLine(Element line) {
+		return line.getEndOffset() - line.getStartOffset() - 1>maxLineLength;
+	}
+
+
+	private void scheduleUpdate() {
+		if (!updatePending) {
+			updatePending = true;
+			SwingUtilities.invokeLater(() -> {
+				updatePending = false;
+				if (textArea!=null) {
+					update();
+				}
+			});
+		}
+	}
+
+
+	private void setDocument(Document doc) {
+		if (this.doc!=null) {
+			this.doc.removeDocumentListener(listener);
+		}
+		this.doc = doc;
+		longLine = null;
+		if (doc!=null) {
+			doc.addDocumentListener(listener);
+			findLongLine(0, doc.getDefaultRootElement().getElementCount() - 1);
+		}
+	}
+
+
+	private void setEnabled(Feature feature, boolean enabled) {
+		switch (feature) {
+			case BRACKET_MATCHING:
+				textArea.setBracketMatchingEnabled(enabled);
+				break;
+			case CODE_FOLDING:
+				textArea.setCodeFoldingEnabled(enabled);
+				break;
+			case LINE_WRAP:
+				textArea.setLineWrap(enabled);
+				break;
+			case MARK_OCCURRENCES:
+				textArea.setMarkOccurrences(enabled);
+				break;
+			case PARSERS:
+				textArea.setParsingSuspended(!enabled);
+				break;
+			case WHITESPACE_VISIBLE:
+				textArea.setWhitespaceVisible(enabled);
+				break;
+		}
+	}
+
+
+	/**
+	 * Sets the features this policy turns off for large documents.  If the
+	 * document is currently large, features no longer in the set are turned
+	 * back on, and new ones are turned off.
+	 *
+	 * @param features The features.  This cannot be <code>null</code>.
+	 * @see #getFeatures()
+	 */
+	public void setFeatures(Set<Feature> features) {
+		this.features = features.isEmpty() ? EnumSet.noneOf(Feature.class) : EnumSet.copyOf(features);
+		if (textArea!=null) {
+			update();
+		}
+	}
+
+
+	/**
+	 * Sets the maximum length of a document that isn't considered large.
+	 *
+	 * @param maxLength The maximum length, in characters.  A value of
+	 *        <code>0</code> or less means documents aren't checked for their
+	 *        length.
+	 * @see #getMaxLength()
+	 */
+	public void setMaxLength(int maxLength) {
+		this.maxLength = Math.max(0, maxLength);
+		if (textArea!=null) {
+			update();
+		}
+	}
+
+
+	/**
+	 * Sets the maximum number of lines in a document that isn't considered
+	 * large.
+	 *
+	 * @param maxLineCount The maximum number of lines.  A value of
+	 *        <code>0</code> or less means documents aren't checked for their
+	 *        line count.
+	 * @see #getMaxLineCount()
+	 */
+	public void setMaxLineCount(int maxLineCount) {
+		this.maxLineCount = Math.max(0, maxLineCount);
+		if (textArea!=null) {
+			update();
+		}
+	}
+
+
+	/**
+	 * Sets the maximum line length in a document that isn't considered
+	 * large.
+	 *
+	 * @param maxLineLength The maximum line length, in characters.  A value
+	 *        of <code>0</code> or less means documents aren't checked for
+	 *        long lines.
+	 * @see #getMaxLineLength()
+	 */
+	public void setMaxLineLength(int maxLineLength) {
+		this.maxLineLength = Math.max(0, maxLineLength);
+		if (textArea!=null) {
+			setDocument(doc);
+			update();
+		}
+	}
+
+
+	/**
+	 * Uninstalls this policy, turning back on any features it turned off.
+	 *
+	 * @see #install(RSyntaxTextArea)
+	 */
+	void uninstall() {
+		if (textArea!=null) {
+			setDocument(null);
+			update();
+			textArea.removePropertyChangeListener(listener);
+			textArea = null;
+			listener = null;
+			overridden.clear();
+		}
+	}
+
+
+	/**
+	 * Turns features off or back on, depending on whether the document is
+	 * currently large.
+	 */
+	private void update() {
+
+		boolean large = isLargeFile();
+		Set<Feature> target = EnumSet.noneOf(Feature.class);
+		if (large) {
+			for (Feature feature : features) {
+				if (!overridden.contains(feature) &&
+						(downgraded.contains(feature) || isEnabled(feature))) {
+					target.add(feature);
+				}
+			}
+		}
+		else {
+			overridden.clear();
+		}
+
+		if (!target.equals(downgraded)) {
+			Set<Feature> old = getDowngradedFeatures();
+			applying = true;
+			try {
+				for (Feature feature : downgraded) {
+					if (!target.contains(feature)) {
+						setEnabled(feature, true);
+					}
+				}
+				for (Feature feature : target) {
+					if (!downgraded.contains(feature)) {
+						setEnabled(feature, false);
+					}
+				}
+			} finally {
+				applying = false;
+			}
+			downgraded = target;
+			textArea.fireDowngradedFeaturesChanged(old, getDowngradedFeatures());
+		}
+
+	}
+
+
+	/**
+	 * A feature that can be turned off for large documents.
+	 */
+	public enum Feature {
+
+		/**
+		 * Bracket matching.
+		 *
+		 * @see RSyntaxTextArea#setBracketMatchingEnabled(boolean)
+		 */
+		BRACKET_MATCHING,
+
+		/**
+		 * Code folding.
+		 *
+		 * @see RSyntaxTextArea#setCodeFoldingEnabled(boolean)
+		 */
+		CODE_FOLDING,
+
+		/**
+		 * Word wrap.
+		 *
+		 * @see RSyntaxTextArea#setLineWrap(boolean)
+		 */
+		LINE_WRAP,
+
+		/**
+		 * Mark occurrences.
+		 *
+		 * @see RSyntaxTextArea#setMarkOccurrences(boolean)
+		 */
+		MARK_OCCURRENCES,
+
+		/**
+		 * Parsers.  Rather than being removed, parsers are suspended:  they
+		 * don't run, and their notices are cleared.  This is only downgraded
+		 * if the text area has parsers.  Note that code folding uses a
+		 * parser to update folds, so folds aren't updated while parsers are
+		 * suspended.
+		 *
+		 * @see RSyntaxTextArea#addParser(org.fife.ui.rsyntaxtextarea.parser.Parser)
+		 */
+		PARSERS,
+
+		/**
+		 * Visible whitespace.
+		 *
+		 * @see RSyntaxTextArea#setWhitespaceVisible(boolean)
+		 */
+		WHITESPACE_VISIBLE
+
+	}
+
+
+	/**
+	 * Listens for changes to the document and the text area.
+	 */
+	private final class Listener implements DocumentListener, PropertyChangeListener {
+
+		@Override
+		public void changedUpdate(DocumentEvent e) {
+		}
+
+		@Override
+		public void insertUpdate(DocumentEvent e) {
+			checkLongLine();
+			if (longLine==null) {
+				Element root = doc.getDefaultRootElement();
+				int offs = e.getOffset();
+				findLongLine(root.getElementIndex(offs),
+					root.getElementIndex(offs + e.getLength()));
+			}
+			scheduleUpdate();
+		}
+
+		@Override
+		public void propertyChange(PropertyChangeEvent e) {
+
+			String name = e.getPropertyName();
+			if ("document".equals(name)) {
+				setDocument((Document)e.getNewValue());
+				update();
+				return;
+			}
+			if (applying || !Boolean.TRUE.equals(e.getNewValue())) {
+				return;
+			}
+
+			Feature feature = null;
+			if (RSyntaxTextArea.BRACKET_MATCHING_PROPERTY.equals(name)) {
+				feature = Feature.BRACKET_MATCHING;
+			}
+			else if (RSyntaxTextArea.CODE_FOLDING_PROPERTY.equals(name)) {
+				feature = Feature.CODE_FOLDING;
+			}
+			else if ("lineWrap".equals(name)) {
+				feature = Feature.LINE_WRAP;
+			}
+			else if (RSyntaxTextArea.MARK_OCCURRENCES_PROPERTY.equals(name)) {
+				feature = Feature.MARK_OCCURRENCES;
+			}
+			else if (RSyntaxTextArea.VISIBLE_WHITESPACE_PROPERTY.equals(name)) {
+				feature = Feature.WHITESPACE_VISIBLE;
+			}
+
+			// The application turned a downgraded feature back on
+			if (feature!=null && downgraded.contains(feature)) {
+				Set<Feature> old = getDowngradedFeatures();
+				downgraded.remove(feature);
+				overridden.add(feature);
+				textArea.fireDowngradedFeaturesChanged(old, getDowngradedFeatures());
+			}
+
+		}
+
+		@Override
+		public void removeUpdate(DocumentEvent e) {
+			checkLongLine();
+			if (longLine==null) {
+				// Lines may have been joined into a long one
+				int line = doc.getDefaultRootElement().getElementIndex(e.getOffset());
+				findLongLine(line, line);
+			}
+			scheduleUpdate();
+		}
+
+	}
+
+
+}
@@ -0,0 +1,191 @@
+/*
+ * 10/19/2026
+ *
+ * LastTokenTypeLexer.java - Computes the last token type of many lines,
+ * possibly in parallel.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * LICENSE file for details.
+ */
+package org.fife.ui.rsyntaxtextarea;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Supplier;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Element;
+import javax.swing.text.Segment;
+
+
+/**
+ * Computes the "last token type" of a range of lines in a document, as
+ * stored by {@link RSyntaxDocument} for each line.<p>
+ *
+ * Each line's value depends on the value of the line before it, so this
+ * is inherently sequential.  However, in real-world files the vast
+ * majority of lines end in the {@link Token#NULL} state.  So for large
+ * ranges, this class speculatively splits the lines into chunks and lexes
+ * each chunk in parallel, assuming every chunk (but the first) starts in
+ * the <code>NULL</code> state.  A sequential reconciliation pass then
+ * re-lexes the start of each chunk whose assumed initial state was wrong,
+ * stopping as soon as a line's recomputed value matches its speculative
+ * one, since every line after it must then be correct as well.<p>
+ *
+ * Since <code>TokenMaker</code>s are stateful, each chunk is lexed by its
+ * own <code>TokenMaker</code>.  The document must not be modified while
+ * a computation is in progress; callers typically hold its write lock.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ */
+final class LastTokenTypeLexer {
+
+	/**
+	 * The default minimum number of lines in a chunk lexed in parallel.
+	 */
+	static final int DEFAULT_MIN_LINES_PER_CHUNK = 8192;
+
+	/**
+	 * The number of chunks to create per thread in the pool, so threads
+	 * that finish early can pick up more work.
+	 */
+	private static final int CHUNKS_PER_THREAD = 4;
+
+	private final ForkJoinPool pool;
+	private final int minLinesPerChunk;
+
+
+	/**
+	 * Constructor.
+	 *
+	 * @param pool The pool to lex chunks in.
+	 * @param minLinesPerChunk The minimum number of lines in a chunk.
+	 *        Ranges with fewer than twice this many lines are always lexed
+	 *        sequentially.
+	 */
+	LastTokenTypeLexer(ForkJoinPool pool, int minLinesPerChunk) {
+		this.pool = pool;
+		this.minLinesPerChunk = Math.max(1, minLinesPerChunk);
+	}
+
+
+	/**
+	 * Loads a line's text into a segment.
+	 */
+	private static void getLineText(Document doc, Element map, int line,
+									Segment s) {
+		Element elem = map.getElement(line);
+		int startOffset = elem.getStartOffset();
+		int endOffset = elem.getEndOffset() - 1;
+		try {
+			doc.getText(startOffset, endOffset-startOffset, s);
+		} catch (BadLocationException ble) {
+			throw new InternalError("Text range not in document: " +
+								startOffset + "-" + endOffset);
+		}
+	}
+
+
+	/**
+	 * Computes the last token type of each line in a range.
+	 *
+	 * @param doc The document containing the lines.
+	 * @param tokenMaker The token maker to use for sequential lexing.
+	 * @param s A segment to use for sequential lexing.
+	 * @param tokenMakers Creates additional token makers of the same type as
+	 *        <code>tokenMaker</code> for lexing chunks in parallel.  If this
+	 *        is <code>null</code>, lines are always lexed sequentially.
+	 * @param firstLine The first line to lex.
+	 * @param endLine The line after the last line to lex.
+	 * @param initialTokenType The last token type of the line before
+	 *        <code>firstLine</code>.
+	 * @return The last token types of the lines, indexed relative to
+	 *         <code>firstLine</code>.
+	 */
+	int[] lex(Document doc, TokenMaker tokenMaker, Segment s,
+			Supplier<TokenMaker> tokenMakers, int firstLine, int endLine,
+			int initialTokenType) {
+
+		int count = Math.max(0, endLine - firstLine);
+		int[] types = new int[count];
+		Element map = doc.getDefaultRootElement();
+
+		int chunkCount = Math.min(pool.getParallelism() * CHUNKS_PER_THREAD,
+				count / minLinesPerChunk);
+		if (tokenMakers==null || pool.getParallelism()<2 || chunkCount<2) {
+			lexLines(doc, map, tokenMaker, s, firstLine, types, 0, count,
+					initialTokenType);
+			return types;
+		}
+
+		int[] chunkStarts = new int[chunkCount + 1];
+		for (int i=0; i<=chunkCount; i++) {
+			chunkStarts[i] = (int)((long)count * i / chunkCount);
+		}
+
+		ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[chunkCount];
+		for (int i=0; i<chunkCount; i++) {
+			int start = chunkStarts[i];
+			int end = chunkStarts[i + 1];
+			int assumedType = i==0 ? initialTokenType : Token.NULL;
+			tasks[i] = pool.submit(() -> lexLines(doc, map, tokenMakers.get(),
+					new Segment(), firstLine, types, start, end, assumedType));
+		}
+		for (ForkJoinTask<?> task : tasks) {
+			task.join();
+		}
+
+		// Fix up chunks whose assumed initial state was wrong
+		for (int i=1; i<chunkCount; i++) {
+			int start = chunkStarts[i];
+			int end = chunkStarts[i + 1];
+			int previousType = types[start - 1];
+			if (previousType!=Token.NULL) {
+				for (int line=start; line<end; line++) {
+					getLineText(doc, map, firstLine + line, s);
+					int type = tokenMaker.getLastTokenTypeOnLine(s,
+												previousType);
+					if (type==types[line]) {
+						break; // Converged, the rest of the chunk is correct
+					}
+					types[line] = type;
+					previousType = type;
+				}
+			}
+		}
+
+		return types;
+
+	}
+
+
+	/**
+	 * Sequentially lexes a range of lines.
+	 *
+	 * @param doc The document.
+	 * @param map The document's root element.
+	 * @param tokenMaker The token maker to use.
+	 * @param s The segment to use.
+	 * @param firstLine The document line corresponding to index 0 in
+	 *        <code>types</code>.
+	 * @param types The array to store results in.
+	 * @param start The first index into <code>types</code> to compute.
+	 * @param end The index after the last index into <code>types</code> to
+	 *        compute.
+	 * @param initialTokenType The token type to start lexing with.
+	 */
+	private static void lexLines(Document doc, Element map,
+			TokenMaker tokenMaker, Segment s, int firstLine, int[] types,
+			int start, int end, int initialTokenType) {
+		int previousType = initialTokenType;
+		for (int i=start; i<end; i++) {
+			getLineText(doc, map, firstLine + i, s);
+			previousType = tokenMaker.getLastTokenTypeOnLine(s, previousType);
+			types[i] = previousType;
+		}
+	}
+
+
+}
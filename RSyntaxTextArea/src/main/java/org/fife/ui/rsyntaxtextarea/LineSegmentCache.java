@@ -0,0 +1,332 @@
+/*
+ * 10/19/2026
+ *
+ * LineSegmentCache.java - Caches where very long lines can be lexed from.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * LICENSE file for details.
+ */
+package org.fife.ui.rsyntaxtextarea;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javax.swing.text.Segment;
+
+import org.fife.util.DynamicIntArray;
+
+
+/**
+ * Caches the segments of very long lines in an {@link RSyntaxDocument}.
+ * Minified source files often have a single line that is megabytes long,
+ * and lexing all of it every time part of it is painted is far too slow.
+ * Such lines are split into segments of roughly a threshold length, each
+ * starting at a "checkpoint":  an offset and the lexer state (initial token
+ * type) to start lexing from there, so each segment can be lexed on its
+ * own.<p>
+ *
+ * Lexers can only be started at the beginning of a line, in a state
+ * described by a token type.  So a checkpoint is placed at the start of a
+ * token, and only if lexing from there in the default state produces the
+ * same tokens as lexing from the previous checkpoint, for a short stretch.
+ * If no such token is found near where a segment should end (e.g. in a
+ * very long string, or in an embedded language), the segment is made
+ * longer.<p>
+ *
+ * Checkpoints are found from the start of a line as they're needed.  When
+ * a line is edited, those at or before the edit are kept, since the lexer
+ * state there can't have changed.  As with {@link LanguageRegionCache},
+ * each entry records the initial token type of its line, and is ignored if
+ * the line's state changes.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ */
+final class LineSegmentCache {
+
+	/**
+	 * The most text after a possible checkpoint that is lexed to check it.
+	 */
+	private static final int MAX_VERIFY_LENGTH = 1024;
+
+	/**
+	 * The most possible checkpoints tried before making a segment longer.
+	 */
+	private static final int MAX_CANDIDATES = 16;
+
+	private final List<LineSegments> lines;
+
+
+	LineSegmentCache() {
+		lines = new ArrayList<>();
+	}
+
+
+	void clear() {
+		lines.clear();
+	}
+
+
+	/**
+	 * Returns the segments of a line, creating an entry for it if it
+	 * doesn't have an up-to-date one.
+	 *
+	 * @param line The line.
+	 * @param initialTokenType The lexer state at the start of the line.
+	 * @param threshold The length of a segment.
+	 * @return The line's segments.  Only those already found are known.
+	 */
+	LineSegments get(int line, int initialTokenType, int threshold) {
+		LineSegments segments = line<lines.size() ? lines.get(line) : null;
+		if (segments==null || segments.initialTokenType!=initialTokenType ||
+				segments.threshold!=threshold) {
+			segments = new LineSegments(initialTokenType, threshold);
+			while (lines.size()<=line) {
+				lines.add(null);
+			}
+			lines.set(line, segments);
+		}
+		return segments;
+	}
+
+
+	/**
+	 * Returns the length of the text lexed after a possible checkpoint to
+	 * check it.  This is also how much longer than the threshold a line
+	 * must be to be split.
+	 *
+	 * @param threshold The length of a segment.
+	 * @return The length of text to check.
+	 */
+	static int getVerifyLength(int threshold) {
+		return Math.max(1, Math.min(MAX_VERIFY_LENGTH, threshold / 4));
+	}
+
+
+	void invalidate(int line) {
+		if (line<lines.size()) {
+			lines.set(line, null);
+		}
+	}
+
+
+	/**
+	 * Forgets a line's checkpoints at and after an offset, e.g. because the
+	 * text there changed.
+	 *
+	 * @param line The line.
+	 * @param offs The offset, relative to the start of the line.
+	 */
+	void invalidate(int line, int offs) {
+		LineSegments segments = line<lines.size() ? lines.get(line) : null;
+		if (segments!=null) {
+			segments.truncate(offs);
+		}
+	}
+
+
+	void linesInserted(int line, int count) {
+		if (line<lines.size()) {
+			lines.addAll(line, Collections.nCopies(count, null));
+		}
+	}
+
+
+	void linesRemoved(int line, int count) {
+		int end = Math.min(line + count, lines.size());
+		if (line<end) {
+			lines.subList(line, end).clear();
+		}
+	}
+
+
+	/**
+	 * The known segments of a line.  Offsets are relative to the start of the
+	 * line.
+	 */
+	static final class LineSegments {
+
+		private final int initialTokenType;
+		private final int threshold;
+		private final DynamicIntArray starts;
+		private final DynamicIntArray tokenTypes;
+
+		/**
+		 * Whether the last known segment goes to the end of the line.
+		 */
+		private boolean complete;
+
+		LineSegments(int initialTokenType, int threshold) {
+			this.initialTokenType = initialTokenType;
+			this.threshold = threshold;
+			starts = new DynamicIntArray(4);
+			tokenTypes = new DynamicIntArray(4);
+			starts.add(0);
+			tokenTypes.add(initialTokenType);
+		}
+
+		/**
+		 * Finds all remaining checkpoints in a line.
+		 *
+		 * @param text The text of the line.
+		 * @param tokenMaker The lexer.  Any token list it returned before is
+		 *        invalid after this call.
+		 */
+		void computeAll(Segment text, TokenMaker tokenMaker) {
+			boolean found;
+			do {
+				found = computeNext(text, tokenMaker);
+			} while (found);
+		}
+
+		/**
+		 * Finds the next checkpoint in a line, i.e. the end of the last known
+		 * segment.
+		 *
+		 * @param text The text of the line.
+		 * @param tokenMaker The lexer.  Any token list it returned before is
+		 *        invalid after this call.
+		 * @return Whether a checkpoint was found.  If it wasn't, the last known
+		 *         segment goes to the end of the line.
+		 */
+		boolean computeNext(Segment text, TokenMaker tokenMaker) {
+
+			if (complete) {
+				return false;
+			}
+
+			int last = starts.getSize() - 1;
+			int start = starts.get(last);
+			int type = tokenTypes.get(last);
+			int verifyLength = getVerifyLength(threshold);
+
+			// Double the segment's length each time no checkpoint is found,
+			// so a line without any is only lexed a few times over
+			for (long length=threshold; ; length*=2) {
+
+				long target = start + length;
+				if (target + verifyLength>=text.count) {
+					complete = true;
+					return false;
+				}
+
+				int lexEnd = (int)target + verifyLength;
+				int[] tokens = lex(text, start, lexEnd, type, tokenMaker, (int)target);
+				int candidateEnd = (int)target + verifyLength / 2;
+				int tried = 0;
+				for (int i=0; i<tokens.length && tried<MAX_CANDIDATES; i+=3) {
+					int candidate = tokens[i];
+					if (candidate>=candidateEnd) {
+						break;
+					}
+					if (candidate>-1) {
+						tried++;
+						if (matches(text, candidate, lexEnd, tokenMaker, tokens, i)) {
+							starts.add(candidate);
+							tokenTypes.add(Token.NULL);
+							return true;
+						}
+					}
+				}
+
+			}
+
+		}
+
+		int getCount() {
+			return starts.getSize();
+		}
+
+		/**
+		 * Returns the known segment containing an offset.
+		 *
+		 * @param offs The offset, relative to the start of the line.
+		 * @return The segment.
+		 */
+		int getSegmentOf(int offs) {
+			int low = 0;
+			int high = starts.getSize() - 1;
+			while (low<high) {
+				int mid = (low + high + 1) >>> 1;
+				if (starts.get(mid)<=offs) {
+					low = mid;
+				}
+				else {
+					high = mid - 1;
+				}
+			}
+			return low;
+		}
+
+		int getStart(int segment) {
+			return starts.get(segment);
+		}
+
+		int getTokenType(int segment) {
+			return tokenTypes.get(segment);
+		}
+
+		boolean isComplete() {
+			return complete;
+		}
+
+		/**
+		 * Lexes part of a line, and returns the tokens at or after an offset.
+		 *
+		 * @return For each token, its offset (or <code>-1</code> if it isn't
+		 *         paintable), type and language index.
+		 */
+		private static int[] lex(Segment text, int start, int end, int type,
+				TokenMaker tokenMaker, int from) {
+			Segment s = new Segment(text.array, text.offset + start, end - start);
+			DynamicIntArray tokens = new DynamicIntArray(64);
+			for (Token t=tokenMaker.getTokenList(s, type, start); t!=null; t=t.getNextToken()) {
+				boolean paintable = t.isPaintable();
+				if (!paintable || t.getOffset()>=from) {
+					tokens.add(paintable ? t.getOffset() : -1);
+					tokens.add(t.getType());
+					tokens.add(t.getLanguageIndex());
+				}
+			}
+			return tokens.toArray();
+		}
+
+		/**
+		 * Returns whether lexing from an offset in the default state gives
+		 * the same tokens as were found lexing from the last checkpoint.
+		 */
+		private static boolean matches(Segment text, int offs, int end,
+				TokenMaker tokenMaker, int[] expected, int index) {
+			int[] actual = lex(text, offs, end, Token.NULL, tokenMaker, offs);
+			int count = expected.length - index;
+			if (actual.length!=count) {
+				return false;
+			}
+			for (int i=0; i<count; i++) {
+				if (actual[i]!=expected[index + i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Forgets the checkpoints at and after an offset.  A checkpoint at the
+		 * offset itself might no longer be at the start of a token.
+		 *
+		 * @param offs The offset, relative to the start of the line.
+		 */
+		void truncate(int offs) {
+			int count = starts.getSize();
+			int keep = getSegmentOf(offs - 1) + 1;
+			if (keep<count) {
+				starts.removeRange(keep, count);
+				tokenTypes.removeRange(keep, count);
+			}
+			complete = false; // The line's length changed
+		}
+
+	}
+
+
+}
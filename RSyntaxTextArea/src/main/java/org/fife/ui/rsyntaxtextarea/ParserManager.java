@@ -18,9 +18,16 @@ import java.awt.event.MouseEvent;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.net.URL;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Predicate;
 
 import javax.swing.Timer;
 import javax.swing.ToolTipManager;
@@ -54,18 +61,23 @@ class ParserManager implements DocumentListener, ActionListener,
 	private List<Parser> parsers;
 	private Timer timer;
 	private boolean running;
+	private boolean suspended;
 	private Parser parserForTip;
 	private Position firstOffsetModded;
 	private Position lastOffsetModded;
 
 	/**
-	 * Mapping of notices to their highlights in the editor.  Can't use a Map
-	 * since parsers could return two <code>ParserNotice</code>s that compare
-	 * equally via <code>equals()</code>.  Real-world example:  The Perl
-	 * compiler will return 2+ identical error messages if the same error is
-	 * committed in a single line more than once.
+	 * Mapping of notices to their highlights in the editor, for each parser.
+	 * Can't use a Map from notices to highlights since parsers could return
+	 * two <code>ParserNotice</code>s that compare equally via
+	 * <code>equals()</code>.  Real-world example:  The Perl compiler will
+	 * return 2+ identical error messages if the same error is committed in a
+	 * single line more than once.<p>
+	 *
+	 * Parsers are iterated in the order their notices were last updated, so
+	 * notices are returned in the order they were added.
 	 */
-	private List<NoticeHighlightPair> noticeHighlightPairs;
+	private Map<Parser, ParserNotices> noticesByParser;
 
 	/**
 	 * Painter used to underline errors.
@@ -120,7 +132,7 @@ class ParserManager implements DocumentListener, ActionListener,
 
 		// Sanity check - should have >1 parser if event is fired.
 		int parserCount = getParserCount();
-		if (parserCount==0) {
+		if (parserCount==0 || suspended) {
 			return;
 		}
 
@@ -131,17 +143,20 @@ class ParserManager implements DocumentListener, ActionListener,
 		String style = textArea.getSyntaxEditingStyle();
 		doc.readLock();
 		try {
+			boolean changed = false;
 			for (int i=0; i<parserCount; i++) {
 				Parser parser = getParser(i);
 				if (parser.isEnabled()) {
 					ParseResult res = parser.parse(doc, style);
-					addParserNoticeHighlights(res);
+					changed |= addParserNoticeHighlights(res);
 				}
 				else {
-					clearParserNoticeHighlights(parser);
+					changed |= clearParserNoticeHighlights(parser);
 				}
 			}
-			textArea.fireParserNoticesChange();
+			if (changed) {
+				textArea.fireParserNoticesChange();
+			}
 		} finally {
 			doc.readUnlock();
 		}
@@ -167,7 +182,7 @@ class ParserManager implements DocumentListener, ActionListener,
 				// Okay to call more than once.
 				ToolTipManager.sharedInstance().registerComponent(textArea);
 			}
-			if (running) {
+			if (running && !suspended) {
 				timer.restart();
 			}
 		}
@@ -176,45 +191,93 @@ class ParserManager implements DocumentListener, ActionListener,
 
 	/**
 	 * Adds highlights for a list of parser notices.  Any current notices
-	 * from the same Parser, in the same parsed range, are removed.
+	 * from the same Parser, in the same parsed range, are removed.<p>
+	 *
+	 * A parser's notices usually barely change from one parsing to the
+	 * next, so rather than removing all highlights and adding new ones,
+	 * highlights still covering the same range for a notice with the same
+	 * message, level and color are kept.
 	 *
 	 * @param res The result of a parsing.
+	 * @return Whether the notices changed.
 	 * @see #clearParserNoticeHighlights()
 	 */
-	private void addParserNoticeHighlights(ParseResult res) {
+	private boolean addParserNoticeHighlights(ParseResult res) {
 
 		// Parsers are supposed to return at least empty ParseResults, but
 		// we'll be defensive here.
 		if (res==null) {
-			return;
+			return false;
 		}
 
-		if (noticeHighlightPairs==null) {
-			noticeHighlightPairs = new ArrayList<>();
+		if (noticesByParser==null) {
+			noticesByParser = new LinkedHashMap<>();
 		}
 
-		removeParserNotices(res);
-
-		List<ParserNotice> notices = res.getNotices();
-		if (!notices.isEmpty()) { // Guaranteed non-null
+		List<NoticeHighlightPair> oldPairs = removeNotices(pair -> shouldRemoveNotice(pair.notice, res));
+		List<ParserNotice> notices = res.getNotices(); // Guaranteed non-null
+		RSyntaxTextAreaHighlighter h = (RSyntaxTextAreaHighlighter)
+												textArea.getHighlighter();
 
-			RSyntaxTextAreaHighlighter h = (RSyntaxTextAreaHighlighter)
-													textArea.getHighlighter();
+		// Highlights that could be reused, by where they are now
+		Map<NoticeKey, Deque<HighlightInfo>> reusable = new HashMap<>();
+		Map<NoticeKey, Integer> noticeCounts = new HashMap<>();
+		for (NoticeHighlightPair pair : oldPairs) {
+			noticeCounts.merge(NoticeKey.forNotice(pair.notice), 1, Integer::sum);
+			if (pair.highlight!=null) {
+				NoticeKey key = new NoticeKey(pair.notice, -1, pair.highlight.getStartOffset(),
+					pair.highlight.getEndOffset() + 1); // end-1 HACK, see RSyntaxTextAreaHighlighter
+				reusable.computeIfAbsent(key, k -> new ArrayDeque<>()).add(pair.highlight);
+			}
+		}
 
-			for (ParserNotice notice : notices) {
-				try {
-					HighlightInfo highlight = null;
-					if (notice.getShowInEditor()) {
-						highlight = h.addParserHighlight(notice,
-											parserErrorHighlightPainter);
-					}
-					noticeHighlightPairs.add(new NoticeHighlightPair(notice, highlight));
-				} catch (BadLocationException ble) { // Never happens
-					ble.printStackTrace();
+		HighlightInfo[] highlights = new HighlightInfo[notices.size()];
+		List<ParserNotice> toAdd = new ArrayList<>();
+		int[] range = new int[2];
+		for (int i=0; i<notices.size(); i++) {
+			ParserNotice notice = notices.get(i);
+			noticeCounts.merge(NoticeKey.forNotice(notice), -1, Integer::sum);
+			if (notice.getShowInEditor()) {
+				h.getParserHighlightRange(notice, range);
+				Deque<HighlightInfo> matches = reusable.get(new NoticeKey(notice, -1, range[0], range[1]));
+				if (matches!=null && !matches.isEmpty()) {
+					highlights[i] = matches.poll();
+				}
+				else {
+					toAdd.add(notice);
 				}
 			}
+		}
+
+		List<HighlightInfo> unused = new ArrayList<>();
+		for (Deque<HighlightInfo> unmatched : reusable.values()) {
+			unused.addAll(unmatched);
+		}
+		h.removeParserHighlights(unused);
+		List<HighlightInfo> added = h.addParserHighlights(toAdd, parserErrorHighlightPainter);
 
+		// This parser's notices now come after all others
+		ParserNotices parserNotices = noticesByParser.remove(res.getParser());
+		if (parserNotices==null) {
+			parserNotices = new ParserNotices();
 		}
+		int addedIndex = 0;
+		for (int i=0; i<notices.size(); i++) {
+			ParserNotice notice = notices.get(i);
+			HighlightInfo hi = highlights[i];
+			if (notice.getShowInEditor() && hi==null) {
+				hi = added.get(addedIndex++);
+				if (hi==null) {
+					continue; // Bad offsets, skip
+				}
+			}
+			parserNotices.add(notice, hi);
+		}
+		if (!parserNotices.pairs.isEmpty()) {
+			noticesByParser.put(res.getParser(), parserNotices);
+		}
+
+		return noticeCounts.values().stream().anyMatch(count -> count!=0);
 
 	}
 
@@ -235,8 +298,8 @@ class ParserManager implements DocumentListener, ActionListener,
 		if (h!=null) {
 			h.clearParserHighlights();
 		}
-		if (noticeHighlightPairs!=null) {
-			noticeHighlightPairs.clear();
+		if (noticesByParser!=null) {
+			noticesByParser.clear();
 		}
 	}
 
@@ -245,16 +308,16 @@ class ParserManager implements DocumentListener, ActionListener,
 	 * Removes all parser notice highlights for a specific parser.
 	 *
 	 * @param parser The parser whose highlights to remove.
+	 * @return Whether the parser had any notices.
 	 */
-	private void clearParserNoticeHighlights(Parser parser) {
+	private boolean clearParserNoticeHighlights(Parser parser) {
 		RSyntaxTextAreaHighlighter h = (RSyntaxTextAreaHighlighter)
 											textArea.getHighlighter();
 		if (h!=null) {
 			h.clearParserHighlights(parser);
 		}
-		if (noticeHighlightPairs!=null) {
-			noticeHighlightPairs.removeIf(pair -> pair.notice.getParser() == parser);
-		}
+		return noticesByParser!=null &&
+				!removeNotices(pair -> pair.notice.getParser()==parser).isEmpty();
 	}
 
 
@@ -290,14 +353,17 @@ class ParserManager implements DocumentListener, ActionListener,
 		String style = textArea.getSyntaxEditingStyle();
 		doc.readLock();
 		try {
+			boolean changed;
 			if (p.isEnabled()) {
 				ParseResult res = p.parse(doc, style);
-				addParserNoticeHighlights(res);
+				changed = addParserNoticeHighlights(res);
 			}
 			else {
-				clearParserNoticeHighlights(p);
+				changed = clearParserNoticeHighlights(p);
+			}
+			if (changed) {
+				textArea.fireParserNoticesChange();
 			}
-			textArea.fireParserNoticesChange();
 		} finally {
 			doc.readUnlock();
 		}
@@ -350,9 +416,11 @@ class ParserManager implements DocumentListener, ActionListener,
 	 */
 	public List<ParserNotice> getParserNotices() {
 		List<ParserNotice> notices = new ArrayList<>();
-		if (noticeHighlightPairs!=null) {
-			for (NoticeHighlightPair pair : noticeHighlightPairs) {
-				notices.add(pair.notice);
+		if (noticesByParser!=null) {
+			for (ParserNotices parserNotices : noticesByParser.values()) {
+				for (NoticeHighlightPair pair : parserNotices.pairs) {
+					notices.add(pair.notice);
+				}
 			}
 		}
 		return notices;
@@ -374,15 +442,19 @@ class ParserManager implements DocumentListener, ActionListener,
 		HyperlinkListener listener = null;
 		parserForTip = null;
 
-		if (noticeHighlightPairs!=null) {
+		if (noticesByParser!=null) {
 
 			Point p = e.getPoint();
 			int pos = textArea.viewToModel(p);
-
-			for (NoticeHighlightPair pair : noticeHighlightPairs) {
-				ParserNotice notice = pair.notice;
-				if (noticeContainsPosition(notice, pos) &&
-						noticeContainsPointInView(notice, p)) {
+			int line = textArea.getDocument().getDefaultRootElement().getElementIndex(pos);
+
+			for (ParserNotices parserNotices : noticesByParser.values()) {
+				List<NoticeHighlightPair> pairs = parserNotices.pairs;
+				int index = parserNotices.getIndex().getFirstNoticeAt(pos, line, i ->
+					noticeContainsPosition(pairs.get(i).notice, pos) &&
+						noticeContainsPointInView(pairs.get(i).notice, p));
+				if (index>-1) {
+					ParserNotice notice = pairs.get(index).notice;
 					tip = notice.getToolTipText();
 					parserForTip = notice.getParser();
 					if (parserForTip instanceof HyperlinkListener) {
@@ -405,7 +477,7 @@ class ParserManager implements DocumentListener, ActionListener,
 	 * @param e The document event.
 	 */
 	public void handleDocumentEvent(DocumentEvent e) {
-		if (running && !parsers.isEmpty()) {
+		if (running && !suspended && !parsers.isEmpty()) {
 			timer.restart();
 		}
 	}
@@ -585,43 +657,60 @@ class ParserManager implements DocumentListener, ActionListener,
 	 * @param parser The parser.
 	 */
 	private void removeParserNotices(Parser parser) {
-		if (noticeHighlightPairs!=null) {
-			RSyntaxTextAreaHighlighter h = (RSyntaxTextAreaHighlighter)
-												textArea.getHighlighter();
-			for (Iterator<NoticeHighlightPair> i=noticeHighlightPairs.iterator(); i.hasNext();) {
-				NoticeHighlightPair pair = i.next();
-				if (pair.notice.getParser()==parser && pair.highlight!=null) {
-					h.removeParserHighlight(pair.highlight);
-					i.remove();
-				}
-			}
+		if (noticesByParser!=null) {
+			removeHighlights(removeNotices(pair -> pair.notice.getParser()==parser));
 		}
 	}
 
 
 	/**
-	 * Removes any currently stored notices (and the corresponding highlights
-	 * from the editor) from the same Parser, and in the given line range,
-	 * as in the results.
+	 * Removes the highlights in the editor of parser notices.
 	 *
-	 * @param res The results.
+	 * @param pairs The notices.
 	 */
-	private void removeParserNotices(ParseResult res) {
-		if (noticeHighlightPairs!=null) {
-			RSyntaxTextAreaHighlighter h = (RSyntaxTextAreaHighlighter)
-												textArea.getHighlighter();
-			for (Iterator<NoticeHighlightPair> i=noticeHighlightPairs.iterator(); i.hasNext();) {
-				NoticeHighlightPair pair = i.next();
-				if (shouldRemoveNotice(pair.notice, res)) {
-					if (pair.highlight!=null) {
-						h.removeParserHighlight(pair.highlight);
-					}
+	private void removeHighlights(List<NoticeHighlightPair> pairs) {
+		List<HighlightInfo> highlights = new ArrayList<>(pairs.size());
+		for (NoticeHighlightPair pair : pairs) {
+			if (pair.highlight!=null) {
+				highlights.add(pair.highlight);
+			}
+		}
+		RSyntaxTextAreaHighlighter h = (RSyntaxTextAreaHighlighter)
+											textArea.getHighlighter();
+		h.removeParserHighlights(highlights);
+	}
+
+
+	/**
+	 * Removes the notices matching a filter.  Their highlights in the editor
+	 * are not removed.
+	 *
+	 * @param filter Returns whether to remove a notice.
+	 * @return The removed notices.
+	 * @see #removeHighlights(List)
+	 */
+	private List<NoticeHighlightPair> removeNotices(Predicate<NoticeHighlightPair> filter) {
+
+		List<NoticeHighlightPair> removed = new ArrayList<>();
+
+		for (Iterator<ParserNotices> i=noticesByParser.values().iterator(); i.hasNext();) {
+			ParserNotices parserNotices = i.next();
+			if (parserNotices.pairs.removeIf(pair -> {
+						if (filter.test(pair)) {
+							removed.add(pair);
+							return true;
+						}
+						return false;
+					})) {
+				parserNotices.index = null;
+				if (parserNotices.pairs.isEmpty()) {
 					i.remove();
 				}
 			}
-
 		}
 
+		return removed;
+
 	}
 
 
@@ -660,7 +749,9 @@ class ParserManager implements DocumentListener, ActionListener,
 	 * @see #stopParsing()
 	 */
 	public void restartParsing() {
-		timer.restart();
+		if (!suspended) {
+			timer.restart();
+		}
 		running = true;
 	}
 
@@ -679,12 +770,35 @@ class ParserManager implements DocumentListener, ActionListener,
 		}
 		timer.setInitialDelay(millis);
 		timer.setDelay(millis);
-		if (running) {
+		if (running && !suspended) {
 			timer.start();
 		}
 	}
 
 
+	/**
+	 * Suspends or resumes parsing.  While suspended, the document isn't
+	 * parsed, and parser notices are cleared.  Resuming reparses the
+	 * document if parsing is running.
+	 *
+	 * @param suspended Whether to suspend parsing.
+	 * @see LargeFilePolicy.Feature#PARSERS
+	 */
+	void setSuspended(boolean suspended) {
+		if (suspended!=this.suspended) {
+			this.suspended = suspended;
+			if (suspended) {
+				timer.stop();
+				clearParserNoticeHighlights();
+				textArea.fireParserNoticesChange();
+			}
+			else if (running) {
+				timer.restart();
+			}
+		}
+	}
+
+
 	/**
 	 * Returns whether a parser notice should be removed, based on a parse
 	 * result.
@@ -719,6 +833,84 @@ class ParserManager implements DocumentListener, ActionListener,
 	}
 
 
+	/**
+	 * The properties of a parser notice that determine whether it's the same
+	 * as one from a previous parsing.
+	 */
+	private static final class NoticeKey {
+
+		private final int line;
+		private final int start;
+		private final int end;
+		private final String message;
+		private final ParserNotice.Level level;
+		private final Color color;
+
+		NoticeKey(ParserNotice notice, int line, int start, int end) {
+			this.line = line;
+			this.start = start;
+			this.end = end;
+			message = notice.getMessage();
+			level = notice.getLevel();
+			color = notice.getColor();
+		}
+
+		static NoticeKey forNotice(ParserNotice notice) {
+			return new NoticeKey(notice, notice.getLine(), notice.getOffset(),
+				notice.getOffset() + notice.getLength());
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof NoticeKey)) {
+				return false;
+			}
+			NoticeKey other = (NoticeKey)o;
+			return line==other.line && start==other.start && end==other.end &&
+					Objects.equals(message, other.message) && level==other.level &&
+					Objects.equals(color, other.color);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(line, start, end, message, level);
+		}
+
+	}
+
+
+	/**
+	 * The notices from one parser, and an index for finding those at an
+	 * offset.
+	 */
+	private static class ParserNotices {
+
+		private List<NoticeHighlightPair> pairs;
+		private ParserNoticeIndex index;
+
+		ParserNotices() {
+			pairs = new ArrayList<>();
+		}
+
+		void add(ParserNotice notice, HighlightInfo highlight) {
+			pairs.add(new NoticeHighlightPair(notice, highlight));
+			index = null;
+		}
+
+		ParserNoticeIndex getIndex() {
+			if (index==null) {
+				List<ParserNotice> notices = new ArrayList<>(pairs.size());
+				for (NoticeHighlightPair pair : pairs) {
+					notices.add(pair.notice);
+				}
+				index = new ParserNoticeIndex(notices);
+			}
+			return index;
+		}
+
+	}
+
+
 	/**
 	 * Mapping of a parser notice to its highlight in the editor.
 	 */
@@ -0,0 +1,178 @@
+/*
+ * 10/19/2026
+ *
+ * ParserNoticeIndex.java - Finds the parser notices containing an offset.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * LICENSE file for details.
+ */
+package org.fife.ui.rsyntaxtextarea;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+import org.fife.ui.rsyntaxtextarea.parser.ParserNotice;
+
+
+/**
+ * An index of the notices returned by one parsing, for finding those at an
+ * offset (e.g. the one the mouse is over) without checking every notice.<p>
+ *
+ * Notices that know their offset and length are kept in an interval tree:
+ * they're sorted by start offset, and the sorted array is treated as an
+ * implicit balanced binary tree, with each node knowing the largest end
+ * offset in its subtree.  Notices that only know their line are sorted by
+ * line.  Finding the notices at an offset is then <code>O(log n)</code>,
+ * plus the number of notices found.<p>
+ *
+ * Notices' offsets aren't updated as the document is edited, but each
+ * parsing replaces all of a parser's notices, so the index is simply
+ * rebuilt then.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ */
+final class ParserNoticeIndex {
+
+	/**
+	 * Indices into the notice list of the notices with offsets, sorted by
+	 * start offset.
+	 */
+	private int[] offsetNotices;
+
+	/**
+	 * The start and end offsets of the notices in {@link #offsetNotices}.
+	 * End offsets are inclusive, so notice implementations that include the
+	 * offset after them are found too.
+	 */
+	private int[] starts;
+	private int[] ends;
+
+	/**
+	 * The largest end offset in the subtree rooted at each index.
+	 */
+	private int[] maxEnds;
+
+	/**
+	 * Indices into the notice list of the notices with only lines, sorted by
+	 * line.
+	 */
+	private int[] lineNotices;
+	private int[] lines;
+
+
+	/**
+	 * Constructor.
+	 *
+	 * @param notices The notices to index.
+	 */
+	ParserNoticeIndex(List<? extends ParserNotice> notices) {
+
+		int offsetCount = 0;
+		for (ParserNotice notice : notices) {
+			if (notice.getKnowsOffsetAndLength()) {
+				offsetCount++;
+			}
+		}
+
+		Integer[] offsetOrder = new Integer[offsetCount];
+		Integer[] lineOrder = new Integer[notices.size() - offsetCount];
+		for (int i = 0, o = 0, l = 0; i < notices.size(); i++) {
+			if (notices.get(i).getKnowsOffsetAndLength()) {
+				offsetOrder[o++] = i;
+			}
+			else {
+				lineOrder[l++] = i;
+			}
+		}
+		Arrays.sort(offsetOrder, Comparator.comparingInt(i -> notices.get(i).getOffset()));
+		Arrays.sort(lineOrder, Comparator.comparingInt(i -> notices.get(i).getLine()));
+
+		offsetNotices = new int[offsetCount];
+		starts = new int[offsetCount];
+		ends = new int[offsetCount];
+		maxEnds = new int[offsetCount];
+		for (int i = 0; i < offsetCount; i++) {
+			ParserNotice notice = notices.get(offsetOrder[i]);
+			offsetNotices[i] = offsetOrder[i];
+			starts[i] = notice.getOffset();
+			ends[i] = starts[i] + Math.max(0, notice.getLength());
+		}
+		computeMaxEnds(0, offsetCount);
+
+		lineNotices = new int[lineOrder.length];
+		lines = new int[lineOrder.length];
+		for (int i = 0; i < lineOrder.length; i++) {
+			lineNotices[i] = lineOrder[i];
+			lines[i] = notices.get(lineOrder[i]).getLine();
+		}
+	}
+
+
+	/**
+	 * Computes the largest end offset in each subtree.
+	 *
+	 * @param lo The start of the subtree's range, inclusive.
+	 * @param hi The end of the subtree's range, exclusive.
+	 * @return The largest end offset in the subtree.
+	 */
+	private int computeMaxEnds(int lo, int hi) {
+		if (lo >= hi) {
+			return Integer.MIN_VALUE;
+		}
+		int mid = (lo + hi) >>> 1;
+		maxEnds[mid] = Math.max(ends[mid], Math.max(computeMaxEnds(lo, mid), computeMaxEnds(mid + 1, hi)));
+		return maxEnds[mid];
+	}
+
+
+	/**
+	 * Returns the first notice (in the order they were indexed in) that
+	 * might contain an offset, and is accepted by a filter.
+	 *
+	 * @param offs The offset.
+	 * @param line The line containing <code>offs</code>.
+	 * @param filter Returns whether the notice at an index in the notice
+	 *        list really contains the offset.
+	 * @return The index of the notice in the notice list, or <code>-1</code>
+	 *         if none is found.
+	 */
+	int getFirstNoticeAt(int offs, int line, IntPredicate filter) {
+		int[] best = { Integer.MAX_VALUE };
+		getFirstNoticeAt(offs, 0, offsetNotices.length, filter, best);
+		int first = Arrays.binarySearch(lines, line);
+		if (first >= 0) {
+			while (first > 0 && lines[first - 1] == line) {
+				first--;
+			}
+			for (int i = first; i < lines.length && lines[i] == line; i++) {
+				if (lineNotices[i] < best[0] && filter.test(lineNotices[i])) {
+					best[0] = lineNotices[i];
+				}
+			}
+		}
+		return best[0] == Integer.MAX_VALUE ? -1 : best[0];
+	}
+
+
+	private void getFirstNoticeAt(int offs, int lo, int hi, IntPredicate filter, int[] best) {
+		if (lo >= hi) {
+			return;
+		}
+		int mid = (lo + hi) >>> 1;
+		if (maxEnds[mid] < offs) {
+			return; // Nothing in this subtree reaches offs
+		}
+		getFirstNoticeAt(offs, lo, mid, filter, best);
+		if (starts[mid] <= offs) {
+			if (ends[mid] >= offs && offsetNotices[mid] < best[0] && filter.test(offsetNotices[mid])) {
+				best[0] = offsetNotices[mid];
+			}
+			getFirstNoticeAt(offs, mid + 1, hi, filter, best);
+		}
+	}
+
+
+}
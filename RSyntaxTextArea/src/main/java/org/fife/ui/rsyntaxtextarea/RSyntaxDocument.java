@@ -13,8 +13,11 @@ import java.awt.event.ActionEvent;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.util.Iterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
 
 import javax.swing.Action;
+import javax.swing.Timer;
 import javax.swing.event.DocumentEvent;
 import javax.swing.text.BadLocationException;
 import javax.swing.text.Element;
@@ -39,11 +42,26 @@ import org.fife.util.DynamicIntArray;
  *
  * To change the language being syntax highlighted at any time, you merely have
  * to call {@link #setSyntaxStyle}.  Other than that, this document can be
- * treated like any other save one caveat:  all <code>DocumentEvent</code>s of
- * type <code>CHANGE</code> use their offset and length values to represent the
- * first and last lines, respectively, that have had their syntax coloring
- * change.  This is really a hack to increase the speed of the painting code
- * and should really be corrected, but oh well.
+ * treated like any other.  When an edit changes the syntax highlighting of
+ * lines other than the one edited (e.g. when a multi-line comment is
+ * started), a <code>CHANGE</code> event is fired for those lines.  It is a
+ * {@link LineRangeChangeEvent}, so listeners such as views can get the
+ * affected line range without converting offsets back to lines.<p>
+ *
+ * <b>Threading:</b> like any <code>AbstractDocument</code>, this document
+ * can be edited and read from any thread.  However, its syntax highlighting
+ * information is computed lazily, so methods that return it, such as
+ * {@link #getTokenListForLine(int)} and {@link #getLastTokenTypeOnLine(int)},
+ * may lex lines and update cached state even though they look like simple
+ * getters.  They should only be called on the EDT.  To work with the tokens
+ * of a document on another thread, take a {@link #createSnapshot() snapshot}
+ * of it instead.<p>
+ *
+ * After an edit, values that are still stale are brought up to date in
+ * idle time by a Swing timer, on the EDT.  This only takes the read lock,
+ * so it never waits for readers on other threads, and it is put off while
+ * any thread holds the write lock rather than waiting for a writer that
+ * may itself be waiting for the EDT.
  *
  * @author Robert Futrell
  * @version 1.0
@@ -67,16 +85,116 @@ public class RSyntaxDocument extends RDocument implements Iterable<Token>,
 	 */
 	private String syntaxStyle;
 
+	/**
+	 * Whether {@link #tokenMaker} was created by {@link #tokenMakerFactory}
+	 * (as opposed to being a custom instance), meaning more instances can be
+	 * created to lex lines in parallel.
+	 */
+	private transient boolean tokenMakerFromFactory;
+
+	/**
+	 * Incremented whenever the token maker changes, so snapshots can tell
+	 * that their "last token type" values are out of date.
+	 */
+	private transient volatile int syntaxStyleVersion;
+
+	/**
+	 * The default length of a line beyond which it is split into segments
+	 * that are lexed separately.
+	 *
+	 * @see #setLongLineThreshold(int)
+	 */
+	public static final int DEFAULT_LONG_LINE_THRESHOLD = 16 * 1024;
+
+	/**
+	 * The length of a line beyond which it is split into segments that are
+	 * lexed separately, or <code>0</code> if lines are never split.
+	 */
+	private int longLineThreshold;
+
+	/**
+	 * Computes "last token" values for large ranges of lines in parallel.
+	 */
+	private static final LastTokenTypeLexer LAST_TOKEN_TYPE_LEXER =
+		new LastTokenTypeLexer(ForkJoinPool.commonPool(),
+				LastTokenTypeLexer.DEFAULT_MIN_LINES_PER_CHUNK);
+
 	/**
 	 * Array of values representing the "last token type" on each line.  This
 	 * is used in cases such as multi-line comments:  if the previous line
 	 * ended with an (unclosed) multi-line comment, we can use this knowledge
 	 * and start the current line's syntax highlighting in multi-line comment
-	 * state.
+	 * state.<p>
+	 *
+	 * Values for lines below a recent edit may be stale; use
+	 * {@link #getLastTokenTypeOnLine(int)} to get up-to-date values.
 	 */
 	protected transient DynamicIntArray lastTokensOnLines;
 
+	/**
+	 * The language regions of lines that have been lexed.
+	 */
+	private transient LanguageRegionCache languageRegions;
+
+	/**
+	 * Where very long lines can be lexed from.
+	 */
+	private transient LineSegmentCache lineSegments;
+
+	/**
+	 * Finds matching brackets.
+	 */
+	private transient BracketMatchIndex bracketMatchIndex;
+
+	/**
+	 * The first line whose value in {@link #lastTokensOnLines} may be stale,
+	 * or <code>-1</code> if all values are up to date.  Values are brought
+	 * up to date lazily; see {@link #getLastTokenTypeOnLine(int)}.
+	 */
+	private transient int dirtyStart;
+
+	/**
+	 * The last line that may be inconsistent with the line above it.  Lines
+	 * below this one are consistent with it, so once its value is brought
+	 * up to date and doesn't change, all values below are up to date too.
+	 */
+	private transient int dirtyEnd;
+
+	/**
+	 * Finishes bringing stale "last token" values up to date when idle.
+	 */
+	private transient Timer propagationTimer;
+
+	/**
+	 * Guards {@link #lastTokensOnLines}, {@link #dirtyStart} and
+	 * {@link #dirtyEnd} while stale values are brought up to date.  That
+	 * can happen while only a read lock is held, so it's needed to keep
+	 * {@link #createSnapshot()}, called on another thread, from seeing
+	 * half-updated values.
+	 */
+	private transient Object lastTokensLock;
+
+	/**
+	 * The maximum number of lines whose "last token" values are updated
+	 * right after an edit.  Values for lines further down are computed when
+	 * asked for (e.g. when they're painted), or in idle time.
+	 */
+	private static final int SYNC_PROPAGATION_LINES = 100;
+
+	/**
+	 * The delay after the last edit before stale "last token" values are
+	 * brought up to date in idle time, in milliseconds.
+	 */
+	private static final int IDLE_PROPAGATION_DELAY = 100;
+
+	/**
+	 * The time spent bringing stale "last token" values up to date in one
+	 * event, so the EDT stays responsive.
+	 */
+	private static final long IDLE_PROPAGATION_BUDGET_NANOS = 10_000_000;
+
 	private transient int lastLine = -1;
+	private transient int cachedSegment = -1;
 	private transient Token cachedTokenList;
 
 	private transient Segment s;
@@ -102,15 +220,127 @@ public class RSyntaxDocument extends RDocument implements Iterable<Token>,
 	 * @param syntaxStyle The syntax highlighting scheme to use.
 	 */
 	public RSyntaxDocument(TokenMakerFactory tmf, String syntaxStyle) {
+		this(tmf, syntaxStyle, null);
+	}
+
+
+	/**
+	 * Constructs a plain text document.  A default root element is created,
+	 * and the tab size set to 5.
+	 *
+	 * @param tmf The <code>TokenMakerFactory</code> for this document.  If
+	 *        this is <code>null</code>, a default factory is used.
+	 * @param syntaxStyle The syntax highlighting scheme to use.
+	 * @param content The storage for the document's text.  If this is
+	 *        <code>null</code>, a gap buffer is used.  For large documents
+	 *        edited in many places at once, a <code>RopeContent</code> can be
+	 *        much faster.
+	 * @see RDocument#RDocument(javax.swing.text.AbstractDocument.Content)
+	 */
+	public RSyntaxDocument(TokenMakerFactory tmf, String syntaxStyle, Content content) {
+		super(content);
 		putProperty(tabSizeAttribute, 5);
+		lastTokensLock = new Object();
 		lastTokensOnLines = new DynamicIntArray(400);
 		lastTokensOnLines.add(Token.NULL); // Initial (empty) line.
+		dirtyStart = dirtyEnd = -1;
+		languageRegions = new LanguageRegionCache();
+		longLineThreshold = DEFAULT_LONG_LINE_THRESHOLD;
+		lineSegments = new LineSegmentCache();
+		bracketMatchIndex = new BracketMatchIndex(this);
 		s = new Segment();
 		setTokenMakerFactory(tmf);
 		setSyntaxStyle(syntaxStyle);
 	}
 
 
+	/**
+	 * Computes the "last token type" values for a range of lines.  Large
+	 * ranges are lexed in parallel if possible.
+	 *
+	 * @param firstLine The first line to compute a value for.
+	 * @param endLine The line after the last line to compute a value for.
+	 * @param initialTokenType The last token type of the line before
+	 *        <code>firstLine</code>.
+	 * @return The values, indexed relative to <code>firstLine</code>.
+	 */
+	private int[] computeLastTokenTypes(int firstLine, int endLine,
+										int initialTokenType) {
+		return LAST_TOKEN_TYPE_LEXER.lex(this, tokenMaker, s, createTokenMakerSupplier(),
+				firstLine, endLine, initialTokenType);
+	}
+
+
+	/**
+	 * Creates the event fired when the syntax highlighting of a range of
+	 * lines changes.
+	 *
+	 * @param firstLine The first line affected.
+	 * @param lastLine The last line affected, inclusive.
+	 * @return The event.
+	 */
+	private LineRangeChangeEvent createLineRangeChangeEvent(int firstLine,
+			int lastLine) {
+		Element map = getDefaultRootElement();
+		int offs = map.getElement(firstLine).getStartOffset();
+		// The last line's end offset is past the end of the document
+		int end = Math.min(map.getElement(lastLine).getEndOffset(),
+				getLength());
+		return new LineRangeChangeEvent(offs, Math.max(end - offs, 0),
+				firstLine, lastLine);
+	}
+
+
+	/**
+	 * Returns an immutable snapshot of this document:  its text, its lines,
+	 * and the "last token type" of each line.  The snapshot can be read
+	 * from any thread without holding this document's lock, and knows
+	 * whether the document has since changed, so long-running work such as
+	 * parsing can run in the background and discard stale results.<p>
+	 *
+	 * Taking a snapshot is cheap if this document's content is a
+	 * <code>RopeContent</code>, which is shared with the snapshot;
+	 * otherwise, the text is copied.  Line offsets, and "last token type"
+	 * values that were stale, are computed by the snapshot when first
+	 * needed, rather than here.
+	 *
+	 * @return The snapshot.
+	 * @see #getVersion()
+	 */
+	public DocumentSnapshot createSnapshot() {
+		readLock();
+		try {
+			int upToDateLines;
+			int[] lastTokenTypes;
+			synchronized (lastTokensLock) {
+				upToDateLines = dirtyStart>-1 ? dirtyStart : lastTokensOnLines.getSize();
+				lastTokenTypes = lastTokensOnLines.toArray();
+			}
+			return new DocumentSnapshot(this, getVersion(), syntaxStyleVersion, createTextSnapshot(),
+					lastTokenTypes, upToDateLines, createTokenMakerSupplier());
+		} finally {
+			readUnlock();
+		}
+	}
+
+
+	/**
+	 * Returns a supplier of new instances of the current token maker, for
+	 * lexing lines in other threads.
+	 *
+	 * @return The supplier, or <code>null</code> if the current token maker
+	 *         wasn't created by the token maker factory.
+	 */
+	private Supplier<TokenMaker> createTokenMakerSupplier() {
+		if (!tokenMakerFromFactory) {
+			return null;
+		}
+		String style = syntaxStyle;
+		TokenMakerFactory tmf = tokenMakerFactory;
+		return () -> tmf.getTokenMaker(style);
+	}
+
+
 	/**
 	 * Alerts all listeners to this document of an insertion.  This is
 	 * overridden so we can update our syntax highlighting stuff.<p>
@@ -139,7 +369,7 @@ public class RSyntaxDocument extends RDocument implements Iterable<Token>,
 		int line = lineMap.getElementIndex(e.getOffset());
 		int previousLine = line - 1;
 		int previousTokenType = (previousLine>-1 ?
-					lastTokensOnLines.get(previousLine) : Token.NULL);
+					getLastTokenTypeOnLine(previousLine) : Token.NULL);
 
 		// If entire lines were added...
 		if (added!=null && added.length>0) {
@@ -150,28 +380,41 @@ public class RSyntaxDocument extends RDocument implements Iterable<Token>,
 			int endBefore = line + added.length - numRemoved;
 			//System.err.println("... adding lines: " + line + " - " + (endBefore-1));
 			//System.err.println("... ... added: " + added.length + ", removed:" + numRemoved);
-			for (int i=line; i<endBefore; i++) {
-
-				setSharedSegment(i); // Loads line i's text into s.
-
-				int tokenType = tokenMaker.getLastTokenTypeOnLine(s, previousTokenType);
-				lastTokensOnLines.add(i, tokenType);
-				//System.err.println("--------- lastTokensOnLines.size() == " + lastTokensOnLines.getSize());
-
-				previousTokenType = tokenType;
 
-			} // End of for (int i=line; i<endBefore; i++).
+			// Compute the new lines' values first and insert them all at
+			// once, so values for lines below are only shifted once.  This
+			// matters when many lines are added, e.g. when loading a file,
+			// in which case the values are also computed in parallel.
+			int[] newTokenTypes = computeLastTokenTypes(line, endBefore,
+												previousTokenType);
+			if (newTokenTypes.length>0) {
+				previousTokenType = newTokenTypes[newTokenTypes.length - 1];
+			}
+			lastTokensOnLines.add(line, newTokenTypes);
+			shiftDirtyLines(line, newTokenTypes.length);
+			languageRegions.linesInserted(line, newTokenTypes.length);
+			languageRegions.invalidate(endBefore); // Text split off of "line"
+			lineSegments.linesInserted(line, newTokenTypes.length);
+			lineSegments.invalidate(endBefore);
+			bracketMatchIndex.linesInserted(line, newTokenTypes.length);
+			bracketMatchIndex.invalidate(endBefore);
+			//System.err.println("--------- lastTokensOnLines.size() == " + lastTokensOnLines.getSize());
 
 			// Update last tokens for lines below until they stop changing.
-			updateLastTokensBelow(endBefore, numLines, previousTokenType);
+			updateLastTokensBelow(endBefore, numLines);
 
 		} // End of if (added!=null && added.length>0).
 
 		// Otherwise, text was inserted on a single line...
 		else {
 
+			languageRegions.invalidate(line);
+			lineSegments.invalidate(line, e.getOffset() -
+					lineMap.getElement(line).getStartOffset());
+			bracketMatchIndex.invalidate(line);
+
 			// Update last tokens for lines below until they stop changing.
-			updateLastTokensBelow(line, numLines, previousTokenType);
+			updateLastTokensBelow(line, numLines);
 
 		} // End of else.
 
@@ -209,9 +452,6 @@ public class RSyntaxDocument extends RDocument implements Iterable<Token>,
 		if (removed!=null && removed.length>0) {
 
 			int line = change.getIndex();	// First line entirely removed.
-			int previousLine = line - 1;	// Line before that.
-			int previousTokenType = (previousLine>-1 ?
-					lastTokensOnLines.get(previousLine) : Token.NULL);
 
 			Element[] added = change.getChildrenAdded();
 			int numAdded = added==null ? 0 : added.length;
@@ -222,10 +462,17 @@ public class RSyntaxDocument extends RDocument implements Iterable<Token>,
 			//System.err.println("... added: " + numAdded + ", removed: " + removed.length);
 
 			lastTokensOnLines.removeRange(line, endBefore); // Removing values for lines [line-(endBefore-1)].
+			shiftDirtyLines(endBefore, line - endBefore);
+			languageRegions.linesRemoved(line, endBefore - line);
+			languageRegions.invalidate(line);
+			lineSegments.linesRemoved(line, endBefore - line);
+			lineSegments.invalidate(line);
+			bracketMatchIndex.linesRemoved(line, endBefore - line);
+			bracketMatchIndex.invalidate(line);
 			//System.err.println("--------- lastTokensOnLines.size() == " + lastTokensOnLines.getSize());
 
 			// Update last tokens for lines below until they've stopped changing.
-			updateLastTokensBelow(line, numLines, previousTokenType);
+			updateLastTokensBelow(line, numLines);
 
 		} // End of if (removed!=null && removed.size()>0).
 
@@ -233,16 +480,16 @@ public class RSyntaxDocument extends RDocument implements Iterable<Token>,
 		else {
 
 			int line = lineMap.getElementIndex(chng.getOffset());
+			languageRegions.invalidate(line);
+			lineSegments.invalidate(line, chng.getOffset() -
+					lineMap.getElement(line).getStartOffset());
+			bracketMatchIndex.invalidate(line);
 			if (line>=lastTokensOnLines.getSize()) {
 				return;	// If we're editing the last line in a document...
 			}
 
-			int previousLine = line - 1;
-			int previousTokenType = (previousLine>-1 ?
-					lastTokensOnLines.get(previousLine) : Token.NULL);
-			//System.err.println("previousTokenType for line : " + previousLine + " is " + previousTokenType);
 			// Update last tokens for lines below until they've stopped changing.
-			updateLastTokensBelow(line, numLines, previousTokenType);
+			updateLastTokensBelow(line, numLines);
 
 		}
 
@@ -295,6 +542,31 @@ public class RSyntaxDocument extends RDocument implements Iterable<Token>,
 	}
 
 
+	/**
+	 * Returns the language index of the text at an offset.  In documents
+	 * with a single language, this is always <code>0</code>.  In documents
+	 * with embedded languages, such as HTML with JavaScript and CSS, this
+	 * is the language index of the token at the offset (see
+	 * {@link Token#getLanguageIndex()}).<p>
+	 *
+	 * Each line's language regions are cached, so this is usually much
+	 * cheaper than finding the token at the offset.
+	 *
+	 * @param offs The offset.  If this is at the end of a line, the language
+	 *        of the text just before it is returned.
+	 * @return The language index.
+	 * @see #getLanguageRegionEndOffset(int)
+	 */
+	public int getLanguageIndexAt(int offs) {
+		Element map = getDefaultRootElement();
+		int line = map.getElementIndex(offs);
+		int[] regions = getLanguageRegions(line);
+		int region = LanguageRegionCache.getRegion(regions,
+				offs - map.getElement(line).getStartOffset());
+		return LanguageRegionCache.getRegionLanguageIndex(regions, region);
+	}
+
+
 	/**
 	 * Returns whether the current language is a markup language, such as
 	 * HTML, XML or PHP.
@@ -307,17 +579,95 @@ public class RSyntaxDocument extends RDocument implements Iterable<Token>,
 
 
 	/**
-	 * Returns the token type of the last token on the given line.
+	 * Returns the end of the run of text in the same language as the text
+	 * at an offset.  Runs never extend past the end of a line, so a line's
+	 * language regions can be walked like so:
+	 *
+	 * <pre>
+	 * int offs = line.getStartOffset();
+	 * while (offs &lt; line.getEndOffset()) {
+	 *    int languageIndex = doc.getLanguageIndexAt(offs);
+	 *    int end = doc.getLanguageRegionEndOffset(offs);
+	 *    // Text in [offs, end) is in language "languageIndex"
+	 *    offs = end;
+	 * }
+	 * </pre>
+	 *
+	 * @param offs The offset.
+	 * @return The end offset of the run, exclusive.  For the last run on a
+	 *         line, this is the line's end offset, i.e. it includes the
+	 *         newline.
+	 * @see #getLanguageIndexAt(int)
+	 */
+	public int getLanguageRegionEndOffset(int offs) {
+		Element map = getDefaultRootElement();
+		int line = map.getElementIndex(offs);
+		Element elem = map.getElement(line);
+		int[] regions = getLanguageRegions(line);
+		int region = LanguageRegionCache.getRegion(regions,
+				offs - elem.getStartOffset());
+		if (region+1<LanguageRegionCache.getRegionCount(regions)) {
+			return elem.getStartOffset() +
+				LanguageRegionCache.getRegionStart(regions, region+1);
+		}
+		return elem.getEndOffset();
+	}
+
+
+	/**
+	 * Returns the language regions of a line, lexing it only if they aren't
+	 * cached.
+	 *
+	 * @param line The line.
+	 * @return The regions.
+	 * @see LanguageRegionCache
+	 */
+	private int[] getLanguageRegions(int line) {
+		int initialTokenType = line==0 ? Token.NULL :
+				getLastTokenTypeOnLine(line - 1);
+		int[] regions = languageRegions.get(line, initialTokenType);
+		if (regions==null) {
+			Token t = getTokenListForLine(line);
+			int lineStart = getDefaultRootElement().getElement(line).getStartOffset();
+			regions = languageRegions.put(line, initialTokenType, t, lineStart);
+		}
+		return regions;
+	}
+
+
+	/**
+	 * Returns the token type of the last token on the given line.<p>
+	 *
+	 * When an edit changes the lexer state at the end of a line (e.g. when
+	 * a multi-line comment is started), only a limited number of lines below
+	 * it are updated right away; the rest are updated when idle, or when
+	 * this method is called for them, whichever comes first.
 	 *
 	 * @param line The line to inspect.
 	 * @return The token type of the last token on the specified line.  If
 	 *         the line is invalid, an exception is thrown.
 	 */
 	public int getLastTokenTypeOnLine(int line) {
+		if (dirtyStart>-1 && line>=dirtyStart) {
+			propagateLastTokenTypes(line);
+		}
 		return lastTokensOnLines.get(line);
 	}
 
 
+	/**
+	 * Returns whether any "last token" values are stale, for testing
+	 * purposes.
+	 *
+	 * @return Whether any values are stale.
+	 */
+	boolean hasStaleLastTokenTypes() {
+		synchronized (lastTokensLock) {
+			return dirtyStart>-1;
+		}
+	}
+
+
 	/**
 	 * Returns the text to place at the beginning and end of a
 	 * line to "comment" it in this programming language.
@@ -335,6 +685,134 @@ public class RSyntaxDocument extends RDocument implements Iterable<Token>,
 	}
 
 
+	/**
+	 * Returns whether a line contains any text in a specific language.
+	 * Like {@link #getLanguageIndexAt(int)}, this usually doesn't need to
+	 * lex the line.
+	 *
+	 * @param line The line.
+	 * @param languageIndex The language index.
+	 * @return Whether the line contains text in that language.
+	 */
+	public boolean getLineContainsLanguage(int line, int languageIndex) {
+		int[] regions = getLanguageRegions(line);
+		int count = LanguageRegionCache.getRegionCount(regions);
+		for (int i=0; i<count; i++) {
+			if (LanguageRegionCache.getRegionLanguageIndex(regions, i)==languageIndex) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+
+	/**
+	 * Returns the number of segments a line is split into.  Lines longer
+	 * than the {@link #getLongLineThreshold() long line threshold} are
+	 * split into segments of about that length, each of which can be lexed
+	 * on its own with {@link #getTokenListForLineSegment(int, int)}.  Views
+	 * use this so painting part of a very long line (e.g. in a minified
+	 * file) doesn't lex all of it.<p>
+	 *
+	 * Segments always start at the start of a token.  A line is only split
+	 * where lexing from the start of a token gives the same tokens as
+	 * lexing the line from its start, so some lines may have fewer segments
+	 * than their length suggests.
+	 *
+	 * @param line The line.
+	 * @return The number of segments.  This is <code>1</code> for lines that
+	 *         aren't split.
+	 * @see #getLineSegmentStartOffset(int, int)
+	 * @see #getLineSegmentOfOffset(int)
+	 */
+	public int getLineSegmentCount(int line) {
+		LineSegmentCache.LineSegments segments = getLineSegments(line);
+		return segments==null ? 1 : segments.getCount();
+	}
+
+
+	/**
+	 * Returns the segment of its line an offset is in.
+	 *
+	 * @param offs The offset.
+	 * @return The segment.
+	 * @see #getLineSegmentCount(int)
+	 */
+	public int getLineSegmentOfOffset(int offs) {
+		Element map = getDefaultRootElement();
+		int line = map.getElementIndex(offs);
+		LineSegmentCache.LineSegments segments = getLineSegments(line);
+		return segments==null ? 0 :
+				segments.getSegmentOf(offs - map.getElement(line).getStartOffset());
+	}
+
+
+	/**
+	 * Returns the known segments of a line, finding them if necessary.
+	 *
+	 * @param line The line.
+	 * @return The segments, or <code>null</code> if the line isn't long
+	 *         enough to be split.
+	 */
+	private LineSegmentCache.LineSegments getLineSegments(int line) {
+
+		if (longLineThreshold<=0) {
+			return null;
+		}
+		Element elem = getDefaultRootElement().getElement(line);
+		int length = elem.getEndOffset() - 1 - elem.getStartOffset();
+		if (length<=longLineThreshold + LineSegmentCache.getVerifyLength(longLineThreshold)) {
+			return null;
+		}
+
+		int initialTokenType = line==0 ? Token.NULL :
+				getLastTokenTypeOnLine(line - 1);
+		LineSegmentCache.LineSegments segments = lineSegments.get(line,
+				initialTokenType, longLineThreshold);
+		if (!segments.isComplete()) {
+			setSharedSegment(line);
+			segments.computeAll(s, tokenMaker);
+			cachedTokenList = null; // The token maker reuses its tokens
+		}
+		return segments;
+
+	}
+
+
+	/**
+	 * Returns the offset at which a segment of a line starts.
+	 *
+	 * @param line The line.
+	 * @param segment The segment.
+	 * @return The start offset of the segment.
+	 * @see #getLineSegmentCount(int)
+	 */
+	public int getLineSegmentStartOffset(int line, int segment) {
+		int lineStart = getDefaultRootElement().getElement(line).getStartOffset();
+		LineSegmentCache.LineSegments segments = getLineSegments(line);
+		if (segments==null) {
+			if (segment!=0) {
+				throw new IndexOutOfBoundsException("Invalid segment: " + segment);
+			}
+			return lineStart;
+		}
+		return lineStart + segments.getStart(segment);
+	}
+
+
+	/**
+	 * Returns the length of a line beyond which it is split into segments
+	 * that are lexed separately.
+	 *
+	 * @return The threshold, or <code>0</code> if lines are never split.
+	 * @see #setLongLineThreshold(int)
+	 * @see #getLineSegmentCount(int)
+	 */
+	public int getLongLineThreshold() {
+		return longLineThreshold;
+	}
+
+
 	/**
 	 * Returns whether tokens of the specified type should have "mark
 	 * occurrences" enabled for the current programming language.
@@ -348,6 +826,30 @@ public class RSyntaxDocument extends RDocument implements Iterable<Token>,
 	}
 
 
+	/**
+	 * Returns the offset of the bracket matching the one at an offset.
+	 * Only brackets in {@link TokenTypes#SEPARATOR} tokens of the same
+	 * language are matched, so brackets in strings and comments are
+	 * ignored.<p>
+	 *
+	 * This doesn't scan the text between the two brackets; see
+	 * {@link BracketMatchIndex}.
+	 *
+	 * @param offs The offset of the bracket.
+	 * @return The offset of the matching bracket, or <code>-1</code> if
+	 *         there isn't a bracket at <code>offs</code> or it has no match.
+	 */
+	int getMatchingBracketOffset(int offs) {
+		// Keeps idle-time propagation from changing lexer states mid-search
+		readLock();
+		try {
+			return bracketMatchIndex.getMatchingBracketOffset(offs);
+		} finally {
+			readUnlock();
+		}
+	}
+
+
 	/**
 	 * Returns the occurrence marker for the current language.
 	 *
@@ -383,6 +885,18 @@ public class RSyntaxDocument extends RDocument implements Iterable<Token>,
 	}
 
 
+	/**
+	 * Returns a number that changes whenever this document's token maker
+	 * does.  This doesn't need this document's lock.
+	 *
+	 * @return The syntax style version.
+	 * @see DocumentSnapshot#isStale()
+	 */
+	int getSyntaxStyleVersion() {
+		return syntaxStyleVersion;
+	}
+
+
 	/**
 	 * Returns a token list for the specified segment of text representing
 	 * the specified line number.  This method is basically a wrapper for
@@ -395,10 +909,16 @@ public class RSyntaxDocument extends RDocument implements Iterable<Token>,
 	 */
 	public Token getTokenListForLine(int line) {
 
-		if (line==lastLine && cachedTokenList!=null) {
+		if (line==lastLine && cachedSegment==-1 && cachedTokenList!=null) {
 			return cachedTokenList;
 		}
+
+		// Done first, as bringing lines' values up to date lexes them
+		// using the shared segment
+		int initialTokenType = line==0 ? Token.NULL :
+								getLastTokenTypeOnLine(line-1);
 		lastLine = line;
+		cachedSegment = -1;
 
 		Element map = getDefaultRootElement();
 		Element elem = map.getElement(line);
@@ -412,16 +932,74 @@ public class RSyntaxDocument extends RDocument implements Iterable<Token>,
 			ble.printStackTrace();
 			return new TokenImpl();
 		}
-		int initialTokenType = line==0 ? Token.NULL :
-								getLastTokenTypeOnLine(line-1);
 
 		//return tokenMaker.getTokenList(s, initialTokenType, startOffset);
 		cachedTokenList = tokenMaker.getTokenList(s, initialTokenType, startOffset);
+		if (languageRegions.get(line, initialTokenType)==null) {
+			languageRegions.put(line, initialTokenType, cachedTokenList,
+					startOffset);
+		}
 		return cachedTokenList;
 
 	}
 
 
+	/**
+	 * Returns a token list for one segment of a line.  For lines that aren't
+	 * split into segments, this is the same as
+	 * {@link #getTokenListForLine(int)}.
+	 *
+	 * @param line The line.
+	 * @param segment The segment of the line.
+	 * @return A token list representing the segment.
+	 * @see #getLineSegmentCount(int)
+	 */
+	public Token getTokenListForLineSegment(int line, int segment) {
+
+		LineSegmentCache.LineSegments segments = getLineSegments(line);
+		if (segments==null) {
+			if (segment!=0) {
+				throw new IndexOutOfBoundsException("Invalid segment: " + segment);
+			}
+			return getTokenListForLine(line);
+		}
+
+		if (line==lastLine && segment==cachedSegment && cachedTokenList!=null) {
+			return cachedTokenList;
+		}
+
+		setSharedSegment(line);
+		int lineStart = getDefaultRootElement().getElement(line).getStartOffset();
+		int start = segments.getStart(segment);
+		boolean lastSegment = segment==segments.getCount() - 1;
+		int end = lastSegment ? s.count : segments.getStart(segment + 1);
+
+		// Lex a little past the segment's end so its last token is lexed as
+		// it is when lexing the whole line, then drop the tokens after it
+		int lexEnd = lastSegment ? end :
+			Math.min(s.count, end + LineSegmentCache.getVerifyLength(longLineThreshold));
+		Segment text = new Segment(s.array, s.offset + start, lexEnd - start);
+		Token tokenList = tokenMaker.getTokenList(text,
+				segments.getTokenType(segment), lineStart + start);
+		if (!lastSegment) {
+			for (Token t=tokenList; t!=null; t=t.getNextToken()) {
+				Token next = t.getNextToken();
+				if (next!=null && (!next.isPaintable() ||
+						next.getOffset()>=lineStart + end)) {
+					((TokenImpl)t).setNextToken(null);
+					break;
+				}
+			}
+		}
+
+		lastLine = line;
+		cachedSegment = segment;
+		cachedTokenList = tokenList;
+		return tokenList;
+
+	}
+
+
 	boolean insertBreakSpecialHandling(ActionEvent e) {
 		Action a = tokenMaker.getInsertBreakAction();
 		if (a!=null) {
@@ -481,8 +1059,13 @@ public class RSyntaxDocument extends RDocument implements Iterable<Token>,
 
 		// Handle other transient stuff
 		this.s = new Segment();
+		lastTokensLock = new Object();
 		int lineCount = getDefaultRootElement().getElementCount();
 		lastTokensOnLines = new DynamicIntArray(lineCount);
+		dirtyStart = dirtyEnd = -1;
+		languageRegions = new LanguageRegionCache();
+		lineSegments = new LineSegmentCache();
+		bracketMatchIndex = new BracketMatchIndex(this);
 		setSyntaxStyle(syntaxStyle); // Actually install (transient) TokenMaker
 
 	}
@@ -518,6 +1101,29 @@ public class RSyntaxDocument extends RDocument implements Iterable<Token>,
 	}
 
 
+	/**
+	 * Sets the length of a line beyond which it is split into segments that
+	 * are lexed separately.  Smaller values make painting part of a long
+	 * line faster, but finding where to split lines slower.
+	 *
+	 * @param threshold The new threshold.  If this is <code>&lt;= 0</code>,
+	 *        lines are never split.
+	 * @see #getLongLineThreshold()
+	 * @see #DEFAULT_LONG_LINE_THRESHOLD
+	 */
+	public void setLongLineThreshold(int threshold) {
+		threshold = Math.max(0, threshold);
+		if (threshold!=longLineThreshold) {
+			longLineThreshold = threshold;
+			lineSegments.clear();
+			lastLine = -1;
+			cachedTokenList = null;
+			int lineCount = getDefaultRootElement().getElementCount();
+			fireChangedUpdate(createLineRangeChangeEvent(0, lineCount - 1));
+		}
+	}
+
+
 	/**
 	 * Sets the syntax style being used for syntax highlighting in this
 	 * document.  What styles are supported by a document is determined by its
@@ -533,8 +1139,9 @@ public class RSyntaxDocument extends RDocument implements Iterable<Token>,
 	 */
 	public void setSyntaxStyle(String styleKey) {
 		tokenMaker = tokenMakerFactory.getTokenMaker(styleKey);
-		updateSyntaxHighlightingInformation();
+		tokenMakerFromFactory = true;
 		this.syntaxStyle = styleKey;
+		updateSyntaxHighlightingInformation();
 	}
 
 
@@ -549,8 +1156,9 @@ public class RSyntaxDocument extends RDocument implements Iterable<Token>,
 	 */
 	public void setSyntaxStyle(TokenMaker tokenMaker) {
 		this.tokenMaker = tokenMaker;
-		updateSyntaxHighlightingInformation();
+		tokenMakerFromFactory = false;
 		this.syntaxStyle = "text/unknown"; // TODO: Make me public?
+		updateSyntaxHighlightingInformation();
 	}
 
 
@@ -567,70 +1175,212 @@ public class RSyntaxDocument extends RDocument implements Iterable<Token>,
 
 
 	/**
-	 * Loops through the last-tokens-on-lines array from a specified point
-	 * onward, updating last-token values until they stop changing.  This
-	 * should be called when lines are updated/inserted/removed, as doing
-	 * so may cause lines below to change color.
+	 * Brings the "last token" values of the lines below an edit up to date,
+	 * or at least starts to.  This should be called when lines are
+	 * updated/inserted/removed, as doing so may cause lines below to change
+	 * color.<p>
+	 *
+	 * Values are updated until they stop changing, but only for a limited
+	 * number of lines.  If they are still changing after that, the rest are
+	 * marked as stale, to be updated lazily.  That way, typing e.g. an
+	 * unclosed multi-line comment at the top of a large file doesn't re-lex
+	 * the entire file on each key press.  A changed update is fired for the
+	 * lines that may need repainting.
 	 *
 	 * @param line The first line to check for a change in last-token value.
 	 * @param numLines The number of lines in the document.
-	 * @param previousTokenType The last-token value of the line just before
-	 *        <code>line</code>.
-	 * @return The last line that needs repainting.
 	 */
-	private int updateLastTokensBelow(int line, int numLines, int previousTokenType) {
+	private void updateLastTokensBelow(int line, int numLines) {
 
-		int firstLine = line;
+		if (line>=numLines) {
+			return;
+		}
+
+		// This line's text changed, so its value may no longer be
+		// consistent with the line above
+		if (dirtyStart==-1) {
+			dirtyStart = dirtyEnd = line;
+		}
+		else {
+			dirtyStart = Math.min(dirtyStart, line);
+			dirtyEnd = Math.max(dirtyEnd, line);
+		}
+
+		int lastLine = propagateLastTokenTypes(
+				Math.min(line + SYNC_PROPAGATION_LINES, numLines) - 1);
+
+		// If values are still stale, lines all the way down may change.
+		// Views only repaint the visible ones, computing their values on
+		// demand.
+		if (dirtyStart>-1) {
+			lastLine = numLines - 1;
+			scheduleIdlePropagation();
+		}
+
+		//System.err.println("... ... ... repainting lines " + line + "-" + lastLine);
+		fireChangedUpdate(createLineRangeChangeEvent(line,
+				Math.max(line, lastLine)));
+
+	}
+
+
+	/**
+	 * Brings stale "last token" values up to date, through at most a
+	 * specific line.  Values are updated from the first stale line until
+	 * they stop changing, or until <code>toLine</code> is reached.
+	 *
+	 * @param toLine The last line to update.
+	 * @return The last line whose value was checked, or <code>-1</code> if
+	 *         no values were stale.
+	 */
+	private int propagateLastTokenTypes(int toLine) {
+		synchronized (lastTokensLock) {
+			return propagateLastTokenTypesImpl(toLine);
+		}
+	}
 
-		// Loop through all lines past our starting point.  Update even the last
-		// line's info, even though there aren't any lines after it that depend
-		// on it changing for them to be changed, as its state may be used
-		// elsewhere in the library.
-		int end = numLines;
-		//System.err.println("--- end==" + end + " (numLines==" + numLines + ")");
-		while (line<end) {
+
+	private int propagateLastTokenTypesImpl(int toLine) {
+
+		if (dirtyStart==-1) {
+			return -1;
+		}
+		int numLines = lastTokensOnLines.getSize();
+		if (dirtyStart>=numLines) {
+			dirtyStart = dirtyEnd = -1;
+			return -1;
+		}
+
+		int line = dirtyStart;
+		int previousTokenType = line==0 ? Token.NULL :
+				lastTokensOnLines.get(line - 1);
+		toLine = Math.min(toLine, numLines - 1);
+		if (line<=toLine) {
+			// Lexing below reuses the token maker's tokens and the shared
+			// segment, so any cached token list now holds other text
+			lastLine = -1;
+			cachedTokenList = null;
+		}
+
+		// Update even the last line's info, even though there aren't any
+		// lines after it that depend on it changing for them to be changed,
+		// as its state may be used elsewhere in the library.
+		while (line<=toLine) {
 
 			setSharedSegment(line); // Sets s's text to that of line 'line' in the document.
 
 			int oldTokenType = lastTokensOnLines.get(line);
 			int newTokenType = tokenMaker.getLastTokenTypeOnLine(s, previousTokenType);
-			//System.err.println("---------------- line " + line + "; oldTokenType==" +
-			//		oldTokenType + ", newTokenType==" + newTokenType + ", s=='" + s + "'");
-
-			// If this line's end-token value didn't change, stop here.  Note
-			// that we're saying this line needs repainting; this is because
-			// the beginning of this line did indeed change color, but the
-			// end didn't.
-			if (oldTokenType==newTokenType) {
-				//System.err.println("... ... ... repainting lines " + firstLine + "-" + line);
-				fireChangedUpdate(new DefaultDocumentEvent(firstLine, line, DocumentEvent.EventType.CHANGE));
+
+			if (oldTokenType!=newTokenType) {
+				// NOTE: "setUnsafe" is okay here as the bounds checking was
+				// already done in lastTokensOnLines.get(line) above.
+				lastTokensOnLines.setUnsafe(line, newTokenType);
+				bracketMatchIndex.invalidate(line + 1);
+			}
+
+			// If this line's end-token value didn't change, and all lines
+			// below are consistent with it, we're done.  Note that this
+			// line still needs repainting, as its beginning may have
+			// changed color.
+			else if (line>=dirtyEnd) {
+				dirtyStart = dirtyEnd = -1;
 				return line;
 			}
 
-			// If the line's end-token value did change, update it and
-			// keep going.
-			// NOTE: "setUnsafe" is okay here as the bounds checking was
-			// already done in lastTokensOnLines.get(line) above.
-			lastTokensOnLines.setUnsafe(line, newTokenType);
 			previousTokenType = newTokenType;
 			line++;
 
-		} // End of while (line<numLines).
+		}
 
-		// If any lines had their token types changed, fire a changed update
-		// for them.  The view will repaint the area covered by the lines.
-		// FIXME:  We currently cheat and send the line range that needs to be
-		// repainted as the "offset and length" of the change, since this is
-		// what the view needs.  We really should send the actual offset and
-		// length.
-		if (line>firstLine) {
-			//System.err.println("... ... ... repainting lines " + firstLine + "-" + line);
-			fireChangedUpdate(new DefaultDocumentEvent(firstLine, line,
-								DocumentEvent.EventType.CHANGE));
+		if (line>=numLines) {
+			dirtyStart = dirtyEnd = -1;
 		}
+		else {
+			dirtyStart = line;
+			dirtyEnd = Math.max(dirtyEnd, line);
+		}
+		return toLine;
+
+	}
 
-		return line;
 
+	/**
+	 * Brings stale "last token" values up to date in small slices of time,
+	 * so a large file's values are eventually all up to date without the
+	 * EDT becoming unresponsive.
+	 */
+	private void propagateInIdleTime() {
+
+		// Don't wait on a writer, which may be waiting on the EDT (or be
+		// the EDT itself, e.g. in a modal dialog shown by a listener)
+		if (getCurrentWriter()!=null) {
+			scheduleIdlePropagation();
+			return;
+		}
+
+		// Only a read lock, so readers on other threads are never waited
+		// on.  This runs on the EDT, like everything else that updates
+		// these values without the write lock.
+		readLock();
+		try {
+			long deadline = System.nanoTime() + IDLE_PROPAGATION_BUDGET_NANOS;
+			while (dirtyStart>-1 && System.nanoTime()<deadline) {
+				propagateLastTokenTypes(dirtyStart + SYNC_PROPAGATION_LINES - 1);
+			}
+		} finally {
+			readUnlock();
+		}
+
+		if (dirtyStart>-1) {
+			propagationTimer.setInitialDelay(0);
+			propagationTimer.restart();
+		}
+
+	}
+
+
+	/**
+	 * Schedules stale "last token" values to be brought up to date once
+	 * editing pauses.  Scheduling again before then just pushes that back,
+	 * so the lines made stale by several quick edits are only updated once.
+	 */
+	private void scheduleIdlePropagation() {
+		if (propagationTimer==null) {
+			propagationTimer = new Timer(IDLE_PROPAGATION_DELAY,
+					e -> propagateInIdleTime());
+			propagationTimer.setRepeats(false);
+		}
+		propagationTimer.setInitialDelay(IDLE_PROPAGATION_DELAY);
+		propagationTimer.restart();
+	}
+
+
+	/**
+	 * Updates the stale line range after lines are inserted or removed.
+	 *
+	 * @param line The first line moved.
+	 * @param delta The number of lines it moved by.  This is negative if
+	 *        lines above it were removed.
+	 */
+	private void shiftDirtyLines(int line, int delta) {
+		if (dirtyStart>-1) {
+			// Lines removed have their stale markers moved to the line
+			// after them
+			int min = delta<0 ? line + delta : 0;
+			if (dirtyStart>=line) {
+				dirtyStart = Math.max(dirtyStart + delta, min);
+			}
+			else if (delta<0 && dirtyStart>=min) {
+				dirtyStart = min;
+			}
+			if (dirtyEnd>=line) {
+				dirtyEnd = Math.max(dirtyEnd + delta, min);
+			}
+			else if (delta<0 && dirtyEnd>=min) {
+				dirtyEnd = min;
+			}
+		}
 	}
 
 
@@ -648,11 +1398,18 @@ public class RSyntaxDocument extends RDocument implements Iterable<Token>,
 		// is the same.
 		Element map = getDefaultRootElement();
 		int numLines = map.getElementCount();
-		int lastTokenType = Token.NULL;
-		for (int i=0; i<numLines; i++) {
-			setSharedSegment(i);
-			lastTokenType = tokenMaker.getLastTokenTypeOnLine(s, lastTokenType);
-			lastTokensOnLines.set(i, lastTokenType);
+		int[] lastTokenTypes = computeLastTokenTypes(0, numLines, Token.NULL);
+		synchronized (lastTokensLock) {
+			lastTokensOnLines.clear();
+			lastTokensOnLines.add(0, lastTokenTypes);
+			dirtyStart = dirtyEnd = -1;
+		}
+		syntaxStyleVersion++;
+		languageRegions.clear();
+		lineSegments.clear();
+		bracketMatchIndex.clear();
+		if (propagationTimer!=null) {
+			propagationTimer.stop();
 		}
 
 		// Clear our token cache to force re-painting
@@ -660,8 +1417,47 @@ public class RSyntaxDocument extends RDocument implements Iterable<Token>,
 		cachedTokenList = null;
 
 		// Let everybody know that syntax styles have (probably) changed.
-		fireChangedUpdate(new DefaultDocumentEvent(
-						0, numLines-1, DocumentEvent.EventType.CHANGE));
+		fireChangedUpdate(createLineRangeChangeEvent(0, numLines - 1));
+
+	}
+
+
+	/**
+	 * The <code>CHANGE</code> event fired when an edit changes the syntax
+	 * highlighting of a range of lines.  Its offset and length cover the
+	 * text of those lines; the line range is available directly so views
+	 * can repaint just those lines.
+	 */
+	public class LineRangeChangeEvent extends DefaultDocumentEvent {
+
+		private final int firstLine;
+		private final int lastLine;
+
+		LineRangeChangeEvent(int offs, int len, int firstLine, int lastLine) {
+			super(offs, len, DocumentEvent.EventType.CHANGE);
+			this.firstLine = firstLine;
+			this.lastLine = lastLine;
+		}
+
+		/**
+		 * Returns the first line whose syntax highlighting changed.
+		 *
+		 * @return The first line.
+		 * @see #getLastLine()
+		 */
+		public int getFirstLine() {
+			return firstLine;
+		}
+
+		/**
+		 * Returns the last line whose syntax highlighting changed.
+		 *
+		 * @return The last line, inclusive.
+		 * @see #getFirstLine()
+		 */
+		public int getLastLine() {
+			return lastLine;
+		}
 
 	}
 
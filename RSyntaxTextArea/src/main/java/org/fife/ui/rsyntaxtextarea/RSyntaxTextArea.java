@@ -8,14 +8,15 @@ import java.awt.*;
 import java.awt.datatransfer.Clipboard;
 import java.awt.event.*;
 import java.awt.image.BufferedImage;
+import java.awt.print.PageFormat;
 import java.io.File;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.Set;
 
 import javax.swing.*;
 import javax.swing.event.CaretEvent;
@@ -26,7 +27,10 @@ import javax.swing.text.BadLocationException;
 import javax.swing.text.Document;
 import javax.swing.text.Element;
 import javax.swing.text.Highlighter;
+import javax.swing.text.Segment;
+import javax.swing.text.Utilities;
 
+import org.fife.print.RPrintUtilities;
 import org.fife.ui.rsyntaxtextarea.focusabletip.FocusableTip;
 import org.fife.ui.rsyntaxtextarea.folding.DefaultFoldManager;
 import org.fife.ui.rsyntaxtextarea.folding.Fold;
@@ -127,6 +131,7 @@ public class RSyntaxTextArea extends RTextArea implements SyntaxConstants {
 	public static final String CLOSE_CURLY_BRACES_PROPERTY				= "RSTA.closeCurlyBraces";
 	public static final String CLOSE_MARKUP_TAGS_PROPERTY				= "RSTA.closeMarkupTags";
 	public static final String CODE_FOLDING_PROPERTY					= "RSTA.codeFolding";
+	public static final String DOWNGRADED_FEATURES_PROPERTY				= "RSTA.downgradedFeatures";
 	public static final String EOL_VISIBLE_PROPERTY						= "RSTA.eolMarkersVisible";
 	public static final String FOCUSABLE_TIPS_PROPERTY					= "RSTA.focusableTips";
 	public static final String FRACTIONAL_FONTMETRICS_PROPERTY			= "RSTA.fractionalFontMetrics";
@@ -284,6 +289,12 @@ public class RSyntaxTextArea extends RTextArea implements SyntaxConstants {
 	/** Manages running the parser. */
 	private ParserManager parserManager;
 
+	/** Whether parsing is suspended, e.g. because the document is large. */
+	private boolean parsingSuspended;
+
+	/** Turns off expensive features for large documents, if set. */
+	private LargeFilePolicy largeFilePolicy;
+
 	private String cachedTip;
 	/** Used to work around an issue with Apple JVMs. */
 	private Point cachedTipLoc;
@@ -324,6 +335,18 @@ public class RSyntaxTextArea extends RTextArea implements SyntaxConstants {
 
 	private Color[] secondaryLanguageBackgrounds;
 
+	/**
+	 * The resolved styles of all token types, used by token painters.  This
+	 * is built lazily, and checked for staleness each time we're painted.
+	 */
+	private TokenStyleTable tokenStyleTable;
+
+	/**
+	 * Whether this class allows token painters to use a
+	 * {@link TokenStyleTable}.  Lazily determined.
+	 */
+	private Boolean tokenStyleTableSupported;
+
 	private boolean insertPairedCharacters;
 
 	private TokenPainterFactory tokenPainterFactory;
@@ -480,6 +503,7 @@ public class RSyntaxTextArea extends RTextArea implements SyntaxConstants {
 	public void addParser(Parser parser) {
 		if (parserManager==null) {
 			parserManager = new ParserManager(this);
+			parserManager.setSuspended(parsingSuspended);
 			// ParserManagers by default aren't started. They are typically
 			// started by addNotify() so we must manually start a new one
 			// if it's added after being displayed.
@@ -640,21 +664,7 @@ public class RSyntaxTextArea extends RTextArea implements SyntaxConstants {
 	 * @see #copyAsStyledText()
 	 */
 	public void copyAsStyledText(Theme theme) {
-
-		// It's more performant to call the no-arg overload
-		if (theme == null) {
-			copyAsStyledText();
-			return;
-		}
-
-		Theme origTheme = new Theme(this);
-
-		theme.apply(this);
-		try {
-			copyAsStyledText();
-		} finally {
-			origTheme.apply(this);
-		}
+		copyAsStyledTextImpl(theme);
 	}
 
 	/**
@@ -665,6 +675,20 @@ public class RSyntaxTextArea extends RTextArea implements SyntaxConstants {
 	 * @see #copyAsStyledText(Theme)
 	 */
 	public void copyAsStyledText() {
+		copyAsStyledTextImpl(null);
+	}
+
+
+	/**
+	 * Copies the selected text to the clipboard as styled text.  Only a
+	 * snapshot of the selection's tokens is taken here; the HTML and RTF
+	 * flavors are generated if and when the clipboard asks for them.
+	 *
+	 * @param theme The theme to take styles from, or {@code null} to use
+	 *        this text area's current styles.  The theme is not applied to
+	 *        this text area.
+	 */
+	private void copyAsStyledTextImpl(Theme theme) {
 
 		int selStart = getSelectionStart();
 		int selEnd = getSelectionEnd();
@@ -672,27 +696,36 @@ public class RSyntaxTextArea extends RTextArea implements SyntaxConstants {
 			return;
 		}
 
-		// Get the selection as HTML
-		String html = HtmlUtil.getTextAsHtml(this, selStart, selEnd);
-
-		// Get the selection as RTF
-		byte[] rtfBytes = getTextAsRtf(selStart, selEnd);
-
-		String plainText = getSelectedText();
-
-		// Set the system clipboard contents to the RTF selection.
-		StyledTextTransferable contents = new StyledTextTransferable(plainText, html, rtfBytes);
+		StyledTextTransferable contents = createStyledTextTransferable(
+				theme, selStart, selEnd);
 
 		Clipboard cb = getToolkit().getSystemClipboard();
 		try {
 			cb.setContents(contents, null);
-			ClipboardHistory.get().add(plainText);
+			ClipboardHistory.get().add(contents.getPlainText());
 		} catch (IllegalStateException ise) {
 			UIManager.getLookAndFeel().provideErrorFeedback(null);
 		}
 	}
 
 
+	/**
+	 * Returns a transferable for a range of text, with style information.
+	 * The HTML and RTF flavors are generated lazily.
+	 *
+	 * @param theme The theme to take styles from, or {@code null} to use
+	 *        this text area's current styles.
+	 * @param start The start offset of the text.
+	 * @param end The end offset of the text.
+	 * @return The transferable.
+	 */
+	StyledTextTransferable createStyledTextTransferable(Theme theme,
+			int start, int end) {
+		return new StyledTextTransferable(
+				StyledTextSnapshot.create(this, theme, start, end));
+	}
+
+
 	/**
 	 * Returns the document to use for an <code>RSyntaxTextArea</code>.
 	 *
@@ -961,6 +994,20 @@ public class RSyntaxTextArea extends RTextArea implements SyntaxConstants {
 	}
 
 
+	/**
+	 * Notifies listeners that the features turned off by the large file
+	 * policy have changed.
+	 *
+	 * @param oldFeatures The previously downgraded features.
+	 * @param newFeatures The now downgraded features.
+	 * @see #getDowngradedFeatures()
+	 */
+	void fireDowngradedFeaturesChanged(Set<LargeFilePolicy.Feature> oldFeatures,
+			Set<LargeFilePolicy.Feature> newFeatures) {
+		firePropertyChange(DOWNGRADED_FEATURES_PROPERTY, oldFeatures, newFeatures);
+	}
+
+
 	/**
 	 * Notifies listeners that the marked occurrences for this text area
 	 * have changed.
@@ -1187,6 +1234,21 @@ public class RSyntaxTextArea extends RTextArea implements SyntaxConstants {
 	}
 
 
+	/**
+	 * Returns the features currently turned off because the document is
+	 * large.
+	 *
+	 * @return The downgraded features.  This is empty if no large file
+	 *         policy is installed.
+	 * @see #setLargeFilePolicy(LargeFilePolicy)
+	 * @see #DOWNGRADED_FEATURES_PROPERTY
+	 */
+	public Set<LargeFilePolicy.Feature> getDowngradedFeatures() {
+		return largeFilePolicy==null ? Collections.emptySet() :
+			largeFilePolicy.getDowngradedFeatures();
+	}
+
+
 	/**
 	 * Returns whether an EOL marker should be drawn at the end of each line.
 	 *
@@ -1391,6 +1453,18 @@ public class RSyntaxTextArea extends RTextArea implements SyntaxConstants {
 	}
 
 
+	/**
+	 * Returns the policy that turns off expensive features for large
+	 * documents.
+	 *
+	 * @return The policy, or <code>null</code> if there is none.
+	 * @see #setLargeFilePolicy(LargeFilePolicy)
+	 */
+	public LargeFilePolicy getLargeFilePolicy() {
+		return largeFilePolicy;
+	}
+
+
 	/**
 	 * Returns the last visible offset in this text area.  This may not be the
 	 * length of the document if code folding is enabled.
@@ -1815,36 +1889,6 @@ public class RSyntaxTextArea extends RTextArea implements SyntaxConstants {
 		return templatesEnabled;
 	}
 
-	private byte[] getTextAsRtf(int start, int end) {
-
-		// Create the RTF selection.
-		RtfGenerator gen = new RtfGenerator(getBackground());
-		Token tokenList = getTokenListFor(start, end);
-		for (Token t = tokenList; t != null; t = t.getNextToken()) {
-			if (t.isPaintable()) {
-				if (t.length() == 1 && t.charAt(0) == '\n') {
-					gen.appendNewline();
-				} else {
-					Font font = getFontForToken(t);
-					Color bg = getBackgroundForToken(t);
-					boolean underline = getUnderlineForToken(t);
-					// Small optimization - don't print fg color if this
-					// is a whitespace color.  Saves on RTF size.
-					if (t.isWhitespace()) {
-						gen.appendToDocNoFG(t.getLexeme(), font, bg, underline);
-					} else {
-						Color fg = getForegroundForToken(t);
-						gen.appendToDoc(t.getLexeme(), font, fg, bg, underline);
-					}
-				}
-			}
-		}
-
-		// RTF text is 7-bit ASCII so this should cover us
-		return gen.getRtf().getBytes(StandardCharsets.UTF_8);
-	}
-
-
 	/**
 	 * Returns a token list for the given range in the document.
 	 *
@@ -1939,6 +1983,43 @@ public class RSyntaxTextArea extends RTextArea implements SyntaxConstants {
 	}
 
 
+	/**
+	 * Returns the resolved styles of all token types, if they can be used
+	 * to paint a specific token.  Token painters use this to avoid looking
+	 * up each token's style through the public <code>get*ForToken()</code>
+	 * methods.<p>
+	 *
+	 * This returns <code>null</code>, meaning the painter must call those
+	 * methods, if a subclass overrides any of them, or if the token's style
+	 * depends on hyperlink state.
+	 *
+	 * @param t The token about to be painted.
+	 * @return The style table, or <code>null</code>.
+	 */
+	TokenStyleTable getTokenStyleTable(Token t) {
+		if (getHyperlinksEnabled() && (t.isHyperlink() || linkGeneratorResult!=null)) {
+			return null;
+		}
+		if (tokenStyleTable==null) {
+			if (tokenStyleTableSupported==null) {
+				tokenStyleTableSupported = TokenStyleTable.isSupported(getClass());
+			}
+			if (!tokenStyleTableSupported || defaultFontMetrics==null) {
+				return null;
+			}
+			tokenStyleTable = new TokenStyleTable(syntaxScheme, getFont(),
+					defaultFontMetrics, getForeground(),
+					getTokenStyleTableSecondaryLanguageBackgrounds());
+		}
+		return tokenStyleTable;
+	}
+
+
+	private Color[] getTokenStyleTableSecondaryLanguageBackgrounds() {
+		return getHighlightSecondaryLanguages() ? secondaryLanguageBackgrounds : null;
+	}
+
+
 	/**
 	 * Returns the tool tip to display for a mouse event at the given
 	 * location.  This method is overridden to give a registered parser a
@@ -2172,6 +2253,17 @@ public class RSyntaxTextArea extends RTextArea implements SyntaxConstants {
 	}
 
 
+	/**
+	 * Returns whether parsing is suspended.
+	 *
+	 * @return Whether parsing is suspended.
+	 * @see #setParsingSuspended(boolean)
+	 */
+	boolean isParsingSuspended() {
+		return parsingSuspended;
+	}
+
+
 	/**
 	 * Returns whether whitespace (spaces and tabs) is visible.
 	 *
@@ -2224,14 +2316,63 @@ public class RSyntaxTextArea extends RTextArea implements SyntaxConstants {
 			metricsNeverRefreshed = false;
 		}
 
+		// Styles may have been modified in place since we were last painted
+		if (tokenStyleTable!=null && !tokenStyleTable.matches(syntaxScheme,
+				getFont(), defaultFontMetrics, getForeground(),
+				getTokenStyleTableSecondaryLanguageBackgrounds())) {
+			tokenStyleTable = null;
+		}
+
 		super.paintComponent(getGraphics2D(g));
 	}
 
 
+	/**
+	 * Overridden to print text in the colors it is syntax highlighted with.
+	 * Fonts aren't changed, so printed lines wrap the same as plain text.
+	 * If this text area's default foreground is a light color (i.e. it uses
+	 * a dark theme), text is printed in black, as it would be hard to read on
+	 * paper.
+	 *
+	 * @param g The context into which the page is drawn.
+	 * @param pageFormat The size and orientation of the page being drawn.
+	 * @param pageIndex The zero based index of the page to be drawn.
+	 */
+	@Override
+	public int print(Graphics g, PageFormat pageFormat, int pageIndex) {
+
+		if (RSyntaxUtilities.isLightForeground(getForeground())) {
+			return super.print(g, pageFormat, pageIndex);
+		}
+
+		RSyntaxDocument doc = (RSyntaxDocument)getDocument();
+		return RPrintUtilities.printDocumentWordWrap(g, this, getFont(), pageIndex, pageFormat, getTabSize(),
+			(g2, text, offs, x, y, e) -> {
+				// The document caches the last line's tokens, so wrapped lines
+				// are only lexed once
+				int line = doc.getDefaultRootElement().getElementIndex(offs);
+				int end = offs + text.count;
+				Segment s = new Segment(text.array, text.offset, 0);
+				int nextX = x;
+				for (Token t = doc.getTokenListForLine(line); t!=null && t.isPaintable(); t = t.getNextToken()) {
+					int start = Math.max(t.getOffset(), offs);
+					int tokenEnd = Math.min(t.getEndOffset(), end);
+					if (start<tokenEnd) {
+						s.offset = text.offset + start - offs;
+						s.count = tokenEnd - start;
+						g2.setColor(getForegroundForToken(t));
+						nextX = Utilities.drawTabbedText(s, nextX, y, g2, e, start);
+					}
+				}
+			});
+	}
+
+
 	private void refreshFontMetrics(Graphics2D g2d) {
 		// It is assumed that any rendering hints are already applied to g2d.
 		defaultFontMetrics = g2d.getFontMetrics(getFont());
 		syntaxScheme.refreshFontMetrics(g2d);
+		tokenStyleTable = null;
 		if (!getLineWrap()) {
 			// HORRIBLE HACK!  The un-wrapped view needs to refresh its cached
 			// longest-line information.
@@ -2795,6 +2936,34 @@ public class RSyntaxTextArea extends RTextArea implements SyntaxConstants {
 	}
 
 
+	/**
+	 * Sets the policy that turns off expensive features for large
+	 * documents.  By default, there is none, and no features are turned off
+	 * regardless of the document's size.  Features turned off by the
+	 * previous policy, if any, are turned back on.
+	 *
+	 * @param policy The policy, or <code>null</code> for none.
+	 * @throws IllegalStateException If the policy is installed on another
+	 *         text area.
+	 * @see #getLargeFilePolicy()
+	 * @see #getDowngradedFeatures()
+	 */
+	public void setLargeFilePolicy(LargeFilePolicy policy) {
+		if (policy!=largeFilePolicy) {
+			if (policy!=null && policy.getTextArea()!=null) {
+				throw new IllegalStateException("Policy is installed on another text area");
+			}
+			if (largeFilePolicy!=null) {
+				largeFilePolicy.uninstall();
+			}
+			largeFilePolicy = policy;
+			if (policy!=null) {
+				policy.install(this);
+			}
+		}
+	}
+
+
 	public void setLinkGenerator(LinkGenerator generator) {
 		this.linkGenerator = generator;
 	}
@@ -2996,6 +3165,7 @@ public class RSyntaxTextArea extends RTextArea implements SyntaxConstants {
 	public void setParserDelay(int millis) {
 		if (parserManager==null) {
 			parserManager = new ParserManager(this);
+			parserManager.setSuspended(parsingSuspended);
 			// ParserManagers by default aren't started. They are typically
 			// started by addNotify() so we must manually start a new one
 			// if it's added after being displayed.
@@ -3007,6 +3177,22 @@ public class RSyntaxTextArea extends RTextArea implements SyntaxConstants {
 	}
 
 
+	/**
+	 * Suspends or resumes parsing.  While suspended, parsers don't run and
+	 * their notices are cleared.
+	 *
+	 * @param suspended Whether to suspend parsing.
+	 * @see #isParsingSuspended()
+	 * @see LargeFilePolicy.Feature#PARSERS
+	 */
+	void setParsingSuspended(boolean suspended) {
+		parsingSuspended = suspended;
+		if (parserManager!=null) {
+			parserManager.setSuspended(suspended);
+		}
+	}
+
+
 	/**
 	 * Applications typically have no need to modify this value.<p>
 	 *
@@ -3121,6 +3307,7 @@ public class RSyntaxTextArea extends RTextArea implements SyntaxConstants {
 
 		SyntaxScheme old = this.syntaxScheme;
 		this.syntaxScheme = scheme;
+		tokenStyleTable = null;
 
 		// Recalculate the line height.  We do this here instead of in
 		// refreshFontMetrics() as this method is called less often and we
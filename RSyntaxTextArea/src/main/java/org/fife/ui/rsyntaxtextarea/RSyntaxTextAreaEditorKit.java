@@ -343,12 +343,8 @@ public class RSyntaxTextAreaEditorKit extends RTextAreaEditorKit {
 			RSyntaxTextArea rsta = (RSyntaxTextArea)textArea;
 			RSyntaxDocument doc = (RSyntaxDocument)rsta.getDocument();
 
-			int languageIndex = 0;
 			int dot = textArea.getCaretPosition();
-			if (dot>0) {
-				Token t = RSyntaxUtilities.getTokenAtOffset(rsta, dot-1);
-				languageIndex = t==null ? 0 : t.getLanguageIndex();
-			}
+			int languageIndex = dot>0 ? doc.getLanguageIndexAt(dot-1) : 0;
 			boolean alignCurlyBraces = rsta.isAutoIndentEnabled() &&
 				doc.getCurlyBracesDenoteCodeBlocks(languageIndex);
 
@@ -2222,8 +2218,8 @@ public class RSyntaxTextAreaEditorKit extends RTextAreaEditorKit {
 			int start = Math.min(line1, line2);
 			int end   = Math.max(line1, line2);
 
-			Token t = doc.getTokenListForLine(start);
-			int languageIndex = t!=null ? t.getLanguageIndex() : 0;
+			int languageIndex = doc.getLanguageIndexAt(
+					map.getElement(start).getStartOffset());
 			String[] startEnd = doc.getLineCommentStartAndEnd(languageIndex);
 
 			if (startEnd==null) {
@@ -12,12 +12,12 @@ import java.awt.Color;
 import java.awt.Graphics;
 import java.awt.Shape;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 import javax.swing.plaf.TextUI;
 import javax.swing.text.BadLocationException;
-import javax.swing.text.Document;
 import javax.swing.text.Element;
 import javax.swing.text.JTextComponent;
 import javax.swing.text.View;
@@ -45,13 +45,13 @@ public class RSyntaxTextAreaHighlighter extends RTextAreaHighlighter {
 	 * Marked occurrences in the document (to be painted separately from
 	 * other highlights).
 	 */
-	private List<SyntaxLayeredHighlightInfoImpl> markedOccurrences;
+	private TrackedHighlights<SyntaxLayeredHighlightInfoImpl> markedOccurrences;
 
 	/**
 	 * Highlights from document parsers.  These should be painted "on top of"
 	 * all other highlights to ensure they are always above the selection.
 	 */
-	private List<SyntaxLayeredHighlightInfoImpl> parserHighlights;
+	private TrackedHighlights<SyntaxLayeredHighlightInfoImpl> parserHighlights;
 
 	/**
 	 * The default color used for parser notices when none is specified.
@@ -63,8 +63,8 @@ public class RSyntaxTextAreaHighlighter extends RTextAreaHighlighter {
 	 * Constructor.
 	 */
 	public RSyntaxTextAreaHighlighter() {
-		markedOccurrences = new ArrayList<>();
-		parserHighlights = new ArrayList<>(0); // Often unused
+		markedOccurrences = new TrackedHighlights<>();
+		parserHighlights = new TrackedHighlights<>();
 	}
 
 
@@ -80,17 +80,11 @@ public class RSyntaxTextAreaHighlighter extends RTextAreaHighlighter {
 	 */
 	Object addMarkedOccurrenceHighlight(int start, int end,
 			SmartHighlightPainter p) throws BadLocationException {
-		Document doc = textArea.getDocument();
 		TextUI mapper = textArea.getUI();
 		// Always layered highlights for marked occurrences.
 		SyntaxLayeredHighlightInfoImpl i = new SyntaxLayeredHighlightInfoImpl();
 		i.setPainter(p);
-		i.setStartOffset(doc.createPosition(start));
-		// HACK: Use "end-1" to prevent chars the user types at the "end" of
-		// the highlight to be absorbed into the highlight (default Highlight
-		// behavior).
-		i.setEndOffset(doc.createPosition(end-1));
-		markedOccurrences.add(i);
+		markedOccurrences.add(i, start, end);
 		mapper.damageRange(textArea, start, end);
 		return i;
 	}
@@ -108,39 +102,78 @@ public class RSyntaxTextAreaHighlighter extends RTextAreaHighlighter {
 	 */
 	HighlightInfo addParserHighlight(ParserNotice notice, HighlightPainter p)
 								throws BadLocationException {
+		int[] range = new int[2];
+		getParserHighlightRange(notice, range);
+		SyntaxLayeredHighlightInfoImpl i = createParserHighlight(notice, p);
+		parserHighlights.add(i, range[0], range[1]);
+		textArea.getUI().damageRange(textArea, range[0], range[1]);
+		return i;
+	}
 
-		Document doc = textArea.getDocument();
-		TextUI mapper = textArea.getUI();
 
-		int start = notice.getOffset();
-		int end = 0;
-		if (start==-1) { // Could just define an invalid line number
-			int line = notice.getLine();
-			Element root = doc.getDefaultRootElement();
-			if (line>=0 && line<root.getElementCount()) {
-				Element elem = root.getElement(line);
-				start = elem.getStartOffset();
-				end = elem.getEndOffset();
+	/**
+	 * Adds highlights for many parser notices at once.  This is much faster
+	 * than adding them one at a time.
+	 *
+	 * @param notices The notices from a {@link Parser}.
+	 * @param p The painter to use.
+	 * @return Tags with which to reference the highlights, in the same order
+	 *         as <code>notices</code>.  If a notice references invalid
+	 *         offsets, its tag is <code>null</code>.
+	 * @see #removeParserHighlights(Collection)
+	 */
+	List<HighlightInfo> addParserHighlights(List<? extends ParserNotice> notices, HighlightPainter p) {
+
+		List<HighlightInfo> tags = new ArrayList<>(notices.size());
+		List<SyntaxLayeredHighlightInfoImpl> toAdd = new ArrayList<>(notices.size());
+		List<DocumentRange> ranges = new ArrayList<>(notices.size());
+		int[] range = new int[2];
+		int maxEnd = textArea.getDocument().getLength() + 1;
+		int start = Integer.MAX_VALUE;
+		int end = -1;
+
+		for (ParserNotice notice : notices) {
+			getParserHighlightRange(notice, range);
+			if (range[0]<0 || range[1]<range[0] || range[1]>maxEnd) {
+				tags.add(null); // Invalid offsets
+				continue;
 			}
+			SyntaxLayeredHighlightInfoImpl i = createParserHighlight(notice, p);
+			tags.add(i);
+			toAdd.add(i);
+			ranges.add(new DocumentRange(range[0], range[1]));
+			start = Math.min(start, range[0]);
+			end = Math.max(end, range[1]);
 		}
-		else {
-			end = start + notice.getLength();
+
+		try {
+			parserHighlights.addAll(toAdd, ranges);
+		} catch (BadLocationException ble) { // Never happens, offsets were checked
+			ble.printStackTrace();
+			Collections.fill(tags, null);
+		}
+
+		if (end>-1) {
+			textArea.getUI().damageRange(textArea, start, end);
 		}
+		return tags;
+	}
+
 
+	/**
+	 * Creates a highlight for a parser notice, without adding it.
+	 *
+	 * @param notice The notice.
+	 * @param p The painter to use.
+	 * @return The highlight.
+	 */
+	private static SyntaxLayeredHighlightInfoImpl createParserHighlight(ParserNotice notice,
+								HighlightPainter p) {
 		// Always layered highlights for parser highlights.
 		SyntaxLayeredHighlightInfoImpl i = new SyntaxLayeredHighlightInfoImpl();
 		i.setPainter(p);
-		i.setStartOffset(doc.createPosition(start));
-		// HACK: Use "end-1" to prevent chars the user types at the "end" of
-		// the highlight to be absorbed into the highlight (default Highlight
-		// behavior).
-		i.setEndOffset(doc.createPosition(end-1));
 		i.notice = notice;//i.color = notice.getColor();
-
-		parserHighlights.add(i);
-		mapper.damageRange(textArea, start, end);
 		return i;
-
 	}
 
 
@@ -150,11 +183,6 @@ public class RSyntaxTextAreaHighlighter extends RTextAreaHighlighter {
 	 * @see #addMarkedOccurrenceHighlight(int, int, SmartHighlightPainter)
 	 */
 	void clearMarkOccurrencesHighlights() {
-		// Don't remove via an iterator; since our List is an ArrayList, this
-		// implies tons of System.arrayCopy()s
-		for (HighlightInfo info : markedOccurrences) {
-			repaintListHighlight(info);
-		}
 		markedOccurrences.clear();
 	}
 
@@ -165,11 +193,6 @@ public class RSyntaxTextAreaHighlighter extends RTextAreaHighlighter {
 	 * @see #addParserHighlight(ParserNotice, javax.swing.text.Highlighter.HighlightPainter)
 	 */
 	void clearParserHighlights() {
-		// Don't remove via an iterator; since our List is an ArrayList, this
-		// implies tons of System.arrayCopy()s
-		for (SyntaxLayeredHighlightInfoImpl parserHighlight : parserHighlights) {
-			repaintListHighlight(parserHighlight);
-		}
 		parserHighlights.clear();
 	}
 
@@ -180,29 +203,13 @@ public class RSyntaxTextAreaHighlighter extends RTextAreaHighlighter {
 	 * @param parser The parser.
 	 */
 	public void clearParserHighlights(Parser parser) {
-
-		Iterator<SyntaxLayeredHighlightInfoImpl> i = parserHighlights.iterator();
-		while (i.hasNext()) {
-
-			SyntaxLayeredHighlightInfoImpl info = i.next();
-
+		List<SyntaxLayeredHighlightInfoImpl> toRemove = new ArrayList<>();
+		for (SyntaxLayeredHighlightInfoImpl info : parserHighlights.getHighlights()) {
 			if (info.notice.getParser()==parser) {
-			    if (info.width > 0 && info.height > 0) {
-			    	textArea.repaint(info.x, info.y, info.width, info.height);
-			    }
-				i.remove();
+				toRemove.add(info);
 			}
-
 		}
-
-	}
-
-
-	@Override
-	public void deinstall(JTextComponent c) {
-		super.deinstall(c);
-		markedOccurrences.clear();
-		parserHighlights.clear();
+		parserHighlights.removeAll(toRemove);
 	}
 
 
@@ -215,7 +222,7 @@ public class RSyntaxTextAreaHighlighter extends RTextAreaHighlighter {
 	 */
 	public List<DocumentRange> getMarkedOccurrences() {
 		List<DocumentRange> list = new ArrayList<>(markedOccurrences.size());
-		for (HighlightInfo info : markedOccurrences) {
+		for (HighlightInfo info : markedOccurrences.getHighlights()) {
 			int start = info.getStartOffset();
 			int end = info.getEndOffset() + 1; // HACK
 			if (start <= end) {
@@ -231,6 +238,47 @@ public class RSyntaxTextAreaHighlighter extends RTextAreaHighlighter {
 	}
 
 
+	/**
+	 * Returns the parser highlights currently in the editor.
+	 *
+	 * @return The parser highlights.  This is a copy.
+	 */
+	List<HighlightInfo> getParserHighlights() {
+		return new ArrayList<>(parserHighlights.getHighlights());
+	}
+
+
+	/**
+	 * Returns the range a parser notice's highlight covers.  If the notice
+	 * only knows its line, this is the entire line.
+	 *
+	 * @param notice The notice.
+	 * @param range Returns the start and end (exclusive) offsets of the
+	 *        range.  If the notice's line is invalid, this will be
+	 *        <code>{ -1, 0 }</code>.
+	 */
+	void getParserHighlightRange(ParserNotice notice, int[] range) {
+
+		int start = notice.getOffset();
+		int end = 0;
+		if (start==-1) { // Could just define an invalid line number
+			int line = notice.getLine();
+			Element root = textArea.getDocument().getDefaultRootElement();
+			if (line>=0 && line<root.getElementCount()) {
+				Element elem = root.getElement(line);
+				start = elem.getStartOffset();
+				end = elem.getEndOffset();
+			}
+		}
+		else {
+			end = start + notice.getLength();
+		}
+
+		range[0] = start;
+		range[1] = end;
+	}
+
+
 	/**
 	 * Paints the "marked occurrences" highlights, then any other standard
 	 * layered highlights (e.g. the text selection).
@@ -275,11 +323,22 @@ public class RSyntaxTextAreaHighlighter extends RTextAreaHighlighter {
 	 * @see #addParserHighlight(ParserNotice, javax.swing.text.Highlighter.HighlightPainter)
 	 */
 	void removeParserHighlight(HighlightInfo tag) {
-		repaintListHighlight(tag);
 		parserHighlights.remove(tag);
 	}
 
 
+	/**
+	 * Removes many parser highlights at once.  This is much faster than
+	 * removing them one at a time.
+	 *
+	 * @param tags The references to the highlights.
+	 * @see #addParserHighlights(List, javax.swing.text.Highlighter.HighlightPainter)
+	 */
+	void removeParserHighlights(Collection<? extends HighlightInfo> tags) {
+		parserHighlights.removeAll(tags);
+	}
+
+
 	/**
 	 * Highlight info implementation used for parser notices and marked
 	 * occurrences.
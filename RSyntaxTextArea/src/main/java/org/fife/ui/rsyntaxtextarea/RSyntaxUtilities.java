@@ -110,11 +110,6 @@ public final class RSyntaxUtilities implements SwingConstants {
 		 0,   0,   0,   0,   0,   0,   0,   0,   0,   0,   0,   0,   0,   0,   0,   0  // 240-255.
 	};
 
-	/**
-	 * Used in bracket matching methods.
-	 */
-	private static Segment charSegment = new Segment();
-
 	/**
 	 * Used in token list manipulation methods.
 	 */
@@ -429,173 +424,20 @@ public final class RSyntaxUtilities implements SwingConstants {
 				}
 			}
 
-			// If it was, then make sure this bracket isn't sitting in
-			// the middle of a comment or string.  If it isn't, then
-			// initialize some stuff so we can continue on.
-			char bracketMatch;
-			boolean goForward;
-			Element map = doc.getDefaultRootElement();
-			int curLine = map.getElementIndex(caretPosition);
-			Element line = map.getElement(curLine);
-			int start = line.getStartOffset();
-			int end = line.getEndOffset();
-			Token token = doc.getTokenListForLine(curLine);
-			token = RSyntaxUtilities.getTokenAtOffset(token, caretPosition);
-			// All brackets are always returned as "separators."
-			if (token.getType()!=Token.SEPARATOR) {
+			// Find the match, if this bracket isn't sitting in the middle
+			// of a comment or string.
+			int match = doc.getMatchingBracketOffset(caretPosition);
+			if (match==-1) {
 				return input;
 			}
-			int languageIndex = token.getLanguageIndex();
-			if (index<3) { // One of "{[("
-				goForward = true;
-				bracketMatch = BRACKETS.charAt(index + 3);
-			}
-			else { // One of ")]}"
-				goForward = false;
-				bracketMatch = BRACKETS.charAt(index - 3);
+			if (match>caretPosition && textArea.isCodeFoldingEnabled()) {
+				Element map = doc.getDefaultRootElement();
+				if (textArea.getFoldManager().isLineHidden(map.getElementIndex(match))) {
+					return input; // Match hidden in a fold
+				}
 			}
-
-			if (goForward) {
-
-				int lastLine = map.getElementCount();
-
-				// Start just after the found bracket since we're sure
-				// we're not in a comment.
-				start = caretPosition + 1;
-				int numEmbedded = 0;
-				boolean haveTokenList = false;
-
-				while (true) {
-
-					doc.getText(start,end-start, charSegment);
-					int segOffset = charSegment.offset;
-
-					for (int i=segOffset; i<segOffset+charSegment.count; i++) {
-
-						char ch = charSegment.array[i];
-
-						if (ch==bracket) {
-							if (!haveTokenList) {
-								token = doc.getTokenListForLine(curLine);
-								haveTokenList = true;
-							}
-							int offset = start + (i-segOffset);
-							token = RSyntaxUtilities.getTokenAtOffset(token, offset);
-							if (token.getType()==Token.SEPARATOR &&
-									token.getLanguageIndex()==languageIndex) {
-								numEmbedded++;
-							}
-						}
-
-						else if (ch==bracketMatch) {
-							if (!haveTokenList) {
-								token = doc.getTokenListForLine(curLine);
-								haveTokenList = true;
-							}
-							int offset = start + (i-segOffset);
-							token = RSyntaxUtilities.getTokenAtOffset(token, offset);
-							if (token.getType()==Token.SEPARATOR &&
-									token.getLanguageIndex()==languageIndex) {
-								if (numEmbedded==0) {
-									if (textArea.isCodeFoldingEnabled() &&
-											textArea.getFoldManager().isLineHidden(curLine)) {
-										return input; // Match hidden in a fold
-									}
-									input.setLocation(caretPosition, offset);
-									return input;
-								}
-								numEmbedded--;
-							}
-						}
-
-					} // End of for (int i=segOffset; i<segOffset+charSegment.count; i++).
-
-					// Bail out if we've gone through all lines and
-					// haven't found the match.
-					if (++curLine==lastLine) {
-						return input;
-					}
-
-					// Otherwise, go through the next line.
-					haveTokenList = false;
-					line = map.getElement(curLine);
-					start = line.getStartOffset();
-					end = line.getEndOffset();
-
-				} // End of while (true).
-
-			} // End of if (goForward).
-
-
-			// Otherwise, we're going backward through the file
-			// (since we found '}', ')' or ']').
-			else {	// goForward==false
-
-				// End just before the found bracket since we're sure
-				// we're not in a comment.
-				end = caretPosition;// - 1;
-				int numEmbedded = 0;
-				boolean haveTokenList = false;
-				Token t2;
-
-				while (true) {
-
-					doc.getText(start,end-start, charSegment);
-					int segOffset = charSegment.offset;
-					int iStart = segOffset + charSegment.count - 1;
-
-					for (int i=iStart; i>=segOffset; i--) {
-
-						char ch = charSegment.array[i];
-
-						if (ch==bracket) {
-							if (!haveTokenList) {
-								token = doc.getTokenListForLine(curLine);
-								haveTokenList = true;
-							}
-							int offset = start + (i-segOffset);
-							t2 = RSyntaxUtilities.getTokenAtOffset(token, offset);
-							if (t2.getType()==Token.SEPARATOR &&
-									token.getLanguageIndex()==languageIndex) {
-								numEmbedded++;
-							}
-						}
-
-						else if (ch==bracketMatch) {
-							if (!haveTokenList) {
-								token = doc.getTokenListForLine(curLine);
-								haveTokenList = true;
-							}
-							int offset = start + (i-segOffset);
-							t2 = RSyntaxUtilities.getTokenAtOffset(token, offset);
-							if (t2.getType()==Token.SEPARATOR &&
-									token.getLanguageIndex()==languageIndex) {
-								if (numEmbedded==0) {
-									input.setLocation(caretPosition, offset);
-									return input;
-								}
-								numEmbedded--;
-							}
-						}
-
-					}
-
-					// Bail out if we've gone through all lines and
-					// haven't found the match.
-					if (--curLine==-1) {
-						return input;
-					}
-
-					// Otherwise, get ready for going through the
-					// next line.
-					haveTokenList = false;
-					line = map.getElement(curLine);
-					start = line.getStartOffset();
-					end = line.getEndOffset();
-
-				} // End of while (true).
-
-			} // End of else.
+			input.setLocation(caretPosition, match);
+			return input;
 
 		} catch (BadLocationException ble) {
 			// Shouldn't ever happen.
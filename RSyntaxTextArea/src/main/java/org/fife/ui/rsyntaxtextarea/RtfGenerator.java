@@ -9,6 +9,9 @@
 package org.fife.ui.rsyntaxtextarea;
 
 import java.awt.*;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -93,6 +96,35 @@ public class RtfGenerator {
 	}
 
 
+	/**
+	 * Appends a token list to the RTF document being generated.
+	 *
+	 * @param tokenList The tokens to append.
+	 * @param styles Determines the style of each token.
+	 */
+	void appendTokens(Token tokenList, TokenStyleResolver styles) {
+		for (Token t = tokenList; t != null; t = t.getNextToken()) {
+			if (t.isPaintable()) {
+				if (t.isSingleChar('\n')) {
+					appendNewline();
+				} else {
+					Font f = styles.getFontForToken(t);
+					Color bg = styles.getBackgroundForToken(t);
+					boolean underline = styles.getUnderlineForToken(t);
+					// Small optimization - don't print fg color if this
+					// is a whitespace color.  Saves on RTF size.
+					if (t.isWhitespace()) {
+						appendToDocNoFG(t.getLexeme(), f, bg, underline);
+					} else {
+						Color fg = styles.getForegroundForToken(t);
+						appendToDoc(t.getLexeme(), f, fg, bg, underline);
+					}
+				}
+			}
+		}
+	}
+
+
 	/**
 	 * Appends styled text to the RTF document being generated.
 	 *
@@ -260,46 +292,105 @@ public class RtfGenerator {
 	 * Appends some text to a buffer, with special care taken for special
 	 * characters as defined by the RTF spec.
 	 *
+	 * @param text The text to append (with tab chars substituted).
+	 * @param sb The buffer to append to.
+	 * @see #escape(char[], int, int, Appendable)
+	 */
+	private static void escapeAndAdd(StringBuilder sb, String text) {
+		try {
+			escape(text.toCharArray(), 0, text.length(), sb);
+		} catch (IOException ioe) { // Never happens
+			throw new UncheckedIOException(ioe);
+		}
+	}
+
+
+	/**
+	 * Writes text with special care taken for special characters as
+	 * defined by the RTF spec.  The output is 7-bit ASCII.
+	 *
 	 * <ul>
 	 *   <li>All tab characters are replaced with the string
 	 *       "<code>\tab</code>"
 	 *   <li>'\', '{' and '}' are changed to "\\", "\{" and "\}"
+	 *   <li>Other characters outside of 7-bit ASCII are written as
+	 *       Unicode control words
 	 * </ul>
 	 *
-	 * @param text The text to append (with tab chars substituted).
-	 * @param sb The buffer to append to.
+	 * @param text The text to write.
+	 * @param start The offset of the first character to write.
+	 * @param end The offset after the last character to write.
+	 * @param out Where to write the text.
+	 * @throws IOException If an IO error occurs.
 	 */
-	private void escapeAndAdd(StringBuilder sb, String text) {
-		int count = text.length();
-		for (int i=0; i<count; i++) {
-			char ch = text.charAt(i);
+	static void escape(char[] text, int start, int end, Appendable out)
+			throws IOException {
+
+		int lastWritten = start;
+
+		for (int i=start; i<end; i++) {
+
+			char ch = text[i];
+			if (ch>=' ' && ch<128 && ch!='\\' && ch!='{' && ch!='}') {
+				continue;
+			}
+
+			appendChars(text, lastWritten, i, out);
 			switch (ch) {
 				case '\t':
 					// Micro-optimization: for syntax highlighting with
 					// tab indentation, there are often multiple tabs
 					// back-to-back at the start of lines, so don't put
 					// spaces between each "\tab".
-					sb.append("\\tab");
-					while ((++i<count) && text.charAt(i)=='\t') {
-						sb.append("\\tab");
+					out.append("\\tab");
+					while (i + 1<end && text[i + 1]=='\t') {
+						out.append("\\tab");
+						i++;
 					}
-					sb.append(' ');
-					i--; // We read one too far.
+					out.append(' ');
 					break;
 				case '\\':
 				case '{':
 				case '}':
-					sb.append('\\').append(ch);
+					out.append('\\').append(ch);
 					break;
 				default:
-					if (ch <= 127) {
-						sb.append(ch);
-					} else {
-						// Trailing space for delimiter
-						sb.append("\\u").append((int)ch).append(' ');
+					if (ch<128) {
+						out.append(ch);
+					}
+					else {
+						// RTF wants a signed 16-bit value.  Trailing space
+						// is the delimiter.
+						out.append("\\u").append(Short.toString((short)ch)).
+							append(' ');
 					}
 					break;
 			}
+			lastWritten = i + 1;
+
+		}
+
+		appendChars(text, lastWritten, end, out);
+
+	}
+
+
+	/**
+	 * Appends a range of characters, without copying them if possible.
+	 */
+	private static void appendChars(char[] text, int start, int end, Appendable out)
+			throws IOException {
+		if (start==end) {
+			return;
+		}
+		if (out instanceof Writer) {
+			((Writer)out).write(text, start, end - start);
+		}
+		else if (out instanceof StringBuilder) {
+			((StringBuilder)out).append(text, start, end - start);
+		}
+		else {
+			out.append(new String(text, start, end - start));
 		}
 	}
 
@@ -319,6 +410,20 @@ public class RtfGenerator {
 	 *         size as they appear in the Java application.
 	 */
 	private int fixFontSize(float pointSize) {
+		return fixFontSize(pointSize, screenRes);
+	}
+
+
+	/**
+	 * Returns a font point size, adjusted for a screen resolution.
+	 *
+	 * @param pointSize A Java Font's point size, as returned from
+	 *        <code>getSize2D()</code>.
+	 * @param screenRes The screen resolution, in dpi.
+	 * @return The font point size, adjusted for the screen resolution.
+	 * @see #getScreenResolution()
+	 */
+	static int fixFontSize(float pointSize, int screenRes) {
 		if (screenRes!=72) { // Java2D assumes 72 dpi
 			pointSize = Math.round(pointSize*72f/screenRes);
 		}
@@ -425,7 +530,7 @@ public class RtfGenerator {
 	 *
 	 * @return The monospaced font family to use.
 	 */
-	private static String getMonospacedFontFamily() {
+	static String getMonospacedFontFamily() {
 		String family = FontUtil.getDefaultMonospacedFont().getFamily();
 		if (Font.MONOSPACED.equals(family)) {
 			family = "Courier";
@@ -434,6 +539,19 @@ public class RtfGenerator {
 	}
 
 
+	/**
+	 * Returns the screen resolution that font sizes should be adjusted for.
+	 *
+	 * @return The screen resolution, in dpi.
+	 * @see #fixFontSize(float, int)
+	 */
+	static int getScreenResolution() {
+		// Dummy resolution when running headless
+		return GraphicsEnvironment.isHeadless() ? 72 :
+			Toolkit.getDefaultToolkit().getScreenResolution();
+	}
+
+
 	/**
 	 * Returns the RTF document created by this generator.
 	 *
@@ -488,9 +606,7 @@ public class RtfGenerator {
 		lastBold = false;
 		lastItalic = false;
 		lastFontSize = DEFAULT_FONT_SIZE;
-		// Dummy resolution when running headless
-		screenRes = GraphicsEnvironment.isHeadless() ? 72 :
-			Toolkit.getDefaultToolkit().getScreenResolution();
+		screenRes = getScreenResolution();
 	}
 
 
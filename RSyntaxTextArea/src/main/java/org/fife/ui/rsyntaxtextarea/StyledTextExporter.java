@@ -0,0 +1,744 @@
+/*
+ * 10/19/2026
+ *
+ * StyledTextExporter.java - Streams syntax highlighted text as HTML or RTF.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * LICENSE file for details.
+ */
+package org.fife.ui.rsyntaxtextarea;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import javax.swing.text.PlainDocument;
+import javax.swing.text.Segment;
+
+import org.fife.io.UnicodeReader;
+import org.fife.ui.rtextarea.RTextArea;
+
+
+/**
+ * Exports a syntax highlighted document as HTML or RTF.<p>
+ *
+ * Unlike {@link HtmlUtil#getTextAsHtml(RSyntaxTextArea, int, int)} and
+ * {@link RtfGenerator}, which build their entire output in memory, this class
+ * lexes a {@link DocumentSnapshot} of the document one line at a time with
+ * its own <code>TokenMaker</code>, and writes directly to a
+ * <code>Writer</code> or <code>OutputStream</code>.  Exporting even very
+ * large documents needs very little memory beyond the document itself, and
+ * neither the document's lock nor its cached tokens are touched while the
+ * output is written, so exporting can be done on any thread.<p>
+ *
+ * All style information is computed up front from a {@link SyntaxScheme}:
+ * <ul>
+ *    <li>HTML output contains a single style sheet with one CSS class per
+ *        token type, and tokens simply reference their class.
+ *    <li>RTF output contains font and color tables with each font and color
+ *        used by the scheme listed exactly once.
+ * </ul>
+ * Consecutive tokens that look the same are written as a single run.<p>
+ *
+ * Both formats are written as 7-bit ASCII, with other characters escaped,
+ * so the output can be written in any ASCII-compatible encoding.<p>
+ *
+ * The one exception is a document whose token maker was given to it
+ * directly, rather than created by its <code>TokenMakerFactory</code>.  Such
+ * a token maker can't be duplicated, so the document's own token lists are
+ * written instead, under its read lock; such documents should only be
+ * exported on the thread that edits them, usually the EDT.<p>
+ *
+ * No text area is needed, so this class can be used in headless
+ * environments.  It can also be run from the command line to highlight a
+ * file; run it with no arguments for usage information.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ */
+public class StyledTextExporter {
+
+	private final Font font;
+	private final Color foreground;
+	private final Color background;
+	private final Style[] styles;
+
+	/**
+	 * The CSS class for each token type, or <code>null</code> if tokens of
+	 * that type look like plain text.
+	 */
+	private final String[] cssClasses;
+
+	/**
+	 * The tag starting a run of tokens of each type in HTML, or
+	 * <code>null</code> if tokens of that type look like plain text.
+	 */
+	private final String[] htmlRunStarts;
+
+	/**
+	 * Whether each token type has a background color or is underlined.
+	 * Whitespace tokens of other types look the same no matter what style
+	 * is used for them, so they are written as part of whatever run they
+	 * are in.
+	 */
+	private final boolean[] decorated;
+
+	private static final String[] TOKEN_TYPE_NAMES = createTokenTypeNames();
+
+	private static final String USAGE =
+		"Usage: java " + StyledTextExporter.class.getName() + " [options] file\n" +
+		"Writes a syntax highlighted version of a file as HTML or RTF.\n" +
+		"\n" +
+		"Options:\n" +
+		"  -rtf              Write RTF instead of HTML\n" +
+		"  -o <file>         The file to write to (default: standard out)\n" +
+		"  -syntax <style>   The syntax style, e.g. text/java (default: guessed\n" +
+		"                    from the file name)\n" +
+		"  -theme <theme>    One of: default, default-alt, dark, druid, eclipse,\n" +
+		"                    idea, monokai, vs, or the path to a theme file\n" +
+		"                    (default: default)\n" +
+		"  -encoding <enc>   The encoding of the file, if it does not have a BOM\n" +
+		"                    (default: UTF-8)\n";
+
+
+	/**
+	 * Constructor.
+	 *
+	 * @param scheme The styles to use for each token type.  This is copied,
+	 *        so later changes to it do not affect this exporter.
+	 * @param font The font for tokens whose style does not specify one.
+	 * @param foreground The foreground color for tokens whose style does not
+	 *        specify one.
+	 * @param background The background color.  This may be
+	 *        <code>null</code>.
+	 */
+	public StyledTextExporter(SyntaxScheme scheme, Font font,
+			Color foreground, Color background) {
+
+		this.font = font;
+		this.foreground = foreground;
+		this.background = background;
+
+		int count = scheme.getStyleCount();
+		styles = new Style[count];
+		cssClasses = new String[count];
+		htmlRunStarts = new String[count];
+		decorated = new boolean[count];
+		for (int i=0; i<count; i++) {
+			Style style = scheme.getStyle(i);
+			styles[i] = style==null ? new Style() : (Style)style.clone();
+			decorated[i] = styles[i].background!=null || styles[i].underline;
+			if (!looksLikePlainText(i)) {
+				cssClasses[i] = getTokenTypeName(i);
+				htmlRunStarts[i] = "<span class=\"" + cssClasses[i] + "\">";
+			}
+		}
+
+	}
+
+
+	/**
+	 * Creates an exporter that uses the current styles of a text area.
+	 *
+	 * @param textArea The text area.
+	 */
+	public StyledTextExporter(RSyntaxTextArea textArea) {
+		this(textArea.getSyntaxScheme(), textArea.getFont(),
+			textArea.getForeground(), textArea.getBackground());
+	}
+
+
+	/**
+	 * Creates an exporter that uses the styles in a theme.
+	 *
+	 * @param theme The theme.
+	 */
+	public StyledTextExporter(Theme theme) {
+		this(theme.scheme, theme.baseFont, getDefaultForeground(theme.scheme),
+			theme.bgColor);
+	}
+
+
+	private static String[] createTokenTypeNames() {
+
+		String[] names = new String[TokenTypes.DEFAULT_NUM_TOKEN_TYPES];
+
+		for (Field field : TokenTypes.class.getFields()) {
+			try {
+				int value = field.getInt(null);
+				if (value>=0 && value<names.length) {
+					// e.g. "RESERVED_WORD_2" => "reserved-word-2"
+					names[value] = field.getName().toLowerCase(Locale.ROOT).
+						replace('_', '-');
+				}
+			} catch (IllegalAccessException | IllegalArgumentException e) {
+				// Not an int constant - ignore
+			}
+		}
+
+		return names;
+
+	}
+
+
+	/**
+	 * Writes a document as HTML.
+	 *
+	 * @param doc The document to write.
+	 * @param out The stream to write to.  This is flushed but not closed.
+	 * @throws IOException If an IO error occurs.
+	 * @see #exportHtml(RSyntaxDocument, Writer)
+	 */
+	public void exportHtml(RSyntaxDocument doc, OutputStream out)
+			throws IOException {
+		Writer w = createWriter(out);
+		exportHtml(doc, w);
+		w.flush();
+	}
+
+
+	/**
+	 * Writes a document as a complete HTML page.
+	 *
+	 * @param doc The document to write.
+	 * @param w The writer to write to.  For best performance this should be
+	 *        buffered.  It is not flushed or closed.
+	 * @throws IOException If an IO error occurs.
+	 * @see #exportHtml(RSyntaxDocument, OutputStream)
+	 * @see #exportRtf(RSyntaxDocument, Writer)
+	 */
+	public void exportHtml(RSyntaxDocument doc, Writer w) throws IOException {
+
+		w.write("<!DOCTYPE html>\n<html>\n<head>\n<style>\n");
+		Object tabSize = doc.getProperty(PlainDocument.tabSizeAttribute);
+		writeCss(tabSize instanceof Integer ? (Integer)tabSize : null, w);
+		w.write("</style>\n</head>\n<body>\n<pre class=\"rsta\">");
+
+		forEachLine(doc, (line, t) -> {
+			if (line>0) {
+				w.write('\n');
+			}
+			writeHtmlLine(t, w);
+		});
+
+		w.write("</pre>\n</body>\n</html>\n");
+
+	}
+
+
+	/**
+	 * Writes a document as RTF.
+	 *
+	 * @param doc The document to write.
+	 * @param out The stream to write to.  This is flushed but not closed.
+	 * @throws IOException If an IO error occurs.
+	 * @see #exportRtf(RSyntaxDocument, Writer)
+	 */
+	public void exportRtf(RSyntaxDocument doc, OutputStream out)
+			throws IOException {
+		Writer w = createWriter(out);
+		exportRtf(doc, w);
+		w.flush();
+	}
+
+
+	/**
+	 * Writes a document as RTF.
+	 *
+	 * @param doc The document to write.
+	 * @param w The writer to write to.  For best performance this should be
+	 *        buffered.  It is not flushed or closed.
+	 * @throws IOException If an IO error occurs.
+	 * @see #exportRtf(RSyntaxDocument, OutputStream)
+	 * @see #exportHtml(RSyntaxDocument, Writer)
+	 */
+	public void exportRtf(RSyntaxDocument doc, Writer w) throws IOException {
+
+		// Build the font and color tables, and the groups that switch to
+		// each token type's style, before writing anything.
+		List<String> fontFamilies = new ArrayList<>(1); // Usually only 1.
+		fontFamilies.add(getRtfFontFamily(font));
+		List<Color> colors = new ArrayList<>();
+		int screenRes = RtfGenerator.getScreenResolution();
+		int fontSize = RtfGenerator.fixFontSize(font.getSize2D()*2, screenRes); // Half points!
+		int fgIndex = getIndex(colors, foreground) + 1;
+
+		String[] groupStarts = new String[styles.length];
+		for (int i=0; i<styles.length; i++) {
+			if (!looksLikePlainText(i)) {
+				groupStarts[i] = "{" + getRtfControlWords(i, fontFamilies,
+						colors, fontSize, screenRes);
+			}
+		}
+		int bgIndex = background==null ? 0 : getIndex(colors, background) + 1;
+
+		w.write("{\\rtf1\\ansi\\ansicpg1252\\deff0\\deflang1033");
+		w.write("{\\fonttbl");
+		for (int i=0; i<fontFamilies.size(); i++) {
+			w.write("{\\f" + i + "\\fnil\\fcharset0 " + fontFamilies.get(i) + ";}");
+		}
+		w.write("}\n{\\colortbl ;");
+		for (Color c : colors) {
+			w.write("\\red" + c.getRed() + "\\green" + c.getGreen() +
+					"\\blue" + c.getBlue() + ";");
+		}
+		w.write("}\n\\viewkind4\\uc0\\pard\\f0\\fs" + fontSize + "\\cf" + fgIndex);
+		if (bgIndex>0) {
+			w.write("\\cb" + bgIndex);
+		}
+		w.write(' ');
+
+		forEachLine(doc, (line, t) -> {
+			writeRuns(t, groupStarts, "}", false, w);
+			w.write("\\line\n");
+		});
+
+		w.write('}');
+
+	}
+
+
+	private static Writer createWriter(OutputStream out) {
+		return new BufferedWriter(new OutputStreamWriter(out,
+				StandardCharsets.US_ASCII));
+	}
+
+
+	/**
+	 * Lexes each line of a document, in order.  A snapshot of the document
+	 * is lexed with a new token maker if possible, so the document itself
+	 * is left alone.
+	 *
+	 * @param doc The document.
+	 * @param handler Receives the tokens on each line.
+	 * @throws IOException If the handler throws one.
+	 */
+	private static void forEachLine(RSyntaxDocument doc, LineHandler handler)
+			throws IOException {
+
+		DocumentSnapshot snapshot = doc.createSnapshot();
+		TokenMaker tokenMaker = snapshot.createTokenMaker();
+
+		if (tokenMaker==null) {
+			doc.readLock();
+			try {
+				int lineCount = doc.getDefaultRootElement().getElementCount();
+				for (int line=0; line<lineCount; line++) {
+					handler.handleLine(line, doc.getTokenListForLine(line));
+				}
+			} finally {
+				doc.readUnlock();
+			}
+			return;
+		}
+
+		Segment s = new Segment();
+		int initialTokenType = TokenTypes.NULL;
+		int lineCount = snapshot.getLineCount();
+		for (int line=0; line<lineCount; line++) {
+			snapshot.getLineText(line, s);
+			Token t = tokenMaker.getTokenList(s, initialTokenType,
+					snapshot.getLineStartOffset(line));
+			handler.handleLine(line, t);
+			// The last token's type is the state the next line starts in
+			while (t.getNextToken()!=null) {
+				t = t.getNextToken();
+			}
+			initialTokenType = t.getType();
+		}
+
+	}
+
+
+	/**
+	 * Returns the color to use for text that has no foreground color
+	 * specified in a syntax scheme.
+	 */
+	private static Color getDefaultForeground(SyntaxScheme scheme) {
+		Style style = scheme.getStyle(TokenTypes.IDENTIFIER);
+		return style!=null && style.foreground!=null ? style.foreground :
+				Color.BLACK;
+	}
+
+
+	private Font getFont(int type) {
+		Font f = styles[type].font;
+		return f!=null ? f : font;
+	}
+
+
+	private Color getForeground(int type) {
+		Color fg = styles[type].foreground;
+		return fg!=null ? fg : foreground;
+	}
+
+
+	private static <T> int getIndex(List<T> list, T item) {
+		int index = list.indexOf(item);
+		if (index==-1) {
+			list.add(item);
+			index = list.size() - 1;
+		}
+		return index;
+	}
+
+
+	/**
+	 * Returns the control words that switch from the default style to that
+	 * of a token type, adding any fonts and colors needed to the tables.
+	 */
+	private String getRtfControlWords(int type, List<String> fontFamilies,
+			List<Color> colors, int defaultFontSize, int screenRes) {
+
+		StringBuilder sb = new StringBuilder();
+
+		Font f = getFont(type);
+		int fontIndex = getIndex(fontFamilies, getRtfFontFamily(f));
+		if (fontIndex>0) {
+			sb.append("\\f").append(fontIndex);
+		}
+		int fontSize = RtfGenerator.fixFontSize(f.getSize2D()*2, screenRes);
+		if (fontSize!=defaultFontSize) {
+			sb.append("\\fs").append(fontSize);
+		}
+		if (f.isBold()) {
+			sb.append("\\b");
+		}
+		if (f.isItalic()) {
+			sb.append("\\i");
+		}
+		if (styles[type].underline) {
+			sb.append("\\ul");
+		}
+		sb.append("\\cf").append(getIndex(colors, getForeground(type)) + 1);
+		Color bg = styles[type].background;
+		if (bg!=null) {
+			sb.append("\\highlight").append(getIndex(colors, bg) + 1);
+		}
+
+		return sb.append(' ').toString();
+
+	}
+
+
+	private static String getRtfFontFamily(Font f) {
+		String family = f.getFamily();
+		if (Font.MONOSPACED.equals(family)) {
+			// There's no way to know what the logical font is mapped to
+			family = RtfGenerator.getMonospacedFontFamily();
+		}
+		return family;
+	}
+
+
+	/**
+	 * Returns the CSS class name for a token type.
+	 *
+	 * @param type The token type.
+	 * @return The class name, e.g. <code>"reserved-word"</code> for
+	 *         {@link TokenTypes#RESERVED_WORD}.
+	 */
+	static String getTokenTypeName(int type) {
+		String name = type<TOKEN_TYPE_NAMES.length ? TOKEN_TYPE_NAMES[type] : null;
+		return name!=null ? name : ("token-" + type);
+	}
+
+
+	/**
+	 * Returns whether tokens of a type are rendered just like text with
+	 * the default style.
+	 */
+	private boolean looksLikePlainText(int type) {
+		Font f = getFont(type);
+		return !decorated[type] && !f.isBold() && !f.isItalic() &&
+				f.getFamily().equals(font.getFamily()) &&
+				f.getSize2D()==font.getSize2D() &&
+				getForeground(type).equals(foreground);
+	}
+
+
+	/**
+	 * Returns the style a token should be written with, or <code>-1</code>
+	 * if it should just be written as part of the current run.
+	 */
+	private int getRunType(Token t, int currentType) {
+		int type = t.getType();
+		if (type>=styles.length) {
+			type = TokenTypes.IDENTIFIER;
+		}
+		if (t.isWhitespace() && !decorated[type] &&
+				(currentType==-1 || !decorated[currentType])) {
+			return -1;
+		}
+		return type;
+	}
+
+
+	private void writeCss(Integer tabSize, Writer w) throws IOException {
+
+		w.write("pre.rsta { font-family: '" + font.getFamily() + "', monospace; font-size: " +
+				font.getSize() + "pt; color: " + HtmlUtil.getHexString(foreground) + ";");
+		if (background!=null) {
+			w.write(" background: " + HtmlUtil.getHexString(background) + ";");
+		}
+		if (tabSize!=null) {
+			w.write(" tab-size: " + tabSize + ";");
+		}
+		w.write(" }\n");
+
+		for (int i=0; i<styles.length; i++) {
+			if (cssClasses[i]==null) {
+				continue;
+			}
+			Font f = getFont(i);
+			w.write("pre.rsta ." + cssClasses[i] + " { color: " +
+					HtmlUtil.getHexString(getForeground(i)) + ";");
+			if (styles[i].background!=null) {
+				w.write(" background: " + HtmlUtil.getHexString(styles[i].background) + ";");
+			}
+			if (!f.getFamily().equals(font.getFamily())) {
+				w.write(" font-family: '" + f.getFamily() + "', monospace;");
+			}
+			if (f.getSize2D()!=font.getSize2D()) {
+				w.write(" font-size: " + f.getSize() + "pt;");
+			}
+			if (f.isBold()) {
+				w.write(" font-weight: bold;");
+			}
+			if (f.isItalic()) {
+				w.write(" font-style: italic;");
+			}
+			if (styles[i].underline) {
+				w.write(" text-decoration: underline;");
+			}
+			w.write(" }\n");
+		}
+
+	}
+
+
+	/**
+	 * Writes the CSS style sheet for HTML exported by this class.  This is
+	 * useful when many HTML fragments using the same styles are shown on
+	 * one page; see {@link BatchHighlighter}.
+	 *
+	 * @param w The writer to write to.
+	 * @throws IOException If an IO error occurs.
+	 */
+	public void writeStyleSheet(Writer w) throws IOException {
+		writeCss(null, w);
+	}
+
+
+	/**
+	 * Writes a line of tokens as HTML.  The markup is only valid inside a
+	 * <code>&lt;pre class="rsta"&gt;</code> element, styled by the
+	 * {@link #writeStyleSheet(Writer) style sheet}.
+	 *
+	 * @param t The tokens on the line.
+	 * @param w The writer to write to.
+	 * @throws IOException If an IO error occurs.
+	 */
+	void writeHtmlLine(Token t, Writer w) throws IOException {
+		writeRuns(t, htmlRunStarts, "</span>", true, w);
+	}
+
+
+	/**
+	 * Writes a line of tokens, grouping consecutive tokens that look the
+	 * same into runs.
+	 *
+	 * @param t The tokens on the line.
+	 * @param runStarts The markup starting a run of each token type, or
+	 *        <code>null</code> for types that look like plain text.
+	 * @param runEnd The markup ending a run.
+	 * @param html Whether to escape text for HTML rather than RTF.
+	 * @param w The writer to write to.
+	 * @throws IOException If an IO error occurs.
+	 */
+	private void writeRuns(Token t, String[] runStarts, String runEnd,
+			boolean html, Writer w) throws IOException {
+
+		int runType = -1;
+		String runStart = null;
+
+		for (; t!=null && t.isPaintable(); t=t.getNextToken()) {
+
+			if (t.length()==0) {
+				continue;
+			}
+			int type = getRunType(t, runType);
+			if (type!=-1 && type!=runType) {
+				String start = runStarts[type];
+				if (runStart==null || !runStart.equals(start)) {
+					if (runStart!=null) {
+						w.write(runEnd);
+					}
+					if (start!=null) {
+						w.write(start);
+					}
+					runStart = start;
+				}
+				runType = type;
+			}
+
+			char[] text = t.getTextArray();
+			int start = t.getTextOffset();
+			if (html) {
+				HtmlUtil.escapeForHtml(text, start, start + t.length(), w);
+			}
+			else {
+				RtfGenerator.escape(text, start, start + t.length(), w);
+			}
+
+		}
+
+		if (runStart!=null) {
+			w.write(runEnd);
+		}
+
+	}
+
+
+	/**
+	 * Writes a syntax highlighted version of a file as HTML or RTF.  Run
+	 * with no arguments for usage information.
+	 *
+	 * @param args The command line arguments.
+	 */
+	public static void main(String[] args) {
+
+		// Must be done before any AWT classes are loaded
+		if (System.getProperty("java.awt.headless")==null) {
+			System.setProperty("java.awt.headless", "true");
+		}
+
+		try {
+			System.exit(run(args));
+		} catch (IOException ioe) {
+			System.err.print("Error: " + ioe.getMessage() + "\n");
+			System.exit(1);
+		}
+
+	}
+
+
+	/**
+	 * Does the work of the command line tool.
+	 *
+	 * @param args The command line arguments.
+	 * @return The exit code.
+	 * @throws IOException If an IO error occurs.
+	 */
+	static int run(String[] args) throws IOException {
+
+		boolean rtf = false;
+		String outFile = null;
+		String syntax = null;
+		String themeName = "default";
+		String encoding = "UTF-8";
+		String inFile = null;
+
+		for (int i=0; i<args.length; i++) {
+			String arg = args[i];
+			boolean hasValue = i + 1<args.length;
+			if ("-rtf".equals(arg)) {
+				rtf = true;
+			}
+			else if ("-o".equals(arg) && hasValue) {
+				outFile = args[++i];
+			}
+			else if ("-syntax".equals(arg) && hasValue) {
+				syntax = args[++i];
+			}
+			else if ("-theme".equals(arg) && hasValue) {
+				themeName = args[++i];
+			}
+			else if ("-encoding".equals(arg) && hasValue) {
+				encoding = args[++i];
+			}
+			else if (inFile==null && !arg.startsWith("-")) {
+				inFile = arg;
+			}
+			else {
+				System.err.print(USAGE);
+				return 1;
+			}
+		}
+		if (inFile==null) {
+			System.err.print(USAGE);
+			return 1;
+		}
+
+		File file = new File(inFile);
+		if (syntax==null) {
+			syntax = FileTypeUtil.get().guessContentType(file);
+		}
+		RSyntaxDocument doc = new RSyntaxDocument(syntax);
+		try (Reader r = new UnicodeReader(file, encoding)) {
+			doc.load(r);
+		}
+
+		Theme theme;
+		try (InputStream in = openTheme(themeName)) {
+			theme = Theme.load(in, RTextArea.getDefaultFont());
+		}
+		StyledTextExporter exporter = new StyledTextExporter(theme);
+
+		OutputStream out = outFile==null ? System.out : new FileOutputStream(outFile);
+		try {
+			if (rtf) {
+				exporter.exportRtf(doc, out);
+			}
+			else {
+				exporter.exportHtml(doc, out);
+			}
+		} finally {
+			if (out!=System.out) {
+				out.close();
+			}
+		}
+
+		return 0;
+
+	}
+
+
+	private static InputStream openTheme(String theme) throws IOException {
+		if (new File(theme).isFile()) {
+			return new FileInputStream(theme);
+		}
+		InputStream in = StyledTextExporter.class.getResourceAsStream(
+				"themes/" + theme + ".xml");
+		if (in==null) {
+			throw new IOException("Unknown theme: " + theme);
+		}
+		return in;
+	}
+
+
+	/**
+	 * Receives each line of tokens in a document being exported.
+	 */
+	@FunctionalInterface
+	private interface LineHandler {
+
+		void handleLine(int line, Token t) throws IOException;
+
+	}
+
+
+}
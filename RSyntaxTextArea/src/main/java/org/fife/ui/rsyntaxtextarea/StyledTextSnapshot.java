@@ -0,0 +1,347 @@
+/*
+ * 10/19/2026
+ *
+ * StyledTextSnapshot.java - A snapshot of styled text being copied.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * LICENSE file for details.
+ */
+package org.fife.ui.rsyntaxtextarea;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.nio.charset.StandardCharsets;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import javax.swing.text.BadLocationException;
+
+
+/**
+ * A snapshot of a range of text in an <code>RSyntaxTextArea</code>, along
+ * with everything needed to render it with syntax highlighting.  Taking the
+ * snapshot is cheap; the (possibly large) HTML and RTF representations of
+ * the text are only generated when asked for, and can be generated on any
+ * thread since the snapshot does not reference the text area.<p>
+ *
+ * Styles can come from the text area itself or from a {@link Theme}.  In the
+ * latter case, the theme is not applied to the text area.  If the text area
+ * overrides the methods that determine how tokens look, such as
+ * {@link RSyntaxTextArea#getForegroundForToken(Token)}, the style of each
+ * token is instead resolved through those methods when the snapshot is
+ * taken, so the overrides are honored (see
+ * {@link TokenStyleTable#isSupported(Class)}).
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ * @see StyledTextTransferable
+ */
+final class StyledTextSnapshot {
+
+	private final String plainText;
+	private final Token tokenList;
+	private final Font font;
+	private final Color background;
+	private final TokenStyleResolver styles;
+
+
+	private StyledTextSnapshot(String plainText, Token tokenList, Font font,
+			Color background, TokenStyleResolver styles) {
+		this.plainText = plainText;
+		this.tokenList = tokenList;
+		this.font = font;
+		this.background = background;
+		this.styles = styles;
+	}
+
+
+	/**
+	 * Takes a snapshot of text in a text area.  This should be called on
+	 * the EDT.
+	 *
+	 * @param textArea The text area.
+	 * @param theme The theme to take styles from.  If this is
+	 *        <code>null</code>, the text area's current styles are used.
+	 * @param start The start offset of the text.
+	 * @param end The end offset of the text.
+	 * @return The snapshot.
+	 */
+	static StyledTextSnapshot create(RSyntaxTextArea textArea, Theme theme,
+			int start, int end) {
+
+		if (!TokenStyleTable.isSupported(textArea.getClass())) {
+			if (theme==null) {
+				return createResolved(textArea, start, end);
+			}
+			// The overridden methods can only see the theme's styles if
+			// it is applied to the text area.
+			Theme origTheme = new Theme(textArea);
+			theme.apply(textArea);
+			try {
+				return createResolved(textArea, start, end);
+			} finally {
+				origTheme.apply(textArea);
+			}
+		}
+
+		String plainText = getText(textArea, start, end);
+		Token tokenList = textArea.getTokenListFor(start, end);
+		detachText(tokenList);
+
+		Font font;
+		Color background;
+		SyntaxScheme scheme;
+		Color[] secondaryBGs = null;
+		if (theme!=null) {
+			font = theme.baseFont;
+			background = theme.bgColor;
+			scheme = theme.scheme;
+			if (textArea.getHighlightSecondaryLanguages()) {
+				secondaryBGs = theme.secondaryLanguages.clone();
+			}
+		}
+		else {
+			font = textArea.getFont();
+			background = textArea.getBackground();
+			scheme = textArea.getSyntaxScheme();
+			if (textArea.getHighlightSecondaryLanguages()) {
+				int count = textArea.getSecondaryLanguageCount();
+				secondaryBGs = new Color[count];
+				for (int i=0; i<count; i++) {
+					secondaryBGs[i] = textArea.getSecondaryLanguageBackground(i+1);
+				}
+			}
+		}
+
+		TokenStyleResolver styles = new SchemeStyles(
+				(SyntaxScheme)scheme.clone(), font, textArea.getForeground(),
+				secondaryBGs, textArea.getHyperlinksEnabled());
+		return new StyledTextSnapshot(plainText, tokenList, font, background,
+				styles);
+
+	}
+
+
+	/**
+	 * Takes a snapshot of text in a text area, asking the text area for
+	 * the style of each token right away.
+	 *
+	 * @param textArea The text area.
+	 * @param start The start offset of the text.
+	 * @param end The end offset of the text.
+	 * @return The snapshot.
+	 */
+	private static StyledTextSnapshot createResolved(RSyntaxTextArea textArea,
+			int start, int end) {
+		String plainText = getText(textArea, start, end);
+		Token tokenList = textArea.getTokenListFor(start, end);
+		TokenStyleResolver styles = new ResolvedStyles(tokenList,
+				TokenStyleResolver.of(textArea));
+		detachText(tokenList);
+		return new StyledTextSnapshot(plainText, tokenList,
+				textArea.getFont(), textArea.getBackground(), styles);
+	}
+
+
+	/**
+	 * Copies the text of a token list into a single array owned by the
+	 * tokens.  The tokens returned by
+	 * {@link RSyntaxTextArea#getTokenListFor(int, int)} are copies, but
+	 * still reference the document's text, which may change before we
+	 * get around to generating HTML or RTF from them.
+	 *
+	 * @param tokenList The token list to modify.
+	 */
+	private static void detachText(Token tokenList) {
+
+		int count = 0;
+		for (Token t = tokenList; t != null; t = t.getNextToken()) {
+			if (hasText(t)) {
+				count += t.length();
+			}
+		}
+
+		char[] text = new char[count];
+		int offs = 0;
+		for (Token t = tokenList; t != null; t = t.getNextToken()) {
+			if (!hasText(t)) {
+				continue;
+			}
+			TokenImpl ti = (TokenImpl)t;
+			System.arraycopy(ti.text, ti.textOffset, text, offs, ti.textCount);
+			ti.text = text;
+			ti.textOffset = offs;
+			offs += ti.textCount;
+		}
+
+	}
+
+
+	/**
+	 * Returns the text, without any styling.
+	 *
+	 * @return The text.
+	 */
+	String getPlainText() {
+		return plainText;
+	}
+
+
+	private static String getText(RSyntaxTextArea textArea, int start, int end) {
+		try {
+			return textArea.getText(start, end - start);
+		} catch (BadLocationException ble) {
+			throw new IllegalArgumentException(ble.getMessage());
+		}
+	}
+
+
+	/**
+	 * Returns whether a token has text to copy.  The non-paintable tokens
+	 * ending a line don't.
+	 */
+	private static boolean hasText(Token t) {
+		return t.isPaintable() && t.length()>0;
+	}
+
+
+	/**
+	 * Returns the text as HTML.  This is the same markup generated by
+	 * {@link HtmlUtil#getTextAsHtml(RSyntaxTextArea, int, int)}.
+	 *
+	 * @return The HTML.
+	 */
+	String toHtml() {
+		return HtmlUtil.getTokensAsHtml(tokenList, font, background, styles);
+	}
+
+
+	/**
+	 * Returns the text as RTF.
+	 *
+	 * @return The RTF, as bytes.
+	 */
+	byte[] toRtf() {
+		RtfGenerator gen = new RtfGenerator(background);
+		gen.appendTokens(tokenList, styles);
+		// RTF text is 7-bit ASCII so this should cover us
+		return gen.getRtf().getBytes(StandardCharsets.UTF_8);
+	}
+
+
+	/**
+	 * The style of each token in a token list, as resolved by a text area.
+	 */
+	private static final class ResolvedStyles implements TokenStyleResolver {
+
+		private final Map<Token, ResolvedStyle> styles;
+
+		ResolvedStyles(Token tokenList, TokenStyleResolver textAreaStyles) {
+			styles = new IdentityHashMap<>();
+			for (Token t = tokenList; t != null; t = t.getNextToken()) {
+				if (t.isPaintable()) {
+					styles.put(t, new ResolvedStyle(t, textAreaStyles));
+				}
+			}
+		}
+
+		@Override
+		public Color getBackgroundForToken(Token t) {
+			return styles.get(t).background;
+		}
+
+		@Override
+		public Font getFontForToken(Token t) {
+			return styles.get(t).font;
+		}
+
+		@Override
+		public Color getForegroundForToken(Token t) {
+			return styles.get(t).foreground;
+		}
+
+		@Override
+		public boolean getUnderlineForToken(Token t) {
+			return styles.get(t).underline;
+		}
+	}
+
+
+	/**
+	 * The style of a single token.
+	 */
+	private static final class ResolvedStyle {
+
+		private final Font font;
+		private final Color foreground;
+		private final Color background;
+		private final boolean underline;
+
+		ResolvedStyle(Token t, TokenStyleResolver textAreaStyles) {
+			font = textAreaStyles.getFontForToken(t);
+			foreground = textAreaStyles.getForegroundForToken(t);
+			background = textAreaStyles.getBackgroundForToken(t);
+			underline = textAreaStyles.getUnderlineForToken(t);
+		}
+	}
+
+
+	/**
+	 * Token styles taken from a copy of a syntax scheme.  These are what
+	 * an <code>RSyntaxTextArea</code> that doesn't override any styling
+	 * methods would use.
+	 */
+	private static final class SchemeStyles implements TokenStyleResolver {
+
+		private final SyntaxScheme scheme;
+		private final Font font;
+		private final Color foreground;
+		private final Color[] secondaryLanguageBackgrounds;
+		private final boolean hyperlinksEnabled;
+
+		SchemeStyles(SyntaxScheme scheme, Font font, Color foreground,
+				Color[] secondaryLanguageBackgrounds, boolean hyperlinksEnabled) {
+			this.scheme = scheme;
+			this.font = font;
+			this.foreground = foreground;
+			this.secondaryLanguageBackgrounds = secondaryLanguageBackgrounds;
+			this.hyperlinksEnabled = hyperlinksEnabled;
+		}
+
+		@Override
+		public Color getBackgroundForToken(Token t) {
+			Color c = null;
+			if (secondaryLanguageBackgrounds!=null) {
+				// 1-indexed, since 0 == main language.
+				int languageIndex = t.getLanguageIndex() - 1;
+				if (languageIndex>=0 &&
+						languageIndex<secondaryLanguageBackgrounds.length) {
+					c = secondaryLanguageBackgrounds[languageIndex];
+				}
+			}
+			if (c==null) {
+				c = scheme.getStyle(t.getType()).background;
+			}
+			return c;
+		}
+
+		@Override
+		public Font getFontForToken(Token t) {
+			Font f = scheme.getStyle(t.getType()).font;
+			return f!=null ? f : font;
+		}
+
+		@Override
+		public Color getForegroundForToken(Token t) {
+			Color fg = scheme.getStyle(t.getType()).foreground;
+			return fg!=null ? fg : foreground;
+		}
+
+		@Override
+		public boolean getUnderlineForToken(Token t) {
+			return (hyperlinksEnabled && t.isHyperlink()) ||
+					scheme.getStyle(t.getType()).underline;
+		}
+	}
+
+
+}
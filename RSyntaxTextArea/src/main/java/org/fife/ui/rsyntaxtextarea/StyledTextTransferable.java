@@ -21,7 +21,11 @@ import java.io.StringReader;
  * It can return the text being moved as HTML, RTF or plain text.  This
  * class is basically the same as
  * <code>java.awt.datatransfer.StringSelection</code>, except that it can also
- * return the text in a couple of styled text formats.
+ * return the text in a couple of styled text formats.<p>
+ *
+ * When created from a {@link StyledTextSnapshot}, the HTML and RTF are only
+ * generated the first time they are requested, so copying a large selection
+ * is cheap if the receiving application only wants plain text.
  *
  * @author Robert Futrell
  * @version 1.0
@@ -43,6 +47,12 @@ class StyledTextTransferable implements Transferable {
 	 */
 	private byte[] rtfBytes;
 
+	/**
+	 * The snapshot to lazily generate the HTML and RTF from, or
+	 * <code>null</code> if they were given to us.
+	 */
+	private StyledTextSnapshot snapshot;
+
 
 	/**
 	 * The "flavors" the text can be returned as.
@@ -58,8 +68,10 @@ class StyledTextTransferable implements Transferable {
 	/**
 	 * Constructor.
 	 *
+	 * @param plain The transferred text.
 	 * @param html The transferred text, as HTML.
 	 * @param rtfBytes The transferred text, as RTF bytes.
+	 * @see #StyledTextTransferable(StyledTextSnapshot)
 	 */
 	StyledTextTransferable(String plain, String html, byte[] rtfBytes) {
 		this.plain = plain;
@@ -68,16 +80,68 @@ class StyledTextTransferable implements Transferable {
 	}
 
 
+	/**
+	 * Constructor.  The HTML and RTF flavors are generated from the
+	 * snapshot when first requested.
+	 *
+	 * @param snapshot The transferred text.
+	 * @see #StyledTextTransferable(String, String, byte[])
+	 */
+	StyledTextTransferable(StyledTextSnapshot snapshot) {
+		this.plain = snapshot.getPlainText();
+		this.snapshot = snapshot;
+	}
+
+
+	/**
+	 * Returns the transferred text as HTML, generating it if necessary.
+	 *
+	 * @return The HTML.
+	 */
+	synchronized String getHtml() {
+		if (html==null && snapshot!=null) {
+			html = snapshot.toHtml();
+			releaseSnapshotIfDone();
+		}
+		return html;
+	}
+
+
+	/**
+	 * Returns the transferred plain text.
+	 *
+	 * @return The plain text.
+	 */
+	String getPlainText() {
+		return plain;
+	}
+
+
+	/**
+	 * Returns the transferred text as RTF, generating it if necessary.
+	 *
+	 * @return The RTF bytes.
+	 */
+	synchronized byte[] getRtfBytes() {
+		if (rtfBytes==null && snapshot!=null) {
+			rtfBytes = snapshot.toRtf();
+			releaseSnapshotIfDone();
+		}
+		return rtfBytes;
+	}
+
+
 	@Override
 	public Object getTransferData(DataFlavor flavor)
 					throws UnsupportedFlavorException, IOException {
 
 		if (flavor.equals(FLAVORS[0])) { // HTML
-			return html;
+			return getHtml();
 		}
 
 		else if (flavor.equals(FLAVORS[1])) { // RTF
-			return new ByteArrayInputStream(rtfBytes ==null ? new byte[0] : rtfBytes);
+			byte[] rtf = getRtfBytes();
+			return new ByteArrayInputStream(rtf==null ? new byte[0] : rtf);
 		}
 
 		else if (flavor.equals(FLAVORS[2])) { // stringFlavor
@@ -98,6 +162,17 @@ class StyledTextTransferable implements Transferable {
 	}
 
 
+	/**
+	 * Returns whether the HTML or RTF flavors have been generated from this
+	 * transferable's snapshot.  This is really only here for unit tests.
+	 *
+	 * @return Whether any styled text was generated.
+	 */
+	synchronized boolean isStyledTextGenerated() {
+		return snapshot==null || html!=null || rtfBytes!=null;
+	}
+
+
 	@Override
 	public boolean isDataFlavorSupported(DataFlavor flavor) {
 		for (DataFlavor flavor1 : FLAVORS) {
@@ -109,4 +184,15 @@ class StyledTextTransferable implements Transferable {
 	}
 
 
+	/**
+	 * Drops our reference to the snapshot (and its token list) once all
+	 * flavors have been generated from it.
+	 */
+	private void releaseSnapshotIfDone() {
+		if (html!=null && rtfBytes!=null) {
+			snapshot = null;
+		}
+	}
+
+
 }
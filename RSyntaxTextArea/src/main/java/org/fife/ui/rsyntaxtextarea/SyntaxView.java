@@ -10,6 +10,9 @@
 package org.fife.ui.rsyntaxtextarea;
 
 import java.awt.*;
+import java.util.Map;
+import java.util.WeakHashMap;
+import javax.swing.JComponent;
 import javax.swing.event.*;
 import javax.swing.text.*;
 
@@ -55,6 +58,16 @@ public class SyntaxView extends View implements TabExpander,
 	private Element longLine;
 	private float longLineWidth;
 
+	/**
+	 * The x-offsets, relative to the start of the line, at which each
+	 * segment of lines split into segments starts, followed by the line's
+	 * width.  These let very long lines be painted without lexing all of
+	 * them.
+	 *
+	 * @see RSyntaxDocument#getLineSegmentCount(int)
+	 */
+	private Map<Element, float[]> segmentXs;
+
 	private int tabSize;
 	private int tabBase;
 
@@ -78,6 +91,12 @@ public class SyntaxView extends View implements TabExpander,
 	 */
 	private TokenImpl tempToken;
 
+	/**
+	 * Joins consecutive tokens with the same style, so they're painted
+	 * together.
+	 */
+	private TokenRunCoalescer runCoalescer;
+
 	/**
 	 * Used as the default rendered EOL marker.
 	 */
@@ -92,6 +111,8 @@ public class SyntaxView extends View implements TabExpander,
 	public SyntaxView(Element elem) {
 		super(elem);
 		tempToken = new TokenImpl();
+		runCoalescer = new TokenRunCoalescer();
+		segmentXs = new WeakHashMap<>();
 	}
 
 
@@ -108,6 +129,7 @@ public class SyntaxView extends View implements TabExpander,
 		font = c.getFont();
 		metrics = c.getFontMetrics(font);
 		tabSize = getTabSize() * metrics.charWidth(' ');
+		segmentXs.clear();
 		Element lines = getElement();
 		int n = lines.getElementCount();
 		for (int i=0; i<n; i++) {
@@ -137,7 +159,11 @@ public class SyntaxView extends View implements TabExpander,
 
 
 	/**
-	 * Repaint the given line range.
+	 * Repaint the given line range.  Only the part of the range that is
+	 * visible is repainted, so e.g. starting a multi-line comment near the
+	 * top of a large file doesn't damage the (off-screen) rest of it.
+	 * Repaints for several edits within one event are merged by the
+	 * <code>RepaintManager</code>.
 	 *
 	 * @param line0 The starting line number to repaint.  This must
 	 *        be a valid line number in the model.
@@ -153,6 +179,12 @@ public class SyntaxView extends View implements TabExpander,
 			Rectangle area1 = lineToRect(a, line1);
 			if ((area0 != null) && (area1 != null)) {
 				Rectangle dmg = area0.union(area1); // damage.
+				if (host instanceof JComponent) {
+					dmg = dmg.intersection(((JComponent)host).getVisibleRect());
+					if (dmg.isEmpty()) {
+						return;
+					}
+				}
 				host.repaint(dmg.x, dmg.y, dmg.width, dmg.height);
 			}
 			else {
@@ -188,21 +220,26 @@ public class SyntaxView extends View implements TabExpander,
 	 * @param g The graphics context in which to draw.
 	 * @param x The x-coordinate at which to draw.
 	 * @param y The y-coordinate at which to draw.
+	 * @param line The line being drawn.
+	 * @param eolMarker Whether the tokens end the line, so the EOL marker
+	 *        should be drawn after them if it is visible.
 	 * @return The x-coordinate representing the end of the painted text.
 	 */
 	private float drawLine(TokenPainter painter, Token token, Graphics2D g,
-			float x, float y, int line) {
+			float x, float y, int line, boolean eolMarker) {
 
 		float nextX = x;	// The x-value at the end of our text.
 		boolean paintBG = host.getPaintTokenBackgrounds(line, y);
 
 		while (token!=null && token.isPaintable() && nextX<clipEnd) {
+			token = runCoalescer.nextRun(token, Integer.MAX_VALUE, nextX,
+					painter, host, paintBG);
 			nextX = painter.paint(token, g, nextX,y, host, this, clipStart,
 					paintBG);
 			token = token.getNextToken();
 		}
 
-		if (host.getEOLMarkersVisible()) {
+		if (eolMarker && host.getEOLMarkersVisible()) {
 			drawEOLMarker(host, g, nextX, y);
 		}
 
@@ -223,17 +260,20 @@ public class SyntaxView extends View implements TabExpander,
 	 * @param y The y-coordinate at which to draw.
 	 * @param selStart The start of the selection.
 	 * @param selEnd The end of the selection.
+	 * @param eolMarker Whether the tokens end the line, so the EOL marker
+	 *        should be drawn after them if it is visible.
 	 * @return The x-coordinate representing the end of the painted text.
 	 */
 	private float drawLineWithSelection(TokenPainter painter, Token token,
-			Graphics2D g, float x, float y, int selStart, int selEnd) {
+			Graphics2D g, float x, float y, int selStart, int selEnd,
+			boolean eolMarker) {
 
 		while (token!=null && token.isPaintable() && x<clipEnd) {
 			x = drawTokenWithSelection(painter, token, g, x, y, selStart, selEnd, host, this, clipStart);
 			token = token.getNextToken();
 		}
 
-		if (host.getEOLMarkersVisible()) {
+		if (eolMarker && host.getEOLMarkersVisible()) {
 			drawEOLMarker(host, g, x, y);
 		}
 
@@ -350,6 +390,10 @@ public class SyntaxView extends View implements TabExpander,
 	 * @return The width of the line.
 	 */
 	private float getLineWidth(int lineNumber) {
+		float[] xs = getSegmentXs(lineNumber);
+		if (xs!=null) {
+			return xs[xs.length - 1];
+		}
 		Token tokenList = ((RSyntaxDocument)getDocument()).
 									getTokenListForLine(lineNumber);
 		return RSyntaxUtilities.getTokenListWidth(tokenList,
@@ -358,6 +402,86 @@ public class SyntaxView extends View implements TabExpander,
 	}
 
 
+	/**
+	 * Returns the segment of a line split into segments that an x-offset is
+	 * in.
+	 *
+	 * @param xs The x-offsets of the line's segments.
+	 * @param x The x-offset, relative to the start of the line.
+	 * @return The segment.
+	 * @see #getSegmentXs(int)
+	 */
+	private static int getSegmentAt(float[] xs, float x) {
+		int low = 0;
+		int high = xs.length - 2;
+		while (low<high) {
+			int mid = (low + high + 1) >>> 1;
+			if (xs[mid]<=x) {
+				low = mid;
+			}
+			else {
+				high = mid - 1;
+			}
+		}
+		return low;
+	}
+
+
+	/**
+	 * Forgets the cached segment x-offsets of a range of lines, e.g. because
+	 * their token styles, and so widths, may have changed.  Only the few
+	 * very long lines have entries, so those are checked rather than every
+	 * line in the range.
+	 *
+	 * @param startLine The first line, inclusive.
+	 * @param endLine The last line, inclusive.
+	 */
+	private void forgetSegmentXs(int startLine, int endLine) {
+		if (!segmentXs.isEmpty()) {
+			Element map = getElement();
+			segmentXs.keySet().removeIf(elem -> {
+				int line = map.getElementIndex(elem.getStartOffset());
+				return map.getElement(line)!=elem || (line>=startLine && line<=endLine);
+			});
+		}
+	}
+
+
+	/**
+	 * Returns the x-offsets at which each segment of a line starts, if the
+	 * document split it into segments.
+	 *
+	 * @param line The line.
+	 * @return The x-offsets, relative to the start of the line, followed by
+	 *         the line's width.  This is <code>null</code> if the line isn't
+	 *         split into segments.
+	 * @see RSyntaxDocument#getLineSegmentCount(int)
+	 */
+	private float[] getSegmentXs(int line) {
+
+		RSyntaxDocument doc = (RSyntaxDocument)getDocument();
+		int count = doc.getLineSegmentCount(line);
+		if (count==1) {
+			return null;
+		}
+
+		Element elem = getElement().getElement(line);
+		float[] xs = segmentXs.get(elem);
+		if (xs==null || xs.length!=count + 1) {
+			RSyntaxTextArea textArea = (RSyntaxTextArea)getContainer();
+			xs = new float[count + 1];
+			for (int i=0; i<count; i++) {
+				Token tokenList = doc.getTokenListForLineSegment(line, i);
+				xs[i + 1] = xs[i] + RSyntaxUtilities.getTokenListWidth(tokenList,
+						textArea, this, tabBase + xs[i]);
+			}
+			segmentXs.put(elem, xs);
+		}
+		return xs;
+
+	}
+
+
 	/**
 	 * Provides a way to determine the next visually represented model
 	 * location that one might place a caret.  Some views may not be visible,
@@ -583,10 +707,22 @@ public class SyntaxView extends View implements TabExpander,
 		Element map = getElement();
 		RSyntaxDocument doc = (RSyntaxDocument)getDocument();
 		int lineIndex = map.getElementIndex(pos);
-		Token tokenList = doc.getTokenListForLine(lineIndex);
 		Rectangle lineArea = lineToRect(a, lineIndex);
 		tabBase = lineArea.x; // Used by listOffsetToView().
 
+		// Only lex the segment containing pos of very long lines.  Segments
+		// start at fractional x-offsets, so those are kept as floats, as
+		// when painting.
+		float[] xs = getSegmentXs(lineIndex);
+		if (xs!=null) {
+			int segment = doc.getLineSegmentOfOffset(pos);
+			TokenImpl tokenList = (TokenImpl)doc.getTokenListForLineSegment(lineIndex, segment);
+			float x0 = tabBase + xs[segment];
+			return tokenList.listOffsetToView((RSyntaxTextArea)getContainer(),
+						this, pos, x0, lineArea);
+		}
+		Token tokenList = doc.getTokenListForLine(lineIndex);
+
 		//int x = (int)RSyntaxUtilities.getTokenListWidthUpTo(tokenList,
 		//							(RSyntaxTextArea)getContainer(),
 		//							this, 0, pos);
@@ -769,14 +905,32 @@ public class SyntaxView extends View implements TabExpander,
 			h.paintLayeredHighlights(g2d, startOffset, endOffset,
 								a, host, this);
 
-			// Paint a line of text.
-			token = document.getTokenListForLine(line);
-			if (selStart==selEnd || startOffset>=selEnd ||
-					endOffset<selStart) {
-				drawLine(painter, token, g2d, x,y, line);
+			// Paint a line of text.  Only the visible segments of very
+			// long lines are lexed and painted.
+			boolean selected = selStart!=selEnd && startOffset<selEnd &&
+					endOffset>=selStart;
+			float[] xs = getSegmentXs(line);
+			if (xs==null) {
+				token = document.getTokenListForLine(line);
+				if (!selected) {
+					drawLine(painter, token, g2d, x,y, line, true);
+				}
+				else {
+					drawLineWithSelection(painter,token,g2d, x,y, selStart, selEnd, true);
+				}
 			}
 			else {
-				drawLineWithSelection(painter,token,g2d, x,y, selStart, selEnd);
+				int last = xs.length - 2;
+				for (int i=getSegmentAt(xs, clipStart - x); i<=last && x+xs[i]<clipEnd; i++) {
+					token = document.getTokenListForLineSegment(line, i);
+					if (!selected) {
+						drawLine(painter, token, g2d, x + xs[i], y, line, i==last);
+					}
+					else {
+						drawLineWithSelection(painter, token, g2d, x + xs[i], y,
+								selStart, selEnd, i==last);
+					}
+				}
 			}
 
 			// Paint parser highlights (typically squiggle-underlines) after
@@ -879,6 +1033,7 @@ public class SyntaxView extends View implements TabExpander,
 		if (((added != null) && (added.length > 0)) ||
 			((removed != null) && (removed.length > 0))) {
 			// lines were added or removed...
+			segmentXs.clear();
 			if (added != null) {
 				int addedAt = ec.getIndex(); // FIXME: Is this correct?????
 				for (int i = 0; i < added.length; i++) {
@@ -902,14 +1057,28 @@ public class SyntaxView extends View implements TabExpander,
 		// (i.e. beginning a multiline comment).
 		else if (changes.getType()==DocumentEvent.EventType.CHANGE) {
 			//System.err.println("Updating the damage due to a CHANGE event...");
-			int startLine = changes.getOffset();
-			int endLine = changes.getLength();
+			int startLine;
+			int endLine;
+			if (changes instanceof RSyntaxDocument.LineRangeChangeEvent) {
+				RSyntaxDocument.LineRangeChangeEvent lrce =
+						(RSyntaxDocument.LineRangeChangeEvent)changes;
+				startLine = lrce.getFirstLine();
+				endLine = lrce.getLastLine();
+			}
+			else {
+				Element map = getElement();
+				startLine = map.getElementIndex(changes.getOffset());
+				endLine = map.getElementIndex(changes.getOffset() +
+						changes.getLength());
+			}
+			forgetSegmentXs(startLine, endLine);
 			damageLineRange(startLine,endLine, a, host);
 		}
 
 		else {
 			Element map = getElement();
 			int line = map.getElementIndex(changes.getOffset());
+			segmentXs.remove(map.getElement(line));
 			damageLineRange(line, line, a, host);
 			if (changes.getType() == DocumentEvent.EventType.INSERT) {
 				// check to see if the line is longer than current
@@ -1017,11 +1186,21 @@ public class SyntaxView extends View implements TabExpander,
 			else {
 				// Determine the offset into the text
 				int p0 = line.getStartOffset();
-				Token tokenList = doc.getTokenListForLine(lineIndex);
 				tabBase = alloc.x;
+				Token tokenList;
+				float x0 = tabBase;
+				float[] xs = getSegmentXs(lineIndex);
+				if (xs==null) {
+					tokenList = doc.getTokenListForLine(lineIndex);
+				}
+				else {
+					int segment = getSegmentAt(xs, x - tabBase);
+					tokenList = doc.getTokenListForLineSegment(lineIndex, segment);
+					x0 += xs[segment];
+				}
 				int offs = tokenList.getListOffset(
 									(RSyntaxTextArea)getContainer(),
-									this, tabBase, x);
+									this, x0, x);
 				return offs!=-1 ? offs : p0;
 			}
 
@@ -12,17 +12,29 @@ package org.fife.ui.rsyntaxtextarea;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
 import java.nio.charset.Charset;
 import java.nio.charset.UnsupportedCharsetException;
-
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
+import javax.swing.text.BadLocationException;
 import javax.swing.text.Document;
 
 import org.fife.io.UnicodeReader;
 import org.fife.io.UnicodeWriter;
+import org.fife.ui.rtextarea.LineSeparatorNormalizer;
 import org.fife.ui.rtextarea.RTextAreaEditorKit;
 
 /**
@@ -46,7 +58,12 @@ import org.fife.ui.rtextarea.RTextAreaEditorKit;
  * for UTF-8 files.<p>
  *
  * Both local and remote files (e.g. ftp) are supported.  See the
- * {@link FileLocation} class for more information.
+ * {@link FileLocation} class for more information.<p>
+ *
+ * Large files can be loaded and saved without blocking the EDT via
+ * {@link #loadAsync(FileLocation, String, FileLoadListener)},
+ * {@link #saveAsync(FileSaveListener)} and
+ * {@link #saveAsAsync(FileLocation, FileSaveListener)}.
  *
  * @author Robert Futrell
  * @version 1.0
@@ -125,6 +142,28 @@ public class TextEditorPane extends RSyntaxTextArea implements
 	 */
 	private static final String DEFAULT_FILE_NAME = "Untitled.txt";
 
+	/**
+	 * The asynchronous load currently in progress, if any.
+	 */
+	private transient AsyncLoader asyncLoader;
+
+	/**
+	 * Incremented each time the text area is modified, so an asynchronous
+	 * save knows whether the text changed while it was being written.
+	 */
+	private transient long modificationCount;
+
+	/**
+	 * Runs asynchronous saves one at a time, in the order they were
+	 * started, so an older save never overwrites a newer one.
+	 */
+	private static final ExecutorService SAVE_EXECUTOR =
+		Executors.newSingleThreadExecutor(r -> {
+			Thread t = new Thread(r, "TextEditorPane Saver");
+			t.setDaemon(true);
+			return t;
+		});
+
 
 	/**
 	 * Constructor.  The file will be given a default name.
@@ -354,6 +393,7 @@ public class TextEditorPane extends RSyntaxTextArea implements
 	 */
 	@Override
 	public void insertUpdate(DocumentEvent e) {
+		modificationCount++;
 		if (!dirty) {
 			setDirty(true);
 		}
@@ -391,6 +431,18 @@ public class TextEditorPane extends RSyntaxTextArea implements
 	}
 
 
+	/**
+	 * Returns whether a file is currently being loaded asynchronously
+	 * into this editor.
+	 *
+	 * @return Whether an asynchronous load is in progress.
+	 * @see #loadAsync(FileLocation, String, FileLoadListener)
+	 */
+	public boolean isLoading() {
+		return asyncLoader!=null;
+	}
+
+
 	/**
 	 * Returns whether the text file has been modified outside this editor
 	 * since the last load or save operation.  Note that if this is a remote
@@ -515,6 +567,52 @@ public class TextEditorPane extends RSyntaxTextArea implements
 	}
 
 
+	/**
+	 * Loads the specified file in this editor without blocking the EDT.
+	 * The file is read and decoded on a worker thread, and its text is
+	 * appended to the document in large batches, so the first screen of
+	 * text is displayed almost immediately.  Syntax highlighting state is
+	 * computed for each batch as it is appended.<p>
+	 *
+	 * The editor is not editable while the load is in progress.  When the
+	 * load completes, this method's behavior matches that of
+	 * {@link #load(FileLocation, String)}: the file location, encoding and
+	 * line separator are updated, the dirty flag is cleared, the undo
+	 * history is discarded and a property change event of type
+	 * {@link #FULL_PATH_PROPERTY} is fired.  If the load is cancelled or
+	 * fails, the editor is left empty and keeps referencing its previous
+	 * file location.<p>
+	 *
+	 * Any asynchronous load already in progress is cancelled.  This method
+	 * should be called on the EDT.  Callers should not block the EDT waiting
+	 * on the returned <code>Future</code>, since batches of text are
+	 * appended on the EDT.
+	 *
+	 * @param loc The location of the file to load.  This cannot be
+	 *        <code>null</code>.
+	 * @param defaultEnc The encoding to use when loading/saving the file.
+	 *        This encoding will only be used if the file is not Unicode.
+	 *        If this value is <code>null</code>, the system default encoding
+	 *        is used.
+	 * @param listener Notified of the load's progress and outcome.  This may
+	 *        be <code>null</code>.
+	 * @return A handle to the load, which can be used to cancel it.
+	 * @see #load(FileLocation, String)
+	 * @see #isLoading()
+	 */
+	public Future<Void> loadAsync(FileLocation loc, String defaultEnc,
+								FileLoadListener listener) {
+		if (asyncLoader!=null) {
+			asyncLoader.cancel(true);
+			asyncLoader.finish();
+		}
+		asyncLoader = new AsyncLoader(loc, defaultEnc, listener);
+		asyncLoader.begin();
+		asyncLoader.execute();
+		return asyncLoader;
+	}
+
+
 	/**
 	 * Reloads this file from disk.  The file must exist for this operation
 	 * to not throw an exception.<p>
@@ -553,6 +651,7 @@ public class TextEditorPane extends RSyntaxTextArea implements
 	 */
 	@Override
 	public void removeUpdate(DocumentEvent e) {
+		modificationCount++;
 		if (!dirty) {
 			setDirty(true);
 		}
@@ -596,6 +695,81 @@ public class TextEditorPane extends RSyntaxTextArea implements
 	}
 
 
+	/**
+	 * Saves this file in a new location without blocking the EDT.  This
+	 * is the asynchronous version of {@link #saveAs(FileLocation)}; the
+	 * file location is only updated (and a property change event of type
+	 * {@link #FULL_PATH_PROPERTY} fired) once the save succeeds.  See
+	 * {@link #saveAsync(FileSaveListener)} for more information.
+	 *
+	 * @param loc The location to save to.
+	 * @param listener Notified of the save's progress and outcome.  This may
+	 *        be <code>null</code>.
+	 * @return A handle to the save.
+	 * @throws IllegalStateException If a file is being loaded
+	 *         asynchronously.
+	 * @see #saveAs(FileLocation)
+	 * @see #saveAsync(FileSaveListener)
+	 */
+	public Future<Void> saveAsAsync(FileLocation loc,
+									FileSaveListener listener) {
+		return saveAsyncImpl(loc, true, listener);
+	}
+
+
+	/**
+	 * Saves the file in its current encoding without blocking the EDT.
+	 * A snapshot of the text is taken on the calling thread, then encoded
+	 * and written in large chunks on a background thread, so the editor may
+	 * be edited while the save is in progress.  The snapshot is cheap when
+	 * the document is backed by a <code>RopeContent</code>, which it shares;
+	 * other documents' text is copied (see
+	 * {@link org.fife.ui.rtextarea.RDocument#createTextSnapshot()}).<p>
+	 *
+	 * Local files are written to a temporary file in the same directory
+	 * that then replaces the original file, so a failed save never leaves
+	 * a truncated file behind.  Note that this means the saved file is a
+	 * new file on disk, with the original file's permissions.<p>
+	 *
+	 * When the save completes, the "last modified" time of local files is
+	 * updated, and the dirty flag is cleared if the text was not modified
+	 * while it was being written.  Asynchronous saves run one at a time, in
+	 * the order they are started.  This method should be called on the
+	 * EDT.
+	 *
+	 * @param listener Notified of the save's progress and outcome.  This may
+	 *        be <code>null</code>.
+	 * @return A handle to the save.
+	 * @throws IllegalStateException If a file is being loaded
+	 *         asynchronously.
+	 * @see #save()
+	 * @see #saveAsAsync(FileLocation, FileSaveListener)
+	 */
+	public Future<Void> saveAsync(FileSaveListener listener) {
+		return saveAsyncImpl(loc, false, listener);
+	}
+
+
+	/**
+	 * Starts an asynchronous save.
+	 *
+	 * @param loc The location to save to.
+	 * @param saveAs Whether this editor's location should be changed to
+	 *        <code>loc</code> when the save completes.
+	 * @param listener The listener to notify.  This may be <code>null</code>.
+	 * @return A handle to the save.
+	 */
+	private Future<Void> saveAsyncImpl(FileLocation loc, boolean saveAs,
+									FileSaveListener listener) {
+		if (isLoading()) {
+			throw new IllegalStateException("Cannot save while loading");
+		}
+		AsyncSaver saver = new AsyncSaver(loc, saveAs, listener);
+		SAVE_EXECUTOR.execute(saver);
+		return saver;
+	}
+
+
 	/**
 	 * Saves the text in this editor to the specified location.
 	 *
@@ -628,6 +802,9 @@ public class TextEditorPane extends RSyntaxTextArea implements
 	 * @see #isDirty()
 	 */
 	public void setDirty(boolean dirty) {
+		if (dirty) {
+			modificationCount++;
+		}
 		if (this.dirty!=dirty) {
 			this.dirty = dirty;
 			firePropertyChange(DIRTY_PROPERTY, !dirty, dirty);
@@ -768,4 +945,306 @@ public class TextEditorPane extends RSyntaxTextArea implements
 			lastSaveOrLoadTime = loc.getActualLastModified();
 		}
 	}
+
+
+	/**
+	 * Loads a file into this editor off the EDT.  Text is decoded on a
+	 * worker thread, line endings are normalized to <code>\n</code>, and each
+	 * batch is appended to the document on the EDT.  Batches are handed off
+	 * with <code>invokeAndWait()</code> so the reader never gets more than
+	 * one batch ahead of the document.
+	 */
+	private final class AsyncLoader extends SwingWorker<Void, Void> {
+
+		/**
+		 * The size of the first batch, small so the first screen of text
+		 * shows up as quickly as possible.
+		 */
+		private static final int FIRST_BATCH_SIZE = 16 * 1024;
+
+		/**
+		 * The size of all subsequent batches.
+		 */
+		private static final int BATCH_SIZE = 1024 * 1024;
+
+		private final FileLocation newLoc;
+		private final String defaultEnc;
+		private final FileLoadListener listener;
+		private final Document doc;
+		private boolean wasEditable;
+		private boolean finished;
+
+		private volatile String encoding;
+		private volatile String lineSeparator;
+		private long totalBytes;
+		private long bytesRead;
+		private boolean firstBatch;
+
+		private AsyncLoader(FileLocation loc, String defaultEnc,
+							FileLoadListener listener) {
+			this.newLoc = loc;
+			this.defaultEnc = defaultEnc;
+			this.listener = listener;
+			this.doc = getDocument();
+			this.totalBytes = -1;
+		}
+
+		/**
+		 * Called on the EDT before the worker is started.
+		 */
+		private void begin() {
+			wasEditable = isEditable();
+			setEditable(false);
+			// Remove listener so dirty flag doesn't get set when loading.
+			doc.removeDocumentListener(TextEditorPane.this);
+			setText(null);
+			firstBatch = true;
+		}
+
+		/**
+		 * Appends a batch of text to the document.  Called on the EDT.
+		 */
+		private void appendBatch(String text, long bytesRead, long totalBytes) {
+			if (isCancelled()) {
+				return;
+			}
+			try {
+				doc.insertString(doc.getLength(), text, null);
+			} catch (BadLocationException ble) { // Never happens
+				ble.printStackTrace();
+			}
+			if (firstBatch) {
+				setCaretPosition(0);
+				firstBatch = false;
+			}
+			if (listener!=null) {
+				listener.fileLoadProgress(TextEditorPane.this, bytesRead,
+						totalBytes);
+			}
+		}
+
+		@Override
+		protected Void doInBackground() throws Exception {
+
+			// For new local files, just go with it.
+			if (newLoc.isLocal() && !newLoc.isLocalAndExists()) {
+				encoding = defaultEnc!=null ? defaultEnc : getDefaultEncoding();
+				return null;
+			}
+
+			if (newLoc.isLocalAndExists()) {
+				totalBytes = new File(newLoc.getFileFullPath()).length();
+			}
+			InputStream in = new FilterInputStream(newLoc.getInputStream()) {
+				@Override
+				public int read() throws IOException {
+					int b = super.read();
+					if (b>-1) {
+						bytesRead++;
+					}
+					return b;
+				}
+				@Override
+				public int read(byte[] b, int off, int len) throws IOException {
+					int count = super.read(b, off, len);
+					if (count>0) {
+						bytesRead += count;
+					}
+					return count;
+				}
+			};
+
+			try (UnicodeReader r = new UnicodeReader(in, defaultEnc)) {
+				encoding = r.getEncoding();
+				readBatches(r);
+			}
+			return null;
+		}
+
+		@Override
+		protected void done() {
+			if (asyncLoader==this) {
+				asyncLoader = null;
+			}
+			finish();
+			if (isCancelled()) {
+				if (listener!=null) {
+					listener.fileLoadCancelled(TextEditorPane.this);
+				}
+				return;
+			}
+			try {
+				get();
+			} catch (InterruptedException | CancellationException e) {
+				// Never happens - the worker is done and wasn't cancelled
+			} catch (ExecutionException ee) {
+				clearAfterAbortedLoad();
+				if (listener!=null) {
+					Throwable cause = ee.getCause();
+					IOException ioe = cause instanceof IOException ?
+						(IOException)cause : new IOException(cause);
+					listener.fileLoadFailed(TextEditorPane.this, ioe);
+				}
+				return;
+			}
+
+			// No IOException thrown, so we can finally change the location.
+			charSet = encoding;
+			if (lineSeparator!=null) {
+				doc.putProperty(RTextAreaEditorKit.EndOfLineStringProperty,
+						lineSeparator);
+			}
+			String old = getFileFullPath();
+			TextEditorPane.this.loc = newLoc;
+			setDirty(false);
+			setCaretPosition(0);
+			discardAllEdits();
+			firePropertyChange(FULL_PATH_PROPERTY, old, getFileFullPath());
+			if (listener!=null) {
+				listener.fileLoadCompleted(TextEditorPane.this);
+			}
+		}
+
+		/**
+		 * Restores the editor's state after this load ends, whether it
+		 * succeeded or not.  Called on the EDT.
+		 */
+		private void finish() {
+			if (!finished) {
+				finished = true;
+				if (isCancelled()) {
+					clearAfterAbortedLoad();
+				}
+				doc.addDocumentListener(TextEditorPane.this);
+				setEditable(wasEditable);
+			}
+		}
+
+		/**
+		 * Empties the document after a cancelled or failed load.
+		 */
+		private void clearAfterAbortedLoad() {
+			doc.removeDocumentListener(TextEditorPane.this);
+			try {
+				doc.remove(0, doc.getLength());
+			} catch (BadLocationException ble) { // Never happens
+				ble.printStackTrace();
+			} finally {
+				doc.addDocumentListener(TextEditorPane.this);
+			}
+			discardAllEdits();
+		}
+
+		/**
+		 * Reads the file, handing off batches of text to the EDT.  Line
+		 * endings are handled as in <code>RTextAreaEditorKit.read()</code>.
+		 */
+		private void readBatches(UnicodeReader r) throws IOException,
+				InterruptedException, InvocationTargetException {
+
+			char[] buf = new char[BATCH_SIZE];
+			int batchSize = FIRST_BATCH_SIZE;
+			LineSeparatorNormalizer normalizer = new LineSeparatorNormalizer();
+			boolean eof = false;
+
+			while (!eof && !isCancelled()) {
+
+				int count = 0;
+				while (count<batchSize) {
+					int n = r.read(buf, count, batchSize - count);
+					if (n==-1) {
+						eof = true;
+						break;
+					}
+					count += n;
+				}
+
+				int len = normalizer.normalize(buf, count, eof);
+				if (len>0) {
+					String text = new String(buf, 0, len);
+					long read = bytesRead;
+					long total = totalBytes;
+					SwingUtilities.invokeAndWait(() ->
+						appendBatch(text, read, total));
+				}
+				batchSize = BATCH_SIZE;
+
+			}
+
+			lineSeparator = normalizer.getLineSeparator();
+
+		}
+
+	}
+
+
+	/**
+	 * Writes a snapshot of this editor's text to a file off the EDT.
+	 */
+	private final class AsyncSaver extends SwingWorker<Void, Void> {
+
+		private final FileLocation newLoc;
+		private final boolean saveAs;
+		private final FileSaveListener listener;
+		private final TextSnapshotWriter writer;
+		private final long snapshotModificationCount;
+
+		private AsyncSaver(FileLocation loc, boolean saveAs,
+						FileSaveListener listener) {
+			this.newLoc = loc;
+			this.saveAs = saveAs;
+			this.listener = listener;
+			this.writer = TextSnapshotWriter.create(
+					(RSyntaxDocument)getDocument(), getEncoding());
+			this.snapshotModificationCount = modificationCount;
+		}
+
+		@Override
+		protected Void doInBackground() throws Exception {
+			long total = writer.getLength();
+			writer.write(newLoc, written -> {
+				if (listener!=null) {
+					SwingUtilities.invokeLater(() -> listener.
+						fileSaveProgress(TextEditorPane.this, written, total));
+				}
+			});
+			return null;
+		}
+
+		@Override
+		protected void done() {
+			try {
+				get();
+			} catch (InterruptedException | CancellationException e) {
+				// Never happens - saves aren't cancelled
+			} catch (ExecutionException ee) {
+				if (listener!=null) {
+					Throwable cause = ee.getCause();
+					IOException ioe = cause instanceof IOException ?
+						(IOException)cause : new IOException(cause);
+					listener.fileSaveFailed(TextEditorPane.this, ioe);
+				}
+				return;
+			}
+
+			if (saveAs) {
+				String old = getFileFullPath();
+				TextEditorPane.this.loc = newLoc;
+				lastSaveOrLoadTime = newLoc.getActualLastModified();
+				firePropertyChange(FULL_PATH_PROPERTY, old, getFileFullPath());
+			}
+			else {
+				syncLastSaveOrLoadTimeToActualFile();
+			}
+			if (modificationCount==snapshotModificationCount) {
+				setDirty(false);
+			}
+			if (listener!=null) {
+				listener.fileSaveCompleted(TextEditorPane.this);
+			}
+		}
+
+	}
+
+
 }
@@ -0,0 +1,342 @@
+/*
+ * 10/19/2026
+ *
+ * TextSnapshotWriter.java - Writes a snapshot of a document's text to a file.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * LICENSE file for details.
+ */
+package org.fife.ui.rsyntaxtextarea;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongConsumer;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Segment;
+
+import org.fife.io.UnicodeWriter;
+import org.fife.ui.rtextarea.RDocument;
+import org.fife.ui.rtextarea.RTextAreaEditorKit;
+import org.fife.ui.rtextarea.TextSnapshot;
+
+
+/**
+ * Writes a snapshot of a document's text to a file.  The snapshot is taken
+ * with {@link RDocument#createTextSnapshot()}, so with a
+ * {@link org.fife.ui.rtextarea.RopeContent} nothing is copied up front.
+ * The text is then encoded and written on any thread without blocking
+ * edits to the document.<p>
+ *
+ * Text is encoded in large chunks, read straight from the snapshot,
+ * directly into a channel.  Local files are
+ * written to a temporary file in the same directory, which is then moved
+ * over the destination file, so an error or crash part-way through never
+ * leaves a truncated file behind.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ */
+final class TextSnapshotWriter {
+
+	/**
+	 * The number of characters encoded at a time.
+	 */
+	private static final int CHUNK_SIZE = 64 * 1024;
+
+	/**
+	 * The size of the buffer encoded bytes are written from.
+	 */
+	private static final int BYTE_BUFFER_SIZE = 256 * 1024;
+
+	/**
+	 * Progress is reported each time this many characters are written.
+	 */
+	private static final int PROGRESS_INTERVAL = 1024 * 1024;
+
+	private final TextSnapshot text;
+	private final String encoding;
+	private final String lineSeparator;
+
+
+	/**
+	 * Constructor.
+	 *
+	 * @param text The text to write.  Lines should be separated by
+	 *        <code>\n</code>.
+	 * @param encoding The encoding to write the text in.
+	 * @param lineSeparator The line separator to write.
+	 */
+	TextSnapshotWriter(TextSnapshot text, String encoding, String lineSeparator) {
+		this.text = text;
+		this.encoding = encoding;
+		this.lineSeparator = lineSeparator;
+	}
+
+
+	/**
+	 * Returns a writer for a snapshot of a document's text.  The line
+	 * separator written is the document's
+	 * {@link RTextAreaEditorKit#EndOfLineStringProperty}, or the system
+	 * default if that property is not set.
+	 *
+	 * @param doc The document.
+	 * @param encoding The encoding to write the text in.
+	 * @return The writer.
+	 */
+	static TextSnapshotWriter create(RDocument doc, String encoding) {
+		Object separator = doc.getProperty(
+					RTextAreaEditorKit.EndOfLineStringProperty);
+		String lineSeparator = separator instanceof String ? (String)separator :
+				System.getProperty("line.separator");
+		return new TextSnapshotWriter(doc.createTextSnapshot(), encoding,
+				lineSeparator);
+	}
+
+
+	/**
+	 * Fetches up to {@link #CHUNK_SIZE} characters of the snapshot, without
+	 * copying them if possible.  A chunk never ends between the two halves
+	 * of a surrogate pair.
+	 */
+	private void getChunk(int offs, Segment chunk) {
+		int length = text.length();
+		try {
+			chunk.setPartialReturn(true);
+			text.getText(offs, Math.min(CHUNK_SIZE, length - offs), chunk);
+			if (offs + chunk.count<length &&
+					Character.isHighSurrogate(chunk.array[chunk.offset + chunk.count - 1])) {
+				if (chunk.count>1) {
+					chunk.count--;
+				}
+				else { // The pair is split between two parts of the snapshot
+					chunk.setPartialReturn(false);
+					text.getText(offs, 2, chunk);
+				}
+			}
+		} catch (BadLocationException ble) { // Never happens
+			throw new InternalError(ble);
+		}
+	}
+
+
+	/**
+	 * Returns the number of characters in the snapshot.
+	 *
+	 * @return The number of characters.
+	 */
+	int getLength() {
+		return text.length();
+	}
+
+
+	/**
+	 * Copies the POSIX permissions of one file to another, if supported.
+	 */
+	private static void copyPermissions(Path from, Path to) {
+		try {
+			Files.setPosixFilePermissions(to, Files.getPosixFilePermissions(from));
+		} catch (UnsupportedOperationException | IOException e) {
+			// Not a POSIX file system, or we can't change the permissions;
+			// the new file keeps the default permissions.
+		}
+	}
+
+
+	/**
+	 * Creates an empty temporary file next to a file.  Unlike
+	 * <code>Files.createTempFile()</code>, the file gets the default
+	 * permissions for new files.
+	 */
+	private static Path createSiblingTempFile(Path file) throws IOException {
+		Path dir = file.toAbsolutePath().getParent();
+		String prefix = "." + file.getFileName() + ".";
+		while (true) {
+			long id = ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE;
+			Path temp = dir.resolve(prefix + id + ".tmp");
+			try {
+				return Files.createFile(temp);
+			} catch (FileAlreadyExistsException e) {
+				// Try another name
+			}
+		}
+	}
+
+
+	/**
+	 * Writes any bytes in a buffer to a channel, and clears the buffer.
+	 */
+	private static void drain(ByteBuffer buf, WritableByteChannel channel)
+			throws IOException {
+		buf.flip();
+		while (buf.hasRemaining()) {
+			channel.write(buf);
+		}
+		buf.clear();
+	}
+
+
+	/**
+	 * Writes the text to a file location.
+	 *
+	 * @param loc The location to write to.
+	 * @param progress Called with the number of characters written so far,
+	 *        periodically and after all text is written.  This is called on
+	 *        the thread calling this method.
+	 * @throws IOException If an IO error occurs.
+	 */
+	void write(FileLocation loc, LongConsumer progress) throws IOException {
+		if (loc.isLocal()) {
+			writeLocal(new File(loc.getFileFullPath()).toPath(), progress);
+		}
+		else {
+			try (WritableByteChannel channel =
+					Channels.newChannel(loc.getOutputStream())) {
+				write(channel, progress);
+			}
+		}
+	}
+
+
+	/**
+	 * Encodes the text into a channel.
+	 *
+	 * @param channel The channel to write to.
+	 * @param progress Called with the number of characters written so far.
+	 * @throws IOException If an IO error occurs.
+	 */
+	void write(WritableByteChannel channel, LongConsumer progress)
+			throws IOException {
+
+		CharsetEncoder encoder = Charset.forName(encoding).newEncoder().
+				onMalformedInput(CodingErrorAction.REPLACE).
+				onUnmappableCharacter(CodingErrorAction.REPLACE);
+		ByteBuffer out = ByteBuffer.allocate(BYTE_BUFFER_SIZE);
+		byte[] bom = UnicodeWriter.getBOM(encoding);
+		if (bom!=null) {
+			out.put(bom);
+		}
+
+		boolean convertSeparators = !"\n".equals(lineSeparator);
+		char[] converted = convertSeparators ?
+			new char[CHUNK_SIZE * lineSeparator.length()] : null;
+		Segment chunk = new Segment();
+		int length = text.length();
+		int offs = 0;
+		long nextProgress = PROGRESS_INTERVAL;
+
+		while (offs<length) {
+
+			getChunk(offs, chunk);
+			int end = offs + chunk.count;
+
+			CharBuffer in;
+			if (convertSeparators) {
+				int count = 0;
+				for (int i=0; i<chunk.count; i++) {
+					char ch = chunk.array[chunk.offset + i];
+					if (ch=='\n') {
+						for (int j=0; j<lineSeparator.length(); j++) {
+							converted[count++] = lineSeparator.charAt(j);
+						}
+					}
+					else {
+						converted[count++] = ch;
+					}
+				}
+				in = CharBuffer.wrap(converted, 0, count);
+			}
+			else {
+				in = CharBuffer.wrap(chunk.array, chunk.offset, chunk.count);
+			}
+
+			boolean endOfInput = end==length;
+			CoderResult result;
+			while ((result = encoder.encode(in, out, endOfInput)).isOverflow()) {
+				drain(out, channel);
+			}
+			if (result.isError()) { // Never happens with REPLACE
+				result.throwException();
+			}
+
+			offs = end;
+			if (offs>=nextProgress && progress!=null) {
+				progress.accept(offs);
+				nextProgress = offs + PROGRESS_INTERVAL;
+			}
+
+		}
+
+		if (length>0) {
+			while (encoder.flush(out).isOverflow()) {
+				drain(out, channel);
+			}
+		}
+		drain(out, channel);
+		if (progress!=null) {
+			progress.accept(length);
+		}
+
+	}
+
+
+	/**
+	 * Writes the text to a temporary file, then moves it over the
+	 * destination file.
+	 */
+	private void writeLocal(Path file, LongConsumer progress)
+			throws IOException {
+
+		boolean exists = Files.exists(file);
+		if (exists) {
+			file = file.toRealPath(); // Replace symlink targets, not links
+			if (!Files.isWritable(file)) {
+				throw new AccessDeniedException(file.toString());
+			}
+		}
+
+		Path temp = createSiblingTempFile(file);
+		boolean moved = false;
+		try {
+			try (FileChannel channel = FileChannel.open(temp,
+					StandardOpenOption.WRITE)) {
+				write(channel, progress);
+				channel.force(true);
+			}
+			if (exists) {
+				copyPermissions(file, temp);
+			}
+			try {
+				Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE,
+						StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+			}
+			moved = true;
+		} finally {
+			if (!moved) {
+				Files.deleteIfExists(temp);
+			}
+		}
+
+	}
+
+
+}
@@ -764,6 +764,56 @@ public class TokenImpl implements Token {
 	}
 
 
+	/**
+	 * Like {@link #listOffsetToView(RSyntaxTextArea, TabExpander, int, int,
+	 * Rectangle)}, but for a token list starting at a fractional
+	 * x-coordinate, e.g. a segment of a very long line.  Widths are summed
+	 * as floats, as when painting, so the returned bounds don't drift from
+	 * where the text is painted.
+	 *
+	 * @param textArea The text area from which the token list was derived.
+	 * @param e How to expand tabs.
+	 * @param pos The position in the document for which to get the bounding
+	 *        box in the view.
+	 * @param x0 The pixel x-location that is the beginning of this token
+	 *        list.
+	 * @param rect The rectangle in which we'll be returning the results.
+	 * @return The bounding box for the specified position in the model.
+	 */
+	Rectangle listOffsetToView(RSyntaxTextArea textArea, TabExpander e,
+			int pos, float x0, Rectangle rect) {
+
+		float stableX = x0;
+		TokenImpl token = this;
+
+		while (token != null && token.isPaintable()) {
+
+			FontMetrics fm = textArea.getFontMetricsForToken(token);
+			if (fm == null) {
+				return rect; // Don't return null as things will error.
+			}
+
+			if (token.containsPosition(pos)) {
+				stableX += token.getWidthUpTo(pos - token.getOffset(),
+						textArea, e, stableX);
+				rect.x = (int)stableX;
+				char ch = token.text[token.documentToToken(pos)];
+				rect.width = fm.charWidth(ch=='\t' ? ' ' : ch);
+				return rect;
+			}
+
+			stableX += token.getWidth(textArea, e, stableX);
+			token = (TokenImpl)token.getNextToken();
+
+		}
+
+		rect.x = (int)stableX;
+		rect.width = 1;
+		return rect;
+
+	}
+
+
 	/**
 	 * Makes this token start at the specified offset into the document.<p>
 	 *
@@ -0,0 +1,184 @@
+/*
+ * 10/19/2026
+ *
+ * TokenRunCoalescer.java - Joins consecutive tokens with the same style.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * LICENSE file for details.
+ */
+package org.fife.ui.rsyntaxtextarea;
+
+
+/**
+ * Joins runs of consecutive tokens that are painted identically, so views
+ * can paint each run with a single call to their token painter.  Lexers
+ * often return adjacent tokens that are styled the same (e.g. whitespace
+ * between identifiers, or a sequence of operators), and painting each one
+ * separately means a separate <code>drawChars()</code> call per token.<p>
+ *
+ * Tokens are only joined when painted by one of the standard token
+ * painters, when they are contiguous in the same text array, and when
+ * their resolved font, foreground and underline are the same and they have
+ * no background.  Since {@link DefaultTokenPainter} doesn't draw anything
+ * for spaces and tabs, tokens containing only those can join a run of any
+ * foreground when painted by it.  Tokens that get tab lines painted, and
+ * those styled by a text area subclass or hyperlink state, are never joined
+ * (see {@link RSyntaxTextArea#getTokenStyleTable(Token)}).  Nothing is
+ * joined when fractional font metrics are enabled, since a run's glyphs
+ * could then drift from where the token-by-token widths used for caret
+ * positions and hit-testing put them.<p>
+ *
+ * A single instance is reused for every run, so a token returned by
+ * {@link #nextRun(Token, int, float, TokenPainter, RSyntaxTextArea, boolean)}
+ * is only valid until the next call.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ */
+final class TokenRunCoalescer {
+
+	/**
+	 * The maximum length of a run.  This keeps a run on a very long line
+	 * from being painted far beyond the clip.
+	 */
+	private static final int MAX_RUN_LENGTH = 256;
+
+	private final TokenImpl run;
+
+
+	TokenRunCoalescer() {
+		run = new TokenImpl();
+	}
+
+
+	/**
+	 * Returns whether a token painter paints tokens only by their resolved
+	 * styles, so joining tokens doesn't change how they're painted.
+	 */
+	private static boolean canCoalesce(TokenPainter painter) {
+		Class<?> c = painter.getClass();
+		return c==DefaultTokenPainter.class ||
+				c==VisibleWhitespaceTokenPainter.class;
+	}
+
+
+	/**
+	 * Returns whether a token can join the current run.
+	 */
+	private static boolean canJoin(Token last, Token t, TokenStyleTable styles,
+			int type, boolean compareForegrounds, boolean paintBG) {
+
+		if (t.getTextArray()!=last.getTextArray() ||
+				t.getTextOffset()!=last.getTextOffset() + last.length() ||
+				t.getOffset()!=last.getEndOffset()) {
+			return false;
+		}
+
+		int type2 = t.getType();
+		return styles.getFont(type2)==styles.getFont(type) &&
+				(!compareForegrounds ||
+					styles.getForeground(type2)==styles.getForeground(type)) &&
+				styles.getUnderline(type2)==styles.getUnderline(type) &&
+				(!paintBG || styles.getBackground(t)==null);
+
+	}
+
+
+	/**
+	 * Returns whether a token contains nothing but spaces and tabs.
+	 */
+	private static boolean isBlank(Token t) {
+		int length = t.length();
+		if (length<=0) { // Empty tokens may not have text
+			return true;
+		}
+		char[] text = t.getTextArray();
+		int end = t.getTextOffset() + length;
+		for (int i=t.getTextOffset(); i<end; i++) {
+			if (text[i]!=' ' && text[i]!='\t') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+
+	/**
+	 * Returns the next thing to paint: either <code>token</code> itself, or
+	 * a token spanning it and the consecutive tokens after it that are
+	 * painted identically.  In either case, the returned token's
+	 * <code>getNextToken()</code> is the token to continue with.
+	 *
+	 * @param token The next token to paint.
+	 * @param endOffs Tokens ending after this document offset are not joined.
+	 * @param x The x-coordinate the token will be painted at.
+	 * @param painter The painter that will paint the token.
+	 * @param host The text area.
+	 * @param paintBG Whether token backgrounds are being painted.
+	 * @return The token or run to paint.
+	 */
+	Token nextRun(Token token, int endOffs, float x, TokenPainter painter,
+			RSyntaxTextArea host, boolean paintBG) {
+
+		Token next = token.getNextToken();
+		if (next==null || !next.isPaintable() || !canCoalesce(painter)) {
+			return token;
+		}
+
+		// Tab lines are painted based on the first token's type and
+		// leading whitespace
+		if (host.getPaintTabLines() && (int)x==host.getMargin().left) {
+			return token;
+		}
+
+		// With fractional metrics, a run's glyphs aren't always positioned
+		// where the per-token widths used for caret positions and
+		// hit-testing put them
+		if (host.getFractionalFontMetricsEnabled()) {
+			return token;
+		}
+
+		TokenStyleTable styles = host.getTokenStyleTable(token);
+		if (styles==null || (paintBG && styles.getBackground(token)!=null)) {
+			return token;
+		}
+
+		// The run is painted as the type of its first visible token
+		boolean blanksInvisible = painter.getClass()==DefaultTokenPainter.class;
+		boolean visible = !blanksInvisible || !isBlank(token);
+		int type = token.getType();
+		Token last = token;
+		int length = token.length();
+
+		while (next!=null && next.isPaintable() && next.getEndOffset()<=endOffs &&
+				length + next.length()<=MAX_RUN_LENGTH &&
+				host.getTokenStyleTable(next)==styles) {
+			boolean nextVisible = !blanksInvisible || !isBlank(next);
+			if (!canJoin(last, next, styles, type, visible && nextVisible,
+					paintBG)) {
+				break;
+			}
+			if (!visible && nextVisible) {
+				type = next.getType();
+				visible = true;
+			}
+			length += next.length();
+			last = next;
+			next = next.getNextToken();
+		}
+
+		if (last==token) {
+			return token;
+		}
+
+		int start = token.getTextOffset();
+		run.set(token.getTextArray(), start, start + length - 1,
+				token.getOffset(), type);
+		run.setLanguageIndex(token.getLanguageIndex());
+		run.setNextToken(next);
+		return run;
+
+	}
+
+
+}
@@ -0,0 +1,35 @@
+/*
+ * 10/19/2026
+ *
+ * TokenSpanHandler.java - Receives the tokens found by a BatchHighlighter.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * LICENSE file for details.
+ */
+package org.fife.ui.rsyntaxtextarea;
+
+
+/**
+ * Receives the tokens found in text by a {@link BatchHighlighter}.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ * @see BatchHighlighter#highlight(CharSequence, String, TokenSpanHandler)
+ */
+@FunctionalInterface
+public interface TokenSpanHandler {
+
+
+	/**
+	 * Called for each token found, in order.  Tokens never span lines, and
+	 * empty tokens are not reported.
+	 *
+	 * @param type The type of token, one of the constants in
+	 *        {@link TokenTypes}.
+	 * @param start The offset of the token in the text.
+	 * @param end The end offset of the token in the text, exclusive.
+	 */
+	void handleSpan(int type, int start, int end);
+
+
+}
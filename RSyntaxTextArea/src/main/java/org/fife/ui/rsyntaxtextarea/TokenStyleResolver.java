@@ -0,0 +1,103 @@
+/*
+ * 10/19/2026
+ *
+ * TokenStyleResolver.java - Determines how tokens are rendered as styled text.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * LICENSE file for details.
+ */
+package org.fife.ui.rsyntaxtextarea;
+
+import java.awt.Color;
+import java.awt.Font;
+
+
+/**
+ * Determines the style of each token when text is converted to HTML or RTF.
+ * This lets the same markup be generated from a live text area or from a
+ * {@link StyledTextSnapshot} of one.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ * @see HtmlUtil
+ * @see RtfGenerator#appendTokens(Token, TokenStyleResolver)
+ */
+interface TokenStyleResolver {
+
+
+	/**
+	 * Returns the background color of a token.
+	 *
+	 * @param t The token.
+	 * @return The background color, or <code>null</code> if the token
+	 *         has no background of its own.
+	 * @see RSyntaxTextArea#getBackgroundForToken(Token)
+	 */
+	Color getBackgroundForToken(Token t);
+
+
+	/**
+	 * Returns the font of a token.
+	 *
+	 * @param t The token.
+	 * @return The font.
+	 * @see RSyntaxTextArea#getFontForToken(Token)
+	 */
+	Font getFontForToken(Token t);
+
+
+	/**
+	 * Returns the foreground color of a token.
+	 *
+	 * @param t The token.
+	 * @return The foreground color.
+	 * @see RSyntaxTextArea#getForegroundForToken(Token)
+	 */
+	Color getForegroundForToken(Token t);
+
+
+	/**
+	 * Returns whether a token is underlined.
+	 *
+	 * @param t The token.
+	 * @return Whether the token is underlined.
+	 * @see RSyntaxTextArea#getUnderlineForToken(Token)
+	 */
+	boolean getUnderlineForToken(Token t);
+
+
+	/**
+	 * Returns a resolver that asks a text area for token styles.  Since
+	 * the text area's methods may be overridden, this is what is used when
+	 * the text area's current styles are wanted.
+	 *
+	 * @param textArea The text area.
+	 * @return The resolver.
+	 */
+	static TokenStyleResolver of(RSyntaxTextArea textArea) {
+		return new TokenStyleResolver() {
+
+			@Override
+			public Color getBackgroundForToken(Token t) {
+				return textArea.getBackgroundForToken(t);
+			}
+
+			@Override
+			public Font getFontForToken(Token t) {
+				return textArea.getFontForToken(t);
+			}
+
+			@Override
+			public Color getForegroundForToken(Token t) {
+				return textArea.getForegroundForToken(t);
+			}
+
+			@Override
+			public boolean getUnderlineForToken(Token t) {
+				return textArea.getUnderlineForToken(t);
+			}
+		};
+	}
+
+
+}
@@ -0,0 +1,283 @@
+/*
+ * 10/19/2026
+ *
+ * TokenStyleTable.java - The resolved painting styles of all token types.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * LICENSE file for details.
+ */
+package org.fife.ui.rsyntaxtextarea;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+
+
+/**
+ * The font, font metrics, colors and underline of every token type in a
+ * text area, resolved against the text area's defaults and laid out in flat
+ * arrays indexed by token type.  Token painters use this to look up a
+ * token's style with a few array reads, instead of going through the
+ * syntax scheme and falling back to the text area's defaults for every
+ * token painted.<p>
+ *
+ * A table is a snapshot.  Since applications are allowed to modify the
+ * <code>Style</code>s of a <code>SyntaxScheme</code> in place, a text area
+ * checks whether its table still matches its scheme with
+ * {@link #matches(SyntaxScheme, Font, FontMetrics, Color, Color[])} each
+ * time it paints, and builds a new one if it doesn't.<p>
+ *
+ * Text areas that override any of the public methods that determine how a
+ * token is styled (e.g.
+ * {@link RSyntaxTextArea#getForegroundForToken(Token)}) don't use a table,
+ * so those overrides are still honored; see {@link #isSupported(Class)}.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ */
+final class TokenStyleTable {
+
+	private final SyntaxScheme scheme;
+	private final Font[] fonts;
+	private final FontMetrics[] fontMetrics;
+	private final Color[] foregrounds;
+	private final Color[] backgrounds;
+	private final boolean[] underlines;
+	private final Color[] secondaryLanguageBackgrounds;
+
+	/**
+	 * The public methods of <code>RSyntaxTextArea</code> that determine how
+	 * a token is painted.
+	 */
+	private static final String[] STYLE_METHODS = {
+		"getBackgroundForToken", "getFontForToken", "getFontMetricsForToken",
+		"getForegroundForToken", "getUnderlineForToken",
+	};
+
+	private static final String[] STYLE_TYPE_METHODS = {
+		"getFontForTokenType", "getFontMetricsForTokenType",
+		"getForegroundForTokenType",
+	};
+
+	private static final ClassValue<Boolean> SUPPORTED =
+			new ClassValue<Boolean>() {
+		@Override
+		protected Boolean computeValue(Class<?> type) {
+			try {
+				for (String method : STYLE_METHODS) {
+					if (type.getMethod(method, Token.class).
+							getDeclaringClass()!=RSyntaxTextArea.class) {
+						return false;
+					}
+				}
+				for (String method : STYLE_TYPE_METHODS) {
+					if (type.getMethod(method, int.class).
+							getDeclaringClass()!=RSyntaxTextArea.class) {
+						return false;
+					}
+				}
+			} catch (NoSuchMethodException nsme) { // Never happens
+				return false;
+			}
+			return true;
+		}
+	};
+
+
+	/**
+	 * Constructor.
+	 *
+	 * @param scheme The syntax scheme.
+	 * @param font The text area's font, used for token types without one.
+	 * @param defaultFontMetrics The metrics of <code>font</code>.
+	 * @param foreground The text area's foreground, used for token types
+	 *        without one.
+	 * @param secondaryLanguageBackgrounds The backgrounds of secondary
+	 *        languages, or <code>null</code> if they aren't highlighted.
+	 */
+	TokenStyleTable(SyntaxScheme scheme, Font font,
+			FontMetrics defaultFontMetrics, Color foreground,
+			Color[] secondaryLanguageBackgrounds) {
+
+		this.scheme = scheme;
+		int count = scheme.getStyleCount();
+		fonts = new Font[count];
+		fontMetrics = new FontMetrics[count];
+		foregrounds = new Color[count];
+		backgrounds = new Color[count];
+		underlines = new boolean[count];
+
+		for (int i=0; i<count; i++) {
+			Style style = scheme.getStyle(i);
+			if (style!=null) {
+				fonts[i] = style.font!=null ? style.font : font;
+				fontMetrics[i] = style.fontMetrics!=null ?
+						style.fontMetrics : defaultFontMetrics;
+				foregrounds[i] = style.foreground!=null ?
+						style.foreground : foreground;
+				backgrounds[i] = style.background;
+				underlines[i] = style.underline;
+			}
+			else {
+				fonts[i] = font;
+				fontMetrics[i] = defaultFontMetrics;
+				foregrounds[i] = foreground;
+			}
+		}
+
+		this.secondaryLanguageBackgrounds =
+				secondaryLanguageBackgrounds!=null ?
+				secondaryLanguageBackgrounds.clone() : null;
+
+	}
+
+
+	/**
+	 * Returns the background to paint a token with.
+	 *
+	 * @param t The token.
+	 * @return The background, or <code>null</code> for none.
+	 * @see RSyntaxTextArea#getBackgroundForToken(Token)
+	 */
+	Color getBackground(Token t) {
+		if (secondaryLanguageBackgrounds!=null) {
+			// 1-indexed, since 0 == main language.
+			int languageIndex = t.getLanguageIndex() - 1;
+			if (languageIndex>=0 &&
+					languageIndex<secondaryLanguageBackgrounds.length) {
+				Color c = secondaryLanguageBackgrounds[languageIndex];
+				if (c!=null) {
+					return c;
+				}
+			}
+		}
+		return backgrounds[t.getType()];
+	}
+
+
+	/**
+	 * Returns the font to paint a token type with.
+	 *
+	 * @param type The token type.
+	 * @return The font.
+	 * @see RSyntaxTextArea#getFontForTokenType(int)
+	 */
+	Font getFont(int type) {
+		return fonts[type];
+	}
+
+
+	/**
+	 * Returns the font metrics of a token type.
+	 *
+	 * @param type The token type.
+	 * @return The font metrics.
+	 * @see RSyntaxTextArea#getFontMetricsForTokenType(int)
+	 */
+	FontMetrics getFontMetrics(int type) {
+		return fontMetrics[type];
+	}
+
+
+	/**
+	 * Returns the foreground to paint a token type with.  This does not take
+	 * into account whether a token is a hyperlink.
+	 *
+	 * @param type The token type.
+	 * @return The foreground.
+	 * @see RSyntaxTextArea#getForegroundForTokenType(int)
+	 */
+	Color getForeground(int type) {
+		return foregrounds[type];
+	}
+
+
+	/**
+	 * Returns whether a token type is underlined.  This does not take into
+	 * account whether a token is a hyperlink.
+	 *
+	 * @param type The token type.
+	 * @return Whether the token type is underlined.
+	 * @see RSyntaxTextArea#getUnderlineForToken(Token)
+	 */
+	boolean getUnderline(int type) {
+		return underlines[type];
+	}
+
+
+	/**
+	 * Returns whether a text area class can use a style table.  This is
+	 * only the case if it doesn't override any of the public methods that
+	 * determine how a token is styled.
+	 *
+	 * @param textAreaClass The text area class.
+	 * @return Whether the class can use a style table.
+	 */
+	static boolean isSupported(Class<? extends RSyntaxTextArea> textAreaClass) {
+		return SUPPORTED.get(textAreaClass);
+	}
+
+
+	/**
+	 * Returns whether this table is still up to date, i.e. whether it is
+	 * what would be built from the given state.  Values are compared by
+	 * identity, so this is cheap enough to call each time a text area
+	 * is painted.
+	 *
+	 * @param scheme The syntax scheme.
+	 * @param font The text area's font.
+	 * @param defaultFontMetrics The metrics of <code>font</code>.
+	 * @param foreground The text area's foreground.
+	 * @param secondaryLanguageBackgrounds The backgrounds of secondary
+	 *        languages, or <code>null</code> if they aren't highlighted.
+	 * @return Whether this table is up to date.
+	 */
+	boolean matches(SyntaxScheme scheme, Font font,
+			FontMetrics defaultFontMetrics, Color foreground,
+			Color[] secondaryLanguageBackgrounds) {
+
+		int count = fonts.length;
+		if (scheme!=this.scheme || scheme.getStyleCount()!=count) {
+			return false;
+		}
+
+		for (int i=0; i<count; i++) {
+			Style style = scheme.getStyle(i);
+			if (style==null) {
+				if (fonts[i]!=font || fontMetrics[i]!=defaultFontMetrics ||
+						foregrounds[i]!=foreground || backgrounds[i]!=null ||
+						underlines[i]) {
+					return false;
+				}
+			}
+			else if (fonts[i]!=(style.font!=null ? style.font : font) ||
+					fontMetrics[i]!=(style.fontMetrics!=null ?
+						style.fontMetrics : defaultFontMetrics) ||
+					foregrounds[i]!=(style.foreground!=null ?
+						style.foreground : foreground) ||
+					backgrounds[i]!=style.background ||
+					underlines[i]!=style.underline) {
+				return false;
+			}
+		}
+
+		if (secondaryLanguageBackgrounds==null) {
+			return this.secondaryLanguageBackgrounds==null;
+		}
+		if (this.secondaryLanguageBackgrounds==null ||
+				this.secondaryLanguageBackgrounds.length!=
+					secondaryLanguageBackgrounds.length) {
+			return false;
+		}
+		for (int i=0; i<secondaryLanguageBackgrounds.length; i++) {
+			if (this.secondaryLanguageBackgrounds[i]!=
+					secondaryLanguageBackgrounds[i]) {
+				return false;
+			}
+		}
+		return true;
+
+	}
+
+
+}
@@ -231,10 +231,23 @@ public final class TokenUtils {
 	 * @return The HTML.
 	 */
 	public static String tokenToHtml(RSyntaxTextArea textArea, Token token) {
+		return tokenToHtml(token, TokenStyleResolver.of(textArea));
+	}
+
+
+	/**
+	 * Generates HTML that renders a token with the style given by a resolver.
+	 *
+	 * @param token The token to get equivalent HTML for.
+	 * @param styles Determines the style of the token.
+	 * @return The HTML.
+	 * @see #tokenToHtml(RSyntaxTextArea, Token)
+	 */
+	static String tokenToHtml(Token token, TokenStyleResolver styles) {
 
 		StringBuilder style = new StringBuilder();
 
-		Font font = textArea.getFontForToken(token);
+		Font font = styles.getFontForToken(token);
 		if (font.isBold()) {
 			style.append("font-weight: bold;");
 		}
@@ -242,7 +255,7 @@ public final class TokenUtils {
 			style.append("font-style: italic;");
 		}
 
-		Color c = textArea.getForegroundForToken(token);
+		Color c = styles.getForegroundForToken(token);
 		style.append("color: ").append(HtmlUtil.getHexString(c)).append(";");
 
 		return "<span style=\"" + style + "\">" +
@@ -61,11 +61,27 @@ public class VisibleWhitespaceTokenPainter extends DefaultTokenPainter {
 		float nextX = x;
 		int flushLen = 0;
 		int flushIndex = textOffs;
-		Color fg = useSTC ? host.getSelectedTextColor() :
-			host.getForegroundForToken(token);
-		Color bg = selected ? null : host.getBackgroundForToken(token);
-		g.setFont(host.getFontForToken(token));
-		FontMetrics fm = host.getFontMetricsForToken(token);
+		int type = token.getType();
+		TokenStyleTable styles = host.getTokenStyleTable(token);
+		Color fg;
+		Color bg;
+		FontMetrics fm;
+		boolean underline;
+		if (styles!=null) {
+			fg = useSTC ? host.getSelectedTextColor() : styles.getForeground(type);
+			bg = selected ? null : styles.getBackground(token);
+			setFont(g, styles.getFont(type));
+			fm = styles.getFontMetrics(type);
+			underline = styles.getUnderline(type);
+		}
+		else {
+			fg = useSTC ? host.getSelectedTextColor() :
+				host.getForegroundForToken(token);
+			bg = selected ? null : host.getBackgroundForToken(token);
+			setFont(g, host.getFontForToken(token));
+			fm = host.getFontMetricsForToken(token);
+			underline = host.getUnderlineForToken(token);
+		}
 
 		int ascent = fm.getAscent();
 		int height = fm.getHeight();
@@ -83,7 +99,7 @@ public class VisibleWhitespaceTokenPainter extends DefaultTokenPainter {
 						paintBackground(x,y, nextTabStop-x,height, g,
 										ascent, host, bg);
 					}
-					g.setColor(fg);
+					setColor(g, fg);
 
 					// Paint chars cached before the tab.
 					if (flushLen > 0) {
@@ -116,7 +132,7 @@ public class VisibleWhitespaceTokenPainter extends DefaultTokenPainter {
 						paintBackground(x,y, nextX-x,height, g,
 										ascent, host, bg);
 					}
-					g.setColor(fg);
+					setColor(g, fg);
 
 					// Paint chars before space.
 					if (flushLen>0) {
@@ -148,12 +164,12 @@ public class VisibleWhitespaceTokenPainter extends DefaultTokenPainter {
 				paintBackground(x,y, nextX-x,height, g,
 							ascent, host, bg);
 			}
-			g.setColor(fg);
+			setColor(g, fg);
 			g.drawChars(text, flushIndex, flushLen, (int)x,(int)y);
 		}
 
-		if (host.getUnderlineForToken(token)) {
-			g.setColor(fg);
+		if (underline) {
+			setColor(g, fg);
 			int y2 = (int)(y+1);
 			g.drawLine(origX,y2, (int)nextX,y2);
 		}
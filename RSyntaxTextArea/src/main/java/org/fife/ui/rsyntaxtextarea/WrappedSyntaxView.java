@@ -74,6 +74,7 @@ public class WrappedSyntaxView extends BoxView implements TabExpander,
 	private FontMetrics metrics;
 	private TokenImpl tempToken;
 	private TokenImpl lineCountTempToken;
+	private TokenRunCoalescer runCoalescer;
 
 	/**
 	 * The width of this view cannot be below this amount, as if the width
@@ -95,6 +96,7 @@ public class WrappedSyntaxView extends BoxView implements TabExpander,
 		drawSeg = new Segment();
 		tempRect = new Rectangle();
 		lineCountTempToken = new TokenImpl();
+		runCoalescer = new TokenRunCoalescer();
 	}
 
 
@@ -252,6 +254,7 @@ public class WrappedSyntaxView extends BoxView implements TabExpander,
 
 			while (token!=null && token.isPaintable() && token.getEndOffset()-1<p) {//<=p) {
 				boolean paintBG = host.getPaintTokenBackgrounds(line, y);
+				token = runCoalescer.nextRun(token, p, x, painter, host, paintBG);
 				x = painter.paint(token, g, x,y, host, this, 0, paintBG);
 				token = token.getNextToken();
 			}
@@ -977,6 +980,59 @@ public class WrappedSyntaxView extends BoxView implements TabExpander,
 	}
 
 
+	/**
+	 * Repaints the visible part of a range of lines.  Since lines wrap, this
+	 * damages everything from the top of the first line to the top of the
+	 * line after the last one.
+	 *
+	 * @param line0 The first line to repaint.
+	 * @param line1 The last line to repaint, inclusive.
+	 * @param a The allocated region of this view.
+	 */
+	private void damageLineRange(int line0, int line1, Shape a) {
+
+		Component c = getContainer();
+		if (!(c instanceof RSyntaxTextArea)) {
+			if (c!=null) {
+				c.repaint();
+			}
+			return;
+		}
+
+		Rectangle visible = ((RSyntaxTextArea)c).getVisibleRect();
+		if (a==null) { // Not yet painted
+			c.repaint(visible.x, visible.y, visible.width, visible.height);
+			return;
+		}
+		Rectangle alloc = a.getBounds();
+		Element map = getElement();
+		try {
+			Shape s0 = modelToView(map.getElement(line0).getStartOffset(),
+					alloc, Bias.Forward);
+			int y1 = alloc.y + alloc.height;
+			if (line1 + 1<map.getElementCount()) {
+				Shape s1 = modelToView(map.getElement(line1 + 1).getStartOffset(),
+						alloc, Bias.Forward);
+				y1 = s1!=null ? s1.getBounds().y : y1;
+			}
+			int y0 = s0!=null ? s0.getBounds().y : y1;
+			if (y1>y0) { // Not collapsed in a fold, etc.
+				Rectangle dmg = new Rectangle(alloc.x, y0, alloc.width, y1 - y0);
+				dmg = dmg.intersection(visible);
+				if (!dmg.isEmpty()) {
+					c.repaint(dmg.x, dmg.y, dmg.width, dmg.height);
+				}
+				return;
+			}
+		} catch (BadLocationException ble) { // Never happens
+			ble.printStackTrace();
+		}
+
+		c.repaint(visible.x, visible.y, visible.width, visible.height);
+
+	}
+
+
 	/**
 	 * Update the child views in response to a
 	 * document event.
@@ -990,9 +1046,19 @@ public class WrappedSyntaxView extends BoxView implements TabExpander,
 		// (i.e. beginning a multiline comment).
 		if (e.getType()==DocumentEvent.EventType.CHANGE) {
 			//System.err.println("Updating the damage due to a CHANGE event...");
-			// FIXME:  Make me repaint more intelligently.
-			getContainer().repaint();
-			//damageLineRange(startLine,endLine, a, host);
+			int startLine;
+			int endLine;
+			if (e instanceof RSyntaxDocument.LineRangeChangeEvent) {
+				RSyntaxDocument.LineRangeChangeEvent lrce =
+						(RSyntaxDocument.LineRangeChangeEvent)e;
+				startLine = lrce.getFirstLine();
+				endLine = lrce.getLastLine();
+			}
+			else {
+				startLine = elem.getElementIndex(e.getOffset());
+				endLine = elem.getElementIndex(e.getOffset() + e.getLength());
+			}
+			damageLineRange(startLine, endLine, a);
 		}
 
 		else if (ec != null) {
@@ -229,6 +229,33 @@ public class Gutter extends JPanel {
 	}
 
 
+	/**
+	 * Adds many icons that track lines in the document at once, e.g. for
+	 * breakpoints or code coverage markers.  This is much faster than adding
+	 * them one at a time, and only repaints once.
+	 *
+	 * @param lines The lines to track (zero-based).
+	 * @param icon The icon to display.  This should be small (say 16x16).
+	 * @param tip An optional tool tip for the icons.
+	 * @return Tags for the icons, in the same order as <code>lines</code>.
+	 *         These can later be used in a call to
+	 *         {@link #removeTrackingIcons(GutterIconInfo[])} to remove the
+	 *         icons.
+	 * @throws BadLocationException If any line is an invalid line number.
+	 *         In this case no icons are added.
+	 * @see #addOffsetTrackingIcons(int[], Icon, String)
+	 * @see #removeTrackingIcons(GutterIconInfo[])
+	 */
+	public GutterIconInfo[] addLineTrackingIcons(int[] lines, Icon icon, String tip)
+											throws BadLocationException {
+		int[] offsets = new int[lines.length];
+		for (int i=0; i<lines.length; i++) {
+			offsets[i] = textArea.getLineStartOffset(lines[i]);
+		}
+		return addOffsetTrackingIcons(offsets, icon, tip);
+	}
+
+
 	/**
 	 * Adds an icon that tracks an offset in the document, and is displayed
 	 * adjacent to the line numbers.  This is useful for marking things such
@@ -270,6 +297,25 @@ public class Gutter extends JPanel {
 	}
 
 
+	/**
+	 * Adds many icons that track offsets in the document at once.  This is
+	 * much faster than adding them one at a time, and only repaints once.
+	 *
+	 * @param offsets The offsets to track.
+	 * @param icon The icon to display.  This should be small (say 16x16).
+	 * @param tip An optional tool tip for the icons.
+	 * @return Tags for the icons, in the same order as <code>offsets</code>.
+	 * @throws BadLocationException If any offset is an invalid offset into
+	 *         the text area.  In this case no icons are added.
+	 * @see #addLineTrackingIcons(int[], Icon, String)
+	 * @see #removeTrackingIcons(GutterIconInfo[])
+	 */
+	public GutterIconInfo[] addOffsetTrackingIcons(int[] offsets, Icon icon, String tip)
+												throws BadLocationException {
+		return iconArea.addOffsetTrackingIcons(offsets, icon, tip);
+	}
+
+
 	/**
 	 * Clears the active line range.
 	 *
@@ -593,6 +639,19 @@ public class Gutter extends JPanel {
 	}
 
 
+	/**
+	 * Removes many tracking icons at once.
+	 *
+	 * @param tags Tags for icons in the gutter, as returned from e.g.
+	 *        {@link #addLineTrackingIcons(int[], Icon, String)}.
+	 * @see #removeTrackingIcon(GutterIconInfo)
+	 * @see #removeAllTrackingIcons()
+	 */
+	public void removeTrackingIcons(GutterIconInfo[] tags) {
+		iconArea.removeTrackingIcons(tags);
+	}
+
+
 	/**
 	 * Sets the color to use to render active line ranges.
 	 *
@@ -18,7 +18,9 @@ import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 
 import javax.swing.Icon;
 import javax.swing.JPanel;
@@ -176,6 +178,68 @@ public class IconRowHeader extends AbstractGutterComponent implements MouseListe
 	}
 
 
+	/**
+	 * Adds many icons that track offsets in the document at once.  This is
+	 * much faster than adding them one at a time, and only repaints once.
+	 *
+	 * @param offsets The offsets to track.  These do not need to be sorted.
+	 * @param icon The icon to display.  This should be small (say 16x16).
+	 * @param tip A tool tip for the icons.
+	 * @return Tags for the icons, in the same order as <code>offsets</code>.
+	 * @throws BadLocationException If any offset is an invalid offset into
+	 *         the text area.  In this case no icons are added.
+	 * @see #removeTrackingIcons(GutterIconInfo[])
+	 */
+	public GutterIconInfo[] addOffsetTrackingIcons(int[] offsets, Icon icon, String tip)
+												throws BadLocationException {
+
+		Document doc = textArea.getDocument();
+		for (int offs : offsets) {
+			if (offs < 0 || offs > doc.getLength()) {
+				throw new BadLocationException("Offset " + offs + " not in " +
+					"required range of 0-" + doc.getLength(), offs);
+			}
+		}
+
+		GutterIconInfo[] tags = new GutterIconInfo[offsets.length];
+		List<GutterIconImpl> added = new ArrayList<>(offsets.length);
+		for (int i=0; i<offsets.length; i++) {
+			GutterIconImpl ti = new GutterIconImpl(icon, doc.createPosition(offsets[i]), tip);
+			tags[i] = ti;
+			added.add(ti);
+		}
+		if (added.isEmpty()) {
+			return tags;
+		}
+		Collections.sort(added);
+
+		// Merge the new icons into the existing ones.  New icons go after
+		// existing ones at the same offset, so they're painted instead
+		if (trackingIcons==null || trackingIcons.isEmpty()) {
+			trackingIcons = added;
+		}
+		else {
+			List<GutterIconImpl> merged = new ArrayList<>(trackingIcons.size() + added.size());
+			int i = 0;
+			int j = 0;
+			while (i<trackingIcons.size() && j<added.size()) {
+				if (added.get(j).compareTo(trackingIcons.get(i))<0) {
+					merged.add(added.get(j++));
+				}
+				else {
+					merged.add(trackingIcons.get(i++));
+				}
+			}
+			merged.addAll(trackingIcons.subList(i, trackingIcons.size()));
+			merged.addAll(added.subList(j, added.size()));
+			trackingIcons = merged;
+		}
+
+		repaint();
+		return tags;
+	}
+
+
 	/**
 	 * Clears the active line range.
 	 *
@@ -283,6 +347,33 @@ public class IconRowHeader extends AbstractGutterComponent implements MouseListe
 	}
 
 
+	/**
+	 * Returns the index of the first tracking icon at or after an offset.
+	 * Tracking icons are kept sorted by offset, and since edits never
+	 * reorder their positions, they stay sorted as the document changes.
+	 * This lets painting and hit-testing only look at icons on the lines
+	 * they care about.
+	 *
+	 * @param offs The offset.
+	 * @return The index of the icon.  This will be the number of tracking
+	 *         icons if they are all before <code>offs</code>.
+	 */
+	protected int getFirstTrackingIconIndexAtOrAfter(int offs) {
+		int low = 0;
+		int high = trackingIcons==null ? 0 : trackingIcons.size();
+		while (low<high) {
+			int mid = (low + high) >>> 1;
+			if (trackingIcons.get(mid).getMarkedOffset()<offs) {
+				low = mid + 1;
+			}
+			else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+
 	/**
 	 * Returns the tracking icons at the specified line.
 	 *
@@ -302,7 +393,7 @@ public class IconRowHeader extends AbstractGutterComponent implements MouseListe
 			if (line==textArea.getLineCount()-1) {
 				end++; // Hack
 			}
-			for (int i=0; i<trackingIcons.size(); i++) {
+			for (int i=getFirstTrackingIconIndexAtOrAfter(start); i<trackingIcons.size(); i++) {
 				GutterIconImpl ti = getTrackingIcon(i);
 				int offs = ti.getMarkedOffset();
 				if (offs>=start && offs<end) {
@@ -469,7 +560,9 @@ public class IconRowHeader extends AbstractGutterComponent implements MouseListe
 
 		if (trackingIcons!=null) {
 			int lastLine = bottomLine;
-			for (int i=trackingIcons.size()-1; i>=0; i--) { // Last to first
+			int end = lastLine+1<root.getElementCount() ?
+					root.getElement(lastLine+1).getStartOffset() : Integer.MAX_VALUE;
+			for (int i=getFirstTrackingIconIndexAtOrAfter(end)-1; i>=0; i--) { // Last to first
 				GutterIconInfo ti = getTrackingIcon(i);
 				int offs = ti.getMarkedOffset();
 				if (offs>=0 && offs<=doc.getLength()) {
@@ -569,7 +662,8 @@ public class IconRowHeader extends AbstractGutterComponent implements MouseListe
 		// Get the first possibly visible icon index.
 		int currentIcon = -1;
 		if (trackingIcons!=null) {
-			for (int i=0; i<trackingIcons.size(); i++) {
+			int start = root.getElement(topLine).getStartOffset();
+			for (int i=getFirstTrackingIconIndexAtOrAfter(start); i<trackingIcons.size(); i++) {
 				GutterIconImpl icon = getTrackingIcon(i);
 				int offs = icon.getMarkedOffset();
 				if (offs>=0 && offs<=doc.getLength()) {
@@ -651,8 +745,38 @@ public class IconRowHeader extends AbstractGutterComponent implements MouseListe
 	 * @see #addOffsetTrackingIcon(int, Icon)
 	 */
 	public void removeTrackingIcon(GutterIconInfo tag) {
-		if (trackingIcons!=null && trackingIcons.remove(tag)) {
-			repaint();
+		if (trackingIcons!=null && tag!=null) {
+			int offs = tag.getMarkedOffset();
+			for (int i=getFirstTrackingIconIndexAtOrAfter(offs); i<trackingIcons.size(); i++) {
+				GutterIconImpl ti = getTrackingIcon(i);
+				if (ti==tag) {
+					trackingIcons.remove(i);
+					repaint();
+					break;
+				}
+				else if (ti.getMarkedOffset()>offs) {
+					break;
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Removes many tracking icons at once.  This is much faster than
+	 * removing them one at a time, and only repaints once.
+	 *
+	 * @param tags Tags for tracking icons.
+	 * @see #removeTrackingIcon(GutterIconInfo)
+	 * @see #addOffsetTrackingIcons(int[], Icon, String)
+	 */
+	public void removeTrackingIcons(GutterIconInfo[] tags) {
+		if (trackingIcons!=null && tags.length>0) {
+			Set<GutterIconInfo> toRemove = Collections.newSetFromMap(new IdentityHashMap<>(tags.length));
+			Collections.addAll(toRemove, tags);
+			if (trackingIcons.removeIf(toRemove::contains)) {
+				repaint();
+			}
 		}
 	}
 
@@ -10,15 +10,25 @@ package org.fife.ui.rtextarea;
 
 import java.awt.Color;
 import java.awt.Graphics;
+import java.awt.Point;
 import java.awt.Rectangle;
 import java.util.*;
 
 import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Element;
 import javax.swing.text.Position;
 
 
 /**
- * Manages line highlights in an <code>RTextArea</code>.
+ * Manages line highlights in an <code>RTextArea</code>.<p>
+ *
+ * Highlights are kept sorted by offset.  Each one tracks its line with a
+ * <code>Position</code>, and since edits never reorder positions, the list
+ * stays sorted as the document changes.  This lets the highlights on the
+ * visible lines be found with a binary search, so painting doesn't depend
+ * on how many highlights there are elsewhere in the document, and lets
+ * many highlights be added or removed at once in linear time.
  *
  * @author Robert Futrell
  * @version 1.0
@@ -68,6 +78,91 @@ class LineHighlightManager {
 	}
 
 
+	/**
+	 * Highlights many lines at once.  This is much faster than highlighting
+	 * them one at a time, and only repaints once.
+	 *
+	 * @param lines The lines to highlight.  These do not need to be sorted.
+	 * @param color The color to highlight with.
+	 * @return Tags for the highlights, in the same order as
+	 *         <code>lines</code>.
+	 * @throws BadLocationException If any line is not a valid line number.
+	 *         In this case no highlights are added.
+	 * @see #removeLineHighlights(Collection)
+	 */
+	public List<Object> addLineHighlights(int[] lines, Color color)
+									throws BadLocationException {
+
+		Document doc = textArea.getDocument();
+		Element root = doc.getDefaultRootElement();
+		for (int line : lines) {
+			if (line<0 || line>=root.getElementCount()) {
+				throw new BadLocationException("Invalid line: " + line, -1);
+			}
+		}
+
+		List<Object> tags = new ArrayList<>(lines.length);
+		List<LineHighlightInfo> added = new ArrayList<>(lines.length);
+		for (int line : lines) {
+			int offs = root.getElement(line).getStartOffset();
+			LineHighlightInfo lhi = new LineHighlightInfo(doc.createPosition(offs), color);
+			tags.add(lhi);
+			added.add(lhi);
+		}
+		if (added.isEmpty()) {
+			return tags;
+		}
+		added.sort(comparator);
+
+		// Merge the new highlights into the existing ones
+		if (lineHighlights==null || lineHighlights.isEmpty()) {
+			lineHighlights = added;
+		}
+		else {
+			List<LineHighlightInfo> merged = new ArrayList<>(lineHighlights.size() + added.size());
+			int i = 0;
+			int j = 0;
+			while (i<lineHighlights.size() && j<added.size()) {
+				if (comparator.compare(added.get(j), lineHighlights.get(i))<0) {
+					merged.add(added.get(j++));
+				}
+				else {
+					merged.add(lineHighlights.get(i++));
+				}
+			}
+			merged.addAll(lineHighlights.subList(i, lineHighlights.size()));
+			merged.addAll(added.subList(j, added.size()));
+			lineHighlights = merged;
+		}
+
+		repaintLines(added.get(0).getOffset(), added.get(added.size()-1).getOffset());
+		return tags;
+	}
+
+
+	/**
+	 * Returns the index of the first highlight at or after an offset.
+	 *
+	 * @param offs The offset.
+	 * @return The index of the highlight.  This will be the number of
+	 *         highlights if they are all before <code>offs</code>.
+	 */
+	private int getFirstHighlightIndexAtOrAfter(int offs) {
+		int low = 0;
+		int high = lineHighlights.size();
+		while (low<high) {
+			int mid = (low + high) >>> 1;
+			if (lineHighlights.get(mid).getOffset()<offs) {
+				low = mid + 1;
+			}
+			else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+
 	/**
 	 * Returns the current line highlights' tags.
 	 *
@@ -106,7 +201,12 @@ class LineHighlightManager {
 
 			try {
 
-				for (int i=0; i<count; i++) {
+				// Start at the first highlight on the first visible line
+				Element root = textArea.getDocument().getDefaultRootElement();
+				int firstVisibleOffs = textArea.viewToModel(new Point(0, vr.y));
+				int start = root.getElement(root.getElementIndex(firstVisibleOffs)).getStartOffset();
+
+				for (int i=getFirstHighlightIndexAtOrAfter(start); i<count; i++) {
 					LineHighlightInfo lhi = lineHighlights.get(i);
 					int offs = lhi.getOffset();
 					if (offs>=0 && offs<=docLen) {
@@ -151,9 +251,51 @@ class LineHighlightManager {
 	 * @see #addLineHighlight(int, Color)
 	 */
 	public void removeLineHighlight(Object tag) {
-		if (tag instanceof LineHighlightInfo) {
-			lineHighlights.remove(tag);
-			repaintLine((LineHighlightInfo)tag);
+		if (tag instanceof LineHighlightInfo && lineHighlights!=null) {
+			LineHighlightInfo lhi = (LineHighlightInfo)tag;
+			int offs = lhi.getOffset();
+			for (int i=getFirstHighlightIndexAtOrAfter(offs); i<lineHighlights.size(); i++) {
+				LineHighlightInfo lhi2 = lineHighlights.get(i);
+				if (lhi2==lhi) {
+					lineHighlights.remove(i);
+					repaintLine(lhi);
+					break;
+				}
+				else if (lhi2.getOffset()>offs) {
+					break;
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Removes many line highlights at once.  This is much faster than
+	 * removing them one at a time, and only repaints once.
+	 *
+	 * @param tags The tags of the line highlights to remove.
+	 * @see #addLineHighlights(int[], Color)
+	 */
+	public void removeLineHighlights(Collection<?> tags) {
+
+		if (lineHighlights==null || tags.isEmpty()) {
+			return;
+		}
+
+		Set<Object> toRemove = Collections.newSetFromMap(new IdentityHashMap<>(tags.size()));
+		toRemove.addAll(tags);
+		int[] range = { Integer.MAX_VALUE, -1 };
+		lineHighlights.removeIf(lhi -> {
+			if (toRemove.contains(lhi)) {
+				range[0] = Math.min(range[0], lhi.getOffset());
+				range[1] = Math.max(range[1], lhi.getOffset());
+				return true;
+			}
+			return false;
+		});
+
+		if (range[1]>-1) {
+			repaintLines(range[0], range[1]);
 		}
 	}
 
@@ -180,6 +322,29 @@ class LineHighlightManager {
 	}
 
 
+	/**
+	 * Repaints the lines containing a range of offsets.
+	 *
+	 * @param startOffs The start of the range.
+	 * @param endOffs The end of the range.
+	 */
+	private void repaintLines(int startOffs, int endOffs) {
+		int docLen = textArea.getDocument().getLength();
+		try {
+			int y1 = textArea.yForLineContaining(Math.min(startOffs, docLen));
+			int y2 = textArea.yForLineContaining(Math.min(endOffs, docLen));
+			if (y1>-1 && y2>-1) {
+				textArea.repaint(0, y1, textArea.getWidth(), y2 - y1 + textArea.getLineHeight());
+			}
+			else { // Part of the range is folded
+				textArea.repaint();
+			}
+		} catch (BadLocationException ble) {
+			ble.printStackTrace(); // Never happens
+		}
+	}
+
+
 	/**
 	 * Information about a line highlight.
 	 */
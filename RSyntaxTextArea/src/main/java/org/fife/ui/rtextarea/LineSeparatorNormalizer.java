@@ -0,0 +1,96 @@
+/*
+ * 10/19/2026
+ *
+ * LineSeparatorNormalizer.java - Converts line separators read from a file.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * LICENSE file for details.
+ */
+package org.fife.ui.rtextarea;
+
+
+/**
+ * Converts <code>\r\n</code> and lone <code>\r</code> line separators to
+ * <code>\n</code> in text read in chunks, remembering which separator was
+ * found.  This is the same conversion done by
+ * <code>RTextAreaEditorKit.read()</code>, for code that reads text in large
+ * chunks instead.<p>
+ *
+ * A <code>\r</code> at the end of one chunk may be followed by a
+ * <code>\n</code> at the start of the next, so a chunk's trailing
+ * <code>\r</code> is only written when the next chunk, or the end of the
+ * text, is seen.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ * @see RDocument#load(java.io.Reader)
+ */
+public final class LineSeparatorNormalizer {
+
+	private boolean lastWasCR;
+	private boolean isCRLF;
+	private boolean isCR;
+
+
+	/**
+	 * Returns the line separator found in the text normalized so far.
+	 *
+	 * @return <code>"\r\n"</code> or <code>"\r"</code> if either was
+	 *         found, otherwise <code>"\n"</code>.
+	 */
+	public String getLineSeparator() {
+		if (isCRLF) {
+			return "\r\n";
+		}
+		else if (isCR) {
+			return "\r";
+		}
+		return "\n";
+	}
+
+
+	/**
+	 * Normalizes the line separators in a chunk of text, in place.  The
+	 * result is never longer than the chunk, except that an empty last
+	 * chunk becomes <code>\n</code> if the previous chunk ended with
+	 * <code>\r</code>.
+	 *
+	 * @param buf The chunk of text.  This must not be empty.
+	 * @param count The number of characters in the chunk.
+	 * @param end Whether this is the end of the text.  <code>count</code>
+	 *        may be <code>0</code>.
+	 * @return The number of characters in the normalized chunk.
+	 */
+	public int normalize(char[] buf, int count, boolean end) {
+
+		int len = 0;
+		for (int i=0; i<count; i++) {
+			char ch = buf[i];
+			if (lastWasCR) {
+				lastWasCR = false;
+				buf[len++] = '\n';
+				if (ch=='\n') {
+					isCRLF = true;
+					continue;
+				}
+				isCR = true;
+			}
+			if (ch=='\r') {
+				lastWasCR = true;
+			}
+			else {
+				buf[len++] = ch;
+			}
+		}
+
+		if (end && lastWasCR) {
+			lastWasCR = false;
+			buf[len++] = '\n';
+			isCR = true;
+		}
+		return len;
+
+	}
+
+
+}
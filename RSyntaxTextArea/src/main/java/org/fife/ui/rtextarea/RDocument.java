@@ -8,9 +8,30 @@
  */
 package org.fife.ui.rtextarea;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Vector;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.UndoableEditEvent;
+import javax.swing.text.AbstractDocument;
 import javax.swing.text.BadLocationException;
+import javax.swing.text.DefaultEditorKit;
 import javax.swing.text.GapContent;
 import javax.swing.text.PlainDocument;
+import javax.swing.text.Segment;
+import javax.swing.undo.AbstractUndoableEdit;
+import javax.swing.undo.CannotRedoException;
+import javax.swing.undo.CannotUndoException;
+import javax.swing.undo.CompoundEdit;
+import javax.swing.undo.UndoableEdit;
 
 
 /**
@@ -21,12 +42,63 @@ import javax.swing.text.PlainDocument;
  */
 public class RDocument extends PlainDocument {
 
+	/**
+	 * The number of characters read at a time by {@link #load(Reader)}.
+	 */
+	private static final int LOAD_BUFFER_SIZE = 1024 * 1024;
 
 	/**
-	 * Constructor.
+	 * The size of the buffers used when compressing removed text.
+	 */
+	private static final int COMPRESSION_BUFFER_SIZE = 8192;
+
+	/**
+	 * Incremented whenever text is inserted or removed.
+	 */
+	private volatile long version;
+
+	/**
+	 * Trackers of ranges of this document, e.g. for highlights.  This is
+	 * <code>null</code> until one is added.
+	 */
+	private transient List<RangeTracker<?>> rangeTrackers;
+
+
+	/**
+	 * Constructor.  The document's text is stored in a gap buffer.
 	 */
 	public RDocument() {
-		super(new RGapContent());
+		this(null);
+	}
+
+
+	/**
+	 * Constructor.
+	 *
+	 * @param content The storage for the document's text.  If this is
+	 *        <code>null</code>, a gap buffer (an extension of
+	 *        <code>GapContent</code>) is used, which is best for most
+	 *        documents.  For large documents edited in many places at once,
+	 *        a {@link RopeContent} can be much faster.  Other
+	 *        implementations work, but don't support
+	 *        {@link #setUndoCompressionThreshold(int) undo compression}.
+	 */
+	public RDocument(AbstractDocument.Content content) {
+		super(content!=null ? content : new RGapContent());
+	}
+
+
+	/**
+	 * Adds a tracker to update as this document is edited.
+	 *
+	 * @param tracker The tracker.
+	 * @see #removeRangeTracker(RangeTracker)
+	 */
+	void addRangeTracker(RangeTracker<?> tracker) {
+		if (rangeTrackers==null) {
+			rangeTrackers = new ArrayList<>(1);
+		}
+		rangeTrackers.add(tracker);
 	}
 
 
@@ -38,16 +110,419 @@ public class RDocument extends PlainDocument {
 	 * @throws BadLocationException If the offset is invalid.
 	 */
 	public char charAt(int offset) throws BadLocationException {
-		return ((RGapContent)getContent()).charAt(offset);
+		Content content = getContent();
+		if (content instanceof RDocumentContent) {
+			return ((RDocumentContent)content).charAt(offset);
+		}
+		if (offset<0 || offset>=content.length()) {
+			throw new BadLocationException("Invalid offset", offset);
+		}
+		Segment s = new Segment();
+		content.getChars(offset, 1, s);
+		return s.first();
+	}
+
+
+	/**
+	 * Returns a compressed copy of text, for keeping in an undoable edit.
+	 * The text is stored as deflated UTF-16 so any <code>char</code>
+	 * sequence round-trips exactly.
+	 *
+	 * @param content The content containing the text.
+	 * @param offset The offset of the text.
+	 * @param length The length of the text.
+	 * @return The compressed text.
+	 * @throws BadLocationException If the range is invalid.
+	 * @see #decompressText(byte[], int)
+	 */
+	static byte[] compressText(AbstractDocument.Content content, int offset, int length)
+			throws BadLocationException {
+		ByteArrayOutputStream bytes =
+				new ByteArrayOutputStream(length / 4 + 16);
+		Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+		try (DeflaterOutputStream out = new DeflaterOutputStream(bytes,
+				deflater, COMPRESSION_BUFFER_SIZE)) {
+			byte[] buf = new byte[COMPRESSION_BUFFER_SIZE];
+			Segment s = new Segment();
+			s.setPartialReturn(true);
+			int offs = offset;
+			int end = offset + length;
+			while (offs<end) {
+				content.getChars(offs, end - offs, s);
+				int count = 0;
+				for (int i=0; i<s.count; i++) {
+					char ch = s.array[s.offset + i];
+					buf[count++] = (byte)(ch>>8);
+					buf[count++] = (byte)ch;
+					if (count==buf.length) {
+						out.write(buf, 0, count);
+						count = 0;
+					}
+				}
+				out.write(buf, 0, count);
+				offs += s.count;
+			}
+		} catch (IOException ioe) { // Never happens
+			throw new InternalError(ioe);
+		} finally {
+			deflater.end();
+		}
+		return bytes.toByteArray();
+	}
+
+
+	/**
+	 * Returns an immutable snapshot of this document's text.  The snapshot
+	 * can be read from any thread without holding this document's lock,
+	 * e.g. by a long-running background parser.  Use
+	 * {@link #getVersion()} to tell whether the document has changed since
+	 * the snapshot was taken.<p>
+	 *
+	 * With a {@link RopeContent}, taking a snapshot is <code>O(1)</code>:
+	 * the snapshot shares the content's storage, and the few parts of it
+	 * that later edits touch are copied.  Other content implementations are
+	 * copied when the snapshot is taken.
+	 *
+	 * @return The snapshot.
+	 */
+	public TextSnapshot createTextSnapshot() {
+		readLock();
+		try {
+			Content content = getContent();
+			if (content instanceof RDocumentContent) {
+				return ((RDocumentContent)content).createSnapshot();
+			}
+			return TextSnapshot.copyOf(content);
+		} finally {
+			readUnlock();
+		}
+	}
+
+
+	/**
+	 * Decompresses text compressed by
+	 * {@link #compressText(AbstractDocument.Content, int, int)}.
+	 *
+	 * @param compressed The compressed text.
+	 * @param length The length of the text, in characters.
+	 * @return The text.
+	 */
+	static char[] decompressText(byte[] compressed, int length) {
+		byte[] bytes = new byte[2 * length];
+		Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(compressed);
+			int count = 0;
+			while (count<bytes.length && !inflater.finished()) {
+				count += inflater.inflate(bytes, count,
+										bytes.length - count);
+			}
+		} catch (DataFormatException dfe) { // Never happens
+			throw new InternalError(dfe);
+		} finally {
+			inflater.end();
+		}
+		char[] chars = new char[length];
+		for (int i=0; i<length; i++) {
+			chars[i] = (char)(((bytes[2*i]&0xff)<<8) |
+								(bytes[2*i + 1]&0xff));
+		}
+		return chars;
+	}
+
+
+	/**
+	 * Overridden to update this document's version and range trackers
+	 * before listeners are notified.  This is called for undo and redo as
+	 * well as for insertions.
+	 *
+	 * @param e The event.
+	 * @see #getVersion()
+	 */
+	@Override
+	protected void fireInsertUpdate(DocumentEvent e) {
+		version++;
+		if (rangeTrackers!=null) {
+			for (RangeTracker<?> tracker : rangeTrackers) {
+				tracker.insertUpdate(e.getOffset(), e.getLength());
+			}
+		}
+		super.fireInsertUpdate(e);
+	}
+
+
+	/**
+	 * Overridden to update this document's version and range trackers
+	 * before listeners are notified.  This is called for undo and redo as
+	 * well as for removals.
+	 *
+	 * @param e The event.
+	 * @see #getVersion()
+	 */
+	@Override
+	protected void fireRemoveUpdate(DocumentEvent e) {
+		version++;
+		if (rangeTrackers!=null) {
+			for (RangeTracker<?> tracker : rangeTrackers) {
+				tracker.removeUpdate(e.getOffset(), e.getLength());
+			}
+		}
+		super.fireRemoveUpdate(e);
+	}
+
+
+	/**
+	 * Returns the approximate number of bytes of text held by the undoable
+	 * edit created by the most recent removal from this document.  This
+	 * is used by {@link RUndoManager} to track the memory used by its
+	 * edits.
+	 *
+	 * @return The size of the most recent removal's undoable edit, or
+	 *         <code>-1</code> if it isn't known.
+	 */
+	long getLastRemoveUndoSize() {
+		Content content = getContent();
+		return content instanceof RDocumentContent ?
+				((RDocumentContent)content).getLastRemoveUndoSize() : -1;
+	}
+
+
+	/**
+	 * Returns the minimum length of removed text that is compressed in the
+	 * undo history.
+	 *
+	 * @return The threshold, in characters, or <code>0</code> if removed
+	 *         text is never compressed.
+	 * @see #setUndoCompressionThreshold(int)
+	 */
+	public int getUndoCompressionThreshold() {
+		Content content = getContent();
+		return content instanceof RDocumentContent ?
+				((RDocumentContent)content).getUndoCompressionThreshold() : 0;
+	}
+
+
+	/**
+	 * Returns the version of this document's text.  The version changes
+	 * whenever text is inserted or removed, so comparing it to a version
+	 * read earlier tells whether the text has changed.  This method can be
+	 * called from any thread, without holding this document's lock.
+	 *
+	 * @return The version.
+	 * @see #createTextSnapshot()
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+
+	/**
+	 * Inserts characters into content.
+	 *
+	 * @param content The content.
+	 * @param where The offset to insert at.
+	 * @param chars The characters to insert, starting at index 0.
+	 * @param length The number of characters to insert.
+	 * @param edits If <code>content</code> isn't an
+	 *        {@link RDocumentContent}, the undoable edit for the insertion
+	 *        is added to this list.
+	 * @throws BadLocationException If <code>where</code> is invalid.
+	 */
+	private static void insertChars(Content content, int where, char[] chars, int length,
+			List<UndoableEdit> edits) throws BadLocationException {
+		if (content instanceof RDocumentContent) {
+			((RDocumentContent)content).insertChars(where, chars, length);
+		}
+		else if (length>0) {
+			edits.add(content.insertString(where, new String(chars, 0, length)));
+		}
+	}
+
+
+	/**
+	 * Replaces the content of this document with text read from a reader.
+	 * This is a fast path for loading large files:  text is copied
+	 * straight into the document's content in large chunks, and the line
+	 * structure is built in a single pass after all text is read.  Instead
+	 * of one event per chunk, a single insert event covering the entire
+	 * content is fired.<p>
+	 *
+	 * If the document isn't empty, its old content is removed first, so
+	 * listeners get a remove event for it before the insert event; Swing's
+	 * document events have no way to describe a replacement as a single
+	 * change.  The undo history gets a single edit for the whole load,
+	 * though, so one undo restores the old content.<p>
+	 *
+	 * As with <code>RTextAreaEditorKit.read()</code>, <code>\r\n</code>
+	 * and <code>\r</code> line endings are converted to <code>\n</code>,
+	 * and the document's
+	 * {@link DefaultEditorKit#EndOfLineStringProperty line separator property}
+	 * is set to the separator found in the text.<p>
+	 *
+	 * The document's write lock is held while the reader is read from, and
+	 * any <code>DocumentFilter</code> is bypassed.  If an IO error occurs,
+	 * the text read so far is left in the document.
+	 *
+	 * @param in The reader to read from.  This is not closed.
+	 * @throws IOException If an IO error occurs.
+	 */
+	public void load(Reader in) throws IOException {
+
+		Content content = getContent();
+		RDocumentContent rContent = content instanceof RDocumentContent ?
+				(RDocumentContent)content : null;
+		List<UndoableEdit> edits = rContent==null ? new ArrayList<>() : null;
+		DefaultDocumentEvent removeForLoad = null;
+		char[] buff = new char[LOAD_BUFFER_SIZE];
+		LineSeparatorNormalizer normalizer = new LineSeparatorNormalizer();
+		int len = 0;
+
+		writeLock();
+		try {
+
+			removeForLoad = removeAllForLoad();
+
+			try {
+
+				boolean eof = false;
+				while (!eof) {
+					int nch = in.read(buff, 0, buff.length);
+					eof = nch==-1;
+					int count = normalizer.normalize(buff, Math.max(nch, 0), eof);
+					insertChars(content, len, buff, count, edits);
+					len += count;
+				}
+
+			} finally {
+				// Even on an IO error, make the line structure consistent
+				// with the content that was read
+				UndoableEdit edit = removeForLoad;
+				if (len>0) {
+					DefaultDocumentEvent e = new DefaultDocumentEvent(0, len,
+											DocumentEvent.EventType.INSERT);
+					if (rContent!=null) {
+						e.addEdit(rContent.createInsertEdit(0, len));
+					}
+					else {
+						edits.forEach(e::addEdit);
+					}
+					insertUpdate(e, null);
+					e.end();
+					fireInsertUpdate(e);
+					if (edit!=null) {
+						CompoundEdit replace = new CompoundEdit();
+						replace.addEdit(edit);
+						replace.addEdit(e);
+						replace.end();
+						edit = replace;
+					}
+					else {
+						edit = e;
+					}
+				}
+				if (edit!=null) {
+					fireUndoableEditUpdate(new UndoableEditEvent(this, edit));
+				}
+			}
+
+		} catch (BadLocationException ble) { // Never happens
+			throw new IOException(ble.getMessage(), ble);
+		} finally {
+			writeUnlock();
+		}
+
+		putProperty(DefaultEditorKit.EndOfLineStringProperty,
+				normalizer.getLineSeparator());
+
+	}
+
+
+	/**
+	 * Removes all text for {@link #load(Reader)}, as <code>remove()</code>
+	 * would, except that the undoable edit is returned rather than fired.
+	 * This must be called with the write lock held.
+	 *
+	 * @return The removal, or <code>null</code> if this document is empty.
+	 * @throws BadLocationException Never.
+	 */
+	private DefaultDocumentEvent removeAllForLoad() throws BadLocationException {
+		int len = getLength();
+		if (len==0) {
+			return null;
+		}
+		DefaultDocumentEvent e = new DefaultDocumentEvent(0, len,
+										DocumentEvent.EventType.REMOVE);
+		removeUpdate(e);
+		UndoableEdit u = getContent().remove(0, len);
+		if (u!=null) {
+			e.addEdit(u);
+		}
+		postRemoveUpdate(e);
+		e.end();
+		fireRemoveUpdate(e);
+		return e;
+	}
+
+
+	/**
+	 * Removes a tracker added via {@link #addRangeTracker(RangeTracker)}.
+	 *
+	 * @param tracker The tracker.
+	 */
+	void removeRangeTracker(RangeTracker<?> tracker) {
+		if (rangeTrackers!=null) {
+			rangeTrackers.remove(tracker);
+		}
+	}
+
+
+	/**
+	 * Sets the minimum length of removed text that is compressed in the
+	 * undo history.  Every removal from a document creates an undoable
+	 * edit holding the removed text, so for example a "replace all" over
+	 * a large file can hold on to a copy of the entire file.  Compressing
+	 * large removals trades some CPU time when the text is removed (and
+	 * when the removal is undone) for a much smaller undo history.<p>
+	 *
+	 * By default, removed text is never compressed.  Removed text is never
+	 * compressed if this document's content isn't the default one or a
+	 * {@link RopeContent}.
+	 *
+	 * @param threshold The threshold, in characters.  A value less than or
+	 *        equal to <code>0</code> means removed text is never compressed.
+	 * @see #getUndoCompressionThreshold()
+	 * @see RTextArea#setUndoMemoryLimit(long)
+	 */
+	public void setUndoCompressionThreshold(int threshold) {
+		Content content = getContent();
+		if (content instanceof RDocumentContent) {
+			((RDocumentContent)content).setUndoCompressionThreshold(threshold);
+		}
 	}
 
 
 	/**
-	 * Document content that provides fast access to individual characters.
+	 * Document content that provides fast access to individual characters,
+	 * and that can compress large removed text in its undoable edits.
 	 */
-	private static final class RGapContent extends GapContent {
+	private static final class RGapContent extends GapContent implements RDocumentContent {
+
+		private static final char[] NO_CHARS = new char[0];
+
+		/**
+		 * Removals of at least this many characters are compressed, or
+		 * <code>0</code> for never.
+		 */
+		private int undoCompressionThreshold;
+
+		/**
+		 * The number of bytes of text held by the most recent removal's
+		 * undoable edit.
+		 */
+		private long lastRemoveUndoSize;
 
-		protected char charAt(int offset) throws BadLocationException {
+		@Override
+		public char charAt(int offset) throws BadLocationException {
 			if (offset<0 || offset>=length()) {
 				throw new BadLocationException("Invalid offset", offset);
 			}
@@ -59,6 +534,160 @@ public class RDocument extends PlainDocument {
 			return array[getGapEnd() + offset - g0]; // above gap
 		}
 
+		@Override
+		public UndoableEdit createInsertEdit(int offset, int length) {
+			return new CharsInsertUndo(offset, length);
+		}
+
+		@Override
+		public TextSnapshot createSnapshot() {
+			return TextSnapshot.copyOf(this);
+		}
+
+		@Override
+		public long getLastRemoveUndoSize() {
+			return lastRemoveUndoSize;
+		}
+
+		@Override
+		public int getUndoCompressionThreshold() {
+			return undoCompressionThreshold;
+		}
+
+		@Override
+		public void insertChars(int where, char[] chars, int length)
+				throws BadLocationException {
+			if (where>length() || where<0) {
+				throw new BadLocationException("Invalid insert", length());
+			}
+			if (length>0) {
+				replace(where, 0, chars, length);
+			}
+		}
+
+		@Override
+		public void setUndoCompressionThreshold(int threshold) {
+			undoCompressionThreshold = Math.max(0, threshold);
+		}
+
+		/**
+		 * Removes text without creating an undoable edit.
+		 */
+		private void removeChars(int where, int nitems) {
+			replace(where, nitems, NO_CHARS, 0);
+		}
+
+		@Override
+		public UndoableEdit remove(int where, int nitems)
+				throws BadLocationException {
+			if (undoCompressionThreshold==0 ||
+					nitems<undoCompressionThreshold) {
+				lastRemoveUndoSize = 2L * nitems;
+				return super.remove(where, nitems);
+			}
+			if (where<0 || where+nitems>=length()) {
+				throw new BadLocationException("Invalid remove", length() + 1);
+			}
+			CompressedRemoveUndo edit = new CompressedRemoveUndo(where, nitems);
+			removeChars(where, nitems);
+			lastRemoveUndoSize = edit.compressed.length;
+			return edit;
+		}
+
+		/**
+		 * An undoable edit for removed text, holding a compressed copy of
+		 * that text.  This mirrors <code>GapContent</code>'s own
+		 * (package-private) remove edit.  The text is stored as deflated
+		 * UTF-16 so any <code>char</code> sequence round-trips exactly.
+		 */
+		private final class CompressedRemoveUndo extends AbstractUndoableEdit {
+
+			private int offset;
+			private int length;
+			private byte[] compressed;
+			private Vector<?> posRefs;
+
+			private CompressedRemoveUndo(int offset, int length)
+					throws BadLocationException {
+				this.offset = offset;
+				this.length = length;
+				compressed = compressText(RGapContent.this, offset, length);
+				posRefs = getPositionsInRange(null, offset, length);
+			}
+
+			@Override
+			public void undo() throws CannotUndoException {
+				super.undo();
+				try {
+					insertChars(offset, decompressText(compressed, length), length);
+					// Update the Positions that were in the range removed.
+					if (posRefs!=null) {
+						updateUndoPositions(posRefs, offset, length);
+						posRefs = null;
+					}
+				} catch (BadLocationException ble) {
+					throw new CannotUndoException();
+				}
+			}
+
+			@Override
+			public void redo() throws CannotRedoException {
+				super.redo();
+				// The compressed text is unchanged, so just remove it again
+				posRefs = getPositionsInRange(null, offset, length);
+				removeChars(offset, length);
+			}
+
+		}
+
+		/**
+		 * An undoable edit for text inserted via
+		 * {@link #insertChars(int, char[], int)}.  This mirrors
+		 * <code>GapContent</code>'s own (package-private) insert edit.
+		 */
+		private final class CharsInsertUndo extends AbstractUndoableEdit {
+
+			private int offset;
+			private int length;
+			private String string;
+			private Vector<?> posRefs;
+
+			private CharsInsertUndo(int offset, int length) {
+				this.offset = offset;
+				this.length = length;
+			}
+
+			@Override
+			public void undo() throws CannotUndoException {
+				super.undo();
+				try {
+					// Get the Positions in the range being removed.
+					posRefs = getPositionsInRange(null, offset, length);
+					string = getString(offset, length);
+					removeChars(offset, length);
+				} catch (BadLocationException ble) {
+					throw new CannotUndoException();
+				}
+			}
+
+			@Override
+			public void redo() throws CannotRedoException {
+				super.redo();
+				try {
+					insertString(offset, string);
+					string = null;
+					// Update the Positions that were in the range removed.
+					if (posRefs!=null) {
+						updateUndoPositions(posRefs, offset, length);
+						posRefs = null;
+					}
+				} catch (BadLocationException ble) {
+					throw new CannotRedoException();
+				}
+			}
+
+		}
+
 	}
 
 
@@ -0,0 +1,98 @@
+/*
+ * 10/19/2026
+ *
+ * RDocumentContent.java - Content implementations RDocument can take shortcuts with.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * LICENSE file for details.
+ */
+package org.fife.ui.rtextarea;
+
+import javax.swing.text.AbstractDocument;
+import javax.swing.text.BadLocationException;
+import javax.swing.undo.UndoableEdit;
+
+
+/**
+ * Document content that {@link RDocument} can access directly, rather than
+ * only through the <code>AbstractDocument.Content</code> interface.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ */
+interface RDocumentContent extends AbstractDocument.Content {
+
+
+	/**
+	 * Returns the character at the specified offset.
+	 *
+	 * @param offset The offset of the character.
+	 * @return The character.
+	 * @throws BadLocationException If the offset is invalid.
+	 */
+	char charAt(int offset) throws BadLocationException;
+
+
+	/**
+	 * Returns an undoable edit for text inserted via
+	 * {@link #insertChars(int, char[], int)}.
+	 *
+	 * @param offset The offset the text was inserted at.
+	 * @param length The length of the inserted text.
+	 * @return The undoable edit.
+	 */
+	UndoableEdit createInsertEdit(int offset, int length);
+
+
+	/**
+	 * Returns an immutable snapshot of the text.
+	 *
+	 * @return The snapshot.
+	 */
+	TextSnapshot createSnapshot();
+
+
+	/**
+	 * Returns the approximate number of bytes of text held by the undoable
+	 * edit created by the most recent removal.
+	 *
+	 * @return The size of the most recent removal's undoable edit.
+	 */
+	long getLastRemoveUndoSize();
+
+
+	/**
+	 * Returns the minimum length of removed text that is compressed in the
+	 * undoable edits of removals.
+	 *
+	 * @return The threshold, in characters, or <code>0</code> for never.
+	 * @see #setUndoCompressionThreshold(int)
+	 */
+	int getUndoCompressionThreshold();
+
+
+	/**
+	 * Inserts characters without creating an intermediate
+	 * <code>String</code> or an undoable edit.
+	 *
+	 * @param where The offset to insert at.
+	 * @param chars The characters to insert, starting at index 0.
+	 * @param length The number of characters to insert.
+	 * @throws BadLocationException If <code>where</code> is invalid.
+	 * @see #createInsertEdit(int, int)
+	 */
+	void insertChars(int where, char[] chars, int length) throws BadLocationException;
+
+
+	/**
+	 * Sets the minimum length of removed text that is compressed in the
+	 * undoable edits of removals.
+	 *
+	 * @param threshold The threshold, in characters, or <code>0</code> for
+	 *        never.
+	 * @see #getUndoCompressionThreshold()
+	 */
+	void setUndoCompressionThreshold(int threshold);
+
+
+}
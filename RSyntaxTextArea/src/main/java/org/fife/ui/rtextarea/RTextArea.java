@@ -19,6 +19,7 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Reader;
+import java.util.Collection;
 import java.util.List;
 import java.util.Locale;
 import java.util.ResourceBundle;
@@ -164,6 +165,8 @@ public class RTextArea extends RTextAreaBase implements Printable {
 
 	private transient RUndoManager undoManager;
 
+	private long undoMemoryLimit;
+
 	private transient LineHighlightManager lineHighlightManager;
 
 	private SmartHighlightPainter markAllHighlightPainter;
@@ -288,6 +291,28 @@ public class RTextArea extends RTextAreaBase implements Printable {
 	}
 
 
+	/**
+	 * Adds many line highlights at once, e.g. for code coverage or diff
+	 * markers.  This is much faster than adding them one at a time.
+	 *
+	 * @param lines The lines to highlight.  These are zero-based.
+	 * @param color The color to use for the line highlights.
+	 * @return Opaque tags that can be used to remove the highlights later,
+	 *         in the same order as <code>lines</code>.
+	 * @throws BadLocationException If any line is an invalid line number.
+	 *         In this case no highlights are added.
+	 * @see #removeLineHighlights(Collection)
+	 * @see #removeAllLineHighlights()
+	 */
+	public List<Object> addLineHighlights(int[] lines, Color color)
+										throws BadLocationException {
+		if (lineHighlightManager==null) {
+			lineHighlightManager = new LineHighlightManager(this);
+		}
+		return lineHighlightManager.addLineHighlights(lines, color);
+	}
+
+
 	/**
 	 * Begins an "atomic edit."  All text editing operations between this call
 	 * and the next call to <tt>endAtomicEdit()</tt> will be treated as a
@@ -835,6 +860,30 @@ public class RTextArea extends RTextAreaBase implements Printable {
 	}
 
 
+	/**
+	 * Returns the approximate maximum amount of memory the undo history can
+	 * use.
+	 *
+	 * @return The limit, in bytes, or <code>0</code> if there is no limit.
+	 * @see #setUndoMemoryLimit(long)
+	 * @see #getUndoMemoryUsage()
+	 */
+	public long getUndoMemoryLimit() {
+		return undoMemoryLimit;
+	}
+
+
+	/**
+	 * Returns the approximate amount of memory used by the undo history.
+	 *
+	 * @return The memory usage, in bytes.
+	 * @see #setUndoMemoryLimit(long)
+	 */
+	public long getUndoMemoryUsage() {
+		return undoManager.getMemoryUsage();
+	}
+
+
 	/**
 	 * Returns the tool tip supplier.
 	 *
@@ -966,14 +1015,10 @@ public class RTextArea extends RTextAreaBase implements Printable {
 		if (h!=null) {
 
 			if (ranges!=null) {
-				for (DocumentRange range : ranges) {
-					try {
-						h.addMarkAllHighlight(
-								range.getStartOffset(), range.getEndOffset(),
-								markAllHighlightPainter);
-					} catch (BadLocationException ble) {
-						ble.printStackTrace();
-					}
+				try {
+					h.addMarkAllHighlights(ranges, markAllHighlightPainter);
+				} catch (BadLocationException ble) {
+					ble.printStackTrace();
 				}
 			}
 
@@ -1095,7 +1140,15 @@ public class RTextArea extends RTextAreaBase implements Printable {
 		}
 		try {
 			// NOTE:  Resets the "line separator" property.
-			kit.read(in, doc, 0);
+			// A bulk load would bypass any DocumentFilter
+			if (doc instanceof RDocument &&
+					((RDocument)doc).getDocumentFilter()==null) {
+				// Bulk load - a single document event for the whole file
+				((RDocument)doc).load(in);
+			}
+			else {
+				kit.read(in, doc, 0);
+			}
 		} catch (BadLocationException e) {
 			throw new IOException(e.getMessage());
 		}
@@ -1169,6 +1222,21 @@ public class RTextArea extends RTextAreaBase implements Printable {
 	}
 
 
+	/**
+	 * Removes many line highlights at once.  This is much faster than
+	 * removing them one at a time.
+	 *
+	 * @param tags The tags of the line highlights to remove.
+	 * @see #removeAllLineHighlights()
+	 * @see #addLineHighlights(int[], Color)
+	 */
+	public void removeLineHighlights(Collection<?> tags) {
+		if (lineHighlightManager!=null) {
+			lineHighlightManager.removeLineHighlights(tags);
+		}
+	}
+
+
 	/**
 	 * Replaces text from the indicated start to end position with the
 	 * new text specified.  Does nothing if the model is null.  Simply
@@ -1661,6 +1729,27 @@ public class RTextArea extends RTextAreaBase implements Printable {
 	}
 
 
+	/**
+	 * Sets the approximate maximum amount of memory the undo history can
+	 * use.  When this limit is exceeded, the oldest edits are discarded.
+	 * Note that the most recent edit is never discarded, even if it exceeds
+	 * the limit by itself.<p>
+	 *
+	 * For documents with large edits, also consider
+	 * {@link RDocument#setUndoCompressionThreshold(int)}.
+	 *
+	 * @param limit The limit, in bytes.  A value less than or equal to
+	 *        <code>0</code> means there is no limit (the default).
+	 * @see #getUndoMemoryLimit()
+	 * @see #getUndoMemoryUsage()
+	 */
+	public void setUndoMemoryLimit(long limit) {
+		undoMemoryLimit = Math.max(0, limit);
+		undoManager.trimForMemoryLimit();
+		undoManager.updateActions();
+	}
+
+
 	/**
 	 * Sets the UI used by this text area.  This is overridden so only the
 	 * right-click popup menu's UI is updated.  The look and feel of an
@@ -12,13 +12,15 @@ import java.awt.Color;
 import java.awt.Graphics;
 import java.awt.Rectangle;
 import java.awt.Shape;
+import java.beans.PropertyChangeListener;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 import javax.swing.plaf.TextUI;
 import javax.swing.plaf.basic.BasicTextUI.BasicHighlighter;
 import javax.swing.text.BadLocationException;
-import javax.swing.text.Document;
 import javax.swing.text.Highlighter;
 import javax.swing.text.JTextComponent;
 import javax.swing.text.LayeredHighlighter;
@@ -45,17 +47,32 @@ public class RTextAreaHighlighter extends BasicHighlighter {
 	 */
 	protected RTextArea textArea;
 
+	/**
+	 * All highlights tracked by {@link TrackedHighlights}, which follow the
+	 * text area's document.
+	 */
+	private final List<TrackedHighlights<?>> trackedHighlights = new ArrayList<>();
+
+	/**
+	 * Moves tracked highlights to the text area's new document.
+	 */
+	private final PropertyChangeListener documentListener = e -> {
+		for (TrackedHighlights<?> highlights : trackedHighlights) {
+			highlights.setDocument((RDocument)e.getNewValue());
+		}
+	};
+
 	/**
 	 * The "mark all" highlights (to be painted separately from other
 	 * highlights).
 	 */
-	private List<HighlightInfo> markAllHighlights;
+	private TrackedHighlights<HighlightInfoImpl> markAllHighlights;
 
 	/**
 	 * Constructor.
 	 */
 	public RTextAreaHighlighter() {
-		markAllHighlights = new ArrayList<>();
+		markAllHighlights = new TrackedHighlights<>();
 	}
 
 
@@ -71,41 +88,65 @@ public class RTextAreaHighlighter extends BasicHighlighter {
 	 */
 	Object addMarkAllHighlight(int start, int end, HighlightPainter p)
 			throws BadLocationException {
-		Document doc = textArea.getDocument();
 		TextUI mapper = textArea.getUI();
 		// Always layered highlights for marked occurrences.
 		HighlightInfoImpl i = new LayeredHighlightInfoImpl();
 		i.setPainter(p);
-		i.p0 = doc.createPosition(start);
-		// HACK: Use "end-1" to prevent chars the user types at the "end" of
-		// the highlight to be absorbed into the highlight (default Highlight
-		// behavior).
-		i.p1 = doc.createPosition(end-1);
-		markAllHighlights.add(i);
+		markAllHighlights.add(i, start, end);
 		mapper.damageRange(textArea, start, end);
 		return i;
 	}
 
 
+	/**
+	 * Adds many "mark all" highlights at once.  This is much faster than
+	 * adding them one at a time.
+	 *
+	 * @param ranges The ranges to highlight.
+	 * @param p The highlight painter.
+	 * @throws BadLocationException If one of the ranges is invalid.  In this
+	 *         case, no highlights are added.
+	 * @see #addMarkAllHighlight(int, int, javax.swing.text.Highlighter.HighlightPainter)
+	 */
+	void addMarkAllHighlights(List<DocumentRange> ranges, HighlightPainter p)
+			throws BadLocationException {
+
+		List<HighlightInfoImpl> infos = new ArrayList<>(ranges.size());
+		int start = Integer.MAX_VALUE;
+		int end = -1;
+		for (DocumentRange range : ranges) {
+			HighlightInfoImpl i = new LayeredHighlightInfoImpl();
+			i.setPainter(p);
+			infos.add(i);
+			start = Math.min(start, range.getStartOffset());
+			end = Math.max(end, range.getEndOffset());
+		}
+
+		markAllHighlights.addAll(infos, ranges);
+		if (end>-1) {
+			textArea.getUI().damageRange(textArea, start, end);
+		}
+
+	}
+
+
 	/**
 	 * Removes all "mark all" highlights from the view.
 	 *
 	 * @see #addMarkAllHighlight(int, int, javax.swing.text.Highlighter.HighlightPainter)
 	 */
 	void clearMarkAllHighlights() {
-		// Don't remove via an iterator; since our List is an ArrayList, this
-		// implies tons of System.arrayCopy()s
-		for (HighlightInfo info : markAllHighlights) {
-			repaintListHighlight(info);
-		}
 		markAllHighlights.clear();
 	}
 
 
 	@Override
 	public void deinstall(JTextComponent c) {
+		c.removePropertyChangeListener("document", documentListener);
+		for (TrackedHighlights<?> highlights : trackedHighlights) {
+			highlights.setDocument(null);
+		}
 		this.textArea = null;
-		markAllHighlights.clear();
 	}
 
 
@@ -129,7 +170,7 @@ public class RTextAreaHighlighter extends BasicHighlighter {
 	public List<DocumentRange> getMarkAllHighlightRanges() {
 		List<DocumentRange> list = new ArrayList<>(
 			markAllHighlights.size());
-		for (HighlightInfo info : markAllHighlights) {
+		for (HighlightInfo info : markAllHighlights.getHighlights()) {
 			int start = info.getStartOffset();
 			int end = info.getEndOffset() + 1; // HACK
 			DocumentRange range = new DocumentRange(start, end);
@@ -143,6 +184,10 @@ public class RTextAreaHighlighter extends BasicHighlighter {
 	public void install(JTextComponent c) {
 		super.install(c);
 		this.textArea = (RTextArea)c;
+		for (TrackedHighlights<?> highlights : trackedHighlights) {
+			highlights.setDocument((RDocument)c.getDocument());
+		}
+		c.addPropertyChangeListener("document", documentListener);
 	}
 
 
@@ -168,6 +213,28 @@ public class RTextAreaHighlighter extends BasicHighlighter {
 	}
 
 
+	/**
+	 * Paints the tracked highlights overlapping a view.  Only those
+	 * highlights are visited, so this is fast no matter how many highlights
+	 * there are.
+	 *
+	 * @param g Graphics used to draw
+	 * @param lineStart starting offset of view
+	 * @param lineEnd ending offset of view
+	 * @param viewBounds Bounds of View
+	 * @param editor JTextComponent
+	 * @param view View instance being rendered
+	 * @param highlights The highlights to paint.
+	 * @see #paintListLayered(Graphics, int, int, Shape, JTextComponent, View, List)
+	 */
+	protected void paintListLayered(Graphics g, int lineStart, int lineEnd,
+			Shape viewBounds, JTextComponent editor, View view,
+			TrackedHighlights<?> highlights) {
+		paintListLayered(g, lineStart, lineEnd, viewBounds, editor, view,
+				highlights.getHighlightsOverlapping(lineStart, lineEnd));
+	}
+
+
 	protected void paintListLayered(Graphics g, int lineStart, int lineEnd,
 			Shape viewBounds, JTextComponent editor, View view,
 			List<? extends HighlightInfo> highlights) {
@@ -240,6 +307,13 @@ public class RTextAreaHighlighter extends BasicHighlighter {
 		private Position p1;
 		private Highlighter.HighlightPainter painter;
 
+		/**
+		 * The range of this highlight if it's in a {@link TrackedHighlights},
+		 * in which case its offsets come from the range instead of
+		 * <code>p0</code> and <code>p1</code>.
+		 */
+		private RangeTracker.Range<?> range;
+
 		/** To be extended by subclasses. */
 		public Color getColor() {
 			return null;
@@ -247,12 +321,14 @@ public class RTextAreaHighlighter extends BasicHighlighter {
 
 		@Override
 		public int getStartOffset() {
-			return p0.getOffset();
+			return range!=null ? range.getStartOffset() : p0.getOffset();
 		}
 
 		@Override
 		public int getEndOffset() {
-			return p1.getOffset();
+			// Tracked ranges never absorb text typed at their end, so mimic
+			// the "end-1" Position hack used by layered highlights
+			return range!=null ? range.getEndOffset() - 1 : p1.getOffset();
 		}
 
 		@Override
@@ -352,4 +428,212 @@ public class RTextAreaHighlighter extends BasicHighlighter {
 	}
 
 
+	/**
+	 * A group of highlights whose offsets are kept up to date by a
+	 * {@link RangeTracker} rather than by <code>Position</code>s, so that
+	 * adding, removing and painting very many of them stays fast.  The
+	 * highlights follow the text area to new documents.<p>
+	 *
+	 * Like "end-1" layered highlights, text typed at either end of a
+	 * highlight is not added to it.
+	 *
+	 * @param <T> The type of highlight.
+	 */
+	protected final class TrackedHighlights<T extends HighlightInfoImpl> {
+
+		private RangeTracker<T> tracker;
+
+		/**
+		 * Constructor.  The highlights are tracked in the text area's
+		 * document while this highlighter is installed.
+		 */
+		public TrackedHighlights() {
+			trackedHighlights.add(this);
+		}
+
+		/**
+		 * Adds a highlight.
+		 *
+		 * @param info The highlight.  It shouldn't be in any other group.
+		 * @param start The start offset of the highlight.
+		 * @param end The end offset of the highlight, exclusive.
+		 * @throws BadLocationException If the range is invalid.
+		 * @see #addAll(List, List)
+		 */
+		public void add(T info, int start, int end) throws BadLocationException {
+			RangeTracker.Range<T> range = new RangeTracker.Range<>(start, end, info);
+			tracker.add(range);
+			setRange(info, range);
+		}
+
+		/**
+		 * Adds many highlights at once.  This is much faster than adding them
+		 * one at a time.
+		 *
+		 * @param infos The highlights.  They shouldn't be in any other group.
+		 * @param ranges The range of each highlight.
+		 * @throws BadLocationException If a range is invalid.  In this case,
+		 *         no highlights are added.
+		 * @see #add(HighlightInfoImpl, int, int)
+		 */
+		public void addAll(List<? extends T> infos, List<DocumentRange> ranges)
+				throws BadLocationException {
+			List<RangeTracker.Range<T>> toAdd = new ArrayList<>(infos.size());
+			for (int i=0; i<infos.size(); i++) {
+				DocumentRange range = ranges.get(i);
+				toAdd.add(new RangeTracker.Range<>(range.getStartOffset(),
+						range.getEndOffset(), infos.get(i)));
+			}
+			tracker.addAll(toAdd);
+			for (RangeTracker.Range<T> range : toAdd) {
+				setRange(range.getValue(), range);
+			}
+		}
+
+		/**
+		 * Removes all highlights, repainting the areas they covered.
+		 */
+		public void clear() {
+			if (tracker!=null) {
+				for (RangeTracker.Range<T> range : tracker.getRanges()) {
+					repaintListHighlight(range.getValue());
+				}
+				tracker.clear();
+			}
+		}
+
+		/**
+		 * Returns all highlights.
+		 *
+		 * @return The highlights, sorted by start offset.  This is a copy.
+		 */
+		public List<T> getHighlights() {
+			return tracker!=null ? toValues(tracker.getRanges()) : new ArrayList<>(0);
+		}
+
+		/**
+		 * Returns the highlights that may need to be painted in part of the
+		 * document.
+		 *
+		 * @param start The start offset of the part of the document.
+		 * @param end The end offset of the part of the document, exclusive.
+		 * @return The highlights overlapping that part, sorted by start
+		 *         offset.
+		 */
+		public List<T> getHighlightsOverlapping(int start, int end) {
+			if (tracker==null || tracker.size()==0) {
+				return Collections.emptyList();
+			}
+			return toValues(tracker.getRangesOverlapping(start, end));
+		}
+
+		/**
+		 * Removes a highlight, repainting the area it covered.
+		 *
+		 * @param info The highlight.
+		 * @return Whether the highlight was in this group.
+		 * @see #removeAll(Collection)
+		 */
+		@SuppressWarnings("unchecked")
+		public boolean remove(HighlightInfo info) {
+			if (tracker!=null && info instanceof HighlightInfoImpl) {
+				RangeTracker.Range<?> range = ((HighlightInfoImpl)info).range;
+				if (range!=null && tracker.remove((RangeTracker.Range<T>)range)) {
+					repaintListHighlight(info);
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * Removes many highlights at once, repainting the areas they covered.
+		 * This is much faster than removing them one at a time.
+		 *
+		 * @param infos The highlights.  Highlights not in this group are
+		 *        ignored.
+		 * @see #remove(HighlightInfo)
+		 */
+		@SuppressWarnings("unchecked")
+		public void removeAll(Collection<? extends HighlightInfo> infos) {
+			if (tracker==null) {
+				return;
+			}
+			List<RangeTracker.Range<T>> toRemove = new ArrayList<>(infos.size());
+			for (HighlightInfo info : infos) {
+				if (info instanceof HighlightInfoImpl) {
+					RangeTracker.Range<?> range = ((HighlightInfoImpl)info).range;
+					if (range!=null && range.isTracked()) {
+						repaintListHighlight(info);
+						toRemove.add((RangeTracker.Range<T>)range);
+					}
+				}
+			}
+			tracker.removeAll(toRemove);
+		}
+
+		/**
+		 * Moves the highlights to a new document.  Their offsets are kept as
+		 * they are, but limited to the new document's length.
+		 *
+		 * @param doc The new document, or <code>null</code> to stop
+		 *        tracking the highlights.
+		 */
+		void setDocument(RDocument doc) {
+
+			if (tracker!=null && tracker.getDocument()==doc) {
+				return;
+			}
+
+			List<RangeTracker.Range<T>> old = Collections.emptyList();
+			if (tracker!=null) {
+				old = tracker.getRanges();
+				tracker.dispose();
+				tracker = null;
+			}
+
+			if (doc!=null) {
+				tracker = new RangeTracker<>(doc);
+				int max = doc.getLength() + 1;
+				List<RangeTracker.Range<T>> moved = new ArrayList<>(old.size());
+				for (RangeTracker.Range<T> range : old) {
+					int start = Math.min(range.getStartOffset(), max - 1);
+					int end = Math.max(start, Math.min(range.getEndOffset(), max));
+					RangeTracker.Range<T> newRange = new RangeTracker.Range<>(start, end, range.getValue());
+					setRange(range.getValue(), newRange);
+					moved.add(newRange);
+				}
+				try {
+					tracker.addAll(moved);
+				} catch (BadLocationException ble) { // Never happens
+					ble.printStackTrace();
+				}
+			}
+
+		}
+
+		private void setRange(T info, RangeTracker.Range<T> range) {
+			((HighlightInfoImpl)info).range = range; // Private fields can't be accessed via T
+		}
+
+		/**
+		 * Returns the number of highlights.
+		 *
+		 * @return The number of highlights.
+		 */
+		public int size() {
+			return tracker!=null ? tracker.size() : 0;
+		}
+
+		private List<T> toValues(List<RangeTracker.Range<T>> ranges) {
+			List<T> values = new ArrayList<>(ranges.size());
+			for (RangeTracker.Range<T> range : ranges) {
+				values.add(range.getValue());
+			}
+			return values;
+		}
+
+	}
+
+
 }
@@ -12,7 +12,9 @@ import java.util.ResourceBundle;
 
 import javax.swing.Action;
 import javax.swing.UIManager;
+import javax.swing.event.DocumentEvent;
 import javax.swing.event.UndoableEditEvent;
+import javax.swing.text.Document;
 import javax.swing.undo.CompoundEdit;
 import javax.swing.undo.UndoManager;
 import javax.swing.undo.UndoableEdit;
@@ -24,7 +26,11 @@ import javax.swing.undo.UndoableEdit;
  * Java's horrible "one character at a time" undo behavior.  It also
  * recognizes "replace" actions (i.e., text is selected, then the user
  * types), and treats it as a single action, instead of a remove/insert
- * action pair.
+ * action pair.<p>
+ *
+ * The approximate amount of memory used by the undo history is tracked,
+ * and if the text area has an {@link RTextArea#setUndoMemoryLimit(long)
+ * undo memory limit}, the oldest edits are discarded to stay within it.
  *
  * @author Robert Futrell
  * @version 1.0
@@ -39,6 +45,17 @@ public class RUndoManager extends UndoManager {
 
 	private int internalAtomicEditDepth;
 
+	/**
+	 * The approximate number of bytes used by the edits in this manager.
+	 */
+	private long memoryUsage;
+
+	/**
+	 * The approximate overhead, in bytes, of a single undoable edit
+	 * (document event, element edits, position references).
+	 */
+	private static final int EDIT_OVERHEAD = 128;
+
 	private static final String MSG	= "org.fife.ui.rtextarea.RTextArea";
 
 
@@ -55,6 +72,17 @@ public class RUndoManager extends UndoManager {
 	}
 
 
+	@Override
+	public synchronized boolean addEdit(UndoableEdit edit) {
+		boolean added = super.addEdit(edit);
+		if (added) {
+			memoryUsage += getMemoryUsage(edit);
+			trimForMemoryLimit();
+		}
+		return added;
+	}
+
+
 	/**
 	 * Begins an "atomic" edit.  This method is called when RTextArea
 	 * KNOWS that some edits should be compound automatically, such as
@@ -74,6 +102,13 @@ public class RUndoManager extends UndoManager {
 	}
 
 
+	@Override
+	public synchronized void discardAllEdits() {
+		super.discardAllEdits();
+		memoryUsage = 0;
+	}
+
+
 	/**
 	 * Ends an "atomic" edit.
 	 *
@@ -111,6 +146,57 @@ public class RUndoManager extends UndoManager {
 	}
 
 
+	/**
+	 * Returns the approximate number of bytes used by the edits in this
+	 * undo manager.  This is an estimate based on the amount of text
+	 * inserted and removed by each edit.
+	 *
+	 * @return The approximate memory usage, in bytes.
+	 * @see RTextArea#setUndoMemoryLimit(long)
+	 */
+	public synchronized long getMemoryUsage() {
+		return memoryUsage;
+	}
+
+
+	/**
+	 * Returns the approximate number of bytes used by an edit.
+	 *
+	 * @param edit The edit.
+	 * @return The approximate memory usage, in bytes.
+	 */
+	private static long getMemoryUsage(UndoableEdit edit) {
+		if (edit instanceof RCompoundEdit) {
+			return ((RCompoundEdit)edit).memoryUsage;
+		}
+		return estimateMemoryUsage(edit);
+	}
+
+
+	/**
+	 * Estimates the number of bytes used by an edit that was just made to a
+	 * document.  Removal edits hold on to the removed text, and insertion
+	 * edits hold on to the inserted text once they are undone.
+	 *
+	 * @param edit The edit.
+	 * @return The approximate memory usage, in bytes.
+	 */
+	private static long estimateMemoryUsage(UndoableEdit edit) {
+		long size = EDIT_OVERHEAD;
+		if (edit instanceof DocumentEvent) {
+			DocumentEvent e = (DocumentEvent)edit;
+			Document doc = e.getDocument();
+			long removeSize = -1;
+			if (e.getType()==DocumentEvent.EventType.REMOVE &&
+					doc instanceof RDocument) {
+				removeSize = ((RDocument)doc).getLastRemoveUndoSize();
+			}
+			size += removeSize>=0 ? removeSize : 2L * e.getLength();
+		}
+		return size;
+	}
+
+
 	@Override
 	public void redo() {
 		super.redo();
@@ -127,6 +213,45 @@ public class RUndoManager extends UndoManager {
 	}
 
 
+	/**
+	 * Discards the oldest edits until the memory used by this undo manager
+	 * is within the text area's undo memory limit, if it has one.  If there
+	 * are no edits left to undo, edits are instead discarded from the end
+	 * of the redo history.  The edit currently being added to is never
+	 * discarded, so a single large edit can exceed the limit.
+	 */
+	synchronized void trimForMemoryLimit() {
+		long limit = textArea.getUndoMemoryLimit();
+		if (limit<=0) {
+			return;
+		}
+		while (memoryUsage>limit && edits.size()>1) {
+			// All of our edits are significant, so this is the index of the
+			// first edit that can be redone
+			int firstRedo = edits.lastIndexOf(editToBeUndone()) + 1;
+			if (firstRedo>0 && edits.get(0)!=compoundEdit) {
+				trimEdits(0, 0);
+			}
+			else if (firstRedo<edits.size() &&
+					edits.lastElement()!=compoundEdit) {
+				trimEdits(edits.size() - 1, edits.size() - 1);
+			}
+			else {
+				break;
+			}
+		}
+	}
+
+
+	@Override
+	protected void trimEdits(int from, int to) {
+		for (int i=from; i<=to; i++) {
+			memoryUsage -= getMemoryUsage(edits.get(i));
+		}
+		super.trimEdits(from, to);
+	}
+
+
 	@Override
 	public void undo() {
 		super.undo();
@@ -159,7 +284,12 @@ public class RUndoManager extends UndoManager {
 		// "<=1" allows contiguous "overwrite mode" key presses to be
 		// grouped together.
 		if (Math.abs(diff)<=1) {//==1) {
+			long oldUsage = compoundEdit.memoryUsage;
 			compoundEdit.addEdit(e.getEdit());
+			synchronized (this) {
+				memoryUsage += compoundEdit.memoryUsage - oldUsage;
+			}
+			trimForMemoryLimit();
 			lastOffset += diff;
 			//updateActions();
 			return;
@@ -223,6 +353,20 @@ public class RUndoManager extends UndoManager {
 	 */
 	class RCompoundEdit extends CompoundEdit {
 
+		/**
+		 * The approximate number of bytes used by this edit.
+		 */
+		private long memoryUsage;
+
+		@Override
+		public boolean addEdit(UndoableEdit edit) {
+			boolean added = super.addEdit(edit);
+			if (added) {
+				memoryUsage += getMemoryUsage(edit);
+			}
+			return added;
+		}
+
 		@Override
 		public String getUndoPresentationName() {
 			return UIManager.getString("AbstractUndoableEdit.undoText");
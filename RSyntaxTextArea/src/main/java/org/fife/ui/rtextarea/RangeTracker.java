@@ -0,0 +1,809 @@
+/*
+ * 10/19/2026
+ *
+ * RangeTracker.java - Keeps many ranges of a document up to date as it's edited.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * LICENSE file for details.
+ */
+package org.fife.ui.rtextarea;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import javax.swing.text.BadLocationException;
+
+
+/**
+ * Keeps the offsets of ranges in an {@link RDocument} up to date as it's
+ * edited, like <code>Position</code>s do, but much more cheaply for large
+ * numbers of ranges, such as highlights.<p>
+ *
+ * Each <code>Position</code> in a <code>GapContent</code> is a mark in a
+ * single sorted array, so adding many positions is quadratic, every edit
+ * moves marks, and positions are only cleaned up by the garbage collector.
+ * Here, ranges are kept sorted by start offset in small blocks, each with
+ * an offset that applies to all of its ranges.  An edit only updates the
+ * ranges in the block it's in (and any ranges containing it), then adjusts
+ * the offsets of the blocks after it.  Ranges are removed explicitly, and
+ * finding the ranges overlapping part of the document, e.g. the lines
+ * being painted, is <code>O(log n)</code> plus the number found.<p>
+ *
+ * As the document is edited, a range's offsets move like
+ * <code>Position</code>s, except that text inserted at either end of a
+ * range is never added to it.  When the text a range covers is removed, it
+ * becomes empty.  Unlike <code>Position</code>s, ranges aren't restored
+ * when such a removal is undone.<p>
+ *
+ * The document updates its trackers before notifying its listeners, so
+ * ranges are correct in <code>DocumentListener</code>s.  Like the
+ * document, this class must be used on the EDT or with the document
+ * locked.  Call {@link #dispose()} when a tracker is no longer needed.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ * @param <T> The type of value associated with each range.
+ */
+public final class RangeTracker<T> {
+
+	/**
+	 * The maximum number of ranges in a block.
+	 */
+	static final int MAX_BLOCK_SIZE = 128;
+
+	/**
+	 * Blocks with fewer ranges than this are merged with a neighbor if
+	 * possible.
+	 */
+	private static final int MIN_BLOCK_SIZE = MAX_BLOCK_SIZE / 4;
+
+	/**
+	 * Adding more ranges than this at once rebuilds all blocks.
+	 */
+	private static final int BULK_ADD_THRESHOLD = 32;
+
+	private static final Comparator<Range<?>> START_COMPARATOR =
+			Comparator.comparingInt(Range::getStartOffset);
+
+	private final RDocument doc;
+	private final List<Block<T>> blocks;
+	private int size;
+
+	/**
+	 * The length of the longest range, so those containing an offset can
+	 * be found by only searching back this far.  This is the longest of
+	 * the blocks' {@link Block#maxLength}s.
+	 */
+	private int maxLength;
+
+
+	/**
+	 * Constructor.
+	 *
+	 * @param doc The document whose ranges to track.
+	 * @see #dispose()
+	 */
+	public RangeTracker(RDocument doc) {
+		this.doc = doc;
+		blocks = new ArrayList<>();
+		doc.addRangeTracker(this);
+	}
+
+
+	/**
+	 * Starts tracking a range.
+	 *
+	 * @param range The range.  It shouldn't be tracked by any tracker.
+	 * @throws BadLocationException If the range isn't in the document.
+	 * @see #addAll(Collection)
+	 * @see #remove(Range)
+	 */
+	public void add(Range<T> range) throws BadLocationException {
+
+		checkRange(range);
+		if (blocks.isEmpty()) {
+			blocks.add(new Block<>(this));
+		}
+
+		// Add after ranges starting at the same offset, to keep them in
+		// the order they were added
+		int[] loc = findFirstStartingAfter(range.start);
+		Block<T> block = blocks.get(loc[0]);
+		block.insert(loc[1], range);
+		size++;
+		maxLength = Math.max(maxLength, range.end - range.start);
+
+		if (block.count>MAX_BLOCK_SIZE) {
+			blocks.add(loc[0] + 1, block.split());
+		}
+
+	}
+
+
+	/**
+	 * Starts tracking many ranges.  This is much faster than adding them one
+	 * at a time.
+	 *
+	 * @param ranges The ranges.  They shouldn't be tracked by any tracker.
+	 * @throws BadLocationException If a range isn't in the document.  In
+	 *         this case, no ranges are added.
+	 * @see #add(Range)
+	 * @see #removeAll(Collection)
+	 */
+	public void addAll(Collection<? extends Range<T>> ranges) throws BadLocationException {
+
+		for (Range<T> range : ranges) {
+			checkRange(range);
+		}
+
+		if (ranges.size()<=BULK_ADD_THRESHOLD) {
+			for (Range<T> range : ranges) {
+				add(range);
+			}
+			return;
+		}
+
+		// A stable sort keeps ranges starting at the same offset in order
+		List<Range<T>> all = getRanges();
+		all.addAll(ranges);
+		all.sort(START_COMPARATOR);
+		rebuild(all);
+
+	}
+
+
+	/**
+	 * Checks that a range can be added.
+	 *
+	 * @param range The range.
+	 * @throws BadLocationException If the range isn't in the document.
+	 * @throws IllegalArgumentException If the range is already tracked.
+	 */
+	private void checkRange(Range<T> range) throws BadLocationException {
+		if (range.block!=null) {
+			throw new IllegalArgumentException("Range is already tracked");
+		}
+		if (range.start<0 || range.end<range.start || range.end>doc.getLength() + 1) {
+			throw new BadLocationException("Invalid range: " + range, range.start);
+		}
+	}
+
+
+	/**
+	 * Stops tracking all ranges.
+	 *
+	 * @see #removeAll(Collection)
+	 */
+	public void clear() {
+		for (Block<T> block : blocks) {
+			block.detachAll();
+		}
+		blocks.clear();
+		size = 0;
+		maxLength = 0;
+	}
+
+
+	/**
+	 * Stops tracking all ranges, and stops listening to the document.
+	 * This tracker shouldn't be used afterward.
+	 */
+	public void dispose() {
+		clear();
+		doc.removeRangeTracker(this);
+	}
+
+
+	/**
+	 * Returns the location of the first range starting at or after an
+	 * offset.
+	 *
+	 * @param offs The offset.
+	 * @return The index of the block and the index in the block.  If no
+	 *         range starts at or after <code>offs</code>, this is the end of
+	 *         the last block.
+	 */
+	private int[] findFirstStartingAt(int offs) {
+		return findFirst(offs, false);
+	}
+
+
+	/**
+	 * Returns the location of the first range starting after an offset.
+	 *
+	 * @param offs The offset.
+	 * @return The index of the block and the index in the block.  If no
+	 *         range starts after <code>offs</code>, this is the end of the
+	 *         last block.
+	 */
+	private int[] findFirstStartingAfter(int offs) {
+		return findFirst(offs, true);
+	}
+
+
+	private int[] findFirst(int offs, boolean after) {
+
+		// The first block whose last range is a match
+		int lo = 0;
+		int hi = blocks.size() - 1;
+		while (lo<hi) {
+			int mid = (lo + hi) >>> 1;
+			Block<T> block = blocks.get(mid);
+			int lastStart = block.getStart(block.count - 1);
+			if (after ? lastStart>offs : lastStart>=offs) {
+				hi = mid;
+			}
+			else {
+				lo = mid + 1;
+			}
+		}
+
+		Block<T> block = blocks.get(lo);
+		int low = 0;
+		int high = block.count;
+		while (low<high) {
+			int mid = (low + high) >>> 1;
+			int start = block.getStart(mid);
+			if (after ? start>offs : start>=offs) {
+				high = mid;
+			}
+			else {
+				low = mid + 1;
+			}
+		}
+		return new int[] { lo, low };
+
+	}
+
+
+	/**
+	 * Returns the document whose ranges are tracked.
+	 *
+	 * @return The document.
+	 */
+	public RDocument getDocument() {
+		return doc;
+	}
+
+
+	/**
+	 * Returns the length of the longest range, for testing purposes.
+	 *
+	 * @return The length.
+	 */
+	int getMaxLength() {
+		return maxLength;
+	}
+
+
+	/**
+	 * Returns all tracked ranges.
+	 *
+	 * @return The ranges, sorted by start offset.  This is a copy.
+	 */
+	public List<Range<T>> getRanges() {
+		List<Range<T>> ranges = new ArrayList<>(size);
+		for (Block<T> block : blocks) {
+			for (int i=0; i<block.count; i++) {
+				ranges.add(block.ranges[i]);
+			}
+		}
+		return ranges;
+	}
+
+
+	/**
+	 * Returns the ranges overlapping part of the document, including empty
+	 * ranges in that part.  If the part is empty, ranges containing or
+	 * starting at its offset are returned.
+	 *
+	 * @param start The start offset of the part of the document.
+	 * @param end The end offset of the part of the document, exclusive.
+	 * @return The ranges, sorted by start offset.
+	 */
+	public List<Range<T>> getRangesOverlapping(int start, int end) {
+
+		if (size==0) {
+			return Collections.emptyList();
+		}
+
+		List<Range<T>> result = null;
+		int[] loc = findFirstStartingAt(Math.max(0, start - maxLength));
+		for (int b=loc[0], i=loc[1]; b<blocks.size(); b++, i=0) {
+			Block<T> block = blocks.get(b);
+			for (; i<block.count; i++) {
+				int rangeStart = block.getStart(i);
+				if (rangeStart>=end && rangeStart>start) {
+					return result!=null ? result : Collections.emptyList();
+				}
+				if (rangeStart>=start || block.getEnd(i)>start) {
+					if (result==null) {
+						result = new ArrayList<>();
+					}
+					result.add(block.ranges[i]);
+				}
+			}
+		}
+
+		return result!=null ? result : Collections.emptyList();
+
+	}
+
+
+	/**
+	 * Called by the document after text is inserted.
+	 *
+	 * @param offs The offset of the insertion.
+	 * @param len The length of the inserted text.
+	 */
+	void insertUpdate(int offs, int len) {
+
+		if (size==0 || len==0) {
+			return;
+		}
+
+		// Ranges starting at or after the insertion move
+		int[] loc = findFirstStartingAt(offs);
+		shiftFrom(loc, len);
+
+		// Ranges before it that contain it grow
+		forEachBefore(loc, offs, (block, i) -> {
+			Range<T> range = block.ranges[i];
+			if (range.end + block.delta>offs) {
+				range.end += len;
+				block.maxLength = Math.max(block.maxLength, range.end - range.start);
+				maxLength = Math.max(maxLength, block.maxLength);
+			}
+		});
+
+	}
+
+
+	/**
+	 * Calls an action for the ranges before a location that might contain
+	 * an offset, i.e. that start at most {@link #maxLength} characters
+	 * before it.
+	 *
+	 * @return The index of the first block the action may have been called
+	 *         for.
+	 */
+	private int forEachBefore(int[] loc, int offs, RangeAction<T> action) {
+		int min = offs - maxLength;
+		int i = loc[1] - 1;
+		for (int b=loc[0]; b>=0; b--) {
+			Block<T> block = blocks.get(b);
+			for (; i>=0; i--) {
+				if (block.getStart(i)<min) {
+					return b;
+				}
+				action.apply(block, i);
+			}
+			if (b>0) {
+				i = blocks.get(b - 1).count - 1;
+			}
+		}
+		return 0;
+	}
+
+
+	/**
+	 * Merges a block with a neighbor if it's small enough.
+	 *
+	 * @param index The index of the block.
+	 */
+	private void mergeIfSmall(int index) {
+		Block<T> block = blocks.get(index);
+		if (block.count==0) {
+			blocks.remove(index);
+		}
+		else if (block.count<MIN_BLOCK_SIZE) {
+			int first = index>0 ? index - 1 : index;
+			if (first + 1<blocks.size() &&
+					blocks.get(first).count + blocks.get(first + 1).count<=MAX_BLOCK_SIZE) {
+				blocks.get(first).append(blocks.remove(first + 1));
+			}
+		}
+	}
+
+
+	/**
+	 * Rebuilds all blocks.
+	 *
+	 * @param ranges All ranges, sorted by start offset, with their offsets
+	 *        as absolute values.  Their blocks are replaced.
+	 */
+	private void rebuild(List<Range<T>> ranges) {
+
+		for (Block<T> block : blocks) {
+			block.detachAll(); // Makes offsets absolute
+		}
+		blocks.clear();
+		size = ranges.size();
+		maxLength = 0;
+
+		int perBlock = MAX_BLOCK_SIZE * 3 / 4;
+		for (int i=0; i<ranges.size(); i+=perBlock) {
+			Block<T> block = new Block<>(this);
+			for (Range<T> range : ranges.subList(i, Math.min(ranges.size(), i + perBlock))) {
+				block.insert(block.count, range);
+				maxLength = Math.max(maxLength, range.end - range.start);
+			}
+			blocks.add(block);
+		}
+
+	}
+
+
+	/**
+	 * Stops tracking a range.
+	 *
+	 * @param range The range.
+	 * @return Whether the range was tracked by this tracker.
+	 * @see #removeAll(Collection)
+	 */
+	public boolean remove(Range<T> range) {
+		Block<T> block = range.block;
+		if (block==null || block.tracker!=this) {
+			return false;
+		}
+		int index = blocks.indexOf(block);
+		int length = range.end - range.start;
+		block.remove(block.indexOf(range));
+		size--;
+		mergeIfSmall(index);
+		if (length==maxLength) {
+			updateMaxLength();
+		}
+		return true;
+	}
+
+
+	/**
+	 * Stops tracking many ranges.  This is much faster than removing them
+	 * one at a time.
+	 *
+	 * @param ranges The ranges.  Ranges not tracked by this tracker are
+	 *        ignored.
+	 * @see #remove(Range)
+	 * @see #clear()
+	 */
+	public void removeAll(Collection<? extends Range<T>> ranges) {
+
+		if (ranges.size()<=BULK_ADD_THRESHOLD) {
+			for (Range<T> range : ranges) {
+				remove(range);
+			}
+			return;
+		}
+
+		Set<Range<T>> toRemove = Collections.newSetFromMap(new IdentityHashMap<>(ranges.size()));
+		toRemove.addAll(ranges);
+		List<Range<T>> remaining = getRanges();
+		remaining.removeIf(toRemove::contains);
+		rebuild(remaining);
+
+	}
+
+
+	/**
+	 * Called by the document after text is removed.
+	 *
+	 * @param offs The offset of the removal.
+	 * @param len The length of the removed text.
+	 */
+	void removeUpdate(int offs, int len) {
+
+		if (size==0 || len==0) {
+			return;
+		}
+		int removedEnd = offs + len;
+
+		// Ranges starting in the removed text move to its start, and those
+		// after it move back
+		int[] loc = findFirstStartingAt(offs);
+		int lastChanged = loc[0];
+		for (int b=loc[0], i=loc[1]; b<blocks.size(); b++, i=0) {
+			Block<T> block = blocks.get(b);
+			lastChanged = b;
+			for (; i<block.count; i++) {
+				if (block.getStart(i)>=removedEnd) {
+					shiftFrom(new int[] { b, i }, -len);
+					b = blocks.size(); // Done
+					break;
+				}
+				Range<T> range = block.ranges[i];
+				range.start = offs - block.delta;
+				range.end = removedPosition(range.end + block.delta, offs, removedEnd) - block.delta;
+			}
+		}
+
+		// Ranges before it that overlap it shrink
+		int firstChanged = forEachBefore(loc, offs, (block, i) -> {
+			Range<T> range = block.ranges[i];
+			range.end = removedPosition(range.end + block.delta, offs, removedEnd) - block.delta;
+		});
+
+		// The longest ranges may have shrunk
+		for (int b=firstChanged; b<=lastChanged; b++) {
+			blocks.get(b).computeMaxLength();
+		}
+		updateMaxLength();
+
+	}
+
+
+	/**
+	 * Returns the new value of an offset after text is removed.
+	 */
+	private static int removedPosition(int offs, int start, int end) {
+		if (offs>=end) {
+			return offs - (end - start);
+		}
+		return Math.min(offs, start);
+	}
+
+
+	/**
+	 * Shifts all ranges from a location to the end.  Only the ranges in
+	 * the location's block are updated; the blocks after it are shifted
+	 * as a whole.
+	 *
+	 * @param loc The location.
+	 * @param delta The amount to shift by.
+	 */
+	private void shiftFrom(int[] loc, int delta) {
+		if (loc[0]>=blocks.size()) {
+			return;
+		}
+		Block<T> block = blocks.get(loc[0]);
+		for (int i=loc[1]; i<block.count; i++) {
+			block.ranges[i].start += delta;
+			block.ranges[i].end += delta;
+		}
+		for (int b=loc[0] + 1; b<blocks.size(); b++) {
+			blocks.get(b).delta += delta;
+		}
+	}
+
+
+	/**
+	 * Returns the number of tracked ranges.
+	 *
+	 * @return The number of ranges.
+	 */
+	public int size() {
+		return size;
+	}
+
+
+	/**
+	 * Recomputes {@link #maxLength} from the blocks' longest ranges.
+	 */
+	private void updateMaxLength() {
+		maxLength = 0;
+		for (Block<T> block : blocks) {
+			maxLength = Math.max(maxLength, block.maxLength);
+		}
+	}
+
+
+	/**
+	 * A block of ranges, sorted by start offset.
+	 *
+	 * @param <T> The type of value associated with each range.
+	 */
+	private static final class Block<T> {
+
+		private final RangeTracker<T> tracker;
+		private Range<T>[] ranges;
+		private int count;
+
+		/**
+		 * Added to the offsets of all ranges in this block.
+		 */
+		private int delta;
+
+		/**
+		 * The length of the longest range in this block.
+		 */
+		private int maxLength;
+
+		@SuppressWarnings("unchecked")
+		Block(RangeTracker<T> tracker) {
+			this.tracker = tracker;
+			ranges = new Range[MAX_BLOCK_SIZE + 1];
+		}
+
+		/**
+		 * Moves all of another block's ranges to the end of this one.
+		 */
+		void append(Block<T> other) {
+			for (int i=0; i<other.count; i++) {
+				Range<T> range = other.ranges[i];
+				range.start += other.delta - delta;
+				range.end += other.delta - delta;
+				range.block = this;
+				ranges[count++] = range;
+			}
+			maxLength = Math.max(maxLength, other.maxLength);
+		}
+
+		void computeMaxLength() {
+			maxLength = 0;
+			for (int i=0; i<count; i++) {
+				maxLength = Math.max(maxLength, ranges[i].end - ranges[i].start);
+			}
+		}
+
+		/**
+		 * Makes the offsets of all ranges absolute, and stops tracking them.
+		 */
+		void detachAll() {
+			for (int i=0; i<count; i++) {
+				ranges[i].detach();
+			}
+		}
+
+		int getEnd(int index) {
+			return ranges[index].end + delta;
+		}
+
+		int getStart(int index) {
+			return ranges[index].start + delta;
+		}
+
+		int indexOf(Range<T> range) {
+			for (int i=0; i<count; i++) {
+				if (ranges[i]==range) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		/**
+		 * Inserts a range whose offsets are absolute.
+		 */
+		void insert(int index, Range<T> range) {
+			System.arraycopy(ranges, index, ranges, index + 1, count - index);
+			range.start -= delta;
+			range.end -= delta;
+			range.block = this;
+			ranges[index] = range;
+			count++;
+			maxLength = Math.max(maxLength, range.end - range.start);
+		}
+
+		void remove(int index) {
+			Range<T> range = ranges[index];
+			range.detach();
+			System.arraycopy(ranges, index + 1, ranges, index, count - index - 1);
+			ranges[--count] = null;
+			if (range.end - range.start==maxLength) {
+				computeMaxLength();
+			}
+		}
+
+		/**
+		 * Moves the second half of this block's ranges to a new block.
+		 */
+		Block<T> split() {
+			Block<T> other = new Block<>(tracker);
+			other.delta = delta;
+			int half = count / 2;
+			for (int i=half; i<count; i++) {
+				Range<T> range = ranges[i];
+				range.block = other;
+				other.ranges[other.count++] = range;
+				ranges[i] = null;
+			}
+			count = half;
+			computeMaxLength();
+			other.computeMaxLength();
+			return other;
+		}
+
+	}
+
+
+	/**
+	 * An action performed on the range at an index in a block.
+	 *
+	 * @param <T> The type of value associated with each range.
+	 */
+	@FunctionalInterface
+	private interface RangeAction<T> {
+
+		void apply(Block<T> block, int index);
+
+	}
+
+
+	/**
+	 * A range in a document, with an associated value.  While tracked, its
+	 * offsets are kept up to date as the document is edited; otherwise,
+	 * they don't change.
+	 *
+	 * @param <T> The type of value associated with the range.
+	 */
+	public static final class Range<T> {
+
+		private int start;
+		private int end;
+		private final T value;
+
+		/**
+		 * The block this range is in while it's tracked, whose
+		 * <code>delta</code> must be added to its offsets.
+		 */
+		private Block<T> block;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param start The start offset of the range.
+		 * @param end The end offset of the range, exclusive.
+		 * @param value The value associated with the range.
+		 */
+		public Range(int start, int end, T value) {
+			this.start = start;
+			this.end = end;
+			this.value = value;
+		}
+
+		private void detach() {
+			start += block.delta;
+			end += block.delta;
+			block = null;
+		}
+
+		/**
+		 * Returns the end offset of this range.
+		 *
+		 * @return The end offset, exclusive.
+		 */
+		public int getEndOffset() {
+			return block!=null ? end + block.delta : end;
+		}
+
+		/**
+		 * Returns the start offset of this range.
+		 *
+		 * @return The start offset.
+		 */
+		public int getStartOffset() {
+			return block!=null ? start + block.delta : start;
+		}
+
+		/**
+		 * Returns the value associated with this range.
+		 *
+		 * @return The value.
+		 */
+		public T getValue() {
+			return value;
+		}
+
+		/**
+		 * Returns whether this range is tracked by a tracker.
+		 *
+		 * @return Whether this range is tracked.
+		 */
+		public boolean isTracked() {
+			return block!=null;
+		}
+
+		@Override
+		public String toString() {
+			return "[Range: start=" + getStartOffset() + ", end=" + getEndOffset() +
+					", value=" + value + "]";
+		}
+
+	}
+
+
+}
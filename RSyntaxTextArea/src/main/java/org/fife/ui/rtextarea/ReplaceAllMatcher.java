@@ -0,0 +1,190 @@
+/*
+ * 10/19/2026
+ *
+ * ReplaceAllMatcher.java - Finds matches for a "replace all" operation.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * LICENSE file for details.
+ */
+package org.fife.ui.rtextarea;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.fife.ui.rsyntaxtextarea.RSyntaxUtilities;
+
+
+/**
+ * Finds the matches for a "replace all" operation in a snapshot of a
+ * document's text.<p>
+ *
+ * Each search treats the text as if it started at the search's starting
+ * offset, just as {@link SearchEngine#replace(RTextArea, SearchContext)}
+ * does when it searches the text after the caret.  This means e.g. a
+ * "whole word" match or a regex anchor such as <code>^</code> can match at
+ * the starting offset, so a "replace all" done with this class finds
+ * exactly the same matches as one done by repeated calls to
+ * <code>replace()</code>.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ */
+final class ReplaceAllMatcher {
+
+	private final String text;
+	private final String searchIn;
+	private final String searchFor;
+	private final boolean wholeWord;
+	private final Matcher matcher;
+	private int start;
+	private int end;
+
+
+	private ReplaceAllMatcher(String text, String searchIn, String searchFor,
+			boolean wholeWord, Matcher matcher) {
+		this.text = text;
+		this.searchIn = searchIn;
+		this.searchFor = searchFor;
+		this.wholeWord = wholeWord;
+		this.matcher = matcher;
+	}
+
+
+	/**
+	 * Creates a matcher for a search.
+	 *
+	 * @param text The text to search in.
+	 * @param context The search to perform.
+	 * @return The matcher, or <code>null</code> if the search can't be done
+	 *         in a single pass over <code>text</code>.  This happens when
+	 *         changing the case of the text for a case-insensitive search
+	 *         changes its length.
+	 */
+	static ReplaceAllMatcher create(String text, SearchContext context) {
+
+		String toFind = context.getSearchFor();
+		boolean matchCase = context.getMatchCase();
+		boolean wholeWord = context.getWholeWord();
+
+		if (context.isRegularExpression()) {
+			String regEx = wholeWord ? ("\\b" + toFind + "\\b") : toFind;
+			int flags = Pattern.MULTILINE; // '^' and '$' are done per line.
+			flags = RSyntaxUtilities.getPatternFlags(matchCase, flags);
+			Matcher m = null;
+			try {
+				m = Pattern.compile(regEx, flags).matcher(text);
+			} catch (PatternSyntaxException pse) {
+				// Nothing will be found, just like SearchEngine.replace()
+			}
+			return new ReplaceAllMatcher(text, text, toFind, wholeWord, m);
+		}
+
+		String searchIn = text;
+		String searchFor = toFind;
+		if (!matchCase) {
+			searchIn = text.toLowerCase();
+			searchFor = toFind.toLowerCase();
+			if (searchIn.length()!=text.length() ||
+					searchFor.length()!=toFind.length()) {
+				return null;
+			}
+		}
+		return new ReplaceAllMatcher(text, searchIn, searchFor, wholeWord,
+									null);
+
+	}
+
+
+	/**
+	 * Finds the first match at or after an offset.
+	 *
+	 * @param from The offset to start searching at.  The search treats the
+	 *        text as starting at this offset.
+	 * @return Whether a match was found.
+	 * @see #getStart()
+	 * @see #getEnd()
+	 */
+	boolean find(int from) {
+
+		if (matcher!=null) {
+			matcher.region(from, text.length());
+			if (matcher.find()) {
+				start = matcher.start();
+				end = matcher.end();
+				return true;
+			}
+			return false;
+		}
+
+		int len = searchFor.length();
+		int pos = from;
+		while ((pos = searchIn.indexOf(searchFor, pos))!=-1) {
+			if (!wholeWord || isWholeWord(from, pos, len)) {
+				start = pos;
+				end = pos + len;
+				return true;
+			}
+			pos++;
+		}
+		return false;
+
+	}
+
+
+	/**
+	 * Returns the end offset of the last match found.
+	 *
+	 * @return The end offset.
+	 */
+	int getEnd() {
+		return end;
+	}
+
+
+	/**
+	 * Returns the text to replace the last match found with.
+	 *
+	 * @param replaceWith The replacement text.  For regular expression
+	 *        searches, this is a template that can reference captured groups.
+	 * @return The replacement text.
+	 * @throws IndexOutOfBoundsException If <code>replaceWith</code>
+	 *         references an invalid group.
+	 * @see SearchEngine#getReplacementText(Matcher, CharSequence)
+	 */
+	String getReplacement(String replaceWith) {
+		if (replaceWith==null) {
+			replaceWith = "";
+		}
+		if (matcher!=null) {
+			return SearchEngine.getReplacementText(matcher, replaceWith);
+		}
+		return replaceWith;
+	}
+
+
+	/**
+	 * Returns the start offset of the last match found.
+	 *
+	 * @return The start offset.
+	 */
+	int getStart() {
+		return start;
+	}
+
+
+	/**
+	 * Returns whether the characters on either side of a match are
+	 * <em>not</em> letters or digits.  The text is treated as starting at
+	 * <code>from</code>.
+	 */
+	private boolean isWholeWord(int from, int offset, int len) {
+		boolean wsBefore = offset==from ||
+				!Character.isLetterOrDigit(searchIn.charAt(offset - 1));
+		boolean wsAfter = offset + len>=searchIn.length() ||
+				!Character.isLetterOrDigit(searchIn.charAt(offset + len));
+		return wsBefore && wsAfter;
+	}
+
+
+}
@@ -0,0 +1,1402 @@
+/*
+ * 10/19/2026
+ *
+ * RopeContent.java - Document content stored in a balanced tree.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * LICENSE file for details.
+ */
+package org.fife.ui.rtextarea;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Position;
+import javax.swing.text.Segment;
+import javax.swing.undo.AbstractUndoableEdit;
+import javax.swing.undo.CannotRedoException;
+import javax.swing.undo.CannotUndoException;
+import javax.swing.undo.UndoableEdit;
+
+
+/**
+ * Document content stored in a balanced tree of small character arrays (a
+ * "rope"), rather than in one large array with a gap, like
+ * <code>GapContent</code>.<p>
+ *
+ * With <code>GapContent</code>, an edit far away from the previous one moves
+ * the gap, copying all text in between, and updates the marks of all
+ * <code>Position</code>s in between.  Here, an edit only copies text in,
+ * and updates the positions in, the few leaves of the tree it touches, so
+ * inserting and removing text, and finding a character, are
+ * <code>O(log n)</code> wherever they happen.  This makes operations that
+ * edit many places in a large document, such as "replace all", macro
+ * playback and moving lines, much faster.  On the other hand, finding a
+ * <code>Position</code>'s offset means walking up the tree (though offsets
+ * are cached until the next edit), so for small documents, or documents
+ * mostly edited in one place, <code>GapContent</code> is as fast or
+ * faster.<p>
+ *
+ * Leaves are split after newlines where possible, so fetching the text of
+ * a line rarely has to copy it.<p>
+ *
+ * Snapshots of the text (see {@link RDocument#createTextSnapshot()}) share
+ * the tree:  a node reachable from a snapshot is never modified, but
+ * copied (along with its ancestors) the first time an edit touches it.
+ * So taking a snapshot is <code>O(1)</code>, and each later edit copies
+ * at most one leaf and its ancestors.<p>
+ *
+ * To use this class, pass an instance to
+ * {@link RDocument#RDocument(javax.swing.text.AbstractDocument.Content)},
+ * or the similar <code>RSyntaxDocument</code> constructor.  Like
+ * <code>GapContent</code>, this class is not thread safe; the document's
+ * locks must be used.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ */
+public final class RopeContent implements RDocumentContent {
+
+	/**
+	 * The maximum number of characters in a leaf.
+	 */
+	static final int MAX_LEAF_SIZE = 2048;
+
+	/**
+	 * Leaves with fewer characters than this are merged with a neighbor.
+	 */
+	private static final int MIN_LEAF_SIZE = MAX_LEAF_SIZE / 4;
+
+	/**
+	 * The size of leaves created when splitting text, leaving room to grow.
+	 */
+	private static final int NEW_LEAF_SIZE = MAX_LEAF_SIZE * 3 / 4;
+
+	/**
+	 * The maximum number of children of an inner node.
+	 */
+	static final int MAX_CHILDREN = 32;
+
+	/**
+	 * Inner nodes other than the root with fewer children than this are
+	 * merged with a neighbor.
+	 */
+	private static final int MIN_CHILDREN = MAX_CHILDREN / 4;
+
+	private static final char[] NO_CHARS = new char[0];
+
+	private static final Mark[] NO_MARKS = new Mark[0];
+
+	private Inner root;
+
+	/**
+	 * Incremented whenever text or positions move, invalidating cached
+	 * offsets.
+	 */
+	private int modCount;
+
+	/**
+	 * The leaf last read from, for fast sequential access.
+	 */
+	private LeafCursor cursor;
+
+	/**
+	 * Removals of at least this many characters are compressed, or
+	 * <code>0</code> for never.
+	 */
+	private int undoCompressionThreshold;
+
+	/**
+	 * The number of bytes of text held by the most recent removal's
+	 * undoable edit.
+	 */
+	private long lastRemoveUndoSize;
+
+
+	/**
+	 * Constructor.  The content initially holds only the implied newline
+	 * at the end of all documents.
+	 */
+	public RopeContent() {
+		root = new Inner();
+		Leaf leaf = new Leaf(new char[] { '\n' }, 1);
+		leaf.parent = root;
+		root.children.add(leaf);
+		root.length = 1;
+	}
+
+
+	/**
+	 * Adds a value to the length of a node and all of its ancestors.
+	 *
+	 * @param node The node.
+	 * @param delta The amount to add.
+	 */
+	private static void addLengths(Inner node, int delta) {
+		for (Inner n = node; n!=null; n = n.parent) {
+			n.length += delta;
+		}
+	}
+
+
+	@Override
+	public char charAt(int offset) throws BadLocationException {
+		if (offset<0 || offset>=length()) {
+			throw new BadLocationException("Invalid offset", offset);
+		}
+		LeafCursor c = findLeaf(offset);
+		return c.leaf.chars[offset - c.start];
+	}
+
+
+	@Override
+	public UndoableEdit createInsertEdit(int offset, int length) {
+		return new InsertUndo(offset, length);
+	}
+
+
+	/**
+	 * Returns an immutable snapshot of the text.  The snapshot shares this
+	 * content's tree; nodes in it are copied before they're next modified.
+	 *
+	 * @return The snapshot.
+	 */
+	@Override
+	public TextSnapshot createSnapshot() {
+		root.shared = true;
+		return new RopeSnapshot(root, length() - 1);
+	}
+
+
+	/**
+	 * Splits children among new inner nodes.
+	 *
+	 * @param children The children.  There should be more than
+	 *        {@link #MAX_CHILDREN} of them.
+	 * @return The new inner nodes, each with at least half of
+	 *         <code>MAX_CHILDREN</code> children.
+	 */
+	private static List<Inner> createInners(List<Node> children) {
+		int count = children.size();
+		int groupCount = (count + MAX_CHILDREN - 1) / MAX_CHILDREN;
+		List<Inner> inners = new ArrayList<>(groupCount);
+		int start = 0;
+		for (int i=0; i<groupCount; i++) {
+			int end = start + (count - start) / (groupCount - i);
+			Inner inner = new Inner();
+			inner.children.addAll(children.subList(start, end));
+			for (Node child : inner.children) {
+				child.parent = inner;
+			}
+			inner.updateLength();
+			inners.add(inner);
+			start = end;
+		}
+		return inners;
+	}
+
+
+	/**
+	 * Splits text among new leaves, preferring to split after newlines.
+	 *
+	 * @param chars The text.
+	 * @param length The length of the text.
+	 * @param marks The marks in the text, sorted.  Their
+	 *        <code>value</code>s should be their offsets into
+	 *        <code>chars</code>.
+	 * @return The leaves.  If <code>length</code> is at most
+	 *         {@link #MAX_LEAF_SIZE}, there is just one.
+	 */
+	private static List<Leaf> createLeaves(char[] chars, int length, List<Mark> marks) {
+
+		List<Leaf> leaves = new ArrayList<>(length / NEW_LEAF_SIZE + 1);
+		int start = 0;
+		int mark = 0;
+
+		do {
+
+			int end = length;
+			if (length - start>MAX_LEAF_SIZE) {
+				end = start + NEW_LEAF_SIZE;
+				for (int i=end; i>start + MIN_LEAF_SIZE; i--) {
+					if (chars[i - 1]=='\n') {
+						end = i;
+						break;
+					}
+				}
+			}
+
+			Leaf leaf = new Leaf(Arrays.copyOfRange(chars, start, end), end - start);
+			int markEnd = mark;
+			while (markEnd<marks.size() && (end==length || marks.get(markEnd).value<=end)) {
+				markEnd++;
+			}
+			leaf.setMarks(marks.subList(mark, markEnd), start);
+			leaves.add(leaf);
+
+			mark = markEnd;
+			start = end;
+
+		} while (start<length);
+
+		return leaves;
+
+	}
+
+
+	@Override
+	public Position createPosition(int offset) throws BadLocationException {
+		int[] start = new int[1];
+		Leaf leaf = findLeaf(offset, true, start);
+		return leaf.getOrCreatePosition(this, offset - start[0]);
+	}
+
+
+	/**
+	 * Returns the leaf containing an offset, for reading.  The result is
+	 * cached, so reading sequential characters is fast.
+	 *
+	 * @param offset The offset.
+	 * @return The leaf, and its start offset.
+	 */
+	private LeafCursor findLeaf(int offset) {
+		LeafCursor c = cursor;
+		if (c==null || c.modCount!=modCount || offset<c.start ||
+				offset>=c.start + c.leaf.length) {
+			int[] start = new int[1];
+			Leaf leaf = findLeaf(offset, false, start);
+			c = new LeafCursor(leaf, start[0], modCount);
+			cursor = c;
+		}
+		return c;
+	}
+
+
+	/**
+	 * Returns the leaf containing an offset.
+	 *
+	 * @param offset The offset.
+	 * @param atEnd If <code>offset</code> is between two leaves, whether to
+	 *        return the first one rather than the second.
+	 * @param start Returns the start offset of the leaf.
+	 * @return The leaf.
+	 */
+	private Leaf findLeaf(int offset, boolean atEnd, int[] start) {
+		Node node = root;
+		int nodeStart = 0;
+		while (node instanceof Inner) {
+			List<Node> children = ((Inner)node).children;
+			int last = children.size() - 1;
+			for (int i=0; i<=last; i++) {
+				Node child = children.get(i);
+				int end = nodeStart + child.length;
+				if (offset<end || (atEnd && offset==end) || i==last) {
+					node = child;
+					break;
+				}
+				nodeStart = end;
+			}
+		}
+		start[0] = nodeStart;
+		return (Leaf)node;
+	}
+
+
+	/**
+	 * If a leaf is too small, merges it with a neighbor.
+	 *
+	 * @param offset An offset in the leaf.
+	 * @param atEnd Whether to find the leaf ending at <code>offset</code>,
+	 *        if <code>offset</code> is between two leaves.
+	 */
+	private void fixLeafUnderflow(int offset, boolean atEnd) {
+		Leaf leaf = findLeaf(offset, atEnd, new int[1]);
+		if (leaf.length<MIN_LEAF_SIZE) {
+			mergeWithNeighbor(makeWritable(leaf));
+		}
+	}
+
+
+	@Override
+	public void getChars(int where, int len, Segment txt) throws BadLocationException {
+
+		int end = where + len;
+		if (where<0 || end<0) {
+			throw new BadLocationException("Invalid location", -1);
+		}
+		if (end>length() || where>length()) {
+			throw new BadLocationException("Invalid location", length() + 1);
+		}
+
+		if (len==0) {
+			txt.array = NO_CHARS;
+			txt.offset = 0;
+			txt.count = 0;
+			return;
+		}
+
+		LeafCursor c = findLeaf(where);
+		int offs = where - c.start;
+		if (offs + len<=c.leaf.length || txt.isPartialReturn()) {
+			txt.array = c.leaf.chars;
+			txt.offset = offs;
+			txt.count = Math.min(len, c.leaf.length - offs);
+			return;
+		}
+
+		// The text spans leaves, so it must be copied
+		char[] chars = new char[len];
+		Leaf leaf = c.leaf;
+		int count = 0;
+		while (count<len) {
+			int n = Math.min(len - count, leaf.length - offs);
+			System.arraycopy(leaf.chars, offs, chars, count, n);
+			count += n;
+			offs = 0;
+			leaf = nextLeaf(leaf);
+		}
+		txt.array = chars;
+		txt.offset = 0;
+		txt.count = len;
+
+	}
+
+
+	@Override
+	public long getLastRemoveUndoSize() {
+		return lastRemoveUndoSize;
+	}
+
+
+	/**
+	 * Returns the marks of all positions in a range, and their offsets.
+	 *
+	 * @param offset The start of the range.
+	 * @param length The length of the range.  Positions at the end of the
+	 *        range are included.
+	 * @return The positions, sorted by offset.
+	 */
+	private List<UndoPosRef> getPositionsInRange(int offset, int length) {
+
+		List<UndoPosRef> refs = new ArrayList<>();
+		int end = offset + length;
+		int[] start = new int[1];
+		Leaf leaf = findLeaf(offset, true, start);
+		int leafStart = start[0];
+
+		while (leaf!=null && leafStart<=end) {
+			for (int i=0; i<leaf.markCount; i++) {
+				Mark mark = leaf.marks[i];
+				int offs = leafStart + leaf.getLocalOffset(mark);
+				if (offs>end) {
+					break;
+				}
+				if (offs>=offset && mark.get()!=null) {
+					refs.add(new UndoPosRef(mark, offs));
+					mark.undoRefCount++;
+				}
+			}
+			leafStart += leaf.length;
+			leaf = nextLeaf(leaf);
+		}
+
+		return refs;
+
+	}
+
+
+	@Override
+	public String getString(int where, int len) throws BadLocationException {
+		Segment s = new Segment();
+		getChars(where, len, s);
+		return new String(s.array, s.offset, s.count);
+	}
+
+
+	/**
+	 * Returns the height of the tree, for testing purposes.
+	 *
+	 * @return The height of the tree.  A tree whose root's children are
+	 *         leaves has height <code>1</code>.
+	 */
+	int getTreeHeight() {
+		int height = 0;
+		for (Node node = root; node instanceof Inner; node = ((Inner)node).children.get(0)) {
+			height++;
+		}
+		return height;
+	}
+
+
+	@Override
+	public int getUndoCompressionThreshold() {
+		return undoCompressionThreshold;
+	}
+
+
+	@Override
+	public void insertChars(int where, char[] chars, int length) throws BadLocationException {
+
+		if (where>length() || where<0) {
+			throw new BadLocationException("Invalid insert", length());
+		}
+		if (length==0) {
+			return;
+		}
+		modCount++;
+
+		int[] start = new int[1];
+		Leaf leaf = makeWritable(findLeaf(where, true, start));
+		int offs = where - start[0];
+		if (leaf.length + length<=MAX_LEAF_SIZE) {
+			leaf.insert(offs, chars, length, where==0);
+			addLengths(leaf.parent, length);
+			return;
+		}
+
+		// Too much text for the leaf, so replace it with new ones
+		int newLength = leaf.length + length;
+		char[] combined = new char[newLength];
+		System.arraycopy(leaf.chars, 0, combined, 0, offs);
+		System.arraycopy(chars, 0, combined, offs, length);
+		System.arraycopy(leaf.chars, offs, combined, offs + length, leaf.length - offs);
+
+		leaf.setMarkGap(offs, where==0);
+		List<Mark> marks = new ArrayList<>(leaf.markCount);
+		for (int i=0; i<leaf.markCount; i++) {
+			Mark mark = leaf.marks[i];
+			if (mark.get()!=null) {
+				if (i>=leaf.markGap) { // After the insertion
+					mark.value = newLength - mark.value;
+					mark.fromEnd = false;
+				}
+				marks.add(mark);
+			}
+		}
+
+		Inner parent = leaf.parent;
+		int index = parent.indexOf(leaf);
+		replaceChildren(parent, index, index + 1, createLeaves(combined, newLength, marks));
+
+	}
+
+
+	@Override
+	public UndoableEdit insertString(int where, String str) throws BadLocationException {
+		if (where>length() || where<0) {
+			throw new BadLocationException("Invalid insert", length());
+		}
+		char[] chars = str.toCharArray();
+		insertChars(where, chars, chars.length);
+		return new InsertUndo(where, chars.length);
+	}
+
+
+	@Override
+	public int length() {
+		return root.length;
+	}
+
+
+	/**
+	 * Returns a version of a node that can be modified in place.  If the
+	 * node, or any of its ancestors, is shared with a snapshot, it's
+	 * replaced in the tree with a copy, as are those ancestors.  Siblings
+	 * are never modified, only replaced, so they needn't be copied.
+	 *
+	 * @param node The node.
+	 * @return The node, or its replacement.
+	 */
+	private <T extends Node> T makeWritable(T node) {
+
+		Inner parent = node.parent;
+		if (parent!=null) {
+			parent = makeWritable(parent);
+		}
+		if (!node.shared) {
+			return node;
+		}
+
+		// Copying a node flags its children as shared, so the topmost
+		// shared ancestor is copied first, then each node below it
+		@SuppressWarnings("unchecked")
+		T copy = (T)node.copy();
+		if (parent==null) {
+			root = (Inner)copy;
+		}
+		else {
+			parent.children.set(parent.indexOf(node), copy);
+			copy.parent = parent;
+		}
+		return copy;
+
+	}
+
+
+	/**
+	 * Merges a node with a neighbor, splitting the result again if it's
+	 * too large.
+	 *
+	 * @param node The node, which has too little content.
+	 */
+	private void mergeWithNeighbor(Node node) {
+
+		Inner parent = node.parent;
+		if (parent==null || parent.children.size()==1) {
+			return; // Only possible for the root and its only child
+		}
+
+		int index = parent.indexOf(node);
+		int first = index>0 ? index - 1 : index;
+		Node left = parent.children.get(first);
+		Node right = parent.children.get(first + 1);
+
+		List<? extends Node> merged;
+		if (left instanceof Leaf) {
+			Leaf l = (Leaf)left;
+			Leaf r = (Leaf)right;
+			char[] chars = Arrays.copyOf(l.chars, l.length + r.length);
+			System.arraycopy(r.chars, 0, chars, l.length, r.length);
+			List<Mark> marks = new ArrayList<>(l.markCount + r.markCount);
+			l.collectMarks(marks, 0);
+			r.collectMarks(marks, l.length);
+			merged = createLeaves(chars, chars.length, marks);
+		}
+		else {
+			// The children move to a new parent, so must be flagged if
+			// they're shared through their old one
+			Inner l = (Inner)left;
+			Inner r = (Inner)right;
+			if (l.shared) {
+				l.shareChildren();
+			}
+			if (r.shared) {
+				r.shareChildren();
+			}
+			List<Node> children = new ArrayList<>(l.children);
+			children.addAll(r.children);
+			if (children.size()>MAX_CHILDREN) {
+				merged = createInners(children);
+			}
+			else {
+				Inner inner = new Inner();
+				inner.children.addAll(children);
+				for (Node child : children) {
+					child.parent = inner;
+				}
+				inner.updateLength();
+				merged = Collections.singletonList(inner);
+			}
+		}
+
+		replaceChildren(parent, first, first + 2, merged);
+
+	}
+
+
+	/**
+	 * Returns the leaf after a leaf.
+	 *
+	 * @param leaf The leaf.
+	 * @return The next leaf, or <code>null</code> if <code>leaf</code> is
+	 *         the last one.
+	 */
+	private static Leaf nextLeaf(Leaf leaf) {
+		Node node = leaf;
+		for (Inner parent = node.parent; parent!=null; node = parent, parent = parent.parent) {
+			int index = parent.indexOf(node);
+			if (index + 1<parent.children.size()) {
+				Node next = parent.children.get(index + 1);
+				while (next instanceof Inner) {
+					next = ((Inner)next).children.get(0);
+				}
+				return (Leaf)next;
+			}
+		}
+		return null;
+	}
+
+
+	/**
+	 * Adds marks at an offset, after any marks already there.
+	 *
+	 * @param marks The marks.
+	 * @param offset The offset.
+	 */
+	private void placeMarks(List<Mark> marks, int offset) {
+		int[] start = new int[1];
+		Leaf leaf = findLeaf(offset, true, start);
+		leaf.addMarks(marks, offset - start[0]);
+	}
+
+
+	@Override
+	public UndoableEdit remove(int where, int nitems) throws BadLocationException {
+
+		if (where + nitems>=length()) {
+			throw new BadLocationException("Invalid remove", length() + 1);
+		}
+		if (where<0 || nitems<0) {
+			throw new BadLocationException("Invalid remove", where);
+		}
+
+		RemoveUndo edit;
+		if (undoCompressionThreshold==0 || nitems<undoCompressionThreshold) {
+			edit = new RemoveUndo(where, getString(where, nitems));
+			lastRemoveUndoSize = 2L * nitems;
+		}
+		else {
+			edit = new RemoveUndo(where, nitems, RDocument.compressText(this, where, nitems));
+			lastRemoveUndoSize = edit.compressed.length;
+		}
+		removeChars(where, nitems);
+		return edit;
+
+	}
+
+
+	/**
+	 * Removes text without creating an undoable edit.
+	 *
+	 * @param where The offset of the text to remove.
+	 * @param nitems The number of characters to remove.
+	 */
+	private void removeChars(int where, int nitems) {
+
+		if (nitems==0) {
+			return;
+		}
+		modCount++;
+
+		// Marks of leaves removed entirely, which end up at "where"
+		List<Mark> collapsed = new ArrayList<>(0);
+		int[] start = new int[1];
+
+		int remaining = nitems;
+		while (remaining>0) {
+			Leaf leaf = makeWritable(findLeaf(where, false, start));
+			int offs = where - start[0];
+			int end = Math.min(leaf.length, offs + remaining);
+			Inner parent = leaf.parent;
+			if (offs==0 && end==leaf.length && (parent!=root || parent.children.size()>1)) {
+				leaf.collectMarks(collapsed, 0);
+				int index = parent.indexOf(leaf);
+				replaceChildren(parent, index, index + 1, Collections.emptyList());
+			}
+			else {
+				leaf.remove(offs, end);
+				addLengths(parent, offs - end);
+			}
+			remaining -= end - offs;
+		}
+
+		if (!collapsed.isEmpty()) {
+			placeMarks(collapsed, where);
+		}
+		fixLeafUnderflow(where, true);
+		fixLeafUnderflow(where, false);
+
+	}
+
+
+	/**
+	 * Replaces some of a node's children.  The node is then split, or
+	 * merged with a neighbor, if necessary to keep the tree balanced, and
+	 * lengths are updated.
+	 *
+	 * @param parent The node.
+	 * @param from The index of the first child to replace.
+	 * @param to The index after the last child to replace.
+	 * @param nodes The new children.
+	 */
+	private void replaceChildren(Inner parent, int from, int to, List<? extends Node> nodes) {
+
+		List<Node> children = parent.children;
+		children.subList(from, to).clear();
+		children.addAll(from, nodes);
+		for (Node node : nodes) {
+			node.parent = parent;
+		}
+
+		if (children.size()>MAX_CHILDREN) {
+			List<Inner> inners = createInners(children);
+			if (parent==root) {
+				root = new Inner();
+				replaceChildren(root, 0, 0, inners);
+			}
+			else {
+				Inner grandparent = parent.parent;
+				int index = grandparent.indexOf(parent);
+				replaceChildren(grandparent, index, index + 1, inners);
+			}
+		}
+
+		else if (parent!=root && children.size()<MIN_CHILDREN) {
+			parent.updateLength();
+			mergeWithNeighbor(parent);
+		}
+
+		else {
+			while (root.children.size()==1 && root.children.get(0) instanceof Inner) {
+				if (root.shared) {
+					root.shareChildren();
+				}
+				root = (Inner)root.children.get(0);
+				root.parent = null;
+			}
+			for (Inner n = parent; n!=null; n = n.parent) {
+				n.updateLength();
+			}
+		}
+
+	}
+
+
+	/**
+	 * Moves positions back to where they were before an edit was undone.
+	 *
+	 * @param refs The positions and their old offsets, sorted by offset.
+	 */
+	private void restorePositions(List<UndoPosRef> refs) {
+
+		modCount++;
+
+		Set<Mark> marks = Collections.newSetFromMap(new IdentityHashMap<>());
+		Set<Leaf> leaves = Collections.newSetFromMap(new IdentityHashMap<>());
+		for (UndoPosRef ref : refs) {
+			marks.add(ref.mark);
+			leaves.add(ref.mark.leaf);
+			ref.mark.undoRefCount--;
+		}
+		for (Leaf leaf : leaves) {
+			leaf.removeMarks(marks);
+		}
+
+		// Add the marks to the leaves containing their old offsets
+		int[] start = new int[1];
+		int i = 0;
+		while (i<refs.size()) {
+			Leaf leaf = findLeaf(refs.get(i).offset, true, start);
+			int end = start[0] + leaf.length;
+			List<Mark> leafMarks = new ArrayList<>();
+			while (i<refs.size() && refs.get(i).offset<=end) {
+				UndoPosRef ref = refs.get(i++);
+				ref.mark.value = ref.offset - start[0];
+				leafMarks.add(ref.mark);
+			}
+			leaf.mergeMarks(leafMarks);
+		}
+
+	}
+
+
+	@Override
+	public void setUndoCompressionThreshold(int threshold) {
+		undoCompressionThreshold = Math.max(0, threshold);
+	}
+
+
+	/**
+	 * A node in the tree.
+	 */
+	private abstract static class Node {
+
+		Inner parent;
+
+		/**
+		 * The number of characters under this node.
+		 */
+		int length;
+
+		/**
+		 * Whether this node is reachable from a snapshot, meaning it must
+		 * not be modified.  The descendants of shared nodes are shared too,
+		 * but are only flagged when their parent is copied.
+		 */
+		boolean shared;
+
+		/**
+		 * Returns an unshared copy of this node, taking its place in the
+		 * tree.  Parent pointers and marks aren't used by snapshots, so
+		 * they move to the copy.
+		 */
+		abstract Node copy();
+
+	}
+
+
+	/**
+	 * A node whose children are either all leaves, or all inner nodes.
+	 */
+	private static final class Inner extends Node {
+
+		final List<Node> children = new ArrayList<>(MAX_CHILDREN + 1);
+
+		@Override
+		Inner copy() {
+			shareChildren();
+			Inner copy = new Inner();
+			copy.children.addAll(children);
+			for (Node child : children) {
+				child.parent = copy;
+			}
+			copy.length = length;
+			return copy;
+		}
+
+		int indexOf(Node child) {
+			for (int i=0; i<children.size(); i++) {
+				if (children.get(i)==child) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		void shareChildren() {
+			for (Node child : children) {
+				child.shared = true;
+			}
+		}
+
+		void updateLength() {
+			int total = 0;
+			for (Node child : children) {
+				total += child.length;
+			}
+			length = total;
+		}
+
+	}
+
+
+	/**
+	 * A leaf holding text, and the marks of the positions in that text.<p>
+	 *
+	 * The marks are sorted by offset.  Like <code>GapContent</code> does for
+	 * the entire document, those before {@link #markGap} store their offset
+	 * from the start of the leaf, and those after it store their offset
+	 * from its end, so an edit doesn't have to update all marks after it.
+	 */
+	private static final class Leaf extends Node {
+
+		char[] chars;
+		Mark[] marks;
+		int markCount;
+		int markGap;
+
+		Leaf(char[] chars, int length) {
+			this.chars = chars;
+			this.length = length;
+			marks = NO_MARKS;
+		}
+
+		/**
+		 * Adds marks at an offset, after any marks already there.
+		 */
+		void addMarks(List<Mark> newMarks, int offset) {
+			setMarkGap(offset, true);
+			ensureMarkCapacity(markCount + newMarks.size());
+			int count = newMarks.size();
+			System.arraycopy(marks, markGap, marks, markGap + count, markCount - markGap);
+			for (Mark mark : newMarks) {
+				mark.leaf = this;
+				mark.value = offset;
+				mark.fromEnd = false;
+				marks[markGap++] = mark;
+			}
+			markCount += count;
+		}
+
+		/**
+		 * Adds this leaf's live marks to a list, converting them to offsets
+		 * from the start of the leaf plus a value.
+		 */
+		void collectMarks(List<Mark> list, int base) {
+			for (int i=0; i<markCount; i++) {
+				Mark mark = marks[i];
+				if (mark.get()!=null) {
+					mark.value = base + getLocalOffset(mark);
+					mark.fromEnd = false;
+					list.add(mark);
+				}
+			}
+		}
+
+		@Override
+		Leaf copy() {
+			Leaf copy = new Leaf(chars.clone(), length);
+			copy.marks = marks;
+			copy.markCount = markCount;
+			copy.markGap = markGap;
+			for (int i=0; i<markCount; i++) {
+				marks[i].leaf = copy;
+			}
+			marks = NO_MARKS;
+			markCount = markGap = 0;
+			return copy;
+		}
+
+		void ensureMarkCapacity(int capacity) {
+			if (capacity>marks.length) {
+				purgeMarks();
+				if (capacity>marks.length) {
+					marks = Arrays.copyOf(marks, Math.max(capacity, 2 * marks.length));
+				}
+			}
+		}
+
+		int getLocalOffset(Mark mark) {
+			return mark.fromEnd ? length - mark.value : mark.value;
+		}
+
+		Position getOrCreatePosition(RopeContent content, int offset) {
+			setMarkGap(offset, true);
+			if (markGap>0) { // Reuse a position at the same offset if possible
+				Mark mark = marks[markGap - 1];
+				RopePosition pos = mark.get();
+				if (mark.value==offset && pos!=null && mark.undoRefCount==0) {
+					return pos;
+				}
+			}
+			RopePosition pos = new RopePosition();
+			Mark mark = content.new Mark(pos);
+			pos.mark = mark;
+			mark.leaf = this;
+			mark.value = offset;
+			ensureMarkCapacity(markCount + 1);
+			System.arraycopy(marks, markGap, marks, markGap + 1, markCount - markGap);
+			marks[markGap++] = mark;
+			markCount++;
+			return pos;
+		}
+
+		void insert(int offset, char[] text, int count, boolean keepMarksAtOffset) {
+			setMarkGap(offset, keepMarksAtOffset);
+			if (length + count>chars.length) {
+				chars = Arrays.copyOf(chars, Math.min(MAX_LEAF_SIZE,
+										Math.max(length + count, 2 * chars.length)));
+			}
+			System.arraycopy(chars, offset, chars, offset + count, length - offset);
+			System.arraycopy(text, 0, chars, offset, count);
+			length += count;
+		}
+
+		/**
+		 * Merges marks into this leaf.  The marks' <code>value</code>s
+		 * should be their offsets into this leaf, and they should be sorted.
+		 */
+		void mergeMarks(List<Mark> newMarks) {
+			setMarkGap(length, true); // All offsets from the start
+			Mark[] merged = new Mark[markCount + newMarks.size()];
+			int i = 0;
+			int count = 0;
+			for (Mark mark : newMarks) {
+				while (i<markCount && marks[i].value<=mark.value) {
+					merged[count++] = marks[i++];
+				}
+				mark.leaf = this;
+				mark.fromEnd = false;
+				merged[count++] = mark;
+			}
+			System.arraycopy(marks, i, merged, count, markCount - i);
+			marks = merged;
+			markCount = markGap = merged.length;
+		}
+
+		/**
+		 * Removes marks that no longer have positions.
+		 */
+		void purgeMarks() {
+			int count = 0;
+			int gap = markGap;
+			for (int i=0; i<markCount; i++) {
+				if (marks[i].get()!=null) {
+					marks[count++] = marks[i];
+				}
+				else if (i<markGap) {
+					gap--;
+				}
+			}
+			Arrays.fill(marks, count, markCount, null);
+			markCount = count;
+			markGap = gap;
+		}
+
+		void remove(int start, int end) {
+			setMarkGap(start, true);
+			// Marks in the removed range move to its start
+			int endValue = length - end;
+			for (int i=markGap; i<markCount && marks[i].value>endValue; i++) {
+				marks[i].value = endValue;
+			}
+			System.arraycopy(chars, end, chars, start, length - end);
+			length -= end - start;
+		}
+
+		void removeMarks(Set<Mark> toRemove) {
+			int count = 0;
+			int gap = markGap;
+			for (int i=0; i<markCount; i++) {
+				if (!toRemove.contains(marks[i])) {
+					marks[count++] = marks[i];
+				}
+				else if (i<markGap) {
+					gap--;
+				}
+			}
+			Arrays.fill(marks, count, markCount, null);
+			markCount = count;
+			markGap = gap;
+		}
+
+		/**
+		 * Moves the mark gap so that marks before an offset (and, optionally,
+		 * at it) store their offset from the start of the leaf, and all
+		 * others their offset from the end.
+		 */
+		void setMarkGap(int offset, boolean includeOffset) {
+			int gap = markGap;
+			while (gap>0) {
+				int offs = getLocalOffset(marks[gap - 1]);
+				if (offs<offset || (includeOffset && offs==offset)) {
+					break;
+				}
+				Mark mark = marks[--gap];
+				mark.value = length - mark.value;
+				mark.fromEnd = true;
+			}
+			while (gap<markCount) {
+				int offs = getLocalOffset(marks[gap]);
+				if (offs>offset || (!includeOffset && offs==offset)) {
+					break;
+				}
+				Mark mark = marks[gap++];
+				mark.value = length - mark.value;
+				mark.fromEnd = false;
+			}
+			markGap = gap;
+		}
+
+		/**
+		 * Sets this leaf's marks.  The marks' <code>value</code>s should be
+		 * their offsets from <code>base</code>, and they should be sorted.
+		 */
+		void setMarks(List<Mark> newMarks, int base) {
+			marks = newMarks.isEmpty() ? NO_MARKS : newMarks.toArray(new Mark[0]);
+			for (Mark mark : marks) {
+				mark.leaf = this;
+				mark.value -= base;
+				mark.fromEnd = false;
+			}
+			markCount = markGap = marks.length;
+		}
+
+	}
+
+
+	/**
+	 * A snapshot sharing the tree.  Only the nodes' text, children and
+	 * lengths are read, since parent pointers and marks belong to the live
+	 * tree.
+	 */
+	private static final class RopeSnapshot extends TextSnapshot {
+
+		private final Inner root;
+		private final int length;
+
+		RopeSnapshot(Inner root, int length) {
+			this.root = root;
+			this.length = length;
+		}
+
+		@Override
+		public char charAt(int index) {
+			if (index<0 || index>=length) {
+				throw new IndexOutOfBoundsException("Invalid index: " + index);
+			}
+			Node node = root;
+			int offs = index;
+			while (node instanceof Inner) {
+				for (Node child : ((Inner)node).children) {
+					if (offs<child.length) {
+						node = child;
+						break;
+					}
+					offs -= child.length;
+				}
+			}
+			return ((Leaf)node).chars[offs];
+		}
+
+		/**
+		 * Copies text under a node into an array.
+		 *
+		 * @return The number of characters copied.
+		 */
+		private static int copyText(Node node, int from, int to, char[] dest, int destPos) {
+			if (node instanceof Leaf) {
+				System.arraycopy(((Leaf)node).chars, from, dest, destPos, to - from);
+				return to - from;
+			}
+			int count = 0;
+			int childStart = 0;
+			for (Node child : ((Inner)node).children) {
+				int childEnd = childStart + child.length;
+				if (childEnd>from && childStart<to) {
+					count += copyText(child, Math.max(from, childStart) - childStart,
+							Math.min(to, childEnd) - childStart, dest, destPos + count);
+				}
+				childStart = childEnd;
+			}
+			return count;
+		}
+
+		@Override
+		public void getText(int offs, int len, Segment txt) throws BadLocationException {
+
+			checkRange(offs, len);
+
+			// Use the leaf's array directly if possible
+			Node node = root;
+			int nodeOffs = offs;
+			while (node instanceof Inner) {
+				// The implied newline is in the tree, so offs is always found
+				for (Node child : ((Inner)node).children) {
+					if (nodeOffs<child.length) {
+						node = child;
+						break;
+					}
+					nodeOffs -= child.length;
+				}
+			}
+			if (nodeOffs + len<=node.length || txt.isPartialReturn()) {
+				txt.array = ((Leaf)node).chars;
+				txt.offset = nodeOffs;
+				txt.count = Math.min(len, node.length - nodeOffs);
+				return;
+			}
+
+			char[] chars = new char[len];
+			copyText(root, offs, offs + len, chars, 0);
+			txt.array = chars;
+			txt.offset = 0;
+			txt.count = len;
+
+		}
+
+		@Override
+		public int length() {
+			return length;
+		}
+
+	}
+
+
+	/**
+	 * A leaf and its offset in the document, as of a specific modification.
+	 */
+	private static final class LeafCursor {
+
+		private final Leaf leaf;
+		private final int start;
+		private final int modCount;
+
+		LeafCursor(Leaf leaf, int start, int modCount) {
+			this.leaf = leaf;
+			this.start = start;
+			this.modCount = modCount;
+		}
+
+	}
+
+
+	/**
+	 * Tracks the location of a position in a leaf.
+	 */
+	private final class Mark extends WeakReference<RopePosition> {
+
+		private Leaf leaf;
+
+		/**
+		 * The offset from the start or end of the leaf.
+		 */
+		private int value;
+		private boolean fromEnd;
+
+		/**
+		 * The number of undoable edits that will move this mark back to an
+		 * old offset.  Such marks aren't reused for new positions, since
+		 * those shouldn't move too.  This isn't decremented for edits that
+		 * are discarded, which is harmless.
+		 */
+		private int undoRefCount;
+
+		/**
+		 * The offset as of a modification count, in the high and low 32 bits.
+		 */
+		private long cachedOffset;
+
+		Mark(RopePosition pos) {
+			super(pos);
+			cachedOffset = -1;
+		}
+
+		int getOffset() {
+			long cached = cachedOffset;
+			if ((int)(cached>>>32)==modCount) {
+				return (int)cached;
+			}
+			Node node = leaf;
+			int offset = leaf.getLocalOffset(this);
+			for (Inner parent = node.parent; parent!=null; node = parent, parent = parent.parent) {
+				for (Node child : parent.children) {
+					if (child==node) {
+						break;
+					}
+					offset += child.length;
+				}
+			}
+			cachedOffset = ((long)modCount<<32) | (offset & 0xffffffffL);
+			return offset;
+		}
+
+	}
+
+
+	/**
+	 * A position in the content.
+	 */
+	private static final class RopePosition implements Position {
+
+		private Mark mark;
+
+		@Override
+		public int getOffset() {
+			return mark.getOffset();
+		}
+
+		@Override
+		public String toString() {
+			return Integer.toString(getOffset());
+		}
+
+	}
+
+
+	/**
+	 * A position and its offset before an edit.
+	 */
+	private static final class UndoPosRef {
+
+		private final Mark mark;
+		private final int offset;
+
+		UndoPosRef(Mark mark, int offset) {
+			this.mark = mark;
+			this.offset = offset;
+		}
+
+	}
+
+
+	/**
+	 * An undoable edit for inserted text.
+	 */
+	private final class InsertUndo extends AbstractUndoableEdit {
+
+		private final int offset;
+		private final int length;
+		private String string;
+		private List<UndoPosRef> posRefs;
+
+		InsertUndo(int offset, int length) {
+			this.offset = offset;
+			this.length = length;
+		}
+
+		@Override
+		public void undo() throws CannotUndoException {
+			super.undo();
+			try {
+				posRefs = getPositionsInRange(offset, length);
+				string = getString(offset, length);
+				removeChars(offset, length);
+			} catch (BadLocationException ble) {
+				throw new CannotUndoException();
+			}
+		}
+
+		@Override
+		public void redo() throws CannotRedoException {
+			super.redo();
+			try {
+				char[] chars = string.toCharArray();
+				insertChars(offset, chars, chars.length);
+				string = null;
+				restorePositions(posRefs);
+				posRefs = null;
+			} catch (BadLocationException ble) {
+				throw new CannotRedoException();
+			}
+		}
+
+	}
+
+
+	/**
+	 * An undoable edit for removed text.  Large removed text may be kept
+	 * compressed; see {@link RDocument#setUndoCompressionThreshold(int)}.
+	 */
+	private final class RemoveUndo extends AbstractUndoableEdit {
+
+		private final int offset;
+		private final int length;
+		private String string;
+		private byte[] compressed;
+		private List<UndoPosRef> posRefs;
+
+		RemoveUndo(int offset, String string) {
+			this.offset = offset;
+			this.length = string.length();
+			this.string = string;
+			posRefs = getPositionsInRange(offset, length);
+		}
+
+		RemoveUndo(int offset, int length, byte[] compressed) {
+			this.offset = offset;
+			this.length = length;
+			this.compressed = compressed;
+			posRefs = getPositionsInRange(offset, length);
+		}
+
+		@Override
+		public void undo() throws CannotUndoException {
+			super.undo();
+			try {
+				char[] chars = string!=null ? string.toCharArray() :
+						RDocument.decompressText(compressed, length);
+				insertChars(offset, chars, length);
+				restorePositions(posRefs);
+				posRefs = null;
+			} catch (BadLocationException ble) {
+				throw new CannotUndoException();
+			}
+		}
+
+		@Override
+		public void redo() throws CannotRedoException {
+			super.redo();
+			posRefs = getPositionsInRange(offset, length);
+			removeChars(offset, length);
+		}
+
+	}
+
+
+}
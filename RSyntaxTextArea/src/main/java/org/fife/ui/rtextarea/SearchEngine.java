@@ -19,6 +19,7 @@ import java.util.regex.PatternSyntaxException;
 import javax.swing.JTextArea;
 import javax.swing.text.BadLocationException;
 import javax.swing.text.Caret;
+import javax.swing.text.Document;
 
 import org.fife.ui.rsyntaxtextarea.DocumentRange;
 import org.fife.ui.rsyntaxtextarea.RSyntaxUtilities;
@@ -50,6 +51,25 @@ public final class SearchEngine {
 	}
 
 
+	/**
+	 * Returns whether a "replace all" can be done by editing a text area's
+	 * document directly, as a single undoable edit, rather than with one
+	 * <code>replaceSelection()</code> call per match.
+	 *
+	 * @param textArea The text area.
+	 * @return Whether the document can be edited directly.
+	 */
+	private static boolean canReplaceAllInOneEdit(RTextArea textArea) {
+		// Document filters may veto individual replacements, and overwrite
+		// mode changes how zero-length matches are replaced
+		Document doc = textArea.getDocument();
+		return textArea.isEditable() && textArea.isEnabled() &&
+				textArea.getTextMode()==RTextArea.INSERT_MODE &&
+				doc instanceof RDocument &&
+				((RDocument)doc).getDocumentFilter()==null;
+	}
+
+
 	/**
 	 * Finds the next instance of the string/regular expression specified
 	 * from the caret position.  If a match is found, it is selected in this
@@ -937,7 +957,16 @@ public final class SearchEngine {
 
 	/**
 	 * Replaces all instances of the text/regular expression specified in
-	 * the specified document with the specified replacement.
+	 * the specified document with the specified replacement.<p>
+	 *
+	 * When possible, the document is scanned once and the matches are
+	 * replaced directly in the document as a single undoable edit, which
+	 * is much faster than replacing and searching again for each match
+	 * when there are many matches.  Each match is replaced through the
+	 * text area if the document has a
+	 * <code>DocumentFilter</code>, the text area is in overwrite mode, or
+	 * the text area emulates tabs with spaces and a replacement contains a
+	 * tab.
 	 *
 	 * @param textArea The text area in which to search.
 	 * @param context What to search for and all search options.
@@ -980,6 +1009,32 @@ public final class SearchEngine {
 			context.setSearchWrap(false);
 		}
 
+		SearchResult result = null;
+		if (canReplaceAllInOneEdit(textArea)) {
+			result = replaceAllInOneEdit(textArea, context);
+		}
+		if (result==null) {
+			result = replaceAllIncrementally(textArea, context);
+		}
+		return result;
+
+	}
+
+
+	/**
+	 * Replaces all matches by calling {@link #replace(RTextArea, SearchContext)}
+	 * until no more matches are found.  This is slow for large numbers of
+	 * matches, but honors everything <code>replaceSelection()</code> does,
+	 * such as a <code>DocumentFilter</code> vetoing individual replacements.
+	 *
+	 * @param textArea The text area in which to search.
+	 * @param context What to search for and all search options.  Mark all
+	 *        and wrapping are assumed to be disabled.
+	 * @return The result of the operation.
+	 */
+	private static SearchResult replaceAllIncrementally(RTextArea textArea,
+			SearchContext context) {
+
 		SearchResult lastFound = null;
 		int count = 0;
 		textArea.beginAtomicEdit();
@@ -1026,4 +1081,116 @@ public final class SearchEngine {
 	}
 
 
+	/**
+	 * Replaces all matches as a single undoable edit.  The document's text
+	 * is scanned once, then each match is replaced in the document, from
+	 * the last match to the first so the offsets of those not yet replaced
+	 * don't change.  Only the matched text is removed, so positions (e.g.
+	 * bookmarks) outside of the matches don't move, and the undoable edit
+	 * only holds the matched text.<p>
+	 *
+	 * The matches found, the count returned, and the resulting selection
+	 * are identical to those of {@link #replaceAllIncrementally(RTextArea,
+	 * SearchContext)}.
+	 *
+	 * @param textArea The text area in which to search.
+	 * @param context What to search for and all search options.  Mark all
+	 *        and wrapping are assumed to be disabled.
+	 * @return The result of the operation, or <code>null</code> if the
+	 *         replacement can't be done in one edit, in which case the
+	 *         document is not modified.
+	 */
+	private static SearchResult replaceAllInOneEdit(RTextArea textArea,
+			SearchContext context) {
+
+		String text = textArea.getText();
+		ReplaceAllMatcher matcher = ReplaceAllMatcher.create(text, context);
+		if (matcher==null) {
+			return null;
+		}
+		boolean tabsEmulated = textArea.getTabsEmulated();
+		String replaceWith = context.getReplaceWith();
+
+		// Mirror the loop in replaceAllIncrementally().  After each
+		// replacement, replace() searches for (and selects) the next match,
+		// then the next replace() searches again from the start of that
+		// selection.  Since the text after a replacement is unchanged, all
+		// searches can be done in the original text.
+		List<int[]> matches = new ArrayList<>(); // { start, end }
+		List<String> replacements = new ArrayList<>();
+		int delta = 0;
+		int count = 0;
+		int pos = 0;
+		int nextStart = 0;
+		int nextEnd = 0;
+		boolean stoppedAtEnd = false;
+
+		while (matcher.find(pos)) {
+
+			String replacement = matcher.getReplacement(replaceWith);
+			if (tabsEmulated && replacement.indexOf('\t')>-1) {
+				return null; // Tab expansion depends on each match's column
+			}
+			int matchEnd = matcher.getEnd();
+			matches.add(new int[] { matcher.getStart(), matchEnd });
+			replacements.add(replacement);
+			delta += replacement.length() - (matchEnd - matcher.getStart());
+			count++;
+
+			if (matcher.find(matchEnd)) {
+				nextStart = matcher.getStart();
+				nextEnd = matcher.getEnd();
+			}
+			else {
+				nextStart = nextEnd = matchEnd;
+			}
+
+			// Protect against regexes that can match 0-length strings
+			if (nextStart==nextEnd) {
+				if (nextStart==text.length()) {
+					stoppedAtEnd = true;
+					break;
+				}
+				pos = nextStart + 1;
+			}
+			else {
+				pos = nextStart;
+			}
+
+		}
+
+		if (count==0) {
+			return new SearchResult();
+		}
+
+		RDocument doc = (RDocument)textArea.getDocument();
+		textArea.beginAtomicEdit();
+		try {
+			for (int i=matches.size()-1; i>=0; i--) {
+				int[] match = matches.get(i);
+				doc.replace(match[0], match[1] - match[0],
+						replacements.get(i), null);
+			}
+		} catch (BadLocationException ble) { // Never happens
+			ble.printStackTrace();
+		} finally {
+			textArea.endAtomicEdit();
+		}
+
+		DocumentRange range = new DocumentRange(nextStart + delta,
+												nextEnd + delta);
+		textArea.getCaret().setSelectionVisible(true);
+		RSyntaxUtilities.selectAndPossiblyCenter(textArea, range, true);
+		if (!stoppedAtEnd) {
+			// The final, unsuccessful replace() collapsed the selection
+			textArea.setCaretPosition(pos + delta);
+		}
+
+		SearchResult result = new SearchResult(range, 1, 0);
+		result.setCount(count);
+		return result;
+
+	}
+
+
 }
@@ -0,0 +1,156 @@
+/*
+ * 10/19/2026
+ *
+ * TextSnapshot.java - An immutable copy of a document's text.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * LICENSE file for details.
+ */
+package org.fife.ui.rtextarea;
+
+import javax.swing.text.AbstractDocument;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Segment;
+
+
+/**
+ * The text of a document at a point in time.  Snapshots are created by
+ * {@link RDocument#createTextSnapshot()}, and never change, so they can be
+ * read from any thread without holding the document's lock.<p>
+ *
+ * The implied newline at the end of every document's content isn't
+ * included.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ */
+public abstract class TextSnapshot implements CharSequence {
+
+
+	/**
+	 * Constructor.  This class can't be extended outside this package.
+	 */
+	TextSnapshot() {
+	}
+
+
+	/**
+	 * Returns a snapshot that is a copy of content's text.  The text is
+	 * copied once, a part at a time, rather than first being gathered into
+	 * a temporary array.
+	 *
+	 * @param content The content.
+	 * @return The snapshot.
+	 */
+	static TextSnapshot copyOf(AbstractDocument.Content content) {
+		int len = content.length() - 1;
+		char[] chars = new char[len];
+		Segment s = new Segment();
+		s.setPartialReturn(true);
+		int offs = 0;
+		try {
+			while (offs<len) {
+				content.getChars(offs, len - offs, s);
+				System.arraycopy(s.array, s.offset, chars, offs, s.count);
+				offs += s.count;
+			}
+		} catch (BadLocationException ble) { // Never happens
+			throw new InternalError(ble);
+		}
+		return new ArraySnapshot(chars);
+	}
+
+
+	/**
+	 * Checks that a range is in this snapshot.
+	 *
+	 * @param offs The start of the range.
+	 * @param len The length of the range.
+	 * @throws BadLocationException If the range isn't valid.
+	 */
+	final void checkRange(int offs, int len) throws BadLocationException {
+		if (offs<0 || len<0 || offs + len>length()) {
+			throw new BadLocationException("Invalid range", offs + len);
+		}
+	}
+
+
+	/**
+	 * Fetches some of the text.  If the segment is set to allow partial
+	 * returns, it may be given less than the requested text, without
+	 * copying.
+	 *
+	 * @param offs The start offset of the text.
+	 * @param len The length of the text.
+	 * @param txt Receives the text.  Its array must not be modified.
+	 * @throws BadLocationException If the range is invalid.
+	 * @see #getText(int, int)
+	 */
+	public abstract void getText(int offs, int len, Segment txt) throws BadLocationException;
+
+
+	/**
+	 * Returns some of the text.
+	 *
+	 * @param offs The start offset of the text.
+	 * @param len The length of the text.
+	 * @return The text.
+	 * @throws BadLocationException If the range is invalid.
+	 * @see #getText(int, int, Segment)
+	 */
+	public String getText(int offs, int len) throws BadLocationException {
+		Segment s = new Segment();
+		getText(offs, len, s);
+		return new String(s.array, s.offset, s.count);
+	}
+
+
+	@Override
+	public CharSequence subSequence(int start, int end) {
+		try {
+			return getText(start, end - start);
+		} catch (BadLocationException ble) {
+			throw new IndexOutOfBoundsException(ble.getMessage());
+		}
+	}
+
+
+	@Override
+	public String toString() {
+		return subSequence(0, length()).toString();
+	}
+
+
+	/**
+	 * A snapshot stored in a single array.
+	 */
+	private static final class ArraySnapshot extends TextSnapshot {
+
+		private final char[] chars;
+
+		ArraySnapshot(char[] chars) {
+			this.chars = chars;
+		}
+
+		@Override
+		public char charAt(int index) {
+			return chars[index];
+		}
+
+		@Override
+		public void getText(int offs, int len, Segment txt) throws BadLocationException {
+			checkRange(offs, len);
+			txt.array = chars;
+			txt.offset = offs;
+			txt.count = len;
+		}
+
+		@Override
+		public int length() {
+			return chars.length;
+		}
+
+	}
+
+
+}
@@ -370,6 +370,16 @@ public class DynamicIntArray implements Serializable {
 	}
 
 
+	/**
+	 * Returns a copy of the values in this array object.
+	 *
+	 * @return The values.
+	 */
+	public int[] toArray() {
+		return Arrays.copyOf(data, size);
+	}
+
+
 	/**
 	 * Throws an exception.  This method isolates error-handling code from
 	 * the error-checking code, so that callers (e.g. {@link #get} and
@@ -174,6 +174,23 @@ class UnicodeWriterTest {
 		}
 	}
 
+	@Test
+	void testGetBOM() {
+
+		UnicodeWriter.setWriteUtf8BOM(true);
+		Assertions.assertArrayEquals(new byte[] { (byte)0xef, (byte)0xbb, (byte)0xbf },
+			UnicodeWriter.getBOM("UTF-8"));
+		UnicodeWriter.setWriteUtf8BOM(false);
+		Assertions.assertNull(UnicodeWriter.getBOM("UTF-8"));
+
+		Assertions.assertArrayEquals(new byte[] { (byte)0xff, (byte)0xfe },
+			UnicodeWriter.getBOM("UTF-16LE"));
+		Assertions.assertArrayEquals(new byte[] { (byte)0xfe, (byte)0xff },
+			UnicodeWriter.getBOM("UTF-16BE"));
+		Assertions.assertNull(UnicodeWriter.getBOM("UTF-16")); // Encoder writes it
+		Assertions.assertNull(UnicodeWriter.getBOM("ISO-8859-1"));
+	}
+
 	@Test
 	void testGetEncoding() throws IOException {
 
@@ -7,13 +7,18 @@ package org.fife.print;
 import org.fife.ui.SwingRunnerExtension;
 import org.fife.ui.rsyntaxtextarea.AbstractRSyntaxTextAreaTest;
 import org.fife.ui.rsyntaxtextarea.RSyntaxTextArea;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 
 import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
 import javax.swing.text.PlainDocument;
 import java.awt.*;
 import java.awt.print.PageFormat;
+import java.awt.print.Printable;
+import java.util.ArrayList;
+import java.util.List;
 
 
 /**
@@ -39,6 +44,67 @@ class RPrintUtilitiesTest extends AbstractRSyntaxTextAreaTest {
 	}
 
 
+	private static int countPages(Document doc, boolean wordWrap) {
+		Graphics g = createTestGraphics();
+		PageFormat pageFormat = new PageFormat();
+		int page = 0;
+		while ((wordWrap ? RPrintUtilities.printDocumentMonospacedWordWrap(g, doc, 10, page, pageFormat, 4) :
+				RPrintUtilities.printDocumentMonospaced(g, doc, 10, page, pageFormat, 4)) == Printable.PAGE_EXISTS) {
+			page++;
+		}
+		return page;
+	}
+
+
+	/**
+	 * Prints a page, returning the text of each printed line and its offset
+	 * in the document.
+	 */
+	private static List<String> printPage(RSyntaxTextArea textArea, int pageIndex) {
+		List<String> lines = new ArrayList<>();
+		int result = RPrintUtilities.printDocumentWordWrap(createTestGraphics(), textArea, textArea.getFont(),
+			pageIndex, new PageFormat(), 4, (g, text, offs, x, y, e) -> lines.add(offs + ": " + text));
+		return result == Printable.PAGE_EXISTS ? lines : null;
+	}
+
+
+	@Test
+	void testPrintDocumentMonospaced_documentChanged() throws BadLocationException {
+
+		PlainDocument doc = new PlainDocument();
+		doc.insertString(0, createContent(5000), null);
+		int pageCount = countPages(doc, false);
+		Assertions.assertTrue(pageCount > 1);
+
+		doc.insertString(0, createContent(5000), null);
+		Assertions.assertTrue(countPages(doc, false) > pageCount);
+
+		doc.remove(0, doc.getLength());
+		Assertions.assertEquals(1, countPages(doc, false));
+	}
+
+
+	@Test
+	void testPrintDocumentMonospaced_pagesOutOfOrder() throws BadLocationException {
+
+		PlainDocument doc = new PlainDocument();
+		doc.insertString(0, createContent(20000), null);
+		int pageCount = countPages(doc, false);
+
+		// A different document, so no page starts are known
+		countPages(new PlainDocument(), false);
+
+		Graphics g = createTestGraphics();
+		PageFormat pageFormat = new PageFormat();
+		Assertions.assertEquals(Printable.NO_SUCH_PAGE,
+			RPrintUtilities.printDocumentMonospaced(g, doc, 10, pageCount, pageFormat, 4));
+		for (int page = pageCount - 1; page >= 0; page--) {
+			Assertions.assertEquals(Printable.PAGE_EXISTS,
+				RPrintUtilities.printDocumentMonospaced(g, doc, 10, page, pageFormat, 4));
+		}
+	}
+
+
 	@Test
 	void testPrintDocumentMonospaced_happyPath() throws BadLocationException {
 
@@ -98,4 +164,76 @@ class RPrintUtilitiesTest extends AbstractRSyntaxTextAreaTest {
 
 		RPrintUtilities.printDocumentWordWrap(g, textArea, font, 0, pageFormat, 4);
 	}
+
+
+	@Test
+	void testPrintDocumentMonospacedWordWrap_documentChanged() throws BadLocationException {
+
+		PlainDocument doc = new PlainDocument();
+		doc.insertString(0, createContent(5000), null);
+		int pageCount = countPages(doc, true);
+		Assertions.assertTrue(pageCount > 1);
+
+		doc.insertString(0, createContent(5000), null);
+		Assertions.assertTrue(countPages(doc, true) > pageCount);
+	}
+
+
+	@Test
+	void testPrintDocumentWordWrap_pagesOutOfOrder() {
+
+		RSyntaxTextArea textArea = createTextArea();
+		textArea.setText(createContent(20000));
+
+		List<List<String>> pages = new ArrayList<>();
+		List<String> page = printPage(textArea, 0);
+		while (page != null) {
+			pages.add(page);
+			page = printPage(textArea, pages.size());
+		}
+		Assertions.assertTrue(pages.size() > 2);
+
+		// A different document, so no page starts are known
+		RSyntaxTextArea textArea2 = createTextArea();
+		printPage(textArea2, 0);
+
+		Assertions.assertNull(printPage(textArea, pages.size()));
+		for (int i = pages.size() - 1; i >= 0; i--) {
+			Assertions.assertEquals(pages.get(i), printPage(textArea, i));
+		}
+	}
+
+
+	@Test
+	void testPrintDocumentWordWrap_documentChanged() {
+
+		RSyntaxTextArea textArea = createTextArea();
+		textArea.setText(createContent(20000));
+		List<String> page2 = printPage(textArea, 2);
+
+		textArea.insert("foo\n", 0);
+		List<String> newPage2 = printPage(textArea, 2);
+		Assertions.assertNotEquals(page2, newPage2);
+
+		// Same as laying out the new text from scratch
+		RSyntaxTextArea textArea2 = createTextArea();
+		textArea2.setText(textArea.getText());
+		Assertions.assertEquals(newPage2, printPage(textArea2, 2));
+	}
+
+
+	@Test
+	void testPrint_syntaxHighlighted() {
+
+		RSyntaxTextArea textArea = createTextArea();
+		textArea.setText(createContent(4000));
+		Graphics g = createTestGraphics();
+		PageFormat pageFormat = new PageFormat();
+
+		int page = 0;
+		while (textArea.print(g, pageFormat, page) == Printable.PAGE_EXISTS) {
+			page++;
+		}
+		Assertions.assertTrue(page > 0);
+	}
 }
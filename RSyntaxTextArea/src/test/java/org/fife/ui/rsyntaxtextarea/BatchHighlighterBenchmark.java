@@ -0,0 +1,138 @@
+/*
+ * This library is distributed under a modified BSD license.  See the included
+ * LICENSE file for details.
+ */
+package org.fife.ui.rsyntaxtextarea;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+
+/**
+ * A throughput benchmark for {@link BatchHighlighter}.  This is not a unit
+ * test; run it manually, e.g.:
+ * <pre>
+ * java -Djava.awt.headless=true -cp &lt;classpath&gt; \
+ *      org.fife.ui.rsyntaxtextarea.BatchHighlighterBenchmark [maxThreads]
+ * </pre>
+ * It highlights a batch of generated Java files to HTML with 1, 2, 4, ...
+ * threads, up to <code>maxThreads</code> (by default, twice the number of
+ * processors), and prints the throughput for each thread count.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ */
+public final class BatchHighlighterBenchmark {
+
+	private static final int FILE_COUNT = 2000;
+	private static final int WARMUP_ROUNDS = 2;
+	private static final int MEASURED_ROUNDS = 3;
+
+
+	private BatchHighlighterBenchmark() {
+		// Do nothing
+	}
+
+
+	private static List<String> createFiles() {
+		List<String> files = new ArrayList<>(FILE_COUNT);
+		for (int i = 0; i < FILE_COUNT; i++) {
+			StringBuilder sb = new StringBuilder("/*\n * File ").append(i).append("\n */\npackage foo;\n\n");
+			sb.append("public class Foo").append(i).append(" {\n");
+			for (int j = 0; j < 20 + i % 40; j++) {
+				sb.append("\t/** Javadoc for method ").append(j).append(". */\n");
+				sb.append("\tpublic int method").append(j).append("(String s, int x) {\n");
+				sb.append("\t\treturn s.length() + x * ").append(j).append("; // A comment\n");
+				sb.append("\t}\n\n");
+			}
+			files.add(sb.append("}\n").toString());
+		}
+		return files;
+	}
+
+
+	/**
+	 * Program entry point.
+	 *
+	 * @param args The optional maximum number of threads to test with.
+	 * @throws Exception If an error occurs.
+	 */
+	public static void main(String[] args) throws Exception {
+
+		int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) :
+			2 * Runtime.getRuntime().availableProcessors();
+		List<String> files = createFiles();
+		long totalChars = 0;
+		for (String file : files) {
+			totalChars += file.length();
+		}
+		BatchHighlighter highlighter = new BatchHighlighter();
+
+		System.out.printf("%d files, %.1f MB of text, %d processors%n", files.size(),
+			totalChars / (1024.0 * 1024), Runtime.getRuntime().availableProcessors());
+		System.out.printf("%8s %12s %10s%n", "threads", "files/sec", "MB/sec");
+
+		for (int threads = 1; threads <= maxThreads; threads *= 2) {
+			ExecutorService executor = Executors.newFixedThreadPool(threads);
+			try {
+				for (int i = 0; i < WARMUP_ROUNDS; i++) {
+					runRound(executor, highlighter, files);
+				}
+				long start = System.nanoTime();
+				for (int i = 0; i < MEASURED_ROUNDS; i++) {
+					runRound(executor, highlighter, files);
+				}
+				double seconds = (System.nanoTime() - start) / 1e9;
+				System.out.printf("%8d %12.0f %10.1f%n", threads, MEASURED_ROUNDS * files.size() / seconds,
+					MEASURED_ROUNDS * totalChars / (1024.0 * 1024) / seconds);
+			} finally {
+				executor.shutdown();
+			}
+		}
+	}
+
+
+	private static void runRound(ExecutorService executor, BatchHighlighter highlighter, List<String> files)
+			throws Exception {
+		List<Future<?>> futures = new ArrayList<>(files.size());
+		for (String file : files) {
+			futures.add(executor.submit(() -> {
+				highlighter.writeHtml(file, SyntaxConstants.SYNTAX_STYLE_JAVA, NullWriter.INSTANCE);
+				return null;
+			}));
+		}
+		for (Future<?> future : futures) {
+			future.get();
+		}
+	}
+
+
+	/**
+	 * Discards everything written to it.
+	 */
+	private static final class NullWriter extends Writer {
+
+		private static final NullWriter INSTANCE = new NullWriter();
+
+		@Override
+		public void write(char[] cbuf, int off, int len) {
+		}
+
+		@Override
+		public void write(String str) throws IOException {
+		}
+
+		@Override
+		public void flush() {
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+}
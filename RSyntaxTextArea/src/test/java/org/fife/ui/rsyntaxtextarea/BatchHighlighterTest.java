@@ -0,0 +1,129 @@
+/*
+ * This library is distributed under a modified BSD license.  See the included
+ * LICENSE file for details.
+ */
+package org.fife.ui.rsyntaxtextarea;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Unit tests for the {@link BatchHighlighter} class.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ */
+class BatchHighlighterTest {
+
+
+	private static List<int[]> getSpans(BatchHighlighter highlighter, CharSequence text, String syntaxStyle) {
+		List<int[]> spans = new ArrayList<>();
+		highlighter.highlight(text, syntaxStyle, (type, start, end) -> spans.add(new int[] { type, start, end }));
+		return spans;
+	}
+
+
+	@Test
+	void testHighlight() {
+
+		String text = "int x; // foo";
+		List<int[]> spans = getSpans(new BatchHighlighter(), text, SyntaxConstants.SYNTAX_STYLE_JAVA);
+
+		Assertions.assertArrayEquals(new int[] { TokenTypes.DATA_TYPE, 0, 3 }, spans.get(0));
+		Assertions.assertArrayEquals(new int[] { TokenTypes.WHITESPACE, 3, 4 }, spans.get(1));
+		Assertions.assertArrayEquals(new int[] { TokenTypes.IDENTIFIER, 4, 5 }, spans.get(2));
+		int[] last = spans.get(spans.size() - 1);
+		Assertions.assertArrayEquals(new int[] { TokenTypes.COMMENT_EOL, 7, text.length() }, last);
+
+		// Spans cover the text exactly
+		int offs = 0;
+		for (int[] span : spans) {
+			Assertions.assertEquals(offs, span[1]);
+			offs = span[2];
+		}
+		Assertions.assertEquals(text.length(), offs);
+	}
+
+
+	@Test
+	void testHighlight_multiLineState() {
+
+		String text = "/* a\r\nb */ int";
+		List<int[]> spans = getSpans(new BatchHighlighter(), new StringBuilder(text),
+			SyntaxConstants.SYNTAX_STYLE_JAVA);
+
+		Assertions.assertArrayEquals(new int[] { TokenTypes.COMMENT_MULTILINE, 0, 4 }, spans.get(0));
+		Assertions.assertArrayEquals(new int[] { TokenTypes.COMMENT_MULTILINE, 6, 10 }, spans.get(1));
+		Assertions.assertArrayEquals(new int[] { TokenTypes.DATA_TYPE, 11, 14 }, spans.get(spans.size() - 1));
+	}
+
+
+	@Test
+	void testHighlight_tokenMakersPooled() {
+
+		BatchHighlighter highlighter = new BatchHighlighter();
+		Assertions.assertEquals(0, highlighter.getPooledTokenMakerCount(SyntaxConstants.SYNTAX_STYLE_JAVA));
+
+		highlighter.highlight("int x;", SyntaxConstants.SYNTAX_STYLE_JAVA, (type, start, end) -> { });
+		highlighter.highlight("int y;", SyntaxConstants.SYNTAX_STYLE_JAVA, (type, start, end) -> { });
+		Assertions.assertEquals(1, highlighter.getPooledTokenMakerCount(SyntaxConstants.SYNTAX_STYLE_JAVA));
+	}
+
+
+	@Test
+	void testToHtml() {
+
+		BatchHighlighter highlighter = new BatchHighlighter();
+		String html = highlighter.toHtml("int x;\n\n// a < b", SyntaxConstants.SYNTAX_STYLE_JAVA);
+
+		Assertions.assertEquals("<pre class=\"rsta\"><span class=\"data-type\">int </span>x;\n\n" +
+			"<span class=\"comment-eol\">// a &lt; b</span></pre>", html);
+	}
+
+
+	@Test
+	void testToHtml_matchesExporterStyleSheet() throws Exception {
+
+		BatchHighlighter highlighter = new BatchHighlighter();
+		StringWriter w = new StringWriter();
+		highlighter.writeStyleSheet(w);
+
+		Assertions.assertTrue(w.toString().contains("pre.rsta .data-type {"), w.toString());
+	}
+
+
+	@Test
+	void testToHtml_concurrent() throws Exception {
+
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 500; i++) {
+			sb.append("/* comment ").append(i).append(" */\npublic int foo").append(i).append("() { return 0; }\n");
+		}
+		String text = sb.toString();
+
+		BatchHighlighter highlighter = new BatchHighlighter();
+		String expected = highlighter.toHtml(text, SyntaxConstants.SYNTAX_STYLE_JAVA);
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<String>> results = new ArrayList<>();
+			for (int i = 0; i < 40; i++) {
+				String style = i % 2 == 0 ? SyntaxConstants.SYNTAX_STYLE_JAVA : SyntaxConstants.SYNTAX_STYLE_C;
+				results.add(executor.submit(() -> highlighter.toHtml(text, style)));
+			}
+			for (int i = 0; i < results.size(); i += 2) {
+				Assertions.assertEquals(expected, results.get(i).get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
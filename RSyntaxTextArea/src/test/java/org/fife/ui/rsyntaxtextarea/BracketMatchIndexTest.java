@@ -0,0 +1,263 @@
+/*
+ * This library is distributed under a modified BSD license.  See the included
+ * LICENSE file for details.
+ */
+package org.fife.ui.rsyntaxtextarea;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Segment;
+
+import org.fife.ui.rsyntaxtextarea.modes.CTokenMaker;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Unit tests for the {@link BracketMatchIndex} class.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ */
+class BracketMatchIndexTest {
+
+
+	private static RSyntaxDocument createDocument(String style, String text) throws BadLocationException {
+		RSyntaxDocument doc = new RSyntaxDocument(style);
+		doc.insertString(0, text, null);
+		return doc;
+	}
+
+
+	/**
+	 * Finds a matching bracket by scanning every token, for comparison.
+	 */
+	private static int findMatchByScanning(RSyntaxDocument doc, int offs) {
+
+		List<int[]> brackets = new ArrayList<>(); // { offset, kind, isOpen, languageIndex }
+		int lineCount = doc.getDefaultRootElement().getElementCount();
+		for (int line = 0; line < lineCount; line++) {
+			for (Token t = doc.getTokenListForLine(line); t != null && t.isPaintable(); t = t.getNextToken()) {
+				if (t.getType() == TokenTypes.SEPARATOR) {
+					for (int i = 0; i < t.length(); i++) {
+						int index = BracketMatchIndex.BRACKETS.indexOf(t.charAt(i));
+						if (index > -1) {
+							brackets.add(new int[] { t.getOffset() + i, index % 3, index < 3 ? 1 : 0,
+								t.getLanguageIndex() });
+						}
+					}
+				}
+			}
+		}
+
+		int start = -1;
+		for (int i = 0; i < brackets.size(); i++) {
+			if (brackets.get(i)[0] == offs) {
+				start = i;
+			}
+		}
+		if (start == -1) {
+			return -1;
+		}
+
+		int[] bracket = brackets.get(start);
+		boolean forward = bracket[2] == 1;
+		int depth = 0;
+		for (int i = start; i >= 0 && i < brackets.size(); i += forward ? 1 : -1) {
+			int[] b = brackets.get(i);
+			if (b[1] == bracket[1] && b[3] == bracket[3]) {
+				depth += (b[2] == 1) == forward ? 1 : -1;
+				if (depth == 0) {
+					return b[0];
+				}
+			}
+		}
+		return -1;
+	}
+
+
+	private static void assertAllMatchesCorrect(RSyntaxDocument doc) throws BadLocationException {
+		String text = doc.getText(0, doc.getLength());
+		for (int i = 0; i < text.length(); i++) {
+			if (BracketMatchIndex.BRACKETS.indexOf(text.charAt(i)) > -1) {
+				Assertions.assertEquals(findMatchByScanning(doc, i), doc.getMatchingBracketOffset(i),
+					"offset " + i + " in:\n" + text);
+			}
+		}
+	}
+
+
+	@Test
+	void testGetMatchingBracketOffset_acrossLines() throws Exception {
+
+		String text = "void foo() {\n\tif (x) {\n\t\tbar[0] = 1;\n\t}\n}\n";
+		RSyntaxDocument doc = createDocument(SyntaxConstants.SYNTAX_STYLE_C, text);
+
+		int open = text.indexOf('{');
+		int close = text.lastIndexOf('}');
+		Assertions.assertEquals(close, doc.getMatchingBracketOffset(open));
+		Assertions.assertEquals(open, doc.getMatchingBracketOffset(close));
+
+		int open2 = text.indexOf('{', open + 1);
+		int close2 = text.indexOf('}');
+		Assertions.assertEquals(close2, doc.getMatchingBracketOffset(open2));
+		Assertions.assertEquals(open2, doc.getMatchingBracketOffset(close2));
+
+		Assertions.assertEquals(text.indexOf(']'), doc.getMatchingBracketOffset(text.indexOf('[')));
+		Assertions.assertEquals(text.indexOf("(x") + 2, doc.getMatchingBracketOffset(text.indexOf("(x")));
+	}
+
+
+	@Test
+	void testGetMatchingBracketOffset_stringsAndCommentsIgnored() throws Exception {
+
+		String text = "{\n\"}\" /* } */\n// }\n}";
+		RSyntaxDocument doc = createDocument(SyntaxConstants.SYNTAX_STYLE_C, text);
+
+		Assertions.assertEquals(text.length() - 1, doc.getMatchingBracketOffset(0));
+		Assertions.assertEquals(0, doc.getMatchingBracketOffset(text.length() - 1));
+
+		// Brackets in strings and comments aren't matched themselves
+		Assertions.assertEquals(-1, doc.getMatchingBracketOffset(text.indexOf("}\"")));
+	}
+
+
+	@Test
+	void testGetMatchingBracketOffset_unmatched() throws Exception {
+
+		String text = "{\n(\n}\n";
+		RSyntaxDocument doc = createDocument(SyntaxConstants.SYNTAX_STYLE_C, text);
+
+		Assertions.assertEquals(text.indexOf('}'), doc.getMatchingBracketOffset(0));
+		Assertions.assertEquals(-1, doc.getMatchingBracketOffset(text.indexOf('(')));
+		Assertions.assertEquals(-1, doc.getMatchingBracketOffset(text.indexOf('\n'))); // Not a bracket
+	}
+
+
+	@Test
+	void testGetMatchingBracketOffset_otherLanguagesIgnored() throws Exception {
+
+		String text = "<script>\nif (a) {\n</script>\n<style>p { color: red; }</style>\n<script>\n}\n</script>";
+		RSyntaxDocument doc = createDocument(SyntaxConstants.SYNTAX_STYLE_HTML, text);
+
+		Assertions.assertEquals(text.lastIndexOf('}'), doc.getMatchingBracketOffset(text.indexOf('{')));
+		Assertions.assertEquals(text.indexOf("p {") + 2, doc.getMatchingBracketOffset(text.indexOf("red;") + 5));
+	}
+
+
+	@Test
+	void testGetMatchingBracketOffset_afterEdits() throws Exception {
+
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 200; i++) {
+			sb.append(i % 7 == 0 ? "void f() {\n" : i % 7 == 6 ? "}\n" : "\tx[i] = (a + \"(\") * b; // )\n");
+		}
+		RSyntaxDocument doc = createDocument(SyntaxConstants.SYNTAX_STYLE_C, sb.toString());
+		assertAllMatchesCorrect(doc);
+
+		String[] inserts = { "{", "}", "(", ")", "\n", "{\n}\n", "/*", "*/", "\"", "x" };
+		Random random = new Random(42);
+		for (int i = 0; i < 60; i++) {
+			if (random.nextInt(3) == 0 && doc.getLength() > 10) {
+				int offs = random.nextInt(doc.getLength() - 5);
+				doc.remove(offs, 1 + random.nextInt(5));
+			}
+			else {
+				doc.insertString(random.nextInt(doc.getLength()), inserts[random.nextInt(inserts.length)], null);
+			}
+			if (i % 10 == 9) {
+				assertAllMatchesCorrect(doc);
+			}
+		}
+	}
+
+
+	@Test
+	void testGetMatchingBracketOffset_commentOpenedAbove() throws Exception {
+
+		String text = "{\n" + "\tfoo();\n".repeat(500) + "}\n";
+		RSyntaxDocument doc = createDocument(SyntaxConstants.SYNTAX_STYLE_C, text);
+		Assertions.assertEquals(text.lastIndexOf('}'), doc.getMatchingBracketOffset(0));
+
+		// The closing bracket is now in a comment
+		doc.insertString(2, "/*", null);
+		Assertions.assertEquals(-1, doc.getMatchingBracketOffset(0));
+
+		doc.remove(2, 2);
+		Assertions.assertEquals(text.lastIndexOf('}'), doc.getMatchingBracketOffset(0));
+	}
+
+
+	@Test
+	void testGetMatchingBracketOffset_afterLineEdits() throws Exception {
+
+		// Enough lines for the index to split them into several blocks
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 1500; i++) {
+			sb.append(i % 50 == 0 ? "void f() {\n" : i % 50 == 49 ? "}\n" : i % 5 == 0 ? "\tif (x) {\n" :
+				i % 5 == 4 ? "\t}\n" : "\tx[i] = (a + b);\n");
+		}
+		RSyntaxDocument doc = createDocument(SyntaxConstants.SYNTAX_STYLE_C, sb.toString());
+
+		StringBuilder lines = new StringBuilder();
+		for (int i = 0; i < 600; i++) {
+			lines.append(i % 3 == 0 ? "{\n" : i % 3 == 1 ? "\tfoo();\n" : "}\n");
+		}
+		String[] inserts = { "{\n", "}\n", "\n\n\n", "/*\n", "*/\n", lines.toString() };
+		Random random = new Random(7);
+		for (int i = 0; i < 40; i++) {
+			if (random.nextBoolean() && doc.getLength() > 1000) {
+				int offs = random.nextInt(doc.getLength() - 1000);
+				doc.remove(offs, 1 + random.nextInt(random.nextBoolean() ? 1000 : 20));
+			}
+			else {
+				doc.insertString(random.nextInt(doc.getLength()), inserts[random.nextInt(inserts.length)], null);
+			}
+			if (i % 4 == 3) {
+				String text = doc.getText(0, doc.getLength());
+				for (int j = 0; j < 15; j++) {
+					int offs = random.nextInt(text.length());
+					while (offs < text.length() && BracketMatchIndex.BRACKETS.indexOf(text.charAt(offs)) == -1) {
+						offs++;
+					}
+					if (offs < text.length()) {
+						Assertions.assertEquals(findMatchByScanning(doc, offs), doc.getMatchingBracketOffset(offs),
+							"offset " + offs);
+					}
+				}
+			}
+		}
+	}
+
+
+	@Test
+	void testGetMatchingBracketOffset_onlyLexesLinesSearched() throws Exception {
+
+		// Idle-time state propagation lexes lines on the EDT, so only count this thread's calls
+		Thread thread = Thread.currentThread();
+		int[] lexedLines = { 0 };
+		RSyntaxDocument doc = new RSyntaxDocument(SyntaxConstants.SYNTAX_STYLE_NONE);
+		doc.setSyntaxStyle(new CTokenMaker() {
+			@Override
+			public int getLastTokenTypeOnLine(Segment text, int initialTokenType) {
+				if (Thread.currentThread() == thread) {
+					lexedLines[0]++;
+				}
+				return super.getLastTokenTypeOnLine(text, initialTokenType);
+			}
+		});
+		String text = "{\n}\n" + "\tfoo();\n".repeat(5000);
+		doc.insertString(0, text, null);
+		Assertions.assertEquals(2, doc.getMatchingBracketOffset(0));
+
+		// Lexer states below the bracket pair are now stale
+		doc.insertString(4, "/*", null);
+		lexedLines[0] = 0;
+		Assertions.assertEquals(2, doc.getMatchingBracketOffset(0));
+		Assertions.assertTrue(lexedLines[0] < 1000, "Lexed lines: " + lexedLines[0]);
+	}
+
+
+}
@@ -123,4 +123,25 @@ class DefaultOccurrenceMarkerTest extends AbstractRSyntaxTextAreaTest {
 		SmartHighlightPainter p = new SmartHighlightPainter();
 		marker.markOccurrences((RSyntaxDocument)textArea.getDocument(), token, h, p);
 	}
+
+
+	@Test
+	void testMarkOccurrences_onlyInSameLanguage() {
+
+		String origContent = "<p>foo</p><script>var foo = 1;\nfoo++;</script>\n<p>foo</p>";
+		RSyntaxTextArea textArea = createTextArea(SyntaxConstants.SYNTAX_STYLE_HTML, origContent);
+		RSyntaxDocument doc = (RSyntaxDocument)textArea.getDocument();
+
+		int offs = origContent.indexOf("var foo") + 4;
+		Token token = RSyntaxUtilities.getTokenAtOffset(textArea, offs);
+		Assertions.assertEquals("foo", token.getLexeme());
+
+		RSyntaxTextAreaHighlighter h = (RSyntaxTextAreaHighlighter)textArea.getHighlighter();
+		DefaultOccurrenceMarker.markOccurrencesOfToken(doc, token, h, new SmartHighlightPainter());
+
+		// Only the JavaScript identifiers, not the HTML text
+		Assertions.assertEquals(2, h.getMarkedOccurrences().size());
+		Assertions.assertEquals(offs, h.getMarkedOccurrences().get(0).getStartOffset());
+		Assertions.assertEquals(origContent.indexOf("foo++"), h.getMarkedOccurrences().get(1).getStartOffset());
+	}
 }
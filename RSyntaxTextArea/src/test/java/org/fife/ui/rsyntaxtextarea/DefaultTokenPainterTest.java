@@ -143,6 +143,47 @@ class DefaultTokenPainterTest extends AbstractRSyntaxTextAreaTest {
 	}
 
 
+	@Test
+	void testPaintImpl_fontAndColorFromStyle() {
+
+		Style style = textArea.getSyntaxScheme().getStyle(TokenTypes.RESERVED_WORD);
+		style.foreground = Color.ORANGE;
+
+		char[] chars = "public".toCharArray();
+		Token t = new TokenImpl(chars, 0, chars.length - 1, 0, TokenTypes.RESERVED_WORD, 0);
+		textArea.paint(createTestGraphics()); // Picks up the style change
+		new DefaultTokenPainter().paintImpl(t, g2d, 0, 0, textArea, e, 0, false, false);
+
+		Assertions.assertEquals(Color.ORANGE, g2d.getColor());
+		Assertions.assertEquals(textArea.getFontForTokenType(TokenTypes.RESERVED_WORD), g2d.getFont());
+	}
+
+
+	@Test
+	void testPaintImpl_overriddenStyleMethodsHonored() {
+
+		RSyntaxTextArea textArea = new RSyntaxTextArea() {
+			@Override
+			public Color getForegroundForToken(Token t) {
+				return Color.MAGENTA;
+			}
+
+			@Override
+			public Graphics getGraphics() {
+				return createTestGraphics();
+			}
+		};
+		textArea.addNotify();
+		textArea.setAntiAliasingEnabled(false); // Needed to create font metrics cache
+
+		char[] chars = "foobar".toCharArray();
+		Token t = new TokenImpl(chars, 0, chars.length - 1, 0, TokenTypes.IDENTIFIER, 0);
+		new DefaultTokenPainter().paintImpl(t, g2d, 0, 0, textArea, e, 0, false, false);
+
+		Assertions.assertEquals(Color.MAGENTA, g2d.getColor());
+	}
+
+
 	@Test
 	void testPaintSelected_noClipStart() {
 		char[] chars = "foobar".toCharArray();
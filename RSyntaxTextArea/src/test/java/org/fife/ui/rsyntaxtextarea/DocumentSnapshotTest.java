@@ -0,0 +1,155 @@
+/*
+ * This library is distributed under a modified BSD license.  See the included
+ * LICENSE file for details.
+ */
+package org.fife.ui.rsyntaxtextarea;
+
+import javax.swing.text.Element;
+import javax.swing.text.Segment;
+
+import org.fife.ui.rsyntaxtextarea.modes.CTokenMaker;
+import org.fife.ui.rsyntaxtextarea.modes.JavaTokenMaker;
+import org.fife.ui.rtextarea.RopeContent;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Unit tests for the {@link DocumentSnapshot} class.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ */
+class DocumentSnapshotTest {
+
+
+	private static String createCode(int lineCount) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < lineCount; i++) {
+			sb.append("int x").append(i).append(" = 1; // comment\n");
+		}
+		return sb.toString();
+	}
+
+
+	@Test
+	void testGetLastTokenTypeOnLine_customTokenMaker() throws Exception {
+
+		RSyntaxDocument doc = new RSyntaxDocument(SyntaxConstants.SYNTAX_STYLE_NONE);
+		doc.setSyntaxStyle(new CTokenMaker());
+		doc.insertString(0, "/*\nint x;\n", null);
+		DocumentSnapshot snapshot = doc.createSnapshot();
+
+		// Values are already up to date, since there are few lines
+		Assertions.assertEquals(Token.COMMENT_MULTILINE, snapshot.getLastTokenTypeOnLine(1));
+	}
+
+
+	@Test
+	void testGetLastTokenTypeOnLine_matchesDocument() throws Exception {
+
+		RSyntaxDocument doc = new RSyntaxDocument(null, SyntaxConstants.SYNTAX_STYLE_C, new RopeContent());
+		doc.insertString(0, createCode(4000), null);
+		doc.insertString(0, "/*", null); // Leaves most lines' values stale
+		DocumentSnapshot snapshot = doc.createSnapshot();
+
+		for (int line = snapshot.getLineCount() - 1; line >= 0; line -= 97) {
+			Assertions.assertEquals(doc.getLastTokenTypeOnLine(line), snapshot.getLastTokenTypeOnLine(line));
+		}
+		Assertions.assertThrows(IndexOutOfBoundsException.class, () ->
+			snapshot.getLastTokenTypeOnLine(snapshot.getLineCount()));
+	}
+
+
+	@Test
+	void testGetLastTokenTypeOnLine_unaffectedByEdits() throws Exception {
+
+		RSyntaxDocument doc = new RSyntaxDocument(SyntaxConstants.SYNTAX_STYLE_C);
+		doc.insertString(0, createCode(10), null);
+		DocumentSnapshot snapshot = doc.createSnapshot();
+		int lastLine = snapshot.getLineCount() - 1;
+		Assertions.assertEquals(Token.NULL, snapshot.getLastTokenTypeOnLine(lastLine));
+
+		doc.insertString(0, "/*", null);
+		Assertions.assertEquals(Token.COMMENT_MULTILINE, doc.getLastTokenTypeOnLine(lastLine));
+		Assertions.assertEquals(Token.NULL, snapshot.getLastTokenTypeOnLine(lastLine));
+	}
+
+
+	@Test
+	void testGetLineOffsets_matchElements() throws Exception {
+
+		RSyntaxDocument doc = new RSyntaxDocument(SyntaxConstants.SYNTAX_STYLE_C);
+		doc.insertString(0, createCode(500) + "\n\nlast", null);
+		DocumentSnapshot snapshot = doc.createSnapshot();
+
+		Element root = doc.getDefaultRootElement();
+		Assertions.assertEquals(root.getElementCount(), snapshot.getLineCount());
+		for (int line = 0; line < root.getElementCount(); line++) {
+			Element elem = root.getElement(line);
+			Assertions.assertEquals(elem.getStartOffset(), snapshot.getLineStartOffset(line));
+			Assertions.assertEquals(elem.getEndOffset(), snapshot.getLineEndOffset(line));
+			Assertions.assertEquals(line, snapshot.getLineOfOffset(elem.getStartOffset()));
+			Assertions.assertEquals(line, snapshot.getLineOfOffset(elem.getEndOffset() - 1));
+		}
+		Assertions.assertThrows(IndexOutOfBoundsException.class, () ->
+			snapshot.getLineStartOffset(root.getElementCount()));
+
+		Segment s = new Segment();
+		snapshot.getLineText(root.getElementCount() - 1, s);
+		Assertions.assertEquals("last", s.toString());
+	}
+
+
+	@Test
+	void testGetText_unaffectedByEdits() throws Exception {
+
+		RSyntaxDocument doc = new RSyntaxDocument(null, SyntaxConstants.SYNTAX_STYLE_C, new RopeContent());
+		String code = createCode(1000);
+		doc.insertString(0, code, null);
+		DocumentSnapshot snapshot = doc.createSnapshot();
+
+		doc.remove(0, 5000);
+		doc.insertString(3000, "foo\nbar", null);
+		Assertions.assertEquals(code, snapshot.getText().toString());
+		Assertions.assertEquals(code.length(), snapshot.getLength());
+		Assertions.assertEquals(code.substring(100, 200), snapshot.getText(100, 100));
+		Assertions.assertEquals(code.charAt(4000), snapshot.charAt(4000));
+		Assertions.assertEquals(1001, snapshot.getLineCount());
+	}
+
+
+	@Test
+	void testIsStale() throws Exception {
+
+		RSyntaxDocument doc = new RSyntaxDocument(SyntaxConstants.SYNTAX_STYLE_C);
+		doc.insertString(0, "int x;", null);
+		DocumentSnapshot snapshot = doc.createSnapshot();
+		Assertions.assertSame(doc, snapshot.getDocument());
+		Assertions.assertEquals(doc.getVersion(), snapshot.getVersion());
+		Assertions.assertFalse(snapshot.isStale());
+
+		doc.insertString(0, "x", null);
+		Assertions.assertTrue(snapshot.isStale());
+		Assertions.assertFalse(doc.createSnapshot().isStale());
+	}
+
+
+	@Test
+	void testIsStale_syntaxStyleChanged() throws Exception {
+
+		RSyntaxDocument doc = new RSyntaxDocument(SyntaxConstants.SYNTAX_STYLE_C);
+		doc.insertString(0, "int x;", null);
+		DocumentSnapshot snapshot = doc.createSnapshot();
+
+		doc.setSyntaxStyle(SyntaxConstants.SYNTAX_STYLE_JAVA);
+		Assertions.assertTrue(snapshot.isStale());
+		snapshot = doc.createSnapshot();
+		Assertions.assertFalse(snapshot.isStale());
+
+		doc.setSyntaxStyle(new JavaTokenMaker());
+		Assertions.assertTrue(snapshot.isStale());
+	}
+
+
+}
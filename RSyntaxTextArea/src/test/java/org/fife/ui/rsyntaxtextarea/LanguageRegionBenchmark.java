@@ -0,0 +1,124 @@
+/*
+ * This library is distributed under a modified BSD license.  See the included
+ * LICENSE file for details.
+ */
+package org.fife.ui.rsyntaxtextarea;
+
+import java.util.Locale;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Element;
+
+
+/**
+ * A benchmark for looking up the language at offsets in large multi-language
+ * templates.  This is not a unit test; run it manually, e.g.:
+ * <pre>
+ * java -Djava.awt.headless=true -cp &lt;classpath&gt; \
+ *      org.fife.ui.rsyntaxtextarea.LanguageRegionBenchmark [sections]
+ * </pre>
+ * It generates a PHP and a JSP template with embedded JavaScript and CSS,
+ * then looks up the language in the middle of every line, both by finding
+ * the token at the offset and with
+ * {@link RSyntaxDocument#getLanguageIndexAt(int)}, which only lexes lines
+ * whose language regions aren't cached.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ */
+public final class LanguageRegionBenchmark {
+
+	/**
+	 * Keeps the lookups from being optimized away.
+	 */
+	private static long sink;
+
+
+	private LanguageRegionBenchmark() {
+		// Do nothing
+	}
+
+
+	private static String createTemplate(String codeStart, String codeEnd, int sections) {
+		StringBuilder sb = new StringBuilder("<html>\n<head>\n");
+		for (int i = 0; i < sections; i++) {
+			sb.append("<style>\n.item").append(i).append(" { color: red; margin: ").append(i).append("px; }\n");
+			sb.append("</style>\n<script>\nfunction update").append(i).append("(x) {\n");
+			sb.append("\tvar el = document.getElementById('item").append(i).append("'); el.value = x;\n}\n");
+			sb.append("</script>\n<div class=\"item").append(i).append("\">").append(codeStart);
+			sb.append(" echo $items[").append(i).append("]; ").append(codeEnd).append("</div>\n");
+		}
+		return sb.append("</head>\n</html>\n").toString();
+	}
+
+
+	private static RSyntaxDocument createDocument(String style, String text) throws BadLocationException {
+		RSyntaxDocument doc = new RSyntaxDocument(style);
+		doc.insertString(0, text, null);
+		return doc;
+	}
+
+
+	private static long lookUpByToken(RSyntaxDocument doc) {
+		Element map = doc.getDefaultRootElement();
+		long sum = 0;
+		for (int i = 0; i < map.getElementCount(); i++) {
+			Element line = map.getElement(i);
+			int offs = (line.getStartOffset() + line.getEndOffset()) / 2;
+			Token t = RSyntaxUtilities.getTokenAtOffset(doc.getTokenListForLine(i), offs);
+			sum += t != null ? t.getLanguageIndex() : 0;
+		}
+		return sum;
+	}
+
+
+	private static long lookUpByRegion(RSyntaxDocument doc) {
+		Element map = doc.getDefaultRootElement();
+		long sum = 0;
+		for (int i = 0; i < map.getElementCount(); i++) {
+			Element line = map.getElement(i);
+			sum += doc.getLanguageIndexAt((line.getStartOffset() + line.getEndOffset()) / 2);
+		}
+		return sum;
+	}
+
+
+	/**
+	 * Program entry point.
+	 *
+	 * @param args The number of sections per template (optional).
+	 * @throws BadLocationException Never.
+	 */
+	public static void main(String[] args) throws BadLocationException {
+
+		int sections = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+		String[][] templates = {
+			{ SyntaxConstants.SYNTAX_STYLE_PHP, createTemplate("<?php", "?>", sections) },
+			{ SyntaxConstants.SYNTAX_STYLE_JSP, createTemplate("<%", "%>", sections) },
+		};
+
+		for (int round = 0; round < 4; round++) {
+			for (String[] template : templates) {
+
+				// Documents record language regions whenever they lex a line,
+				// so each approach gets a fresh document
+				RSyntaxDocument doc = createDocument(template[0], template[1]);
+				long start = System.nanoTime();
+				sink += lookUpByToken(doc);
+				double byToken = (System.nanoTime() - start) / 1_000_000.0;
+
+				doc = createDocument(template[0], template[1]);
+				start = System.nanoTime();
+				sink += lookUpByRegion(doc);
+				double firstPass = (System.nanoTime() - start) / 1_000_000.0;
+				start = System.nanoTime();
+				sink += lookUpByRegion(doc);
+				double cached = (System.nanoTime() - start) / 1_000_000.0;
+
+				System.out.printf(Locale.ROOT, "round %d, %-10s by token: %8.3f ms, regions: %8.3f ms, " +
+						"cached regions: %8.3f ms%n", round, template[0], byToken, firstPass, cached);
+			}
+		}
+	}
+
+
+}
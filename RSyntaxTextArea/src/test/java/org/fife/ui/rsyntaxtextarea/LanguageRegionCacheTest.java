@@ -0,0 +1,126 @@
+/*
+ * This library is distributed under a modified BSD license.  See the included
+ * LICENSE file for details.
+ */
+package org.fife.ui.rsyntaxtextarea;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Unit tests for the {@link LanguageRegionCache} class.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ */
+class LanguageRegionCacheTest {
+
+
+	/**
+	 * Creates a token list, one token per string, in the given languages.
+	 */
+	private static Token createTokens(int lineStart, int[] languageIndices, String... texts) {
+		char[] chars = String.join("", texts).toCharArray();
+		TokenImpl first = null;
+		TokenImpl prev = null;
+		int offs = 0;
+		for (int i = 0; i < texts.length; i++) {
+			int end = offs + texts[i].length() - 1;
+			TokenImpl t = new TokenImpl(chars, offs, end, lineStart + offs, TokenTypes.IDENTIFIER,
+				languageIndices[i]);
+			if (prev == null) {
+				first = t;
+			}
+			else {
+				prev.setNextToken(t);
+			}
+			prev = t;
+			offs = end + 1;
+		}
+		return first;
+	}
+
+
+	@Test
+	void testPut_regionsJoinedByLanguage() {
+
+		Token t = createTokens(100, new int[] { 0, 0, 1, 1, 0 }, "<", "script>", "var", " x", "</script>");
+		int[] regions = new LanguageRegionCache().put(3, TokenTypes.NULL, t, 100);
+
+		Assertions.assertEquals(3, LanguageRegionCache.getRegionCount(regions));
+		Assertions.assertEquals(0, LanguageRegionCache.getRegionStart(regions, 0));
+		Assertions.assertEquals(0, LanguageRegionCache.getRegionLanguageIndex(regions, 0));
+		Assertions.assertEquals(8, LanguageRegionCache.getRegionStart(regions, 1));
+		Assertions.assertEquals(1, LanguageRegionCache.getRegionLanguageIndex(regions, 1));
+		Assertions.assertEquals(13, LanguageRegionCache.getRegionStart(regions, 2));
+		Assertions.assertEquals(0, LanguageRegionCache.getRegionLanguageIndex(regions, 2));
+
+		Assertions.assertEquals(0, LanguageRegionCache.getRegion(regions, 7));
+		Assertions.assertEquals(1, LanguageRegionCache.getRegion(regions, 8));
+		Assertions.assertEquals(2, LanguageRegionCache.getRegion(regions, 50));
+	}
+
+
+	@Test
+	void testPut_emptyLine() {
+
+		TokenImpl t = new TokenImpl();
+		t.setType(TokenTypes.NULL);
+		t.setLanguageIndex(2);
+		int[] regions = new LanguageRegionCache().put(0, TokenTypes.NULL, t, 0);
+
+		Assertions.assertEquals(1, LanguageRegionCache.getRegionCount(regions));
+		Assertions.assertEquals(2, LanguageRegionCache.getRegionLanguageIndex(regions, 0));
+	}
+
+
+	@Test
+	void testGet_initialTokenTypeChanged() {
+
+		LanguageRegionCache cache = new LanguageRegionCache();
+		Token t = createTokens(0, new int[] { 1 }, "foo");
+		int[] regions = cache.put(5, TokenTypes.COMMENT_MULTILINE, t, 0);
+
+		Assertions.assertSame(regions, cache.get(5, TokenTypes.COMMENT_MULTILINE));
+		Assertions.assertNull(cache.get(5, TokenTypes.NULL));
+		Assertions.assertNull(cache.get(4, TokenTypes.COMMENT_MULTILINE));
+		Assertions.assertNull(cache.get(6, TokenTypes.COMMENT_MULTILINE));
+	}
+
+
+	@Test
+	void testInvalidate() {
+
+		LanguageRegionCache cache = new LanguageRegionCache();
+		cache.put(2, TokenTypes.NULL, createTokens(0, new int[] { 1 }, "foo"), 0);
+
+		cache.invalidate(2);
+		Assertions.assertNull(cache.get(2, TokenTypes.NULL));
+		cache.invalidate(100); // Past the end is a no-op
+	}
+
+
+	@Test
+	void testLinesInsertedAndRemoved() {
+
+		LanguageRegionCache cache = new LanguageRegionCache();
+		int[] regions2 = cache.put(2, TokenTypes.NULL, createTokens(0, new int[] { 1 }, "foo"), 0);
+		int[] regions4 = cache.put(4, TokenTypes.NULL, createTokens(0, new int[] { 2 }, "bar"), 0);
+
+		cache.linesInserted(3, 10);
+		Assertions.assertSame(regions2, cache.get(2, TokenTypes.NULL));
+		Assertions.assertNull(cache.get(4, TokenTypes.NULL));
+		Assertions.assertSame(regions4, cache.get(14, TokenTypes.NULL));
+
+		cache.linesRemoved(0, 2);
+		Assertions.assertSame(regions2, cache.get(0, TokenTypes.NULL));
+		Assertions.assertSame(regions4, cache.get(12, TokenTypes.NULL));
+
+		cache.linesRemoved(10, 100); // Past the end
+		Assertions.assertNull(cache.get(12, TokenTypes.NULL));
+		Assertions.assertSame(regions2, cache.get(0, TokenTypes.NULL));
+	}
+
+
+}
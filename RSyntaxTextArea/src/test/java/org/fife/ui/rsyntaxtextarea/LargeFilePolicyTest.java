@@ -0,0 +1,278 @@
+/*
+ * This library is distributed under a modified BSD license.  See the included
+ * LICENSE file for details.
+ */
+package org.fife.ui.rsyntaxtextarea;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import javax.swing.SwingUtilities;
+
+import org.fife.ui.rsyntaxtextarea.LargeFilePolicy.Feature;
+import org.fife.ui.rsyntaxtextarea.parser.AbstractParser;
+import org.fife.ui.rsyntaxtextarea.parser.DefaultParseResult;
+import org.fife.ui.rsyntaxtextarea.parser.DefaultParserNotice;
+import org.fife.ui.rsyntaxtextarea.parser.ParseResult;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+
+/**
+ * Unit tests for the {@link LargeFilePolicy} class.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ */
+class LargeFilePolicyTest extends AbstractRSyntaxTextAreaTest {
+
+
+	private static RSyntaxTextArea createTextAreaWithFeatures(String code) {
+		RSyntaxTextArea textArea = createTextArea(code);
+		textArea.setMarkOccurrences(true);
+		textArea.setLineWrap(true);
+		textArea.setWhitespaceVisible(true);
+		return textArea;
+	}
+
+
+	private static String repeat(String text, int count) {
+		StringBuilder sb = new StringBuilder();
+		for (int i=0; i<count; i++) {
+			sb.append(text);
+		}
+		return sb.toString();
+	}
+
+
+	/**
+	 * Edits a document on the EDT, then runs the feature changes the policy
+	 * schedules after it.
+	 */
+	private static void edit(Executable edit) throws Exception {
+		SwingUtilities.invokeAndWait(() -> {
+			try {
+				edit.execute();
+			} catch (Throwable t) {
+				throw new AssertionError(t);
+			}
+		});
+		SwingUtilities.invokeAndWait(() -> { });
+	}
+
+
+	@Test
+	void testConstructor() {
+		LargeFilePolicy policy = new LargeFilePolicy();
+		Assertions.assertEquals(LargeFilePolicy.DEFAULT_MAX_LENGTH, policy.getMaxLength());
+		Assertions.assertEquals(LargeFilePolicy.DEFAULT_MAX_LINE_COUNT, policy.getMaxLineCount());
+		Assertions.assertEquals(LargeFilePolicy.DEFAULT_MAX_LINE_LENGTH, policy.getMaxLineLength());
+		Assertions.assertEquals(EnumSet.allOf(Feature.class), policy.getFeatures());
+		Assertions.assertTrue(policy.getDowngradedFeatures().isEmpty());
+		Assertions.assertFalse(policy.isLargeFile());
+	}
+
+
+	@Test
+	void testInstall_largeDocument() {
+
+		RSyntaxTextArea textArea = createTextAreaWithFeatures(repeat("int x;\n", 100));
+		List<Object> events = new ArrayList<>();
+		textArea.addPropertyChangeListener(RSyntaxTextArea.DOWNGRADED_FEATURES_PROPERTY,
+			e -> events.add(e.getNewValue()));
+
+		// Only features that were enabled are downgraded
+		textArea.setLargeFilePolicy(new LargeFilePolicy(500, 0, 0));
+		// Code folding is done by a parser, so there's always one
+		Set<Feature> expected = EnumSet.of(Feature.BRACKET_MATCHING, Feature.CODE_FOLDING,
+			Feature.LINE_WRAP, Feature.MARK_OCCURRENCES, Feature.PARSERS, Feature.WHITESPACE_VISIBLE);
+		Assertions.assertEquals(expected, textArea.getDowngradedFeatures());
+		Assertions.assertEquals(Collections.singletonList(expected), events);
+
+		Assertions.assertFalse(textArea.isBracketMatchingEnabled());
+		Assertions.assertFalse(textArea.isCodeFoldingEnabled());
+		Assertions.assertFalse(textArea.getLineWrap());
+		Assertions.assertFalse(textArea.getMarkOccurrences());
+		Assertions.assertFalse(textArea.isWhitespaceVisible());
+	}
+
+
+	@Test
+	void testInstall_smallDocument() {
+		RSyntaxTextArea textArea = createTextAreaWithFeatures("int x;\n");
+		textArea.setLargeFilePolicy(new LargeFilePolicy());
+		Assertions.assertTrue(textArea.getDowngradedFeatures().isEmpty());
+		Assertions.assertTrue(textArea.getMarkOccurrences());
+		Assertions.assertTrue(textArea.getLineWrap());
+	}
+
+
+	@Test
+	void testEdits_downgradeAndRestore() throws Exception {
+
+		RSyntaxTextArea textArea = createTextAreaWithFeatures("int x;\n");
+		textArea.setLargeFilePolicy(new LargeFilePolicy(0, 100, 0));
+		RSyntaxDocument doc = (RSyntaxDocument)textArea.getDocument();
+
+		edit(() -> doc.insertString(0, repeat("int y;\n", 200), null));
+		Assertions.assertTrue(textArea.getLargeFilePolicy().isLargeFile());
+		Assertions.assertTrue(textArea.getDowngradedFeatures().contains(Feature.MARK_OCCURRENCES));
+		Assertions.assertFalse(textArea.getMarkOccurrences());
+
+		edit(() -> doc.remove(0, 150 * 7));
+		Assertions.assertFalse(textArea.getLargeFilePolicy().isLargeFile());
+		Assertions.assertTrue(textArea.getDowngradedFeatures().isEmpty());
+		Assertions.assertTrue(textArea.getMarkOccurrences());
+		Assertions.assertTrue(textArea.getLineWrap());
+		Assertions.assertTrue(textArea.isCodeFoldingEnabled());
+	}
+
+
+	@Test
+	void testEdits_longLine() throws Exception {
+
+		RSyntaxTextArea textArea = createTextAreaWithFeatures("int x;\nint y;\n");
+		LargeFilePolicy policy = new LargeFilePolicy(0, 0, 1000);
+		textArea.setLargeFilePolicy(policy);
+		RSyntaxDocument doc = (RSyntaxDocument)textArea.getDocument();
+
+		edit(() -> doc.insertString(9, repeat("x", 1500), null));
+		Assertions.assertTrue(policy.isLargeFile());
+		Assertions.assertFalse(textArea.getLineWrap());
+
+		// Splitting the long line in two restores features
+		edit(() -> doc.insertString(760, "\n", null));
+		Assertions.assertFalse(policy.isLargeFile());
+		Assertions.assertTrue(textArea.getLineWrap());
+
+		edit(() -> doc.remove(760, 1));
+		Assertions.assertTrue(policy.isLargeFile());
+		edit(() -> doc.remove(9, 1000));
+		Assertions.assertFalse(policy.isLargeFile());
+	}
+
+
+	@Test
+	void testFeatureReenabled() throws Exception {
+
+		RSyntaxTextArea textArea = createTextAreaWithFeatures(repeat("int x;\n", 100));
+		LargeFilePolicy policy = new LargeFilePolicy(500, 0, 0);
+		textArea.setLargeFilePolicy(policy);
+		Assertions.assertFalse(textArea.getMarkOccurrences());
+
+		// The application's choice sticks while the document is large
+		textArea.setMarkOccurrences(true);
+		Assertions.assertFalse(textArea.getDowngradedFeatures().contains(Feature.MARK_OCCURRENCES));
+		edit(() -> textArea.getDocument().insertString(0, "int y;\n", null));
+		Assertions.assertTrue(textArea.getMarkOccurrences());
+
+		edit(() -> textArea.setText("int x;\n"));
+		Assertions.assertTrue(textArea.getDowngradedFeatures().isEmpty());
+		Assertions.assertTrue(textArea.getMarkOccurrences());
+		Assertions.assertTrue(textArea.getLineWrap());
+	}
+
+
+	@Test
+	void testParsersSuspended() throws Exception {
+
+		AbstractParser parser = new AbstractParser() {
+			@Override
+			public ParseResult parse(RSyntaxDocument doc, String style) {
+				DefaultParseResult result = new DefaultParseResult(this);
+				result.addNotice(new DefaultParserNotice(this, "test", 1));
+				return result;
+			}
+		};
+		RSyntaxTextArea textArea = createTextArea(repeat("int x;\n", 100));
+		textArea.addParser(parser);
+		textArea.forceReparsing(parser);
+		Assertions.assertEquals(1, textArea.getParserNotices().size());
+
+		LargeFilePolicy policy = new LargeFilePolicy(500, 0, 0);
+		textArea.setLargeFilePolicy(policy);
+		Assertions.assertTrue(textArea.getDowngradedFeatures().contains(Feature.PARSERS));
+		Assertions.assertTrue(textArea.isParsingSuspended());
+		Assertions.assertEquals(0, textArea.getParserNotices().size());
+
+		textArea.setLargeFilePolicy(null);
+		Assertions.assertFalse(textArea.isParsingSuspended());
+		Assertions.assertTrue(textArea.getDowngradedFeatures().isEmpty());
+	}
+
+
+	@Test
+	void testSetDocument() {
+
+		RSyntaxTextArea textArea = createTextAreaWithFeatures(repeat("int x;\n", 100));
+		textArea.setLargeFilePolicy(new LargeFilePolicy(500, 0, 0));
+		Assertions.assertFalse(textArea.getMarkOccurrences());
+
+		textArea.setDocument(new RSyntaxDocument(SyntaxConstants.SYNTAX_STYLE_C));
+		Assertions.assertTrue(textArea.getDowngradedFeatures().isEmpty());
+		Assertions.assertTrue(textArea.getMarkOccurrences());
+	}
+
+
+	@Test
+	void testSetFeatures() {
+
+		RSyntaxTextArea textArea = createTextAreaWithFeatures(repeat("int x;\n", 100));
+		LargeFilePolicy policy = new LargeFilePolicy(500, 0, 0);
+		textArea.setLargeFilePolicy(policy);
+
+		policy.setFeatures(EnumSet.of(Feature.LINE_WRAP));
+		Assertions.assertEquals(EnumSet.of(Feature.LINE_WRAP), textArea.getDowngradedFeatures());
+		Assertions.assertFalse(textArea.getLineWrap());
+		Assertions.assertTrue(textArea.getMarkOccurrences());
+		Assertions.assertTrue(textArea.isWhitespaceVisible());
+
+		policy.setFeatures(EnumSet.noneOf(Feature.class));
+		Assertions.assertTrue(textArea.getDowngradedFeatures().isEmpty());
+		Assertions.assertTrue(textArea.getLineWrap());
+	}
+
+
+	@Test
+	void testSetLargeFilePolicy() {
+
+		RSyntaxTextArea textArea = createTextAreaWithFeatures(repeat("int x;\n", 100));
+		LargeFilePolicy policy = new LargeFilePolicy(500, 0, 0);
+		textArea.setLargeFilePolicy(policy);
+		Assertions.assertSame(policy, textArea.getLargeFilePolicy());
+		Assertions.assertSame(textArea, policy.getTextArea());
+		Assertions.assertThrows(IllegalStateException.class, () ->
+			createTextArea().setLargeFilePolicy(policy));
+
+		// Removing the policy turns features back on
+		textArea.setLargeFilePolicy(null);
+		Assertions.assertNull(policy.getTextArea());
+		Assertions.assertTrue(textArea.getMarkOccurrences());
+		Assertions.assertTrue(textArea.isBracketMatchingEnabled());
+		Assertions.assertTrue(textArea.getDowngradedFeatures().isEmpty());
+	}
+
+
+	@Test
+	void testSetMaxLength() {
+
+		RSyntaxTextArea textArea = createTextAreaWithFeatures(repeat("int x;\n", 100));
+		LargeFilePolicy policy = new LargeFilePolicy(0, 0, 0);
+		textArea.setLargeFilePolicy(policy);
+		Assertions.assertFalse(policy.isLargeFile());
+
+		policy.setMaxLength(500);
+		Assertions.assertTrue(policy.isLargeFile());
+		Assertions.assertFalse(textArea.getMarkOccurrences());
+
+		policy.setMaxLength(-1);
+		Assertions.assertEquals(0, policy.getMaxLength());
+		Assertions.assertFalse(policy.isLargeFile());
+		Assertions.assertTrue(textArea.getMarkOccurrences());
+	}
+
+
+}
@@ -0,0 +1,145 @@
+/*
+ * This library is distributed under a modified BSD license.  See the included
+ * LICENSE file for details.
+ */
+package org.fife.ui.rsyntaxtextarea;
+
+import java.util.concurrent.ForkJoinPool;
+import javax.swing.text.Segment;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Unit tests for the {@link LastTokenTypeLexer} class.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ */
+class LastTokenTypeLexerTest {
+
+	private ForkJoinPool pool;
+
+
+	@BeforeEach
+	void setUp() {
+		pool = new ForkJoinPool(4);
+	}
+
+
+	@AfterEach
+	void tearDown() {
+		pool.shutdownNow();
+	}
+
+
+	private static RSyntaxDocument createDocument(String text) throws Exception {
+		RSyntaxDocument doc = new RSyntaxDocument(SyntaxConstants.SYNTAX_STYLE_C);
+		doc.insertString(0, text, null);
+		return doc;
+	}
+
+
+	private static int[] lexSequentially(RSyntaxDocument doc, int firstLine, int endLine,
+										int initialTokenType) {
+		LastTokenTypeLexer lexer = new LastTokenTypeLexer(ForkJoinPool.commonPool(), Integer.MAX_VALUE);
+		return lexer.lex(doc, TokenMakerFactory.getDefaultInstance().getTokenMaker(SyntaxConstants.SYNTAX_STYLE_C),
+			new Segment(), null, firstLine, endLine, initialTokenType);
+	}
+
+
+	private int[] lexInParallel(RSyntaxDocument doc, int firstLine, int endLine, int initialTokenType) {
+		TokenMakerFactory tmf = TokenMakerFactory.getDefaultInstance();
+		LastTokenTypeLexer lexer = new LastTokenTypeLexer(pool, 10);
+		return lexer.lex(doc, tmf.getTokenMaker(SyntaxConstants.SYNTAX_STYLE_C), new Segment(),
+			() -> tmf.getTokenMaker(SyntaxConstants.SYNTAX_STYLE_C), firstLine, endLine, initialTokenType);
+	}
+
+
+	@Test
+	void testLex_noMultiLineConstructs() throws Exception {
+
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 500; i++) {
+			sb.append("int x").append(i).append(" = ").append(i).append(";\n");
+		}
+		RSyntaxDocument doc = createDocument(sb.toString());
+		int lineCount = doc.getDefaultRootElement().getElementCount();
+
+		int[] expected = lexSequentially(doc, 0, lineCount, TokenTypes.NULL);
+		int[] actual = lexInParallel(doc, 0, lineCount, TokenTypes.NULL);
+		Assertions.assertArrayEquals(expected, actual);
+	}
+
+
+	@Test
+	void testLex_commentsSpanChunkBoundaries() throws Exception {
+
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 500; i++) {
+			if (i % 37 == 0) {
+				sb.append("/* start of comment\n");
+			}
+			else if (i % 37 == 20) {
+				sb.append("end of comment */ int a;\n");
+			}
+			else {
+				sb.append("int x").append(i).append(";\n");
+			}
+		}
+		RSyntaxDocument doc = createDocument(sb.toString());
+		int lineCount = doc.getDefaultRootElement().getElementCount();
+
+		int[] expected = lexSequentially(doc, 0, lineCount, TokenTypes.NULL);
+		int[] actual = lexInParallel(doc, 0, lineCount, TokenTypes.NULL);
+		Assertions.assertArrayEquals(expected, actual);
+		Assertions.assertEquals(TokenTypes.COMMENT_MULTILINE, actual[0]);
+	}
+
+
+	@Test
+	void testLex_unclosedCommentCoversAllChunks() throws Exception {
+
+		StringBuilder sb = new StringBuilder("/* never closed\n");
+		for (int i = 0; i < 500; i++) {
+			sb.append("int x").append(i).append(";\n");
+		}
+		RSyntaxDocument doc = createDocument(sb.toString());
+		int lineCount = doc.getDefaultRootElement().getElementCount();
+
+		int[] actual = lexInParallel(doc, 0, lineCount, TokenTypes.NULL);
+		for (int type : actual) {
+			Assertions.assertEquals(TokenTypes.COMMENT_MULTILINE, type);
+		}
+	}
+
+
+	@Test
+	void testLex_subRangeWithInitialTokenType() throws Exception {
+
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 500; i++) {
+			sb.append(i == 250 ? "*/\n" : "text\n");
+		}
+		RSyntaxDocument doc = createDocument(sb.toString());
+
+		int[] actual = lexInParallel(doc, 100, 400, TokenTypes.COMMENT_MULTILINE);
+		Assertions.assertEquals(300, actual.length);
+		for (int i = 0; i < actual.length; i++) {
+			int expected = i < 150 ? TokenTypes.COMMENT_MULTILINE : TokenTypes.NULL;
+			Assertions.assertEquals(expected, actual[i], "Unexpected value for line " + (100 + i));
+		}
+	}
+
+
+	@Test
+	void testLex_emptyRange() throws Exception {
+		RSyntaxDocument doc = createDocument("int a;\n");
+		Assertions.assertEquals(0, lexInParallel(doc, 1, 1, TokenTypes.NULL).length);
+	}
+
+
+}
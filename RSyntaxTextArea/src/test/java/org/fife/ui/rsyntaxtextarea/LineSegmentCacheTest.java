@@ -0,0 +1,130 @@
+/*
+ * This library is distributed under a modified BSD license.  See the included
+ * LICENSE file for details.
+ */
+package org.fife.ui.rsyntaxtextarea;
+
+import javax.swing.text.Segment;
+
+import org.fife.ui.rsyntaxtextarea.modes.JavaScriptTokenMaker;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Unit tests for the {@link LineSegmentCache} class.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ */
+class LineSegmentCacheTest {
+
+
+	private static Segment createLine(String text, int count) {
+		StringBuilder sb = new StringBuilder();
+		for (int i=0; i<count; i++) {
+			sb.append(text);
+		}
+		char[] chars = sb.toString().toCharArray();
+		return new Segment(chars, 0, chars.length);
+	}
+
+
+	@Test
+	void testComputeNext() {
+
+		Segment line = createLine("var x=[1,2,'three'];", 500);
+		LineSegmentCache.LineSegments segments = new LineSegmentCache().get(0, TokenTypes.NULL, 1000);
+		TokenMaker tm = new JavaScriptTokenMaker();
+
+		Assertions.assertTrue(segments.computeNext(line, tm));
+		Assertions.assertEquals(2, segments.getCount());
+		int start = segments.getStart(1);
+		Assertions.assertTrue(start>=1000 && start<1000 + LineSegmentCache.getVerifyLength(1000));
+		Assertions.assertEquals(TokenTypes.NULL, segments.getTokenType(1));
+
+		segments.computeAll(line, tm);
+		Assertions.assertTrue(segments.isComplete());
+		Assertions.assertEquals(10, segments.getCount());
+		Assertions.assertFalse(segments.computeNext(line, tm));
+	}
+
+
+	@Test
+	void testComputeNext_noCheckpointInLongString() {
+
+		// A string spanning almost all the line can't be split
+		Segment line = createLine("x", 10000);
+		line.array[0] = line.array[9000] = '"';
+		LineSegmentCache.LineSegments segments = new LineSegmentCache().get(0, TokenTypes.NULL, 1000);
+		segments.computeAll(line, new JavaScriptTokenMaker());
+
+		Assertions.assertEquals(1, segments.getCount());
+		Assertions.assertTrue(segments.isComplete());
+	}
+
+
+	@Test
+	void testGet_initialTokenTypeChanged() {
+
+		LineSegmentCache cache = new LineSegmentCache();
+		LineSegmentCache.LineSegments segments = cache.get(3, TokenTypes.NULL, 1000);
+		Assertions.assertSame(segments, cache.get(3, TokenTypes.NULL, 1000));
+		Assertions.assertNotSame(segments, cache.get(3, TokenTypes.COMMENT_MULTILINE, 1000));
+		Assertions.assertNotSame(segments, cache.get(3, TokenTypes.NULL, 2000));
+	}
+
+
+	@Test
+	void testGetSegmentOf() {
+
+		Segment line = createLine("var x=[1,2,'three'];", 500);
+		LineSegmentCache.LineSegments segments = new LineSegmentCache().get(0, TokenTypes.NULL, 1000);
+		segments.computeAll(line, new JavaScriptTokenMaker());
+
+		Assertions.assertEquals(0, segments.getSegmentOf(0));
+		Assertions.assertEquals(0, segments.getSegmentOf(segments.getStart(1) - 1));
+		Assertions.assertEquals(1, segments.getSegmentOf(segments.getStart(1)));
+		Assertions.assertEquals(segments.getCount() - 1, segments.getSegmentOf(line.count));
+	}
+
+
+	@Test
+	void testInvalidate_offset() {
+
+		Segment line = createLine("var x=[1,2,'three'];", 500);
+		LineSegmentCache cache = new LineSegmentCache();
+		LineSegmentCache.LineSegments segments = cache.get(2, TokenTypes.NULL, 1000);
+		segments.computeAll(line, new JavaScriptTokenMaker());
+		int start2 = segments.getStart(2);
+
+		// Checkpoints at and after the edit are forgotten
+		cache.invalidate(2, start2);
+		Assertions.assertSame(segments, cache.get(2, TokenTypes.NULL, 1000));
+		Assertions.assertEquals(2, segments.getCount());
+		Assertions.assertFalse(segments.isComplete());
+
+		segments.computeAll(line, new JavaScriptTokenMaker());
+		Assertions.assertEquals(start2, segments.getStart(2));
+		cache.invalidate(2, start2 + 1);
+		Assertions.assertEquals(3, segments.getCount());
+	}
+
+
+	@Test
+	void testLinesInsertedAndRemoved() {
+
+		LineSegmentCache cache = new LineSegmentCache();
+		LineSegmentCache.LineSegments segments = cache.get(2, TokenTypes.NULL, 1000);
+
+		cache.linesInserted(1, 3);
+		Assertions.assertSame(segments, cache.get(5, TokenTypes.NULL, 1000));
+		cache.linesRemoved(0, 2);
+		Assertions.assertSame(segments, cache.get(3, TokenTypes.NULL, 1000));
+
+		cache.invalidate(3);
+		Assertions.assertNotSame(segments, cache.get(3, TokenTypes.NULL, 1000));
+	}
+
+
+}
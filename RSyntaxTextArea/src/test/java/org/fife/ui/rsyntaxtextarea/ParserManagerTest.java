@@ -6,6 +6,7 @@ package org.fife.ui.rsyntaxtextarea;
 
 import org.fife.ui.SwingRunnerExtension;
 import org.fife.ui.rsyntaxtextarea.parser.*;
+import org.fife.ui.rtextarea.RTextAreaHighlighter.HighlightInfo;
 import org.fife.ui.rtextarea.RTextScrollPane;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -14,6 +15,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import java.awt.event.ActionEvent;
 import java.awt.event.MouseEvent;
 import java.beans.PropertyChangeListener;
+import java.util.List;
 
 
 /**
@@ -231,6 +233,124 @@ class ParserManagerTest extends AbstractRSyntaxTextAreaTest {
 	}
 
 
+	@Test
+	void testGetToolTipText_manyNotices() {
+
+		AbstractParser parser = new AbstractParser() {
+			@Override
+			public ParseResult parse(RSyntaxDocument doc, String style) {
+				DefaultParseResult result = new DefaultParseResult(this);
+				for (int i = doc.getLength() - 1; i >= 0; i--) {
+					result.addNotice(new DefaultParserNotice(this, "test " + i, 0, i, 1));
+				}
+				return result;
+			}
+		};
+
+		RSyntaxTextArea textArea = createTextArea();
+		textArea.addNotify();
+		textArea.setAntiAliasingEnabled(false); // Needed to initialize font metrics cache
+		new RTextScrollPane(textArea); // text area needs a parent
+		ParserManager manager = new ParserManager(textArea);
+		manager.addParser(parser);
+
+		manager.forceReparsing(0);
+		Assertions.assertEquals(textArea.getDocument().getLength(), manager.getParserNotices().size());
+
+		MouseEvent e = new MouseEvent(textArea, 0, 0, 0, 2, 2, 1, false);
+		ToolTipInfo tipInfo = manager.getToolTipText(e);
+		Assertions.assertEquals("test 0", tipInfo.getToolTipText());
+	}
+
+
+	@Test
+	void testGetParserNotices_orderedByLastParse() {
+
+		AbstractParser parser1 = new AbstractParser() {
+			@Override
+			public ParseResult parse(RSyntaxDocument doc, String style) {
+				DefaultParseResult result = new DefaultParseResult(this);
+				result.addNotice(new DefaultParserNotice(this, "one", 0));
+				return result;
+			}
+		};
+		AbstractParser parser2 = new AbstractParser() {
+			@Override
+			public ParseResult parse(RSyntaxDocument doc, String style) {
+				DefaultParseResult result = new DefaultParseResult(this);
+				result.addNotice(new DefaultParserNotice(this, "two", 0));
+				return result;
+			}
+		};
+
+		RSyntaxTextArea textArea = createTextArea();
+		ParserManager manager = new ParserManager(textArea);
+		manager.addParser(parser1);
+		manager.addParser(parser2);
+
+		manager.actionPerformed(new ActionEvent(textArea, 0, null));
+		Assertions.assertEquals("one", manager.getParserNotices().get(0).getMessage());
+
+		manager.forceReparsing(0);
+		Assertions.assertEquals(2, manager.getParserNotices().size());
+		Assertions.assertEquals("two", manager.getParserNotices().get(0).getMessage());
+
+		manager.removeParser(parser1);
+		Assertions.assertEquals(1, manager.getParserNotices().size());
+		Assertions.assertEquals("two", manager.getParserNotices().get(0).getMessage());
+	}
+
+
+	@Test
+	void testActionPerformed_unchangedNoticesKeepTheirHighlights() {
+
+		String[] messages = { "one", "two", "three" };
+		AbstractParser parser = new AbstractParser() {
+			@Override
+			public ParseResult parse(RSyntaxDocument doc, String style) {
+				DefaultParseResult result = new DefaultParseResult(this);
+				for (int i = 0; i < messages.length; i++) {
+					result.addNotice(new DefaultParserNotice(this, messages[i], i, i * 2, 1));
+				}
+				return result;
+			}
+		};
+
+		RSyntaxTextArea textArea = createTextArea();
+		ParserManager manager = new ParserManager(textArea);
+		manager.addParser(parser);
+		int[] changeCount = { 0 };
+		textArea.addPropertyChangeListener(RSyntaxTextArea.PARSER_NOTICES_PROPERTY, e -> changeCount[0]++);
+		RSyntaxTextAreaHighlighter h = (RSyntaxTextAreaHighlighter)textArea.getHighlighter();
+
+		manager.actionPerformed(new ActionEvent(textArea, 0, null));
+		Assertions.assertEquals(1, changeCount[0]);
+		List<HighlightInfo> highlights = h.getParserHighlights();
+		Assertions.assertEquals(3, highlights.size());
+
+		// Same notices - nothing changes
+		manager.actionPerformed(new ActionEvent(textArea, 0, null));
+		Assertions.assertEquals(1, changeCount[0]);
+		Assertions.assertEquals(3, manager.getParserNotices().size());
+		List<HighlightInfo> highlights2 = h.getParserHighlights();
+		Assertions.assertEquals(3, highlights2.size());
+		for (int i = 0; i < 3; i++) {
+			Assertions.assertSame(highlights.get(i), highlights2.get(i));
+		}
+
+		// One notice changes - only its highlight is replaced
+		messages[1] = "changed";
+		manager.actionPerformed(new ActionEvent(textArea, 0, null));
+		Assertions.assertEquals(2, changeCount[0]);
+		Assertions.assertEquals("changed", manager.getParserNotices().get(1).getMessage());
+		highlights2 = h.getParserHighlights();
+		Assertions.assertEquals(3, highlights2.size());
+		Assertions.assertTrue(highlights2.contains(highlights.get(0)));
+		Assertions.assertFalse(highlights2.contains(highlights.get(1)));
+		Assertions.assertTrue(highlights2.contains(highlights.get(2)));
+	}
+
+
 	@Test
 	void testInsertUpdate() {
 
@@ -265,4 +385,34 @@ class ParserManagerTest extends AbstractRSyntaxTextAreaTest {
 
 		textArea.replaceRange("", 5, 9);
 	}
+
+
+	@Test
+	void testSetSuspended() {
+
+		AbstractParser parser = new AbstractParser() {
+			@Override
+			public ParseResult parse(RSyntaxDocument doc, String style) {
+				DefaultParseResult result = new DefaultParseResult(this);
+				result.addNotice(new DefaultParserNotice(this, "test", 1));
+				return result;
+			}
+		};
+
+		RSyntaxTextArea textArea = createTextArea();
+		ParserManager manager = new ParserManager(textArea);
+		manager.addParser(parser);
+		manager.actionPerformed(new ActionEvent(textArea, 0, null));
+		Assertions.assertEquals(1, manager.getParserNotices().size());
+
+		// Suspending clears notices, and parsing does nothing
+		manager.setSuspended(true);
+		Assertions.assertEquals(0, manager.getParserNotices().size());
+		manager.actionPerformed(new ActionEvent(textArea, 0, null));
+		Assertions.assertEquals(0, manager.getParserNotices().size());
+
+		manager.setSuspended(false);
+		manager.actionPerformed(new ActionEvent(textArea, 0, null));
+		Assertions.assertEquals(1, manager.getParserNotices().size());
+	}
 }
@@ -0,0 +1,88 @@
+/*
+ * This library is distributed under a modified BSD license.  See the included
+ * LICENSE file for details.
+ */
+package org.fife.ui.rsyntaxtextarea;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.fife.ui.rsyntaxtextarea.parser.DefaultParserNotice;
+import org.fife.ui.rsyntaxtextarea.parser.ParserNotice;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Unit tests for the {@link ParserNoticeIndex} class.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ */
+class ParserNoticeIndexTest {
+
+
+	@Test
+	void testGetFirstNoticeAt_emptyIndex() {
+		ParserNoticeIndex index = new ParserNoticeIndex(Collections.emptyList());
+		Assertions.assertEquals(-1, index.getFirstNoticeAt(0, 0, i -> true));
+	}
+
+
+	@Test
+	void testGetFirstNoticeAt_firstNoticeWins() {
+
+		List<ParserNotice> notices = new ArrayList<>();
+		notices.add(new DefaultParserNotice(null, "inner", 0, 10, 2));
+		notices.add(new DefaultParserNotice(null, "whole file", 0, 0, 1000));
+		notices.add(new DefaultParserNotice(null, "line", 0));
+		ParserNoticeIndex index = new ParserNoticeIndex(notices);
+
+		Assertions.assertEquals(0, index.getFirstNoticeAt(11, 0, i -> true));
+		Assertions.assertEquals(1, index.getFirstNoticeAt(500, 3, i -> true));
+		Assertions.assertEquals(2, index.getFirstNoticeAt(5, 0, i -> i != 1));
+		Assertions.assertEquals(-1, index.getFirstNoticeAt(5, 1, i -> i != 1));
+	}
+
+
+	@Test
+	void testGetFirstNoticeAt_sameAsScanning() {
+
+		Random random = new Random(7);
+		List<ParserNotice> notices = new ArrayList<>();
+		for (int i = 0; i < 2000; i++) {
+			if (random.nextInt(5) == 0) {
+				notices.add(new DefaultParserNotice(null, "line", random.nextInt(200)));
+			}
+			else {
+				int length = random.nextInt(10) == 0 ? random.nextInt(3000) : random.nextInt(20);
+				notices.add(new DefaultParserNotice(null, "offs", 0, random.nextInt(10000), length));
+			}
+		}
+		ParserNoticeIndex index = new ParserNoticeIndex(notices);
+
+		for (int o = 0; o < 10000; o += 7) {
+			int offs = o;
+			int line = offs / 50;
+			int expected = -1;
+			for (int i = 0; i < notices.size(); i++) {
+				ParserNotice notice = notices.get(i);
+				boolean contains = notice.getKnowsOffsetAndLength() ? notice.containsPosition(offs) :
+					notice.getLine() == line;
+				if (contains) {
+					expected = i;
+					break;
+				}
+			}
+			int actual = index.getFirstNoticeAt(offs, line, i -> {
+				ParserNotice notice = notices.get(i);
+				return !notice.getKnowsOffsetAndLength() || notice.containsPosition(offs);
+			});
+			Assertions.assertEquals(expected, actual, "offset " + offs);
+		}
+	}
+
+
+}
@@ -6,15 +6,20 @@
  */
 package org.fife.ui.rsyntaxtextarea;
 
+import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
+import javax.swing.text.Element;
 
 import org.fife.ui.rsyntaxtextarea.modes.CTokenMaker;
 import org.fife.ui.rsyntaxtextarea.modes.HTMLTokenMaker;
 import org.fife.ui.rsyntaxtextarea.modes.JavaScriptTokenMaker;
 import org.fife.ui.rsyntaxtextarea.modes.XMLTokenMaker;
+import org.fife.ui.rtextarea.RopeContent;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
@@ -50,6 +55,51 @@ class RSyntaxDocumentTest {
 	}
 
 
+	/**
+	 * Returns a single line of text about <code>length</code> characters long,
+	 * like a minified source file.
+	 */
+	private static String createLongLine(String text, int length) {
+		StringBuilder sb = new StringBuilder(length + text.length());
+		while (sb.length()<length) {
+			sb.append(text);
+		}
+		return sb.toString();
+	}
+
+
+	/**
+	 * Returns the offsets, types and language indices of the paintable
+	 * tokens in a token list.
+	 */
+	private static void appendTokens(Token t, StringBuilder sb) {
+		for (; t!=null && t.isPaintable(); t=t.getNextToken()) {
+			sb.append(t.getOffset()).append(',').append(t.getType()).append(',').
+				append(t.getLanguageIndex()).append(';');
+		}
+	}
+
+
+	/**
+	 * Checks that lexing a line one segment at a time gives the same tokens
+	 * as lexing all of it.
+	 */
+	private static void assertSegmentsMatchLine(RSyntaxDocument doc, int line) {
+
+		StringBuilder expected = new StringBuilder();
+		appendTokens(doc.getTokenListForLine(line), expected);
+
+		StringBuilder actual = new StringBuilder();
+		int count = doc.getLineSegmentCount(line);
+		for (int i=0; i<count; i++) {
+			Token t = doc.getTokenListForLineSegment(line, i);
+			Assertions.assertEquals(doc.getLineSegmentStartOffset(line, i), t.getOffset());
+			appendTokens(t, actual);
+		}
+		Assertions.assertEquals(expected.toString(), actual.toString());
+	}
+
+
 	@Test
 	void test1ArgConstructor() {
 		String syntaxStyle = SyntaxConstants.SYNTAX_STYLE_JAVA;
@@ -80,6 +130,26 @@ class RSyntaxDocumentTest {
 	}
 
 
+	@Test
+	void test3ArgConstructor_ropeContent() throws Exception {
+
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 5000; i++) {
+			sb.append("int x").append(i).append(" = 1; /* comment\n */\n");
+		}
+		doc = new RSyntaxDocument(null, SyntaxConstants.SYNTAX_STYLE_C, new RopeContent());
+		doc.insertString(0, sb.toString(), null);
+		Assertions.assertEquals(sb.toString(), doc.getText(0, doc.getLength()));
+
+		int lastLine = doc.getDefaultRootElement().getElementCount() - 2;
+		Token t = doc.getTokenListForLine(lastLine);
+		Assertions.assertTrue(t.isComment());
+		Assertions.assertEquals(" */", t.getLexeme());
+		Assertions.assertEquals('=', doc.charAt(doc.getDefaultRootElement().getElement(lastLine - 1)
+			.getStartOffset() + 10));
+	}
+
+
 	@Test
 	void testFireDocumentEvent_InsertWithNoNewLines() throws Exception {
 
@@ -96,8 +166,8 @@ class RSyntaxDocumentTest {
 		doc.insertString(offs, text, null);
 		Assertions.assertEquals(2, l.events.size());
 		DocumentEvent e = l.events.get(0);
-		// offset and length == start and end lines AFTER insert with new EOL tokens
-		assertDocumentEvent(e, DocumentEvent.EventType.CHANGE, 0, 0);
+		// Start and end lines AFTER insert with new EOL tokens
+		assertLineRangeChangeEvent(e, 0, 0);
 		e = l.events.get(1);
 		assertDocumentEvent(e, DocumentEvent.EventType.INSERT, 0, text.length());
 
@@ -121,9 +191,9 @@ class RSyntaxDocumentTest {
 		doc.insertString(oldLen - 4, text, null);
 		Assertions.assertEquals(2, l.events.size());
 		DocumentEvent e = l.events.get(0);
-		// offset and length == start and end lines AFTER insert with new EOL tokens
+		// Start and end lines AFTER insert with new EOL tokens
 		// In this case a new line was "added" by this change.
-		assertDocumentEvent(e, DocumentEvent.EventType.CHANGE, 8, 8);
+		assertLineRangeChangeEvent(e, 8, 8);
 		e = l.events.get(1);
 		assertDocumentEvent(e, DocumentEvent.EventType.INSERT,
 				oldLen - 4, text.length());
@@ -150,17 +220,17 @@ class RSyntaxDocumentTest {
 		Assertions.assertEquals(4, l.events.size());
 
 		DocumentEvent e = l.events.get(0);
-		// offset and length == start and end lines AFTER remove with new EOL
+		// Start and end lines AFTER remove with new EOL
 		// tokens. In this case a new line was "added" by this change.
-		assertDocumentEvent(e, DocumentEvent.EventType.CHANGE, 6, 6);
+		assertLineRangeChangeEvent(e, 6, 6);
 		e = l.events.get(1);
 		assertDocumentEvent(e, DocumentEvent.EventType.REMOVE,
 				oldLen - 4, 1);
 
 		e = l.events.get(2);
-		// offset and length == start and end lines AFTER insert with new EOL
+		// Start and end lines AFTER insert with new EOL
 		// tokens.  In this case a new line was "added" by this change.
-		assertDocumentEvent(e, DocumentEvent.EventType.CHANGE, 8, 8);
+		assertLineRangeChangeEvent(e, 8, 8);
 		e = l.events.get(3);
 		assertDocumentEvent(e, DocumentEvent.EventType.INSERT,
 				oldLen - 4, text.length());
@@ -183,15 +253,37 @@ class RSyntaxDocumentTest {
 		Assertions.assertEquals(2, l.events.size());
 
 		DocumentEvent e = l.events.get(0);
-		// offset and length == start and end lines AFTER remove with new EOL
+		// Start and end lines AFTER remove with new EOL
 		// tokens. In this case a new line was "added" by this change.
-		assertDocumentEvent(e, DocumentEvent.EventType.CHANGE, 3, 3);
+		assertLineRangeChangeEvent(e, 3, 3);
 		e = l.events.get(1);
 		assertDocumentEvent(e, DocumentEvent.EventType.REMOVE, 52, 3);
 
 	}
 
 
+	@Test
+	void testFireDocumentEvent_changeEventCoversLineText() throws Exception {
+
+		doc = new RSyntaxDocument(SyntaxConstants.SYNTAX_STYLE_C);
+		insertHelloWorldC(doc);
+
+		TestDocumentListener l = new TestDocumentListener();
+		doc.addDocumentListener(l);
+
+		// Starting a multi-line comment changes every line below
+		Element map = doc.getDefaultRootElement();
+		int offs = map.getElement(4).getStartOffset();
+		doc.insertString(offs, "/*", null);
+
+		DocumentEvent e = l.events.get(0);
+		int lastLine = map.getElementCount() - 1;
+		assertLineRangeChangeEvent(e, 4, lastLine);
+		Assertions.assertEquals(offs, e.getOffset());
+		Assertions.assertEquals(doc.getLength() - offs, e.getLength());
+	}
+
+
 	@Test
 	void testGetClosestStandardTokenTypeForInternalType() {
 
@@ -264,6 +356,53 @@ class RSyntaxDocumentTest {
 	}
 
 
+	@Test
+	void testGetLanguageIndexAt() throws Exception {
+
+		doc = new RSyntaxDocument(SyntaxConstants.SYNTAX_STYLE_HTML);
+		String text = "<p>foo</p><script>var foo = 1;\nfoo++;</script>\n<style>p { color: red; }</style>\n";
+		doc.insertString(0, text, null);
+
+		Assertions.assertEquals(0, doc.getLanguageIndexAt(text.indexOf("foo")));
+		Assertions.assertEquals(1, doc.getLanguageIndexAt(text.indexOf("var")));
+		Assertions.assertEquals(1, doc.getLanguageIndexAt(text.indexOf("foo++")));
+		Assertions.assertEquals(0, doc.getLanguageIndexAt(text.indexOf("</script>")));
+		Assertions.assertEquals(2, doc.getLanguageIndexAt(text.indexOf("color")));
+		Assertions.assertEquals(0, doc.getLanguageIndexAt(text.length())); // Empty last line
+
+		// Results don't change when the regions are cached
+		Assertions.assertEquals(1, doc.getLanguageIndexAt(text.indexOf("var")));
+		Assertions.assertEquals(0, doc.getLanguageIndexAt(text.indexOf("<p>")));
+	}
+
+
+	@Test
+	void testGetLanguageIndexAt_afterEdits() throws Exception {
+
+		doc = new RSyntaxDocument(SyntaxConstants.SYNTAX_STYLE_HTML);
+		doc.insertString(0, "<script>\nvar foo = 1;\nfoo++;\n</script>\n", null);
+		Element map = doc.getDefaultRootElement();
+		int line2Start = map.getElement(2).getStartOffset();
+		Assertions.assertEquals(1, doc.getLanguageIndexAt(line2Start));
+
+		// Removing the opening tag changes lines below it
+		doc.remove(0, "<script>".length());
+		line2Start = map.getElement(2).getStartOffset();
+		Assertions.assertEquals(0, doc.getLanguageIndexAt(line2Start));
+
+		// Restoring it, with lines inserted above
+		doc.insertString(0, "<p>\n</p>\n<script>", null);
+		int line4Start = map.getElement(4).getStartOffset();
+		Assertions.assertEquals(1, doc.getLanguageIndexAt(line4Start));
+		Assertions.assertEquals(0, doc.getLanguageIndexAt(0));
+
+		// Changing a line's text
+		doc.insertString(line4Start, "</script>", null);
+		Assertions.assertEquals(0, doc.getLanguageIndexAt(line4Start));
+		Assertions.assertEquals(0, doc.getLanguageIndexAt(line4Start + "</script>".length()));
+	}
+
+
 	@Test
 	void testGetLanguageIsMarkup() {
 
@@ -279,6 +418,22 @@ class RSyntaxDocumentTest {
 	}
 
 
+	@Test
+	void testGetLanguageRegionEndOffset() throws Exception {
+
+		doc = new RSyntaxDocument(SyntaxConstants.SYNTAX_STYLE_HTML);
+		String text = "<p>foo</p><script>var foo = 1;\nfoo++;</script>\n";
+		doc.insertString(0, text, null);
+		int line0End = text.indexOf('\n') + 1;
+
+		Assertions.assertEquals(text.indexOf("var"), doc.getLanguageRegionEndOffset(0));
+		Assertions.assertEquals(text.indexOf("var"), doc.getLanguageRegionEndOffset(text.indexOf("foo")));
+		Assertions.assertEquals(line0End, doc.getLanguageRegionEndOffset(text.indexOf("var")));
+		Assertions.assertEquals(text.indexOf("</script>"), doc.getLanguageRegionEndOffset(line0End));
+		Assertions.assertEquals(text.length(), doc.getLanguageRegionEndOffset(text.indexOf("</script>")));
+	}
+
+
 	@Test
 	void testGetLastTokenTypeOnLine() throws Exception {
 
@@ -307,6 +462,151 @@ class RSyntaxDocumentTest {
 	}
 
 
+	/**
+	 * Creates a C document with many lines, so that an edit at the top
+	 * leaves lines below it to be updated lazily.
+	 */
+	private static RSyntaxDocument createLargeCDocument() throws Exception {
+		RSyntaxDocument doc = new RSyntaxDocument(SyntaxConstants.SYNTAX_STYLE_C);
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 1000; i++) {
+			sb.append("int x").append(i).append(" = ").append(i).append(";\n");
+		}
+		doc.insertString(0, sb.toString(), null);
+		return doc;
+	}
+
+
+	@Test
+	void testGetLastTokenTypeOnLine_updatedOnDemandAfterEdit() throws Exception {
+
+		doc = createLargeCDocument();
+		TestDocumentListener l = new TestDocumentListener();
+		doc.addDocumentListener(l);
+		int lastLine = doc.getDefaultRootElement().getElementCount() - 1;
+
+		doc.insertString(0, "/*", null);
+
+		// All lines below may change color
+		assertLineRangeChangeEvent(l.events.get(0), 0, lastLine);
+
+		Assertions.assertEquals(TokenTypes.COMMENT_MULTILINE, doc.getLastTokenTypeOnLine(800));
+		Assertions.assertEquals(TokenTypes.COMMENT_MULTILINE, doc.getTokenListForLine(900).getType());
+		Assertions.assertEquals(TokenTypes.COMMENT_MULTILINE, doc.getLastTokenTypeOnLine(lastLine - 1));
+	}
+
+
+	@Test
+	void testGetLastTokenTypeOnLine_doesNotCorruptCachedTokenList() throws Exception {
+
+		doc = createLargeCDocument();
+		doc.insertString(0, "/*", null);
+		doc.remove(0, 2);
+
+		Token t = doc.getTokenListForLine(0);
+		Assertions.assertEquals("int", t.getLexeme());
+
+		// Updating stale lines lexes them with the same token maker
+		doc.getLastTokenTypeOnLine(450);
+
+		t = doc.getTokenListForLine(0);
+		Assertions.assertEquals("int", t.getLexeme());
+		Assertions.assertEquals(0, t.getOffset());
+		Token identifier = t.getNextToken().getNextToken();
+		Assertions.assertEquals("x0", identifier.getLexeme());
+		Assertions.assertEquals(4, identifier.getOffset());
+	}
+
+
+	@Test
+	void testIdlePropagation_doesNotWaitForReaders() throws Exception {
+
+		doc = createLargeCDocument();
+		doc.insertString(0, "/*", null);
+		Assertions.assertTrue(doc.hasStaleLastTokenTypes());
+
+		// Another thread holds a read lock until idle-time updates finish
+		CountDownLatch locked = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		RSyntaxDocument document = doc;
+		Thread reader = new Thread(() -> {
+			document.readLock();
+			try {
+				locked.countDown();
+				release.await(10, TimeUnit.SECONDS);
+			} catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+			} finally {
+				document.readUnlock();
+			}
+		});
+		reader.start();
+		locked.await();
+
+		try {
+			long deadline = System.currentTimeMillis() + 5000;
+			while (doc.hasStaleLastTokenTypes() && System.currentTimeMillis()<deadline) {
+				Thread.sleep(20);
+			}
+			Assertions.assertFalse(doc.hasStaleLastTokenTypes());
+		} finally {
+			release.countDown();
+			reader.join();
+		}
+
+		Assertions.assertEquals(TokenTypes.COMMENT_MULTILINE, doc.getLastTokenTypeOnLine(999));
+	}
+
+
+	@Test
+	void testGetTokenListForLine_staleLinesAbove() throws Exception {
+
+		doc = createLargeCDocument();
+		doc.insertString(0, "/*", null);
+		doc.remove(0, 2);
+
+		// The lines above must be brought up to date first
+		int lineStart = doc.getDefaultRootElement().getElement(450).getStartOffset();
+		Token t = doc.getTokenListForLine(450);
+		Assertions.assertEquals("int", t.getLexeme());
+		Assertions.assertEquals(lineStart, t.getOffset());
+		Assertions.assertEquals("x450", t.getNextToken().getNextToken().getLexeme());
+	}
+
+
+	@Test
+	void testGetLastTokenTypeOnLine_editsBeforeUpdateFinishes() throws Exception {
+
+		doc = createLargeCDocument();
+		int lastLine = doc.getDefaultRootElement().getElementCount() - 1;
+
+		// Open and close a comment in quick succession
+		doc.insertString(0, "/*", null);
+		doc.insertString(2, "*/", null);
+		for (int i = 0; i < lastLine; i++) {
+			Assertions.assertEquals(TokenTypes.NULL, doc.getLastTokenTypeOnLine(i), "line " + i);
+		}
+
+		// Lines removed and added in the middle of a stale range
+		doc.remove(2, 2);
+		Element map = doc.getDefaultRootElement();
+		int start = map.getElement(500).getStartOffset();
+		int end = map.getElement(600).getStartOffset();
+		doc.remove(start, end - start);
+		doc.insertString(map.getElement(300).getStartOffset(), "a\nb\nc\n", null);
+		lastLine = map.getElementCount() - 1;
+		for (int i = 0; i < lastLine; i++) {
+			Assertions.assertEquals(TokenTypes.COMMENT_MULTILINE, doc.getLastTokenTypeOnLine(i), "line " + i);
+		}
+
+		// Closing the comment near the end
+		doc.insertString(map.getElement(lastLine - 2).getStartOffset(), "*/", null);
+		Assertions.assertEquals(TokenTypes.COMMENT_MULTILINE, doc.getLastTokenTypeOnLine(lastLine - 3));
+		Assertions.assertEquals(TokenTypes.NULL, doc.getLastTokenTypeOnLine(lastLine - 2));
+		Assertions.assertEquals(TokenTypes.NULL, doc.getLastTokenTypeOnLine(lastLine - 1));
+	}
+
+
 	@Test
 	public void testGetLineCommentStartAndEnd() {
 
@@ -328,6 +628,101 @@ class RSyntaxDocumentTest {
 	}
 
 
+	@Test
+	void testGetLineContainsLanguage() throws Exception {
+
+		doc = new RSyntaxDocument(SyntaxConstants.SYNTAX_STYLE_HTML);
+		doc.insertString(0, "<p>foo</p>\n<script>var foo = 1;\nfoo++;</script>\n", null);
+
+		Assertions.assertTrue(doc.getLineContainsLanguage(0, 0));
+		Assertions.assertFalse(doc.getLineContainsLanguage(0, 1));
+		Assertions.assertTrue(doc.getLineContainsLanguage(1, 0));
+		Assertions.assertTrue(doc.getLineContainsLanguage(1, 1));
+		Assertions.assertTrue(doc.getLineContainsLanguage(2, 1));
+		Assertions.assertFalse(doc.getLineContainsLanguage(2, 2));
+	}
+
+
+	@Test
+	void testGetLineSegmentCount() throws Exception {
+
+		doc = new RSyntaxDocument(SyntaxConstants.SYNTAX_STYLE_JAVASCRIPT);
+		String line = createLongLine("var a=[1,2.5,'x'],b={c:d.e(f)};", 2 * 1024 * 1024);
+		doc.insertString(0, "short\n" + line + "\nshort", null);
+
+		Assertions.assertEquals(1, doc.getLineSegmentCount(0));
+		Assertions.assertEquals(1, doc.getLineSegmentCount(2));
+		int count = doc.getLineSegmentCount(1);
+		Assertions.assertTrue(count>=line.length() / RSyntaxDocument.DEFAULT_LONG_LINE_THRESHOLD - 1);
+
+		int lineStart = 6;
+		for (int i=1; i<count; i++) {
+			int start = doc.getLineSegmentStartOffset(1, i) - lineStart;
+			int prevStart = doc.getLineSegmentStartOffset(1, i - 1) - lineStart;
+			Assertions.assertTrue(start - prevStart>=RSyntaxDocument.DEFAULT_LONG_LINE_THRESHOLD);
+		}
+	}
+
+
+	@Test
+	void testGetLineSegmentCount_afterEdits() throws Exception {
+
+		doc = new RSyntaxDocument(SyntaxConstants.SYNTAX_STYLE_JAVASCRIPT);
+		doc.setLongLineThreshold(1000);
+		doc.insertString(0, createLongLine("f(a,b);x+=\"s\";", 1024 * 1024), null);
+		int count = doc.getLineSegmentCount(0);
+		Assertions.assertTrue(count>1000);
+
+		// An unterminated comment can't be split
+		int offs = doc.getLineSegmentStartOffset(0, 500) + 3;
+		doc.insertString(offs, "/*", null);
+		Assertions.assertEquals(501, doc.getLineSegmentCount(0));
+		assertSegmentsMatchLine(doc, 0);
+
+		doc.remove(offs, 2);
+		Assertions.assertEquals(count, doc.getLineSegmentCount(0));
+		assertSegmentsMatchLine(doc, 0);
+
+		// Lines above changing how this line starts
+		doc.insertString(0, "/*\n", null);
+		Assertions.assertEquals(1, doc.getLineSegmentCount(1));
+		doc.insertString(0, "*/", null);
+		Assertions.assertEquals(count, doc.getLineSegmentCount(1));
+		assertSegmentsMatchLine(doc, 1);
+	}
+
+
+	@Test
+	void testGetLineSegmentCount_disabled() throws Exception {
+
+		doc = new RSyntaxDocument(SyntaxConstants.SYNTAX_STYLE_JAVASCRIPT);
+		doc.setLongLineThreshold(0);
+		doc.insertString(0, createLongLine("var a=1;", 100000), null);
+
+		Assertions.assertEquals(1, doc.getLineSegmentCount(0));
+		Assertions.assertEquals(0, doc.getLineSegmentStartOffset(0, 0));
+		Assertions.assertSame(doc.getTokenListForLine(0), doc.getTokenListForLineSegment(0, 0));
+		Assertions.assertThrows(IndexOutOfBoundsException.class, () -> doc.getTokenListForLineSegment(0, 1));
+	}
+
+
+	@Test
+	void testGetLineSegmentOfOffset() throws Exception {
+
+		doc = new RSyntaxDocument(SyntaxConstants.SYNTAX_STYLE_JAVASCRIPT);
+		doc.setLongLineThreshold(1000);
+		doc.insertString(0, "x\n" + createLongLine("var a=1;", 100000), null);
+
+		Assertions.assertEquals(0, doc.getLineSegmentOfOffset(0));
+		Assertions.assertEquals(0, doc.getLineSegmentOfOffset(2));
+		int start = doc.getLineSegmentStartOffset(1, 5);
+		Assertions.assertEquals(4, doc.getLineSegmentOfOffset(start - 1));
+		Assertions.assertEquals(5, doc.getLineSegmentOfOffset(start));
+		Assertions.assertEquals(doc.getLineSegmentCount(1) - 1,
+			doc.getLineSegmentOfOffset(doc.getLength()));
+	}
+
+
 	@Test
 	void testCommon_getMarkOccurrencesOfTokenType() {
 
@@ -403,6 +798,47 @@ class RSyntaxDocumentTest {
 	}
 
 
+	@Test
+	void testGetTokenListForLineSegment_javaScript() throws Exception {
+
+		doc = new RSyntaxDocument(SyntaxConstants.SYNTAX_STYLE_JAVASCRIPT);
+		String text = "var a={\"k\":[1,2.5e3,true,null],'s':\"x\\\"y\"};b=a.k.map(x=>x*2)||`t${a}`;";
+		StringBuilder sb = new StringBuilder(createLongLine(text, 2 * 1024 * 1024));
+		sb.insert(sb.length() / 2, "\"" + createLongLine("s", 100000) + "\";"); // A very long token
+		doc.insertString(0, sb.toString(), null);
+
+		Assertions.assertTrue(doc.getLineSegmentCount(0)>100);
+		assertSegmentsMatchLine(doc, 0);
+	}
+
+
+	@Test
+	void testGetTokenListForLineSegment_javaScriptCommentsAndRegexes() throws Exception {
+
+		doc = new RSyntaxDocument(SyntaxConstants.SYNTAX_STYLE_JAVASCRIPT);
+		doc.setLongLineThreshold(1024);
+		String text = "a=b/2;/* c */x=/r[/]e/g.test(s)?1:0;";
+		doc.insertString(0, createLongLine(text, 32 * 1024), null);
+
+		Assertions.assertTrue(doc.getLineSegmentCount(0)>20);
+		assertSegmentsMatchLine(doc, 0);
+	}
+
+
+	@Test
+	void testGetTokenListForLineSegment_html() throws Exception {
+
+		doc = new RSyntaxDocument(SyntaxConstants.SYNTAX_STYLE_HTML);
+		doc.setLongLineThreshold(4096);
+		String text = "<div class=\"a\">Text &amp; more</div><!-- c --><script>var x = '<p>' + 1;</script>" +
+			"<style>p { color: red; }</style>";
+		doc.insertString(0, "<p>\n" + createLongLine(text, 1024 * 1024), null);
+
+		Assertions.assertTrue(doc.getLineSegmentCount(1)>100);
+		assertSegmentsMatchLine(doc, 1);
+	}
+
+
 	@Test
 	void testInsertBreakSpecialHandling() {
 
@@ -438,6 +874,81 @@ class RSyntaxDocumentTest {
 	}
 
 
+	@Test
+	void testFireDocumentEvent_InsertManyLinesAboveExistingLines() throws Exception {
+
+		doc = new RSyntaxDocument(SyntaxConstants.SYNTAX_STYLE_C);
+		insertHelloWorldC(doc);
+
+		doc.insertString(0, "int a;\n/* one\ntwo\nthree */\n", null);
+
+		Assertions.assertEquals(TokenTypes.NULL, doc.getLastTokenTypeOnLine(0));
+		Assertions.assertEquals(TokenTypes.COMMENT_MULTILINE, doc.getLastTokenTypeOnLine(1));
+		Assertions.assertEquals(TokenTypes.COMMENT_MULTILINE, doc.getLastTokenTypeOnLine(2));
+		Assertions.assertEquals(TokenTypes.NULL, doc.getLastTokenTypeOnLine(3));
+		// Lines from the original content were shifted down
+		Assertions.assertEquals(TokenTypes.NULL, doc.getLastTokenTypeOnLine(4));
+		Assertions.assertEquals(TokenTypes.COMMENT_MULTILINE, doc.getLastTokenTypeOnLine(5));
+		Assertions.assertEquals(TokenTypes.NULL, doc.getLastTokenTypeOnLine(6));
+	}
+
+
+	@Test
+	void testLoad() throws Exception {
+
+		doc = new RSyntaxDocument(SyntaxConstants.SYNTAX_STYLE_C);
+		doc.insertString(0, "/* unclosed comment\n", null);
+
+		doc.load(new StringReader("int a;\r\n/* one\r\ntwo */\r\nint b;"));
+
+		Assertions.assertEquals("int a;\n/* one\ntwo */\nint b;", doc.getText(0, doc.getLength()));
+		Assertions.assertEquals(4, doc.getDefaultRootElement().getElementCount());
+		Assertions.assertEquals(TokenTypes.NULL, doc.getLastTokenTypeOnLine(0));
+		Assertions.assertEquals(TokenTypes.COMMENT_MULTILINE, doc.getLastTokenTypeOnLine(1));
+		Assertions.assertEquals(TokenTypes.NULL, doc.getLastTokenTypeOnLine(2));
+		Assertions.assertEquals(TokenTypes.NULL, doc.getLastTokenTypeOnLine(3));
+		Assertions.assertThrows(IndexOutOfBoundsException.class, () -> doc.getLastTokenTypeOnLine(4));
+	}
+
+
+	@Test
+	void testSetLongLineThreshold() throws Exception {
+
+		doc = new RSyntaxDocument(SyntaxConstants.SYNTAX_STYLE_JAVASCRIPT);
+		Assertions.assertEquals(RSyntaxDocument.DEFAULT_LONG_LINE_THRESHOLD, doc.getLongLineThreshold());
+		doc.insertString(0, createLongLine("var a=1;", 100000), null);
+		int count = doc.getLineSegmentCount(0);
+
+		List<DocumentEvent> events = new ArrayList<>();
+		doc.addDocumentListener(new DocumentListener() {
+			@Override
+			public void changedUpdate(DocumentEvent e) {
+				events.add(e);
+			}
+
+			@Override
+			public void insertUpdate(DocumentEvent e) {
+			}
+
+			@Override
+			public void removeUpdate(DocumentEvent e) {
+			}
+		});
+
+		doc.setLongLineThreshold(1000);
+		Assertions.assertEquals(1000, doc.getLongLineThreshold());
+		Assertions.assertEquals(1, events.size());
+		Assertions.assertTrue(doc.getLineSegmentCount(0)>count);
+
+		doc.setLongLineThreshold(1000);
+		Assertions.assertEquals(1, events.size());
+
+		doc.setLongLineThreshold(-1);
+		Assertions.assertEquals(0, doc.getLongLineThreshold());
+		Assertions.assertEquals(1, doc.getLineSegmentCount(0));
+	}
+
+
 	@Test
 	void testSetSyntaxStyle() {
 
@@ -504,6 +1015,16 @@ class RSyntaxDocumentTest {
 	 * @param len The expected length.
 	 * @throws AssertionError If any value is not as expected.
 	 */
+	private static void assertLineRangeChangeEvent(DocumentEvent e,
+			int firstLine, int lastLine) {
+		Assertions.assertEquals(DocumentEvent.EventType.CHANGE, e.getType());
+		Assertions.assertInstanceOf(RSyntaxDocument.LineRangeChangeEvent.class, e);
+		RSyntaxDocument.LineRangeChangeEvent lrce = (RSyntaxDocument.LineRangeChangeEvent)e;
+		Assertions.assertEquals(firstLine, lrce.getFirstLine());
+		Assertions.assertEquals(lastLine, lrce.getLastLine());
+	}
+
+
 	private static void assertDocumentEvent(DocumentEvent e,
 											DocumentEvent.EventType eventType, int offs, int len) {
 		Assertions.assertEquals(eventType, e.getType());
@@ -299,6 +299,44 @@ class RSyntaxTextAreaTest extends AbstractRSyntaxTextAreaTest {
 	}
 
 
+	@Test
+	void testCreateStyledTextTransferable_theme() throws Exception {
+
+		RSyntaxTextArea textArea = new RSyntaxTextArea();
+		textArea.setSyntaxEditingStyle(SyntaxConstants.SYNTAX_STYLE_JAVA);
+		textArea.setText("public int getValue();");
+		SyntaxScheme origScheme = textArea.getSyntaxScheme();
+		Color origBG = textArea.getBackground();
+
+		Theme theme = Theme.load(getClass().getResourceAsStream(
+			"/org/fife/ui/rsyntaxtextarea/themes/dark.xml"));
+		StyledTextTransferable t = textArea.createStyledTextTransferable(theme, 0, 6);
+		String html = (String)t.getTransferData(DataFlavor.fragmentHtmlFlavor);
+
+		// The theme's styles are used, but not applied to the text area
+		String keywordColor = HtmlUtil.getHexString(
+			theme.scheme.getStyle(TokenTypes.RESERVED_WORD).foreground);
+		Assertions.assertTrue(html.contains("color: " + keywordColor + ";\">public</span>"), html);
+		Assertions.assertTrue(html.contains(HtmlUtil.getHexString(theme.bgColor)), html);
+		Assertions.assertSame(origScheme, textArea.getSyntaxScheme());
+		Assertions.assertEquals(origBG, textArea.getBackground());
+	}
+
+
+	@Test
+	void testCreateStyledTextTransferable_nullTheme() throws Exception {
+
+		RSyntaxTextArea textArea = new RSyntaxTextArea();
+		textArea.setSyntaxEditingStyle(SyntaxConstants.SYNTAX_STYLE_JAVA);
+		textArea.setText("public int getValue();");
+		int end = textArea.getDocument().getLength();
+
+		StyledTextTransferable t = textArea.createStyledTextTransferable(null, 0, end);
+		Assertions.assertEquals(HtmlUtil.getTextAsHtml(textArea, 0, end),
+			t.getTransferData(DataFlavor.fragmentHtmlFlavor));
+	}
+
+
 	@Test
 	void testGetSetSecondaryLanguageBackground() {
 		RSyntaxTextArea textArea = new RSyntaxTextArea();
@@ -0,0 +1,185 @@
+/*
+ * This library is distributed under a modified BSD license.  See the included
+ * LICENSE file for details.
+ */
+package org.fife.ui.rsyntaxtextarea;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+import javax.swing.text.Segment;
+
+import org.fife.ui.rsyntaxtextarea.modes.JavaTokenMaker;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Unit tests for the {@link StyledTextExporter} class.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ */
+class StyledTextExporterTest {
+
+
+	private static RSyntaxDocument createDocument(String text) throws Exception {
+		RSyntaxDocument doc = new RSyntaxDocument(SyntaxConstants.SYNTAX_STYLE_JAVA);
+		doc.insertString(0, text, null);
+		return doc;
+	}
+
+
+	private static StyledTextExporter createExporter() {
+		Font font = new Font(Font.MONOSPACED, Font.PLAIN, 12);
+		return new StyledTextExporter(new SyntaxScheme(font), font, Color.BLACK, Color.WHITE);
+	}
+
+
+	@Test
+	void testExportHtml() throws Exception {
+
+		RSyntaxDocument doc = createDocument("public int x = 5;\n// a < b\n");
+		StringWriter w = new StringWriter();
+		createExporter().exportHtml(doc, w);
+		String html = w.toString();
+
+		Assertions.assertTrue(html.contains("pre.rsta .reserved-word { color: #0000ff; font-weight: bold; }"), html);
+		Assertions.assertTrue(html.contains("pre.rsta .comment-eol { color: #008000; font-style: italic; }"), html);
+		Assertions.assertTrue(html.contains("<pre class=\"rsta\"><span class=\"reserved-word\">public </span>" +
+			"<span class=\"data-type\">int </span>x <span class=\"operator\">= </span>" +
+			"<span class=\"literal-number-decimal-int\">5</span>;\n" +
+			"<span class=\"comment-eol\">// a &lt; b</span>\n</pre>"), html);
+	}
+
+
+	@Test
+	void testExportHtml_documentTokenMakerNotUsed() throws Exception {
+
+		List<int[]> lexCounts = new ArrayList<>();
+		TokenMakerFactory tmf = new TokenMakerFactory() {
+			@Override
+			protected TokenMaker getTokenMakerImpl(String key) {
+				int[] lexCount = new int[1];
+				lexCounts.add(lexCount);
+				return new JavaTokenMaker() {
+					@Override
+					public Token getTokenList(Segment text, int initialTokenType, int startOffset) {
+						lexCount[0]++;
+						return super.getTokenList(text, initialTokenType, startOffset);
+					}
+				};
+			}
+
+			@Override
+			public Set<String> keySet() {
+				return Collections.singleton(SyntaxConstants.SYNTAX_STYLE_JAVA);
+			}
+		};
+
+		RSyntaxDocument doc = new RSyntaxDocument(tmf, SyntaxConstants.SYNTAX_STYLE_JAVA);
+		doc.insertString(0, "int x;\n/* a\nb */ int y;", null);
+		int docLexCount = lexCounts.get(0)[0];
+
+		StringWriter w = new StringWriter();
+		createExporter().exportHtml(doc, w);
+		String html = w.toString();
+
+		Assertions.assertEquals(docLexCount, lexCounts.get(0)[0]);
+		Assertions.assertEquals(2, lexCounts.size());
+		Assertions.assertTrue(html.contains("<span class=\"comment-multiline\">/* a</span>\n" +
+			"<span class=\"comment-multiline\">b */ </span><span class=\"data-type\">int </span>y;"), html);
+	}
+
+
+	@Test
+	void testExportHtml_nonAsciiCharactersEscaped() throws Exception {
+
+		RSyntaxDocument doc = createDocument("// \u00e9 \ud83d\ude00 & >");
+		StringWriter w = new StringWriter();
+		createExporter().exportHtml(doc, w);
+		String html = w.toString();
+
+		Assertions.assertTrue(html.contains("// &#233; &#128512; &amp; &gt;"), html);
+		for (int i = 0; i < html.length(); i++) {
+			Assertions.assertTrue(html.charAt(i) < 128);
+		}
+	}
+
+
+	@Test
+	void testExportRtf() throws Exception {
+
+		RSyntaxDocument doc = createDocument("public {\n\t\u00e9\n");
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		createExporter().exportRtf(doc, out);
+		String rtf = new String(out.toByteArray(), StandardCharsets.US_ASCII);
+
+		Assertions.assertTrue(rtf.startsWith("{\\rtf1"), rtf);
+		// The default foreground is the first color
+		Assertions.assertTrue(rtf.contains("{\\colortbl ;\\red0\\green0\\blue0;"), rtf);
+		Assertions.assertTrue(rtf.contains("\\cf1\\cb"), rtf);
+		Assertions.assertTrue(Pattern.compile("\\{\\\\b\\\\cf\\d+ public }").matcher(rtf).find(), rtf);
+		Assertions.assertTrue(rtf.contains(" \\{}\\line\n\\tab \\u233 \\line\n\\line\n}"), rtf);
+	}
+
+
+	@Test
+	void testExportRtf_colorsAndFontsListedOnce() throws Exception {
+
+		RSyntaxDocument doc = createDocument("public static final int x;");
+		StringWriter w = new StringWriter();
+		createExporter().exportRtf(doc, w);
+		String rtf = w.toString();
+
+		String colorTable = rtf.substring(rtf.indexOf("{\\colortbl"), rtf.indexOf('}', rtf.indexOf("{\\colortbl")));
+		Assertions.assertEquals(colorTable.indexOf("\\red0\\green0\\blue255;"),
+			colorTable.lastIndexOf("\\red0\\green0\\blue255;"));
+		Assertions.assertTrue(rtf.contains("{\\fonttbl{\\f0\\fnil\\fcharset0 " +
+			RtfGenerator.getMonospacedFontFamily() + ";}}"), rtf);
+	}
+
+
+	@Test
+	void testGetTokenTypeName() {
+		Assertions.assertEquals("reserved-word-2", StyledTextExporter.getTokenTypeName(TokenTypes.RESERVED_WORD_2));
+		Assertions.assertEquals("token-" + TokenTypes.DEFAULT_NUM_TOKEN_TYPES,
+			StyledTextExporter.getTokenTypeName(TokenTypes.DEFAULT_NUM_TOKEN_TYPES));
+	}
+
+
+	@Test
+	void testRun() throws IOException {
+
+		File in = File.createTempFile("unitTest", ".java");
+		in.deleteOnExit();
+		File out = File.createTempFile("unitTest", ".html");
+		out.deleteOnExit();
+		Files.write(in.toPath(), "public class Foo {}".getBytes(StandardCharsets.UTF_8));
+
+		int result = StyledTextExporter.run(new String[] { "-theme", "dark", "-o", out.getAbsolutePath(),
+			in.getAbsolutePath() });
+		Assertions.assertEquals(0, result);
+
+		String html = new String(Files.readAllBytes(out.toPath()), StandardCharsets.US_ASCII);
+		Assertions.assertTrue(html.contains("<span class=\"reserved-word\">public class </span>"), html);
+		Assertions.assertTrue(html.contains("background: #293134;"), html);
+	}
+
+
+	@Test
+	void testRun_noArgs() throws IOException {
+		Assertions.assertEquals(1, StyledTextExporter.run(new String[0]));
+	}
+}
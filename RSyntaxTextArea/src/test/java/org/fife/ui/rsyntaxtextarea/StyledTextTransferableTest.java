@@ -8,7 +8,11 @@ package org.fife.ui.rsyntaxtextarea;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.awt.Color;
 import java.awt.datatransfer.DataFlavor;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Scanner;
 
 /**
  * Unit tests for the {@link StyledTextTransferable} class.
@@ -43,4 +47,74 @@ class StyledTextTransferableTest {
 		StyledTextTransferable t = new StyledTextTransferable("", "foo", rtfBytes);
 		Assertions.assertFalse(t.isDataFlavorSupported(DataFlavor.imageFlavor));
 	}
+
+
+	@Test
+	void testGetTransferData_lazy() throws Exception {
+
+		RSyntaxTextArea textArea = new RSyntaxTextArea();
+		textArea.setSyntaxEditingStyle(SyntaxConstants.SYNTAX_STYLE_JAVA);
+		textArea.setText("public int getValue();\n");
+		int end = textArea.getDocument().getLength();
+		StyledTextTransferable t = new StyledTextTransferable(
+			StyledTextSnapshot.create(textArea, null, 0, end));
+
+		Assertions.assertEquals(textArea.getText(), t.getTransferData(DataFlavor.stringFlavor));
+		Assertions.assertFalse(t.isStyledTextGenerated());
+
+		Assertions.assertEquals(HtmlUtil.getTextAsHtml(textArea, 0, end),
+			t.getTransferData(DataFlavor.fragmentHtmlFlavor));
+		Assertions.assertTrue(t.isStyledTextGenerated());
+
+		ByteArrayInputStream in = (ByteArrayInputStream)t.getTransferData(
+			new DataFlavor("text/rtf", "RTF"));
+		String rtf = new Scanner(in, StandardCharsets.UTF_8.name()).useDelimiter("\\Z").next();
+		Assertions.assertTrue(rtf.contains("\\b\\cf1 public\\b0"), "Unexpected RTF: " + rtf);
+	}
+
+
+	@Test
+	void testGetTransferData_snapshotUnaffectedByLaterEdits() throws Exception {
+
+		RSyntaxTextArea textArea = new RSyntaxTextArea();
+		textArea.setSyntaxEditingStyle(SyntaxConstants.SYNTAX_STYLE_JAVA);
+		textArea.setText("int x;");
+		String expected = HtmlUtil.getTextAsHtml(textArea, 0, 6);
+		StyledTextTransferable t = new StyledTextTransferable(
+			StyledTextSnapshot.create(textArea, null, 0, 6));
+
+		textArea.setText("// Something else entirely");
+		textArea.getSyntaxScheme().getStyle(TokenTypes.DATA_TYPE).foreground = Color.GREEN;
+
+		Assertions.assertEquals(expected, t.getTransferData(DataFlavor.fragmentHtmlFlavor));
+		Assertions.assertEquals("int x;", t.getTransferData(DataFlavor.stringFlavor));
+	}
+
+
+	@Test
+	void testGetTransferData_overriddenStylesHonored() throws Exception {
+
+		RSyntaxTextArea textArea = new RSyntaxTextArea() {
+			@Override
+			public Color getForegroundForToken(Token t) {
+				return t.getType()==TokenTypes.RESERVED_WORD ? Color.MAGENTA :
+					super.getForegroundForToken(t);
+			}
+		};
+		textArea.setSyntaxEditingStyle(SyntaxConstants.SYNTAX_STYLE_JAVA);
+		textArea.setText("public int getValue();");
+		int end = textArea.getDocument().getLength();
+		String expected = HtmlUtil.getTextAsHtml(textArea, 0, end);
+		StyledTextTransferable t = new StyledTextTransferable(
+			StyledTextSnapshot.create(textArea, null, 0, end));
+
+		String html = (String)t.getTransferData(DataFlavor.fragmentHtmlFlavor);
+		Assertions.assertEquals(expected, html);
+		Assertions.assertTrue(html.contains(HtmlUtil.getHexString(Color.MAGENTA)), html);
+
+		ByteArrayInputStream in = (ByteArrayInputStream)t.getTransferData(
+			new DataFlavor("text/rtf", "RTF"));
+		String rtf = new Scanner(in, StandardCharsets.UTF_8.name()).useDelimiter("\\Z").next();
+		Assertions.assertTrue(rtf.contains("\\red255\\green0\\blue255"), "Unexpected RTF: " + rtf);
+	}
 }
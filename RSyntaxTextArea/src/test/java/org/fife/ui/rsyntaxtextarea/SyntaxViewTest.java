@@ -12,6 +12,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import javax.swing.*;
 import javax.swing.text.BadLocationException;
 import javax.swing.text.Position;
+import javax.swing.text.View;
 import java.awt.*;
 
 
@@ -25,6 +26,22 @@ import java.awt.*;
 class SyntaxViewTest extends AbstractRSyntaxTextAreaTest {
 
 
+	/**
+	 * Returns a text area with a single, very long line that is split into
+	 * segments by its document.
+	 */
+	private static RSyntaxTextArea createLongLineTextArea() {
+		StringBuilder sb = new StringBuilder();
+		while (sb.length()<200000) {
+			sb.append("\tvar a = [1, 'two', \"three\"];");
+		}
+		RSyntaxTextArea textArea = createTextArea(SyntaxConstants.SYNTAX_STYLE_JAVASCRIPT, sb.toString());
+		textArea.setCodeFoldingEnabled(false);
+		((RSyntaxDocument)textArea.getDocument()).setLongLineThreshold(1024);
+		return textArea;
+	}
+
+
 	@Test
 	void testGetNextVisualPositionFrom_north_onFirstLine() throws BadLocationException {
 
@@ -157,6 +174,52 @@ class SyntaxViewTest extends AbstractRSyntaxTextAreaTest {
 	}
 
 
+	@Test
+	void testModelToView_longLine() throws BadLocationException {
+
+		RSyntaxTextArea textArea = createLongLineTextArea();
+		RSyntaxDocument doc = (RSyntaxDocument)textArea.getDocument();
+		Assertions.assertTrue(doc.getLineSegmentCount(0)>100);
+		SyntaxView view = (SyntaxView)textArea.getUI().getRootView(textArea).getView(0);
+		Rectangle alloc = new Rectangle(0, 0, Integer.MAX_VALUE / 2, 1000);
+
+		int[] offsets = new int[200];
+		Rectangle[] expected = new Rectangle[offsets.length];
+		doc.setLongLineThreshold(0);
+		for (int i=0; i<offsets.length; i++) {
+			offsets[i] = i * (doc.getLength() / (offsets.length - 1));
+			expected[i] = view.modelToView(offsets[i], alloc, Position.Bias.Forward).getBounds();
+		}
+
+		doc.setLongLineThreshold(1024);
+		for (int i=0; i<offsets.length; i++) {
+			Rectangle r = view.modelToView(offsets[i], alloc, Position.Bias.Forward).getBounds();
+			Assertions.assertEquals(expected[i].x, r.x);
+			Assertions.assertEquals(expected[i].width, r.width);
+		}
+	}
+
+
+	@Test
+	void testModelToView_longLineStylesChanged() throws BadLocationException {
+
+		RSyntaxTextArea textArea = createLongLineTextArea();
+		RSyntaxDocument doc = (RSyntaxDocument)textArea.getDocument();
+		doc.insertString(0, "x\n", null);
+		SyntaxView view = (SyntaxView)textArea.getUI().getRootView(textArea).getView(0);
+		Rectangle alloc = new Rectangle(0, 0, Integer.MAX_VALUE / 2, 1000);
+		int offs = doc.getLength() - 10;
+		view.modelToView(offs, alloc, Position.Bias.Forward);
+
+		// Opening a comment on the line above changes the long line's styles
+		doc.insertString(0, "/*", null);
+		Rectangle actual = view.modelToView(offs + 2, alloc, Position.Bias.Forward).getBounds();
+		doc.setLongLineThreshold(0);
+		Rectangle expected = view.modelToView(offs + 2, alloc, Position.Bias.Forward).getBounds();
+		Assertions.assertEquals(expected.x, actual.x);
+	}
+
+
 	@Test
 	void testNextTabStop_offset0() {
 
@@ -199,6 +262,24 @@ class SyntaxViewTest extends AbstractRSyntaxTextAreaTest {
 	}
 
 
+	@Test
+	void testPaint_longLine() {
+
+		RSyntaxTextArea textArea = createLongLineTextArea();
+		textArea.setEOLMarkersVisible(true);
+		textArea.setCaretPosition(10);
+		textArea.moveCaretPosition(100000);
+
+		SyntaxView view = (SyntaxView) textArea.getUI().getRootView(textArea).getView(0);
+		Rectangle alloc = new Rectangle(0, 0, (int)view.getPreferredSpan(View.X_AXIS), 100);
+		Graphics g = createTestGraphics();
+		g.setClip(alloc.width / 2, 0, 300, 100);
+		view.paint(g, alloc);
+		g.setClip(alloc.width - 100, 0, 300, 100);
+		view.paint(g, alloc);
+	}
+
+
 	@Test
 	void testPaint_noSelection() {
 
@@ -221,4 +302,70 @@ class SyntaxViewTest extends AbstractRSyntaxTextAreaTest {
 		SyntaxView view = (SyntaxView) textArea.getUI().getRootView(textArea).getView(0);
 		view.paint(createTestGraphics(), textArea.getVisibleRect());
 	}
+
+
+	@Test
+	void testViewToModel_longLine() throws BadLocationException {
+
+		RSyntaxTextArea textArea = createLongLineTextArea();
+		RSyntaxDocument doc = (RSyntaxDocument)textArea.getDocument();
+		SyntaxView view = (SyntaxView)textArea.getUI().getRootView(textArea).getView(0);
+		Rectangle alloc = new Rectangle(0, 0, Integer.MAX_VALUE / 2, 1000);
+		Position.Bias[] bias = new Position.Bias[1];
+
+		doc.setLongLineThreshold(0);
+		float width = view.getPreferredSpan(View.X_AXIS);
+		int[] expected = new int[200];
+		for (int i=0; i<expected.length; i++) {
+			expected[i] = view.viewToModel(width * i / (expected.length - 1), 5, alloc, bias);
+		}
+
+		doc.setLongLineThreshold(1024);
+		Assertions.assertEquals(width, view.getPreferredSpan(View.X_AXIS), 1);
+		for (int i=0; i<expected.length; i++) {
+			Assertions.assertEquals(expected[i], view.viewToModel(width * i / (expected.length - 1), 5, alloc, bias));
+		}
+	}
+
+
+	@Test
+	void testChangeEvent_onlyVisibleLinesRepainted() throws BadLocationException {
+
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 1000; i++) {
+			sb.append("int x").append(i).append(" = ").append(i).append(";\n");
+		}
+
+		java.util.List<Rectangle> repaints = new java.util.ArrayList<>();
+		RSyntaxTextArea textArea = new RSyntaxTextArea(sb.toString()) {
+			@Override
+			public Graphics getGraphics() {
+				return createTestGraphics();
+			}
+
+			@Override
+			public void repaint(long tm, int x, int y, int width, int height) {
+				repaints.add(new Rectangle(x, y, width, height));
+			}
+		};
+		textArea.setSyntaxEditingStyle(SyntaxConstants.SYNTAX_STYLE_JAVA);
+		textArea.setLineWrap(false);
+		JViewport viewport = new JViewport();
+		viewport.setView(textArea);
+		viewport.setSize(300, 100);
+		textArea.setSize(300, textArea.getPreferredSize().height);
+		Rectangle visible = textArea.getVisibleRect();
+		Assertions.assertEquals(100, visible.height);
+		textArea.setCaretPosition(0);
+		textArea.paint(createTestGraphics()); // Views only damage lines once painted
+
+		// Starting a comment changes the highlighting of all lines below
+		repaints.clear();
+		textArea.getDocument().insertString(0, "/*", null);
+
+		Assertions.assertFalse(repaints.isEmpty());
+		for (Rectangle r : repaints) {
+			Assertions.assertTrue(r.isEmpty() || visible.contains(r), "Repainted outside the visible area: " + r);
+		}
+	}
 }
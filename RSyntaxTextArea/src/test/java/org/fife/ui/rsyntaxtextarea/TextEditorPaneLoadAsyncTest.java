@@ -0,0 +1,208 @@
+/*
+ * This library is distributed under a modified BSD license.  See the included
+ * LICENSE file for details.
+ */
+package org.fife.ui.rsyntaxtextarea;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.swing.SwingUtilities;
+
+import org.fife.ui.rtextarea.RTextAreaEditorKit;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Unit tests for {@link TextEditorPane#loadAsync(FileLocation, String, FileLoadListener)}.
+ * Unlike most Swing tests these run off the EDT, since the load hands
+ * batches of text off to the EDT.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ */
+class TextEditorPaneLoadAsyncTest {
+
+
+	private static File createTempFile(String content) throws IOException {
+		File file = File.createTempFile("unitTest", ".tmp");
+		file.deleteOnExit();
+		try (OutputStream out = Files.newOutputStream(file.toPath())) {
+			out.write(content.getBytes(StandardCharsets.UTF_8));
+		}
+		return file;
+	}
+
+
+	private static TextEditorPane createTextArea() throws Exception {
+		AtomicReference<TextEditorPane> textArea = new AtomicReference<>();
+		SwingUtilities.invokeAndWait(() -> {
+			TextEditorPane pane = new TextEditorPane();
+			pane.append("foo"); // Just to add to the undo stack
+			textArea.set(pane);
+		});
+		return textArea.get();
+	}
+
+
+	private static <T> T onEdt(Callable<T> callable) throws Exception {
+		AtomicReference<T> result = new AtomicReference<>();
+		AtomicReference<Exception> error = new AtomicReference<>();
+		SwingUtilities.invokeAndWait(() -> {
+			try {
+				result.set(callable.call());
+			} catch (Exception e) {
+				error.set(e);
+			}
+		});
+		if (error.get() != null) {
+			throw error.get();
+		}
+		return result.get();
+	}
+
+
+	@Test
+	void testLoadAsync_fileExists() throws Exception {
+
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 50000; i++) {
+			sb.append("line ").append(i).append("\r\n");
+		}
+		String content = sb.toString();
+		File file = createTempFile(content);
+
+		TextEditorPane textArea = createTextArea();
+		TestListener listener = new TestListener();
+		onEdt(() -> textArea.loadAsync(FileLocation.create(file), "UTF-8", listener));
+
+		Assertions.assertTrue(listener.latch.await(30, TimeUnit.SECONDS));
+		Assertions.assertTrue(listener.completed);
+		Assertions.assertTrue(listener.progressCount > 1);
+		Assertions.assertEquals(file.length(), listener.lastBytesRead);
+		Assertions.assertEquals(file.length(), listener.lastTotalBytes);
+
+		Assertions.assertEquals(content.replace("\r\n", "\n"), onEdt(textArea::getText));
+		Assertions.assertEquals("\r\n", onEdt(textArea::getLineSeparator));
+		Assertions.assertFalse(onEdt(textArea::isDirty));
+		Assertions.assertFalse(onEdt(textArea::canUndo));
+		Assertions.assertFalse(onEdt(textArea::isLoading));
+		Assertions.assertTrue(onEdt(textArea::isEditable));
+		Assertions.assertEquals(0, (int)onEdt(textArea::getCaretPosition));
+		Assertions.assertEquals(file.getAbsolutePath(), onEdt(textArea::getFileFullPath));
+
+		// Edits after the load should set the dirty flag again
+		onEdt(() -> {
+			textArea.append("x");
+			return null;
+		});
+		Assertions.assertTrue(onEdt(textArea::isDirty));
+	}
+
+
+	@Test
+	void testLoadAsync_lineSeparatorCr() throws Exception {
+
+		File file = createTempFile("one\rtwo\r");
+
+		TextEditorPane textArea = createTextArea();
+		TestListener listener = new TestListener();
+		onEdt(() -> textArea.loadAsync(FileLocation.create(file), "UTF-8", listener));
+
+		Assertions.assertTrue(listener.latch.await(30, TimeUnit.SECONDS));
+		Assertions.assertEquals("one\ntwo\n", onEdt(textArea::getText));
+		Assertions.assertEquals("\r", onEdt(() -> textArea.getDocument().getProperty(
+			RTextAreaEditorKit.EndOfLineStringProperty)));
+	}
+
+
+	@Test
+	void testLoadAsync_localNonExistentFile() throws Exception {
+
+		File file = File.createTempFile("unitTest", ".tmp");
+		file.delete();
+		file.deleteOnExit();
+
+		TextEditorPane textArea = createTextArea();
+		TestListener listener = new TestListener();
+		onEdt(() -> textArea.loadAsync(FileLocation.create(file), "UTF-16", listener));
+
+		Assertions.assertTrue(listener.latch.await(30, TimeUnit.SECONDS));
+		Assertions.assertTrue(listener.completed);
+		Assertions.assertTrue(onEdt(textArea::getText).isEmpty());
+		Assertions.assertEquals("UTF-16", onEdt(textArea::getEncoding));
+		Assertions.assertFalse(onEdt(textArea::canUndo));
+		Assertions.assertFalse(onEdt(textArea::isDirty));
+	}
+
+
+	@Test
+	void testLoadAsync_cancel() throws Exception {
+
+		File file = createTempFile("lorem ipsum\n");
+
+		TextEditorPane textArea = createTextArea();
+		String origPath = onEdt(textArea::getFileFullPath);
+		TestListener listener = new TestListener();
+
+		// Cancel before the worker has a chance to append anything
+		onEdt(() -> textArea.loadAsync(FileLocation.create(file), "UTF-8", listener).cancel(true));
+
+		Assertions.assertTrue(listener.latch.await(30, TimeUnit.SECONDS));
+		Assertions.assertTrue(listener.cancelled);
+		Assertions.assertFalse(listener.completed);
+		Assertions.assertTrue(onEdt(textArea::getText).isEmpty());
+		Assertions.assertEquals(origPath, onEdt(textArea::getFileFullPath));
+		Assertions.assertFalse(onEdt(textArea::isLoading));
+		Assertions.assertTrue(onEdt(textArea::isEditable));
+		Assertions.assertFalse(onEdt(textArea::canUndo));
+	}
+
+
+	/**
+	 * Records the callbacks received during a load.
+	 */
+	private static final class TestListener implements FileLoadListener {
+
+		private final CountDownLatch latch = new CountDownLatch(1);
+		private volatile boolean completed;
+		private volatile boolean cancelled;
+		private volatile int progressCount;
+		private volatile long lastBytesRead;
+		private volatile long lastTotalBytes;
+
+		@Override
+		public void fileLoadProgress(TextEditorPane textArea, long bytesRead, long totalBytes) {
+			Assertions.assertTrue(SwingUtilities.isEventDispatchThread());
+			progressCount++;
+			lastBytesRead = bytesRead;
+			lastTotalBytes = totalBytes;
+		}
+
+		@Override
+		public void fileLoadCompleted(TextEditorPane textArea) {
+			completed = true;
+			latch.countDown();
+		}
+
+		@Override
+		public void fileLoadCancelled(TextEditorPane textArea) {
+			cancelled = true;
+			latch.countDown();
+		}
+
+		@Override
+		public void fileLoadFailed(TextEditorPane textArea, IOException e) {
+			latch.countDown();
+		}
+	}
+
+
+}
@@ -0,0 +1,189 @@
+/*
+ * This library is distributed under a modified BSD license.  See the included
+ * LICENSE file for details.
+ */
+package org.fife.ui.rsyntaxtextarea;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.swing.SwingUtilities;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Unit tests for {@link TextEditorPane#saveAsync(FileSaveListener)} and
+ * {@link TextEditorPane#saveAsAsync(FileLocation, FileSaveListener)}.
+ * Like {@link TextEditorPaneLoadAsyncTest}, these run off the EDT.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ */
+class TextEditorPaneSaveAsyncTest {
+
+
+	private static File createTempFile() throws IOException {
+		File file = File.createTempFile("unitTest", ".tmp");
+		file.deleteOnExit();
+		return file;
+	}
+
+
+	private static TextEditorPane createTextArea(File file, String text) throws Exception {
+		return onEdt(() -> {
+			TextEditorPane textArea = new TextEditorPane(TextEditorPane.INSERT_MODE, false,
+				FileLocation.create(file), "UTF-8");
+			textArea.setText(text);
+			return textArea;
+		});
+	}
+
+
+	private static <T> T onEdt(Callable<T> callable) throws Exception {
+		AtomicReference<T> result = new AtomicReference<>();
+		AtomicReference<Exception> error = new AtomicReference<>();
+		SwingUtilities.invokeAndWait(() -> {
+			try {
+				result.set(callable.call());
+			} catch (Exception e) {
+				error.set(e);
+			}
+		});
+		if (error.get() != null) {
+			throw error.get();
+		}
+		return result.get();
+	}
+
+
+	private static String readFile(File file) throws IOException {
+		return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+	}
+
+
+	@Test
+	void testSaveAsync() throws Exception {
+
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 200000; i++) {
+			sb.append("line ").append(i).append(" é😀\n");
+		}
+		String content = sb.toString();
+		File file = createTempFile();
+		TextEditorPane textArea = createTextArea(file, content);
+		onEdt(() -> {
+			textArea.setLineSeparator("\r\n");
+			return null;
+		});
+		Assertions.assertTrue(onEdt(textArea::isDirty));
+
+		TestListener listener = new TestListener();
+		onEdt(() -> textArea.saveAsync(listener));
+
+		Assertions.assertTrue(listener.latch.await(30, TimeUnit.SECONDS));
+		Assertions.assertTrue(listener.completed);
+		Assertions.assertTrue(listener.progressCount > 1);
+		Assertions.assertEquals(content.length(), listener.lastCharsWritten);
+		Assertions.assertEquals(content.replace("\n", "\r\n"), readFile(file));
+		Assertions.assertFalse(onEdt(textArea::isDirty));
+		Assertions.assertEquals(file.lastModified(), (long)onEdt(textArea::getLastSaveOrLoadTime));
+	}
+
+
+	@Test
+	void testSaveAsync_editedWhileSaving() throws Exception {
+
+		File file = createTempFile();
+		TextEditorPane textArea = createTextArea(file, "original\n");
+
+		TestListener listener = new TestListener();
+		onEdt(() -> {
+			textArea.saveAsync(listener);
+			textArea.append("more"); // Edited after the snapshot was taken
+			return null;
+		});
+
+		Assertions.assertTrue(listener.latch.await(30, TimeUnit.SECONDS));
+		Assertions.assertTrue(listener.completed);
+		Assertions.assertEquals("original" + System.lineSeparator(), readFile(file));
+		Assertions.assertTrue(onEdt(textArea::isDirty));
+	}
+
+
+	@Test
+	void testSaveAsAsync() throws Exception {
+
+		File origFile = createTempFile();
+		File newFile = createTempFile();
+		TextEditorPane textArea = createTextArea(origFile, "hello");
+
+		TestListener listener = new TestListener();
+		onEdt(() -> textArea.saveAsAsync(FileLocation.create(newFile), listener));
+
+		Assertions.assertTrue(listener.latch.await(30, TimeUnit.SECONDS));
+		Assertions.assertTrue(listener.completed);
+		Assertions.assertEquals("hello", readFile(newFile));
+		Assertions.assertEquals(newFile.getAbsolutePath(), onEdt(textArea::getFileFullPath));
+		Assertions.assertFalse(onEdt(textArea::isDirty));
+	}
+
+
+	@Test
+	void testSaveAsAsync_directoryDoesNotExist() throws Exception {
+
+		File dir = createTempFile(); // A file, not a directory
+		File newFile = new File(dir, "foo.txt");
+		TextEditorPane textArea = createTextArea(createTempFile(), "hello");
+		String origPath = onEdt(textArea::getFileFullPath);
+
+		TestListener listener = new TestListener();
+		onEdt(() -> textArea.saveAsAsync(FileLocation.create(newFile), listener));
+
+		Assertions.assertTrue(listener.latch.await(30, TimeUnit.SECONDS));
+		Assertions.assertNotNull(listener.error);
+		Assertions.assertFalse(listener.completed);
+		Assertions.assertEquals(origPath, onEdt(textArea::getFileFullPath));
+		Assertions.assertTrue(onEdt(textArea::isDirty));
+	}
+
+
+	/**
+	 * Records the callbacks received during a save.
+	 */
+	private static final class TestListener implements FileSaveListener {
+
+		private final CountDownLatch latch = new CountDownLatch(1);
+		private volatile boolean completed;
+		private volatile IOException error;
+		private volatile int progressCount;
+		private volatile long lastCharsWritten;
+
+		@Override
+		public void fileSaveProgress(TextEditorPane textArea, long charsWritten, long totalChars) {
+			Assertions.assertTrue(SwingUtilities.isEventDispatchThread());
+			progressCount++;
+			lastCharsWritten = charsWritten;
+		}
+
+		@Override
+		public void fileSaveCompleted(TextEditorPane textArea) {
+			completed = true;
+			latch.countDown();
+		}
+
+		@Override
+		public void fileSaveFailed(TextEditorPane textArea, IOException e) {
+			error = e;
+			latch.countDown();
+		}
+	}
+
+
+}
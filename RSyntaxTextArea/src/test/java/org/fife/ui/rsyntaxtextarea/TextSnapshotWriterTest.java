@@ -0,0 +1,89 @@
+/*
+ * This library is distributed under a modified BSD license.  See the included
+ * LICENSE file for details.
+ */
+package org.fife.ui.rsyntaxtextarea;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+
+import org.fife.ui.rtextarea.RTextAreaEditorKit;
+import org.fife.ui.rtextarea.RopeContent;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Unit tests for the {@link TextSnapshotWriter} class.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ */
+class TextSnapshotWriterTest {
+
+
+	private static String write(TextSnapshotWriter writer) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		writer.write(Channels.newChannel(out), null);
+		return new String(out.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+
+	@Test
+	void testWrite_lineSeparatorConverted() throws Exception {
+
+		RSyntaxDocument doc = new RSyntaxDocument(SyntaxConstants.SYNTAX_STYLE_NONE);
+		doc.insertString(0, "one\ntwo\n", null);
+		doc.putProperty(RTextAreaEditorKit.EndOfLineStringProperty, "\r\n");
+
+		TextSnapshotWriter writer = TextSnapshotWriter.create(doc, "UTF-8");
+		Assertions.assertEquals(8, writer.getLength());
+		Assertions.assertEquals("one\r\ntwo\r\n", write(writer));
+	}
+
+
+	@Test
+	void testWrite_ropeContent() throws Exception {
+
+		RSyntaxDocument doc = new RSyntaxDocument(null, SyntaxConstants.SYNTAX_STYLE_NONE, new RopeContent());
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 50000; i++) {
+			sb.append("line ").append(i).append(" \uD83D\uDE00\n");
+		}
+		String text = sb.toString();
+		doc.insertString(0, text, null);
+		doc.putProperty(RTextAreaEditorKit.EndOfLineStringProperty, "\n");
+
+		TextSnapshotWriter writer = TextSnapshotWriter.create(doc, "UTF-8");
+		Assertions.assertEquals(text, write(writer));
+	}
+
+
+	@Test
+	void testWrite_surrogatePairsAcrossChunks() throws Exception {
+
+		RSyntaxDocument doc = new RSyntaxDocument(SyntaxConstants.SYNTAX_STYLE_NONE);
+		String text = "a" + "\uD83D\uDE00".repeat(40000);
+		doc.insertString(0, text, null);
+		doc.putProperty(RTextAreaEditorKit.EndOfLineStringProperty, "\n");
+
+		Assertions.assertEquals(text, write(TextSnapshotWriter.create(doc, "UTF-8")));
+	}
+
+
+	@Test
+	void testWrite_unaffectedByLaterEdits() throws Exception {
+
+		RSyntaxDocument doc = new RSyntaxDocument(null, SyntaxConstants.SYNTAX_STYLE_NONE, new RopeContent());
+		doc.insertString(0, "hello world", null);
+		doc.putProperty(RTextAreaEditorKit.EndOfLineStringProperty, "\n");
+
+		TextSnapshotWriter writer = TextSnapshotWriter.create(doc, "UTF-8");
+		doc.remove(0, 6);
+		doc.insertString(0, "goodbye ", null);
+		Assertions.assertEquals("hello world", write(writer));
+	}
+
+
+}
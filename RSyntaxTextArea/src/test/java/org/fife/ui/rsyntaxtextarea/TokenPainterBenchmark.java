@@ -0,0 +1,116 @@
+/*
+ * This library is distributed under a modified BSD license.  See the included
+ * LICENSE file for details.
+ */
+package org.fife.ui.rsyntaxtextarea;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Locale;
+
+
+/**
+ * A benchmark for painting tokens into an offscreen image.  This is not a
+ * unit test; run it manually, e.g.:
+ * <pre>
+ * java -Djava.awt.headless=true -cp &lt;classpath&gt; \
+ *      org.fife.ui.rsyntaxtextarea.TokenPainterBenchmark [frames]
+ * </pre>
+ * It paints a screenful of Java code repeatedly, both with the text area's
+ * resolved token styles (and same-style token runs painted together) and
+ * with a text area that overrides a style method, which forces each token
+ * to be painted separately, its style looked up through the public
+ * <code>get*ForToken()</code> methods.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ */
+public final class TokenPainterBenchmark {
+
+	private static final int WIDTH = 1600;
+	private static final int HEIGHT = 1200;
+
+
+	private TokenPainterBenchmark() {
+		// Do nothing
+	}
+
+
+	private static String createCode() {
+		StringBuilder sb = new StringBuilder("package foo;\n\npublic class Foo {\n");
+		for (int j = 0; j < 200; j++) {
+			sb.append("\t/** Javadoc for method ").append(j).append(". */\n");
+			sb.append("\tpublic int method").append(j).append("(String s, int x) {\n");
+			sb.append("\t\treturn s.length() + x * ").append(j).append(" + \"str\".hashCode(); // A comment\n");
+			sb.append("\t}\n\n");
+		}
+		return sb.append("}\n").toString();
+	}
+
+
+	private static RSyntaxTextArea createTextArea(boolean lookUpEachToken, BufferedImage image) {
+
+		RSyntaxTextArea textArea;
+		if (lookUpEachToken) {
+			textArea = new RSyntaxTextArea(createCode()) {
+				@Override
+				public Color getForegroundForTokenType(int type) {
+					return super.getForegroundForTokenType(type);
+				}
+
+				@Override
+				public Graphics getGraphics() {
+					return image.createGraphics();
+				}
+			};
+		}
+		else {
+			textArea = new RSyntaxTextArea(createCode()) {
+				@Override
+				public Graphics getGraphics() {
+					return image.createGraphics();
+				}
+			};
+		}
+
+		textArea.setSyntaxEditingStyle(SyntaxConstants.SYNTAX_STYLE_JAVA);
+		textArea.addNotify();
+		textArea.setAntiAliasingEnabled(false); // Creates the font metrics cache
+		textArea.setSize(WIDTH, HEIGHT);
+		return textArea;
+	}
+
+
+	/**
+	 * Program entry point.
+	 *
+	 * @param args The number of frames to paint per round (optional).
+	 */
+	public static void main(String[] args) {
+
+		int frames = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+		BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+
+		for (int round = 0; round < 4; round++) {
+			for (boolean lookUpEachToken : new boolean[] { false, true }) {
+				RSyntaxTextArea textArea = createTextArea(lookUpEachToken, image);
+				long start = System.nanoTime();
+				for (int i = 0; i < frames; i++) {
+					Graphics2D g = image.createGraphics();
+					try {
+						textArea.paint(g);
+					} finally {
+						g.dispose();
+					}
+				}
+				double millis = (System.nanoTime() - start) / 1_000_000.0;
+				System.out.printf(Locale.ROOT, "round %d, %-18s %8.3f ms/frame%n", round,
+						lookUpEachToken ? "token by token:" : "style table:", millis / frames);
+			}
+		}
+	}
+
+
+}
@@ -0,0 +1,220 @@
+/*
+ * This library is distributed under a modified BSD license.  See the included
+ * LICENSE file for details.
+ */
+package org.fife.ui.rsyntaxtextarea;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+import org.fife.ui.SwingRunnerExtension;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+
+/**
+ * Unit tests for the {@link TokenRunCoalescer} class.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ */
+@ExtendWith(SwingRunnerExtension.class)
+class TokenRunCoalescerTest extends AbstractRSyntaxTextAreaTest {
+
+	private RSyntaxTextArea textArea;
+	private TokenPainter painter;
+
+
+	@BeforeEach
+	void setUp() {
+		textArea = createTextArea();
+		textArea.addNotify();
+		textArea.setAntiAliasingEnabled(false); // Needed to create font metrics cache
+		textArea.setPaintTabLines(false);
+		painter = new DefaultTokenPainter();
+	}
+
+
+	/**
+	 * Creates a token list, one token per string, of the given types.
+	 */
+	private static Token createTokens(int[] types, String... texts) {
+		char[] chars = String.join("", texts).toCharArray();
+		TokenImpl first = null;
+		TokenImpl prev = null;
+		int offs = 0;
+		for (int i = 0; i < texts.length; i++) {
+			int end = offs + texts[i].length() - 1;
+			TokenImpl t = new TokenImpl(chars, offs, end, offs, types[i], 0);
+			if (prev == null) {
+				first = t;
+			}
+			else {
+				prev.setNextToken(t);
+			}
+			prev = t;
+			offs = end + 1;
+		}
+		return first;
+	}
+
+
+	private static BufferedImage paint(RSyntaxTextArea textArea) {
+		BufferedImage image = new BufferedImage(textArea.getWidth(), textArea.getHeight(),
+			BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = image.createGraphics();
+		try {
+			textArea.paint(g);
+		} finally {
+			g.dispose();
+		}
+		return image;
+	}
+
+
+	@Test
+	void testNextRun_sameStyleJoined() {
+
+		Token t = createTokens(new int[] { TokenTypes.IDENTIFIER, TokenTypes.IDENTIFIER, TokenTypes.IDENTIFIER },
+			"foo", "bar", "bas");
+
+		Token run = new TokenRunCoalescer().nextRun(t, Integer.MAX_VALUE, 20, painter, textArea, true);
+		Assertions.assertNotSame(t, run);
+		Assertions.assertEquals("foobarbas", run.getLexeme());
+		Assertions.assertEquals(TokenTypes.IDENTIFIER, run.getType());
+		Assertions.assertEquals(0, run.getOffset());
+		Assertions.assertNull(run.getNextToken());
+	}
+
+
+	@Test
+	void testNextRun_differentStyleNotJoined() {
+
+		textArea.getSyntaxScheme().getStyle(TokenTypes.RESERVED_WORD).foreground = Color.BLUE;
+		textArea.getSyntaxScheme().getStyle(TokenTypes.IDENTIFIER).foreground = Color.BLACK;
+		Token t = createTokens(new int[] { TokenTypes.IDENTIFIER, TokenTypes.IDENTIFIER, TokenTypes.RESERVED_WORD },
+			"foo", "bar", "int");
+
+		Token run = new TokenRunCoalescer().nextRun(t, Integer.MAX_VALUE, 20, painter, textArea, true);
+		Assertions.assertEquals("foobar", run.getLexeme());
+		Assertions.assertEquals("int", run.getNextToken().getLexeme());
+	}
+
+
+	@Test
+	void testNextRun_blankTokensJoinAnyForeground() {
+
+		SyntaxScheme scheme = textArea.getSyntaxScheme();
+		scheme.getStyle(TokenTypes.WHITESPACE).foreground = Color.GRAY;
+		scheme.getStyle(TokenTypes.IDENTIFIER).foreground = Color.BLACK;
+		Token t = createTokens(new int[] { TokenTypes.WHITESPACE, TokenTypes.IDENTIFIER, TokenTypes.WHITESPACE,
+			TokenTypes.IDENTIFIER }, " \t", "foo", " ", "bar");
+
+		Token run = new TokenRunCoalescer().nextRun(t, Integer.MAX_VALUE, 20, painter, textArea, true);
+		Assertions.assertEquals(" \tfoo bar", run.getLexeme());
+		Assertions.assertEquals(TokenTypes.IDENTIFIER, run.getType()); // Painted in the identifier color
+
+		// Whitespace is painted when visible
+		run = new TokenRunCoalescer().nextRun(t, Integer.MAX_VALUE, 20, new VisibleWhitespaceTokenPainter(),
+			textArea, true);
+		Assertions.assertSame(t, run);
+	}
+
+
+	@Test
+	void testNextRun_backgroundNotJoined() {
+
+		textArea.getSyntaxScheme().getStyle(TokenTypes.IDENTIFIER).background = Color.PINK;
+		Token t = createTokens(new int[] { TokenTypes.IDENTIFIER, TokenTypes.IDENTIFIER }, "foo", "bar");
+
+		TokenRunCoalescer coalescer = new TokenRunCoalescer();
+		Assertions.assertSame(t, coalescer.nextRun(t, Integer.MAX_VALUE, 20, painter, textArea, true));
+
+		// Backgrounds don't matter if they aren't painted
+		Assertions.assertEquals("foobar",
+			coalescer.nextRun(t, Integer.MAX_VALUE, 20, painter, textArea, false).getLexeme());
+	}
+
+
+	@Test
+	void testNextRun_endOffsRespected() {
+
+		Token t = createTokens(new int[] { TokenTypes.IDENTIFIER, TokenTypes.IDENTIFIER, TokenTypes.IDENTIFIER },
+			"foo", "bar", "bas");
+
+		Token run = new TokenRunCoalescer().nextRun(t, 6, 20, painter, textArea, true);
+		Assertions.assertEquals("foobar", run.getLexeme());
+		Assertions.assertEquals("bas", run.getNextToken().getLexeme());
+	}
+
+
+	@Test
+	void testNextRun_tabLinesNotJoined() {
+
+		textArea.setPaintTabLines(true);
+		Token t = createTokens(new int[] { TokenTypes.IDENTIFIER, TokenTypes.IDENTIFIER }, "    ", "foo");
+		int x = textArea.getMargin().left;
+
+		TokenRunCoalescer coalescer = new TokenRunCoalescer();
+		Assertions.assertSame(t, coalescer.nextRun(t, Integer.MAX_VALUE, x, painter, textArea, true));
+		Assertions.assertNotSame(t, coalescer.nextRun(t, Integer.MAX_VALUE, x + 20, painter, textArea, true));
+	}
+
+
+	@Test
+	void testNextRun_customPainterNotJoined() {
+
+		Token t = createTokens(new int[] { TokenTypes.IDENTIFIER, TokenTypes.IDENTIFIER }, "foo", "bar");
+		TokenPainter custom = new DefaultTokenPainter() {
+		};
+
+		Assertions.assertSame(t, new TokenRunCoalescer().nextRun(t, Integer.MAX_VALUE, 20, custom, textArea, true));
+	}
+
+
+	@Test
+	void testNextRun_fractionalFontMetricsNotJoined() {
+
+		textArea.setFractionalFontMetricsEnabled(true);
+		Token t = createTokens(new int[] { TokenTypes.IDENTIFIER, TokenTypes.IDENTIFIER }, "foo", "bar");
+
+		Token run = new TokenRunCoalescer().nextRun(t, Integer.MAX_VALUE, 20, painter, textArea, true);
+		Assertions.assertSame(t, run);
+	}
+
+
+	@Test
+	void testNextRun_hyperlinkNotJoined() {
+
+		Token t = createTokens(new int[] { TokenTypes.IDENTIFIER, TokenTypes.IDENTIFIER }, "foo", "bar");
+		((TokenImpl)t.getNextToken()).setHyperlink(true);
+
+		Assertions.assertSame(t, new TokenRunCoalescer().nextRun(t, Integer.MAX_VALUE, 20, painter, textArea, true));
+	}
+
+
+	@Test
+	void testPaint_sameAsTokenByToken() {
+
+		textArea.setText("int main(int argc, char **argv) {\n\tprintf(\"Hello world\");\n\treturn a + b - c;\n}");
+		textArea.setSize(400, 200);
+
+		BufferedImage coalesced = paint(textArea);
+
+		// A custom painter has every token painted separately
+		textArea.setTokenPainterFactory(textArea -> new DefaultTokenPainter() {
+		});
+		BufferedImage separate = paint(textArea);
+
+		for (int y = 0; y < coalesced.getHeight(); y++) {
+			for (int x = 0; x < coalesced.getWidth(); x++) {
+				Assertions.assertEquals(separate.getRGB(x, y), coalesced.getRGB(x, y), "pixel " + x + ", " + y);
+			}
+		}
+	}
+
+
+}
@@ -0,0 +1,191 @@
+/*
+ * This library is distributed under a modified BSD license.  See the included
+ * LICENSE file for details.
+ */
+package org.fife.ui.rsyntaxtextarea;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+import org.fife.ui.SwingRunnerExtension;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+
+/**
+ * Unit tests for the {@link TokenStyleTable} class.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ */
+@ExtendWith(SwingRunnerExtension.class)
+class TokenStyleTableTest extends AbstractRSyntaxTextAreaTest {
+
+	private SyntaxScheme scheme;
+	private Font font;
+	private FontMetrics fm;
+
+
+	@BeforeEach
+	void setUp() {
+		font = new Font(Font.MONOSPACED, Font.PLAIN, 12);
+		scheme = new SyntaxScheme(font);
+		fm = createTestGraphics().getFontMetrics(font);
+	}
+
+
+	private TokenStyleTable createTable(Color[] secondaryLanguageBackgrounds) {
+		return new TokenStyleTable(scheme, font, fm, Color.BLACK,
+				secondaryLanguageBackgrounds);
+	}
+
+
+	@Test
+	void testConstructor_defaultsResolved() {
+
+		Style style = scheme.getStyle(TokenTypes.IDENTIFIER);
+		style.font = null;
+		style.fontMetrics = null;
+		style.foreground = null;
+
+		TokenStyleTable table = createTable(null);
+		Assertions.assertSame(font, table.getFont(TokenTypes.IDENTIFIER));
+		Assertions.assertSame(fm, table.getFontMetrics(TokenTypes.IDENTIFIER));
+		Assertions.assertSame(Color.BLACK, table.getForeground(TokenTypes.IDENTIFIER));
+	}
+
+
+	@Test
+	void testConstructor_styleValuesUsed() {
+
+		Style style = scheme.getStyle(TokenTypes.COMMENT_EOL);
+		style.foreground = Color.GREEN;
+		style.background = Color.PINK;
+		style.underline = true;
+
+		TokenStyleTable table = createTable(null);
+		Assertions.assertSame(style.font, table.getFont(TokenTypes.COMMENT_EOL));
+		Assertions.assertSame(Color.GREEN, table.getForeground(TokenTypes.COMMENT_EOL));
+		Assertions.assertTrue(table.getUnderline(TokenTypes.COMMENT_EOL));
+		Assertions.assertFalse(table.getUnderline(TokenTypes.IDENTIFIER));
+
+		char[] chars = "// foo".toCharArray();
+		Token t = new TokenImpl(chars, 0, chars.length - 1, 0, TokenTypes.COMMENT_EOL, 0);
+		Assertions.assertSame(Color.PINK, table.getBackground(t));
+	}
+
+
+	@Test
+	void testGetBackground_secondaryLanguage() {
+
+		Color[] bgs = { Color.YELLOW, null };
+		TokenStyleTable table = createTable(bgs);
+
+		char[] chars = "foo".toCharArray();
+		Token t = new TokenImpl(chars, 0, chars.length - 1, 0, TokenTypes.IDENTIFIER, 1);
+		Assertions.assertSame(Color.YELLOW, table.getBackground(t));
+
+		// No color for this language, so the style's background is used
+		scheme.getStyle(TokenTypes.IDENTIFIER).background = Color.ORANGE;
+		table = createTable(bgs);
+		t = new TokenImpl(chars, 0, chars.length - 1, 0, TokenTypes.IDENTIFIER, 2);
+		Assertions.assertSame(Color.ORANGE, table.getBackground(t));
+	}
+
+
+	@Test
+	void testIsSupported() {
+		Assertions.assertTrue(TokenStyleTable.isSupported(RSyntaxTextArea.class));
+		Assertions.assertTrue(TokenStyleTable.isSupported(createTextArea().getClass()));
+
+		RSyntaxTextArea textArea = new RSyntaxTextArea() {
+			@Override
+			public Color getForegroundForTokenType(int type) {
+				return Color.MAGENTA;
+			}
+		};
+		Assertions.assertFalse(TokenStyleTable.isSupported(textArea.getClass()));
+	}
+
+
+	@Test
+	void testMatches_unchanged() {
+		Color[] bgs = { Color.YELLOW };
+		TokenStyleTable table = createTable(bgs);
+		Assertions.assertTrue(table.matches(scheme, font, fm, Color.BLACK, bgs));
+	}
+
+
+	@Test
+	void testMatches_styleModifiedInPlace() {
+		TokenStyleTable table = createTable(null);
+		scheme.getStyle(TokenTypes.RESERVED_WORD).foreground = Color.RED;
+		Assertions.assertFalse(table.matches(scheme, font, fm, Color.BLACK, null));
+	}
+
+
+	@Test
+	void testMatches_otherStateChanged() {
+
+		Color[] bgs = { Color.YELLOW };
+		TokenStyleTable table = createTable(bgs);
+
+		Assertions.assertFalse(table.matches((SyntaxScheme)scheme.clone(), font, fm, Color.BLACK, bgs));
+		Assertions.assertFalse(table.matches(scheme, font.deriveFont(14f), fm, Color.BLACK, bgs));
+		Assertions.assertFalse(table.matches(scheme, font, fm, Color.BLUE, bgs));
+		Assertions.assertFalse(table.matches(scheme, font, fm, Color.BLACK, null));
+
+		// The text area's secondary language colors are modified in place
+		bgs[0] = Color.CYAN;
+		Assertions.assertFalse(table.matches(scheme, font, fm, Color.BLACK, bgs));
+	}
+
+
+	@Test
+	void testTextAreaPaint_styleModifiedInPlace() {
+
+		RSyntaxTextArea textArea = createTextArea();
+		textArea.addNotify();
+		textArea.setAntiAliasingEnabled(false); // Needed to create font metrics cache
+
+		char[] chars = "foo".toCharArray();
+		Token t = new TokenImpl(chars, 0, chars.length - 1, 0, TokenTypes.IDENTIFIER, 0);
+		TokenStyleTable table = textArea.getTokenStyleTable(t);
+		Assertions.assertNotNull(table);
+
+		textArea.getSyntaxScheme().getStyle(TokenTypes.IDENTIFIER).foreground = Color.RED;
+		BufferedImage image = new BufferedImage(80, 80, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = image.createGraphics();
+		try {
+			textArea.paint(g);
+		} finally {
+			g.dispose();
+		}
+
+		Assertions.assertSame(Color.RED, textArea.getTokenStyleTable(t).getForeground(TokenTypes.IDENTIFIER));
+	}
+
+
+	@Test
+	void testTextArea_hyperlinkTokensNotInTable() {
+
+		RSyntaxTextArea textArea = createTextArea();
+		textArea.addNotify();
+		textArea.setAntiAliasingEnabled(false); // Needed to create font metrics cache
+
+		char[] chars = "https://example.com".toCharArray();
+		TokenImpl t = new TokenImpl(chars, 0, chars.length - 1, 0, TokenTypes.COMMENT_EOL, 0);
+		t.setHyperlink(true);
+		Assertions.assertNull(textArea.getTokenStyleTable(t));
+
+		textArea.setHyperlinksEnabled(false);
+		Assertions.assertNotNull(textArea.getTokenStyleTable(t));
+	}
+
+
+}
@@ -9,6 +9,7 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 
+import javax.swing.JViewport;
 import javax.swing.event.DocumentEvent;
 import javax.swing.text.*;
 import java.awt.*;
@@ -295,4 +296,46 @@ class WrappedSyntaxViewTest extends AbstractRSyntaxTextAreaTest {
 		Rectangle r = new Rectangle(0, 0, 100, 100);
 		view.yForLine(r, 0);
 	}
+
+
+	@Test
+	void testChangeEvent_onlyVisibleLinesRepainted() throws BadLocationException {
+
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 1000; i++) {
+			sb.append("int x").append(i).append(" = ").append(i).append(";\n");
+		}
+
+		java.util.List<Rectangle> repaints = new java.util.ArrayList<>();
+		RSyntaxTextArea textArea = new RSyntaxTextArea(sb.toString()) {
+			@Override
+			public Graphics getGraphics() {
+				return createTestGraphics();
+			}
+
+			@Override
+			public void repaint(long tm, int x, int y, int width, int height) {
+				repaints.add(new Rectangle(x, y, width, height));
+			}
+		};
+		textArea.setSyntaxEditingStyle(SyntaxConstants.SYNTAX_STYLE_JAVA);
+		textArea.setLineWrap(true);
+		JViewport viewport = new JViewport();
+		viewport.setView(textArea);
+		viewport.setSize(300, 100);
+		textArea.setSize(300, textArea.getPreferredSize().height);
+		Rectangle visible = textArea.getVisibleRect();
+		Assertions.assertEquals(100, visible.height);
+		textArea.setCaretPosition(0);
+		textArea.paint(createTestGraphics()); // Views only damage lines once painted
+
+		// Starting a comment changes the highlighting of all lines below
+		repaints.clear();
+		textArea.getDocument().insertString(0, "/*", null);
+
+		Assertions.assertFalse(repaints.isEmpty());
+		for (Rectangle r : repaints) {
+			Assertions.assertTrue(r.isEmpty() || visible.contains(r), "Repainted outside the visible area: " + r);
+		}
+	}
 }
@@ -0,0 +1,157 @@
+/*
+ * This library is distributed under a modified BSD license.  See the included
+ * LICENSE file for details.
+ */
+package org.fife.ui.rtextarea;
+
+import java.util.Random;
+import java.util.function.Supplier;
+import javax.swing.text.AbstractDocument;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Element;
+import javax.swing.text.Segment;
+
+
+/**
+ * Compares the default document content with {@link RopeContent} for
+ * edits at random positions.  This is not a unit test; run it manually,
+ * e.g.:
+ * <pre>
+ * java -cp &lt;classpath&gt; org.fife.ui.rtextarea.ContentBenchmark [megabytes]
+ * </pre>
+ * For a document of the given size (by default, 10 MB), it times:
+ * <ul>
+ *   <li>Typing single characters and deleting them at random offsets</li>
+ *   <li>A "replace all" from the top of the document to the bottom</li>
+ *   <li>Moving random lines to other random lines</li>
+ *   <li>Reading every line's text, as painting and parsing do</li>
+ * </ul>
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ */
+public final class ContentBenchmark {
+
+	private static final int RANDOM_EDITS = 20000;
+	private static final int LINE_MOVES = 5000;
+	private static final int ROUNDS = 3;
+
+
+	private ContentBenchmark() {
+		// Do nothing
+	}
+
+
+	private static RDocument createDocument(Supplier<AbstractDocument.Content> content, String text)
+			throws BadLocationException {
+		RDocument doc = new RDocument(content.get());
+		doc.insertString(0, text, null);
+		return doc;
+	}
+
+
+	private static String createText(int megabytes) {
+		StringBuilder sb = new StringBuilder(megabytes * 1024 * 1024);
+		for (int i = 0; sb.length() < megabytes * 1024 * 1024; i++) {
+			sb.append("\tpublic int method").append(i).append("(String s) { return s.length() + ")
+				.append(i).append("; } // foo\n");
+		}
+		return sb.toString();
+	}
+
+
+	/**
+	 * Program entry point.
+	 *
+	 * @param args The optional size of the document, in megabytes.
+	 * @throws Exception If an error occurs.
+	 */
+	public static void main(String[] args) throws Exception {
+
+		int megabytes = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+		String text = createText(megabytes);
+		System.out.printf("Document: %d MB, %d lines%n", megabytes, text.split("\n").length);
+		System.out.printf("%-12s %14s %14s %14s %14s%n", "content", "random edits", "replace all",
+			"line moves", "read lines");
+
+		for (int round = 0; round < ROUNDS; round++) {
+			run("gap", () -> null, text);
+			run("rope", RopeContent::new, text);
+		}
+	}
+
+
+	private static void run(String name, Supplier<AbstractDocument.Content> content, String text)
+			throws BadLocationException {
+
+		// Typing and deleting at random places
+		RDocument doc = createDocument(content, text);
+		Random random = new Random(0);
+		long start = System.nanoTime();
+		for (int i = 0; i < RANDOM_EDITS; i++) {
+			int offs = random.nextInt(doc.getLength());
+			if (i % 2 == 0) {
+				doc.insertString(offs, "x", null);
+			}
+			else {
+				doc.remove(offs, 1);
+			}
+		}
+		long randomEdits = System.nanoTime() - start;
+
+		// Replace every "foo" with "foobar", top to bottom
+		doc = createDocument(content, text);
+		start = System.nanoTime();
+		int offs = 0;
+		while ((offs = indexOf(doc, "foo", offs)) > -1) {
+			doc.remove(offs, 3);
+			doc.insertString(offs, "foobar", null);
+			offs += 6;
+		}
+		long replaceAll = System.nanoTime() - start;
+
+		// Move random lines elsewhere
+		doc = createDocument(content, text);
+		Element root = doc.getDefaultRootElement();
+		start = System.nanoTime();
+		for (int i = 0; i < LINE_MOVES; i++) {
+			Element line = root.getElement(random.nextInt(root.getElementCount() - 1));
+			int lineStart = line.getStartOffset();
+			String lineText = doc.getText(lineStart, line.getEndOffset() - lineStart);
+			doc.remove(lineStart, lineText.length());
+			int dest = root.getElement(random.nextInt(root.getElementCount() - 1)).getStartOffset();
+			doc.insertString(dest, lineText, null);
+		}
+		long lineMoves = System.nanoTime() - start;
+
+		// Read every line
+		start = System.nanoTime();
+		Segment s = new Segment();
+		long total = 0;
+		for (int i = 0; i < root.getElementCount(); i++) {
+			Element line = root.getElement(i);
+			doc.getText(line.getStartOffset(), line.getEndOffset() - line.getStartOffset(), s);
+			total += s.count;
+		}
+		long readLines = System.nanoTime() - start;
+		if (total != doc.getLength() + 1) {
+			throw new IllegalStateException("Unexpected length: " + total);
+		}
+
+		System.out.printf("%-12s %12d ms %12d ms %12d ms %12d ms%n", name, randomEdits / 1_000_000,
+			replaceAll / 1_000_000, lineMoves / 1_000_000, readLines / 1_000_000);
+	}
+
+
+	private static int indexOf(RDocument doc, String str, int from) throws BadLocationException {
+		int end = doc.getLength() - str.length();
+		for (int i = from; i <= end; i++) {
+			if (doc.charAt(i) == str.charAt(0) && doc.getText(i, str.length()).equals(str)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+
+}
@@ -102,6 +102,33 @@ class GutterTest extends AbstractRTextAreaTest {
 	}
 
 
+	@Test
+	void testAddLineTrackingIcons_Valid() throws Exception {
+
+		RTextArea textArea = new RTextArea(PLAIN_TEXT);
+		Gutter gutter = new Gutter(textArea);
+		Icon icon = new EmptyTestIcon();
+
+		GutterIconInfo[] infos = gutter.addLineTrackingIcons(new int[] { 2, 1 }, icon, "tip");
+		Assertions.assertEquals(2, infos.length);
+		Assertions.assertEquals(textArea.getLineStartOffset(2), infos[0].getMarkedOffset());
+		Assertions.assertEquals(textArea.getLineStartOffset(1), infos[1].getMarkedOffset());
+		Assertions.assertEquals("tip", infos[1].getToolTip());
+	}
+
+
+	@Test
+	void testAddLineTrackingIcons_Invalid() {
+
+		RTextArea textArea = new RTextArea(PLAIN_TEXT);
+		Gutter gutter = new Gutter(textArea);
+		Icon icon = new EmptyTestIcon();
+
+		Assertions.assertThrows(BadLocationException.class,
+			() -> gutter.addLineTrackingIcons(new int[] { 1, 5 }, icon, null));
+	}
+
+
 	@Test
 	void testAddOffsetTrackingIcon_2Arg_Valid() throws Exception {
 
@@ -605,6 +632,23 @@ class GutterTest extends AbstractRTextAreaTest {
 	}
 
 
+	@Test
+	void testRemoveTrackingIcons_Simple() throws Exception {
+
+		RTextArea textArea = new RTextArea(PLAIN_TEXT);
+		Gutter gutter = new Gutter(textArea);
+		Icon icon = new EmptyTestIcon();
+		textArea.setSize(200, 200);
+
+		GutterIconInfo[] infos = gutter.addOffsetTrackingIcons(new int[] { 0, 1 }, icon, null);
+		Point p = new Point(0, 4);
+		Assertions.assertEquals(2, gutter.getTrackingIcons(p).length);
+		gutter.removeTrackingIcons(infos);
+		Assertions.assertEquals(0, gutter.getTrackingIcons(p).length);
+
+	}
+
+
 	@Test
 	void testSetComponentOrientation() {
 
@@ -47,6 +47,34 @@ class IconRowHeaderTest extends AbstractRSyntaxTextAreaTest {
 	}
 
 
+	@Test
+	void testAddOffsetTrackingIcons() throws BadLocationException {
+
+		RSyntaxTextArea textArea = createTextArea();
+		IconRowHeader header = new IconRowHeader(textArea);
+		GutterIconInfo single = header.addOffsetTrackingIcon(1, new EmptyTestIcon());
+		int line2Start = textArea.getLineStartOffset(2);
+		GutterIconInfo[] tags = header.addOffsetTrackingIcons(new int[] { line2Start, 0, 1 },
+			new EmptyTestIcon(), "tool tip text");
+
+		Assertions.assertEquals(3, tags.length);
+		Assertions.assertEquals(line2Start, tags[0].getMarkedOffset());
+		Assertions.assertEquals("tool tip text", tags[0].getToolTip());
+		Assertions.assertArrayEquals(new GutterIconInfo[] { tags[1], single, tags[2] }, header.getTrackingIcons(0));
+		Assertions.assertArrayEquals(new GutterIconInfo[] { tags[0] }, header.getTrackingIcons(2));
+	}
+
+
+	@Test
+	void testAddOffsetTrackingIcons_invalidOffset() {
+		RSyntaxTextArea textArea = createTextArea();
+		IconRowHeader header = new IconRowHeader(textArea);
+		Assertions.assertThrows(BadLocationException.class,
+			() -> header.addOffsetTrackingIcons(new int[] { 0, 1000 }, new EmptyTestIcon(), null));
+		Assertions.assertNull(header.trackingIcons);
+	}
+
+
 	@Test
 	void testClearActiveLineRange() {
 		RSyntaxTextArea textArea = createTextArea();
@@ -144,6 +172,49 @@ class IconRowHeaderTest extends AbstractRSyntaxTextAreaTest {
 	}
 
 
+	@Test
+	void testPaintComponent_onlyVisibleIconsPainted() throws BadLocationException {
+
+		RSyntaxTextArea textArea = createTextArea();
+		textArea.setText("line\n".repeat(1000));
+		IconRowHeader header = new IconRowHeader(textArea);
+		int[] paintCount = new int[1];
+		Icon icon = new EmptyTestIcon() {
+			@Override
+			public void paintIcon(Component c, Graphics g, int x, int y) {
+				paintCount[0]++;
+			}
+		};
+		int[] lines = new int[1000];
+		for (int i = 0; i < lines.length; i++) {
+			lines[i] = textArea.getLineStartOffset(i);
+		}
+		header.addOffsetTrackingIcons(lines, icon, null);
+
+		int lineHeight = textArea.getLineHeight();
+		Graphics g = createTestGraphics();
+		g.setClip(0, 500 * lineHeight, 16, 10 * lineHeight);
+		header.paintComponent(g);
+		Assertions.assertTrue(paintCount[0] > 0 && paintCount[0] <= 12, "Painted: " + paintCount[0]);
+	}
+
+
+	@Test
+	void testRemoveTrackingIcons() throws BadLocationException {
+
+		RSyntaxTextArea textArea = createTextArea();
+		IconRowHeader header = new IconRowHeader(textArea);
+		GutterIconInfo single = header.addOffsetTrackingIcon(1, new EmptyTestIcon());
+		GutterIconInfo[] tags = header.addOffsetTrackingIcons(new int[] { 0, 1, 2 }, new EmptyTestIcon(), null);
+
+		header.removeTrackingIcons(tags);
+		Assertions.assertArrayEquals(new GutterIconInfo[] { single }, header.getTrackingIcons(0));
+
+		header.removeTrackingIcon(single);
+		Assertions.assertEquals(0, header.getTrackingIcons(0).length);
+	}
+
+
 	@Test
 	void testSetInheritsGutterBackground() {
 		RSyntaxTextArea textArea = createTextArea();
@@ -7,7 +7,12 @@
 package org.fife.ui.rtextarea;
 
 import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Point;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
 import java.util.List;
+import javax.swing.JViewport;
 import javax.swing.text.BadLocationException;
 
 import org.junit.jupiter.api.Assertions;
@@ -93,6 +98,30 @@ class LineHighlightManagerTest {
 	}
 
 
+	@Test
+	void testAddLineHighlights_happyPath() throws BadLocationException {
+
+		Object tag = lhm.addLineHighlight(1, Color.RED);
+		List<Object> tags = lhm.addLineHighlights(new int[] { 2, 0 }, Color.BLUE);
+		Assertions.assertEquals(2, tags.size());
+		Assertions.assertEquals(3, lhm.getLineHighlightCount());
+
+		// Tags are in offset order
+		List<Object> actualTags = lhm.getCurrentLineHighlightTags();
+		Assertions.assertSame(tags.get(1), actualTags.get(0));
+		Assertions.assertSame(tag, actualTags.get(1));
+		Assertions.assertSame(tags.get(0), actualTags.get(2));
+	}
+
+
+	@Test
+	void testAddLineHighlights_errorOnInvalidLine() {
+		Assertions.assertThrows(BadLocationException.class,
+			() -> lhm.addLineHighlights(new int[] { 0, 3 }, Color.BLUE));
+		Assertions.assertEquals(0, lhm.getLineHighlightCount());
+	}
+
+
 	@Test
 	void testGetCurrentLineHighlightTags() throws BadLocationException {
 
@@ -115,4 +144,73 @@ class LineHighlightManagerTest {
 		lhm.removeAllLineHighlights();
 		Assertions.assertEquals(0, lhm.getLineHighlightCount());
 	}
+
+
+	@Test
+	void testPaintLineHighlights_onlyVisibleLines() throws BadLocationException {
+
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 1000; i++) {
+			sb.append("line ").append(i).append('\n');
+		}
+		RTextArea textArea = new RTextArea(sb.toString());
+		int lineHeight = textArea.getLineHeight();
+		textArea.setSize(300, 1001 * lineHeight);
+		JViewport viewport = new JViewport();
+		viewport.setView(textArea);
+		viewport.setSize(300, 10 * lineHeight);
+		viewport.setViewPosition(new Point(0, 500 * lineHeight));
+
+		int[] lines = new int[1000];
+		for (int i = 0; i < lines.length; i++) {
+			lines[i] = i;
+		}
+		lhm = new LineHighlightManager(textArea);
+		lhm.addLineHighlights(lines, Color.RED);
+
+		BufferedImage image = new BufferedImage(300, 1001 * lineHeight, BufferedImage.TYPE_INT_RGB);
+		Graphics g = image.getGraphics();
+		lhm.paintLineHighlights(g);
+		g.dispose();
+
+		Assertions.assertEquals(Color.RED.getRGB(), image.getRGB(10, 500 * lineHeight));
+		Assertions.assertEquals(Color.RED.getRGB(), image.getRGB(10, 509 * lineHeight));
+		Assertions.assertEquals(Color.BLACK.getRGB(), image.getRGB(10, 0));
+		Assertions.assertEquals(Color.BLACK.getRGB(), image.getRGB(10, 520 * lineHeight));
+	}
+
+
+	@Test
+	void testRemoveLineHighlights() throws BadLocationException {
+
+		Object tag = lhm.addLineHighlight(1, Color.RED);
+		List<Object> tags = lhm.addLineHighlights(new int[] { 0, 1, 2 }, Color.BLUE);
+		Assertions.assertEquals(4, lhm.getLineHighlightCount());
+
+		lhm.removeLineHighlights(tags);
+		Assertions.assertEquals(1, lhm.getLineHighlightCount());
+		Assertions.assertSame(tag, lhm.getCurrentLineHighlightTags().get(0));
+
+		lhm.removeLineHighlights(new ArrayList<>());
+		Assertions.assertEquals(1, lhm.getLineHighlightCount());
+	}
+
+
+	@Test
+	void testRemoveLineHighlights_afterEdits() throws BadLocationException {
+
+		RTextArea textArea = new RTextArea("0123456789\n0123456789\n0123456789");
+		lhm = new LineHighlightManager(textArea);
+		List<Object> tags = lhm.addLineHighlights(new int[] { 0, 1, 2 }, Color.BLUE);
+
+		textArea.getDocument().remove(5, 15);
+		Object tag = lhm.addLineHighlight(0, Color.RED);
+		lhm.removeLineHighlight(tags.get(2));
+		lhm.removeLineHighlight(tags.get(1));
+		Assertions.assertEquals(2, lhm.getLineHighlightCount());
+
+		List<Object> actualTags = lhm.getCurrentLineHighlightTags();
+		Assertions.assertTrue(actualTags.contains(tag));
+		Assertions.assertTrue(actualTags.contains(tags.get(0)));
+	}
 }
@@ -0,0 +1,70 @@
+/*
+ * This library is distributed under a modified BSD license.  See the included
+ * LICENSE file for details.
+ */
+package org.fife.ui.rtextarea;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Unit tests for the {@link LineSeparatorNormalizer} class.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ */
+class LineSeparatorNormalizerTest {
+
+
+	private static String normalize(LineSeparatorNormalizer normalizer, String text, boolean end) {
+		char[] buf = new char[Math.max(text.length(), 1)];
+		text.getChars(0, text.length(), buf, 0);
+		return new String(buf, 0, normalizer.normalize(buf, text.length(), end));
+	}
+
+
+	@Test
+	void testNormalize_lf() {
+		LineSeparatorNormalizer normalizer = new LineSeparatorNormalizer();
+		Assertions.assertEquals("one\ntwo\n", normalize(normalizer, "one\ntwo\n", true));
+		Assertions.assertEquals("\n", normalizer.getLineSeparator());
+	}
+
+
+	@Test
+	void testNormalize_crlf() {
+		LineSeparatorNormalizer normalizer = new LineSeparatorNormalizer();
+		Assertions.assertEquals("one\ntwo\n", normalize(normalizer, "one\r\ntwo\r\n", true));
+		Assertions.assertEquals("\r\n", normalizer.getLineSeparator());
+	}
+
+
+	@Test
+	void testNormalize_cr() {
+		LineSeparatorNormalizer normalizer = new LineSeparatorNormalizer();
+		Assertions.assertEquals("one\ntwo\n", normalize(normalizer, "one\rtwo\r", true));
+		Assertions.assertEquals("\r", normalizer.getLineSeparator());
+	}
+
+
+	@Test
+	void testNormalize_crlfSplitAcrossChunks() {
+		LineSeparatorNormalizer normalizer = new LineSeparatorNormalizer();
+		Assertions.assertEquals("one", normalize(normalizer, "one\r", false));
+		Assertions.assertEquals("\ntwo", normalize(normalizer, "\ntwo", false));
+		Assertions.assertEquals("", normalize(normalizer, "", true));
+		Assertions.assertEquals("\r\n", normalizer.getLineSeparator());
+	}
+
+
+	@Test
+	void testNormalize_crEndsLastChunk() {
+		LineSeparatorNormalizer normalizer = new LineSeparatorNormalizer();
+		Assertions.assertEquals("one", normalize(normalizer, "one\r", false));
+		Assertions.assertEquals("\n", normalize(normalizer, "", true));
+		Assertions.assertEquals("\r", normalizer.getLineSeparator());
+	}
+
+
+}
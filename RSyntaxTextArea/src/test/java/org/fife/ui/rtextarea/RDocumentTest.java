@@ -6,7 +6,16 @@
  */
 package org.fife.ui.rtextarea;
 
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import javax.swing.text.BadLocationException;
+import javax.swing.text.DefaultEditorKit;
+import javax.swing.text.Position;
+import javax.swing.undo.UndoManager;
+import javax.swing.undo.UndoableEdit;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -81,4 +90,244 @@ class RDocumentTest {
 	}
 
 
+
+	@Test
+	void testCreateTextSnapshot() throws Exception {
+
+		RDocument doc = new RDocument();
+		doc.insertString(0, "Hello\nworld", null);
+		TextSnapshot snapshot = doc.createTextSnapshot();
+
+		doc.insertString(5, " there", null);
+		doc.remove(0, 1);
+		Assertions.assertEquals("Hello\nworld", snapshot.toString());
+		Assertions.assertEquals(11, snapshot.length());
+		Assertions.assertEquals('w', snapshot.charAt(6));
+		Assertions.assertEquals("lo\nw", snapshot.getText(3, 4));
+		Assertions.assertEquals("ello", snapshot.subSequence(1, 5).toString());
+		Assertions.assertThrows(BadLocationException.class, () -> snapshot.getText(8, 4));
+	}
+
+
+	@Test
+	void testGetVersion() throws Exception {
+
+		RDocument doc = new RDocument();
+		UndoManager undoManager = new UndoManager();
+		doc.addUndoableEditListener(undoManager);
+		long version = doc.getVersion();
+
+		doc.insertString(0, "Hello", null);
+		Assertions.assertNotEquals(version, doc.getVersion());
+		version = doc.getVersion();
+		doc.remove(0, 1);
+		Assertions.assertNotEquals(version, doc.getVersion());
+		version = doc.getVersion();
+		undoManager.undo();
+		Assertions.assertNotEquals(version, doc.getVersion());
+		version = doc.getVersion();
+
+		doc.putProperty("foo", "bar");
+		doc.getText(0, doc.getLength());
+		Assertions.assertEquals(version, doc.getVersion());
+	}
+
+
+	@Test
+	void testLoad_emptyDocument() throws Exception {
+
+		RDocument doc = new RDocument();
+		List<DocumentEvent> events = new ArrayList<>();
+		doc.addDocumentListener(new DocumentListener() {
+			@Override
+			public void insertUpdate(DocumentEvent e) {
+				events.add(e);
+			}
+
+			@Override
+			public void removeUpdate(DocumentEvent e) {
+				events.add(e);
+			}
+
+			@Override
+			public void changedUpdate(DocumentEvent e) {
+			}
+		});
+
+		doc.load(new StringReader("one\ntwo\nthree"));
+
+		Assertions.assertEquals("one\ntwo\nthree", doc.getText(0, doc.getLength()));
+		Assertions.assertEquals(3, doc.getDefaultRootElement().getElementCount());
+		Assertions.assertEquals(4, doc.getDefaultRootElement().getElement(1).getStartOffset());
+		Assertions.assertEquals("\n", doc.getProperty(DefaultEditorKit.EndOfLineStringProperty));
+		Assertions.assertEquals(1, events.size());
+		Assertions.assertEquals(DocumentEvent.EventType.INSERT, events.get(0).getType());
+		Assertions.assertEquals(0, events.get(0).getOffset());
+		Assertions.assertEquals(doc.getLength(), events.get(0).getLength());
+	}
+
+
+	@Test
+	void testLoad_replacesExistingContent() throws Exception {
+
+		RDocument doc = new RDocument();
+		doc.insertString(0, "old\ncontent\n", null);
+
+		doc.load(new StringReader("new"));
+
+		Assertions.assertEquals("new", doc.getText(0, doc.getLength()));
+		Assertions.assertEquals(1, doc.getDefaultRootElement().getElementCount());
+	}
+
+
+	@Test
+	void testLoad_crlfLineEndings() throws Exception {
+
+		RDocument doc = new RDocument();
+		doc.load(new StringReader("one\r\ntwo\r\n"));
+
+		Assertions.assertEquals("one\ntwo\n", doc.getText(0, doc.getLength()));
+		Assertions.assertEquals(3, doc.getDefaultRootElement().getElementCount());
+		Assertions.assertEquals("\r\n", doc.getProperty(DefaultEditorKit.EndOfLineStringProperty));
+	}
+
+
+	@Test
+	void testLoad_crLineEndings() throws Exception {
+
+		RDocument doc = new RDocument();
+		doc.load(new StringReader("one\rtwo\r"));
+
+		Assertions.assertEquals("one\ntwo\n", doc.getText(0, doc.getLength()));
+		Assertions.assertEquals("\r", doc.getProperty(DefaultEditorKit.EndOfLineStringProperty));
+	}
+
+
+	@Test
+	void testLoad_largeContent() throws Exception {
+
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 200000; i++) {
+			sb.append("line ").append(i).append('\n');
+		}
+		String text = sb.toString();
+
+		RDocument doc = new RDocument();
+		doc.load(new StringReader(text));
+
+		Assertions.assertEquals(text, doc.getText(0, doc.getLength()));
+		Assertions.assertEquals(200001, doc.getDefaultRootElement().getElementCount());
+	}
+
+
+	@Test
+	void testLoad_undoRedo() throws Exception {
+
+		RDocument doc = new RDocument();
+		UndoManager undoManager = new UndoManager();
+		doc.addUndoableEditListener(undoManager);
+
+		doc.load(new StringReader("one\ntwo"));
+		Assertions.assertTrue(undoManager.canUndo());
+
+		undoManager.undo();
+		Assertions.assertEquals(0, doc.getLength());
+		Assertions.assertEquals(1, doc.getDefaultRootElement().getElementCount());
+
+		undoManager.redo();
+		Assertions.assertEquals("one\ntwo", doc.getText(0, doc.getLength()));
+		Assertions.assertEquals(2, doc.getDefaultRootElement().getElementCount());
+	}
+
+
+	@Test
+	void testLoad_replaceIsOneUndoableEdit() throws Exception {
+
+		RDocument doc = new RDocument();
+		doc.insertString(0, "old\ncontent\n", null);
+		List<UndoableEdit> undoableEdits = new ArrayList<>();
+		UndoManager undoManager = new UndoManager();
+		doc.addUndoableEditListener(e -> undoableEdits.add(e.getEdit()));
+		doc.addUndoableEditListener(undoManager);
+		List<DocumentEvent.EventType> events = new ArrayList<>();
+		doc.addDocumentListener(new DocumentListener() {
+			@Override
+			public void insertUpdate(DocumentEvent e) {
+				events.add(e.getType());
+			}
+
+			@Override
+			public void removeUpdate(DocumentEvent e) {
+				events.add(e.getType());
+			}
+
+			@Override
+			public void changedUpdate(DocumentEvent e) {
+			}
+		});
+
+		doc.load(new StringReader("new\ntext"));
+
+		Assertions.assertEquals("new\ntext", doc.getText(0, doc.getLength()));
+		Assertions.assertEquals(1, undoableEdits.size());
+		Assertions.assertEquals(2, events.size());
+		Assertions.assertEquals(DocumentEvent.EventType.REMOVE, events.get(0));
+		Assertions.assertEquals(DocumentEvent.EventType.INSERT, events.get(1));
+
+		undoManager.undo();
+		Assertions.assertEquals("old\ncontent\n", doc.getText(0, doc.getLength()));
+		Assertions.assertEquals(3, doc.getDefaultRootElement().getElementCount());
+		Assertions.assertFalse(undoManager.canUndo());
+
+		undoManager.redo();
+		Assertions.assertEquals("new\ntext", doc.getText(0, doc.getLength()));
+		Assertions.assertEquals(2, doc.getDefaultRootElement().getElementCount());
+	}
+
+
+	@Test
+	void testSetUndoCompressionThreshold_undoRedo() throws Exception {
+
+		StringBuilder sb = new StringBuilder();
+		for (int i=0; i<10000; i++) {
+			sb.append("line ").append(i).append(" \u00e9\ud83d\ude00\n");
+		}
+		sb.append('\ud83d'); // Unpaired surrogate should round-trip too
+		String text = sb.toString();
+
+		RDocument doc = new RDocument();
+		doc.setUndoCompressionThreshold(1000);
+		Assertions.assertEquals(1000, doc.getUndoCompressionThreshold());
+		doc.insertString(0, "start" + text + "end", null);
+		Position pos = doc.createPosition(5 + 100);
+		UndoManager undoManager = new UndoManager();
+		doc.addUndoableEditListener(undoManager);
+
+		doc.remove(5, text.length());
+		Assertions.assertEquals("startend", doc.getText(0, doc.getLength()));
+		Assertions.assertTrue(doc.getLastRemoveUndoSize() < text.length());
+
+		undoManager.undo();
+		Assertions.assertEquals("start" + text + "end", doc.getText(0, doc.getLength()));
+		Assertions.assertEquals(105, pos.getOffset());
+
+		undoManager.redo();
+		Assertions.assertEquals("startend", doc.getText(0, doc.getLength()));
+		undoManager.undo();
+		Assertions.assertEquals("start" + text + "end", doc.getText(0, doc.getLength()));
+	}
+
+
+	@Test
+	void testSetUndoCompressionThreshold_smallRemovesNotCompressed() throws Exception {
+
+		RDocument doc = new RDocument();
+		doc.setUndoCompressionThreshold(1000);
+		doc.insertString(0, "Hello world", null);
+
+		doc.remove(0, 6);
+		Assertions.assertEquals(12, doc.getLastRemoveUndoSize());
+	}
+
+
 }
@@ -13,6 +13,7 @@ import org.junit.jupiter.api.Test;
 import javax.swing.text.BadLocationException;
 import javax.swing.text.View;
 import java.awt.*;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -46,6 +47,17 @@ class RTextAreaHighlighterTest extends AbstractRTextAreaTest {
 	}
 
 
+	@Test
+	void testAddMarkAllHighlights() throws BadLocationException {
+		textArea.setHighlighter(h);
+		h.addMarkAllHighlights(Arrays.asList(new DocumentRange(8, 11), new DocumentRange(0, 4)),
+			new ChangeableHighlightPainter());
+		Assertions.assertEquals(2, h.getMarkAllHighlightCount());
+		Assertions.assertEquals(Arrays.asList(new DocumentRange(0, 4), new DocumentRange(8, 11)),
+			h.getMarkAllHighlightRanges());
+	}
+
+
 	@Test
 	void testClearMarkAllHighlights() throws BadLocationException {
 		textArea.setHighlighter(h);
@@ -87,6 +99,44 @@ class RTextAreaHighlighterTest extends AbstractRTextAreaTest {
 	}
 
 
+	@Test
+	void testGetMarkAllHighlightRanges_afterEdits() throws BadLocationException {
+
+		textArea.setHighlighter(h);
+		h.addMarkAllHighlight(5, 7, new ChangeableHighlightPainter());
+
+		textArea.getDocument().insertString(0, "xx", null);
+		Assertions.assertEquals(new DocumentRange(7, 9), h.getMarkAllHighlightRanges().get(0));
+
+		// Text typed at either end isn't added to the highlight
+		textArea.getDocument().insertString(9, "yy", null);
+		textArea.getDocument().insertString(7, "yy", null);
+		Assertions.assertEquals(new DocumentRange(9, 11), h.getMarkAllHighlightRanges().get(0));
+
+		textArea.getDocument().remove(8, 5);
+		Assertions.assertEquals(new DocumentRange(8, 8), h.getMarkAllHighlightRanges().get(0));
+	}
+
+
+	@Test
+	void testMarkAllHighlights_documentChanged() throws BadLocationException {
+
+		textArea.setHighlighter(h);
+		RDocument oldDoc = (RDocument)textArea.getDocument();
+		h.addMarkAllHighlight(1, 3, new ChangeableHighlightPainter());
+
+		RDocument doc = new RDocument();
+		doc.insertString(0, "new content", null);
+		textArea.setDocument(doc);
+		Assertions.assertEquals(1, h.getMarkAllHighlightCount());
+
+		// The highlight now follows the new document
+		oldDoc.insertString(0, "old", null);
+		doc.insertString(0, "xx", null);
+		Assertions.assertEquals(new DocumentRange(3, 5), h.getMarkAllHighlightRanges().get(0));
+	}
+
+
 	@Test
 	void testPaintLayeredHighlights() throws BadLocationException {
 		textArea.setHighlighter(h);
@@ -12,10 +12,13 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 
 import javax.swing.*;
+import javax.swing.text.AttributeSet;
 import javax.swing.text.BadLocationException;
 import javax.swing.text.Caret;
+import javax.swing.text.DefaultEditorKit;
 import javax.swing.text.DefaultStyledDocument;
 import javax.swing.text.Document;
+import javax.swing.text.DocumentFilter;
 import java.awt.*;
 import java.awt.event.MouseEvent;
 import java.io.IOException;
@@ -186,6 +189,25 @@ class RTextAreaTest {
 	}
 
 
+	@Test
+	void testRead_documentFilter() throws IOException {
+
+		RTextArea textArea = new RTextArea();
+		((RDocument)textArea.getDocument()).setDocumentFilter(new DocumentFilter() {
+			@Override
+			public void insertString(FilterBypass fb, int offs, String text, AttributeSet attrs)
+					throws BadLocationException {
+				super.insertString(fb, offs, text.toUpperCase(), attrs);
+			}
+		});
+		textArea.read(new StringReader("one\r\ntwo"), null);
+
+		Assertions.assertEquals("ONE\nTWO", textArea.getText());
+		Assertions.assertEquals("\r\n", textArea.getDocument().
+			getProperty(DefaultEditorKit.EndOfLineStringProperty));
+	}
+
+
 	@Test
 	void testRead_withDesc() throws IOException {
 
@@ -373,6 +395,45 @@ class RTextAreaTest {
 	}
 
 
+	@Test
+	void testSetUndoMemoryLimit() {
+
+		RTextArea textArea = new RTextArea();
+		String text = String.join("", java.util.Collections.nCopies(1000, "x"));
+		for (int i = 0; i < 20; i++) {
+			textArea.beginAtomicEdit();
+			textArea.append(text);
+			textArea.endAtomicEdit();
+		}
+		long usage = textArea.getUndoMemoryUsage();
+		Assertions.assertTrue(usage >= 20 * 2000L);
+
+		textArea.setUndoMemoryLimit(usage / 4);
+		Assertions.assertEquals(usage / 4, textArea.getUndoMemoryLimit());
+		Assertions.assertTrue(textArea.getUndoMemoryUsage() <= usage / 4);
+
+		// Only the most recent edits can be undone
+		int undoCount = 0;
+		while (textArea.canUndo()) {
+			textArea.undoLastAction();
+			undoCount++;
+		}
+		Assertions.assertTrue(undoCount > 0 && undoCount <= 5);
+		Assertions.assertEquals((20 - undoCount) * 1000, textArea.getDocument().getLength());
+	}
+
+
+	@Test
+	void testGetUndoMemoryUsage() {
+		RTextArea textArea = new RTextArea();
+		Assertions.assertEquals(0, textArea.getUndoMemoryUsage());
+		textArea.replaceSelection("Hello");
+		Assertions.assertTrue(textArea.getUndoMemoryUsage() >= 10);
+		textArea.discardAllEdits();
+		Assertions.assertEquals(0, textArea.getUndoMemoryUsage());
+	}
+
+
 	@Test
 	void setTextMode_invalidMode() {
 		RTextArea textArea = new RTextArea();
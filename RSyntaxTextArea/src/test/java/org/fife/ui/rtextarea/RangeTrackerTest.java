@@ -0,0 +1,371 @@
+/*
+ * This library is distributed under a modified BSD license.  See the included
+ * LICENSE file for details.
+ */
+package org.fife.ui.rtextarea;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.BadLocationException;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Unit tests for the {@link RangeTracker} class.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ */
+class RangeTrackerTest {
+
+
+	private static RDocument createDocument(int length) throws BadLocationException {
+		RDocument doc = new RDocument();
+		char[] chars = new char[length];
+		Arrays.fill(chars, 'x');
+		doc.insertString(0, new String(chars), null);
+		return doc;
+	}
+
+
+	private static void assertRange(int start, int end, RangeTracker.Range<?> range) {
+		Assertions.assertEquals(start, range.getStartOffset());
+		Assertions.assertEquals(end, range.getEndOffset());
+	}
+
+
+	@Test
+	void testAdd_invalidRange() throws Exception {
+
+		RangeTracker<String> tracker = new RangeTracker<>(createDocument(10));
+
+		Assertions.assertThrows(BadLocationException.class, () ->
+			tracker.add(new RangeTracker.Range<>(-1, 2, "a")));
+		Assertions.assertThrows(BadLocationException.class, () ->
+			tracker.add(new RangeTracker.Range<>(5, 4, "a")));
+		Assertions.assertThrows(BadLocationException.class, () ->
+			tracker.add(new RangeTracker.Range<>(5, 12, "a")));
+
+		RangeTracker.Range<String> range = new RangeTracker.Range<>(1, 2, "a");
+		tracker.add(range);
+		Assertions.assertThrows(IllegalArgumentException.class, () -> tracker.add(range));
+		Assertions.assertEquals(1, tracker.size());
+	}
+
+
+	@Test
+	void testAddAll_invalidRange() throws Exception {
+
+		RangeTracker<String> tracker = new RangeTracker<>(createDocument(10));
+		List<RangeTracker.Range<String>> ranges = new ArrayList<>();
+		for (int i=0; i<100; i++) {
+			ranges.add(new RangeTracker.Range<>(i % 10, i % 10, "a"));
+		}
+		ranges.add(new RangeTracker.Range<>(8, 20, "bad"));
+
+		Assertions.assertThrows(BadLocationException.class, () -> tracker.addAll(ranges));
+		Assertions.assertEquals(0, tracker.size());
+		Assertions.assertFalse(ranges.get(0).isTracked());
+	}
+
+
+	@Test
+	void testAddAll_sortedAndStable() throws Exception {
+
+		RangeTracker<Integer> tracker = new RangeTracker<>(createDocument(1000));
+		tracker.add(new RangeTracker.Range<>(500, 510, -1));
+		List<RangeTracker.Range<Integer>> ranges = new ArrayList<>();
+		for (int i=0; i<1000; i++) {
+			ranges.add(new RangeTracker.Range<>(999 - i / 2, 1000, i));
+		}
+		tracker.addAll(ranges);
+
+		List<RangeTracker.Range<Integer>> all = tracker.getRanges();
+		Assertions.assertEquals(1001, all.size());
+		Assertions.assertEquals(1001, tracker.size());
+		for (int i=1; i<all.size(); i++) {
+			RangeTracker.Range<Integer> prev = all.get(i - 1);
+			RangeTracker.Range<Integer> range = all.get(i);
+			Assertions.assertTrue(prev.getStartOffset()<=range.getStartOffset());
+			if (prev.getStartOffset()==range.getStartOffset()) {
+				Assertions.assertTrue(prev.getValue()<range.getValue());
+			}
+		}
+	}
+
+
+	@Test
+	void testClear() throws Exception {
+
+		RDocument doc = createDocument(10);
+		RangeTracker<String> tracker = new RangeTracker<>(doc);
+		RangeTracker.Range<String> range = new RangeTracker.Range<>(2, 4, "a");
+		tracker.add(range);
+
+		tracker.clear();
+		Assertions.assertEquals(0, tracker.size());
+		Assertions.assertFalse(range.isTracked());
+
+		// Untracked ranges no longer move
+		doc.insertString(0, "foo", null);
+		assertRange(2, 4, range);
+	}
+
+
+	@Test
+	void testDispose() throws Exception {
+
+		RDocument doc = createDocument(10);
+		RangeTracker<String> tracker = new RangeTracker<>(doc);
+		RangeTracker.Range<String> range = new RangeTracker.Range<>(2, 4, "a");
+		tracker.add(range);
+		Assertions.assertSame(doc, tracker.getDocument());
+
+		tracker.dispose();
+		Assertions.assertFalse(range.isTracked());
+		doc.insertString(0, "foo", null);
+		assertRange(2, 4, range);
+	}
+
+
+	@Test
+	void testGetRangesOverlapping() throws Exception {
+
+		RangeTracker<String> tracker = new RangeTracker<>(createDocument(100));
+		RangeTracker.Range<String> a = new RangeTracker.Range<>(0, 50, "a");
+		RangeTracker.Range<String> b = new RangeTracker.Range<>(10, 20, "b");
+		RangeTracker.Range<String> c = new RangeTracker.Range<>(20, 20, "c");
+		RangeTracker.Range<String> d = new RangeTracker.Range<>(60, 70, "d");
+		tracker.addAll(Arrays.asList(d, c, b, a));
+
+		Assertions.assertEquals(Arrays.asList(a, b), tracker.getRangesOverlapping(15, 20));
+		Assertions.assertEquals(Arrays.asList(a, c), tracker.getRangesOverlapping(20, 30));
+		Assertions.assertEquals(Arrays.asList(a, c), tracker.getRangesOverlapping(20, 20));
+		Assertions.assertEquals(Arrays.asList(d), tracker.getRangesOverlapping(50, 61));
+		Assertions.assertEquals(0, tracker.getRangesOverlapping(70, 100).size());
+	}
+
+
+	@Test
+	void testInsertUpdate() throws Exception {
+
+		RDocument doc = createDocument(20);
+		RangeTracker<String> tracker = new RangeTracker<>(doc);
+		RangeTracker.Range<String> range = new RangeTracker.Range<>(5, 10, "a");
+		tracker.add(range);
+
+		doc.insertString(0, "ab", null); // Before
+		assertRange(7, 12, range);
+		doc.insertString(7, "ab", null); // At the start
+		assertRange(9, 14, range);
+		doc.insertString(10, "ab", null); // Inside
+		assertRange(9, 16, range);
+		doc.insertString(16, "ab", null); // At the end
+		assertRange(9, 16, range);
+		doc.insertString(20, "ab", null); // After
+		assertRange(9, 16, range);
+	}
+
+
+	@Test
+	void testInsertUpdate_beforeListeners() throws Exception {
+
+		RDocument doc = createDocument(20);
+		RangeTracker<String> tracker = new RangeTracker<>(doc);
+		RangeTracker.Range<String> range = new RangeTracker.Range<>(5, 10, "a");
+		tracker.add(range);
+
+		int[] start = new int[1];
+		doc.addDocumentListener(new DocumentListener() {
+			@Override
+			public void insertUpdate(DocumentEvent e) {
+				start[0] = range.getStartOffset();
+			}
+
+			@Override
+			public void removeUpdate(DocumentEvent e) {
+			}
+
+			@Override
+			public void changedUpdate(DocumentEvent e) {
+			}
+		});
+
+		doc.insertString(0, "abc", null);
+		Assertions.assertEquals(8, start[0]);
+	}
+
+
+	@Test
+	void testManyRanges_randomEdits() throws Exception {
+
+		Random random = new Random(42);
+		RDocument doc = createDocument(10000);
+		RangeTracker<int[]> tracker = new RangeTracker<>(doc);
+
+		// Each range's value is its expected offsets
+		List<RangeTracker.Range<int[]>> ranges = new ArrayList<>();
+		for (int i=0; i<5000; i++) {
+			int start = random.nextInt(10000);
+			int end = Math.min(10000, start + random.nextInt(50));
+			ranges.add(new RangeTracker.Range<>(start, end, new int[] { start, end }));
+		}
+		tracker.addAll(ranges);
+
+		for (int i=0; i<500; i++) {
+			int length = doc.getLength();
+			if (random.nextBoolean()) {
+				int offs = random.nextInt(length + 1);
+				int count = 1 + random.nextInt(100);
+				doc.insertString(offs, new String(new char[count]), null);
+				for (RangeTracker.Range<int[]> range : ranges) {
+					int[] expected = range.getValue();
+					if (expected[0]>=offs) {
+						expected[0] += count;
+						expected[1] += count;
+					}
+					else if (expected[1]>offs) {
+						expected[1] += count;
+					}
+				}
+			}
+			else {
+				int offs = random.nextInt(length);
+				int count = Math.min(length - offs, 1 + random.nextInt(100));
+				doc.remove(offs, count);
+				for (RangeTracker.Range<int[]> range : ranges) {
+					int[] expected = range.getValue();
+					for (int j=0; j<2; j++) {
+						if (expected[j]>=offs + count) {
+							expected[j] -= count;
+						}
+						else {
+							expected[j] = Math.min(expected[j], offs);
+						}
+					}
+				}
+			}
+
+			int maxLength = 0;
+			for (RangeTracker.Range<int[]> range : ranges) {
+				maxLength = Math.max(maxLength, range.getValue()[1] - range.getValue()[0]);
+			}
+			Assertions.assertEquals(maxLength, tracker.getMaxLength());
+		}
+
+		for (RangeTracker.Range<int[]> range : ranges) {
+			assertRange(range.getValue()[0], range.getValue()[1], range);
+		}
+	}
+
+
+	@Test
+	void testRemove() throws Exception {
+
+		RangeTracker<Integer> tracker = new RangeTracker<>(createDocument(1000));
+		List<RangeTracker.Range<Integer>> ranges = new ArrayList<>();
+		for (int i=0; i<1000; i++) {
+			RangeTracker.Range<Integer> range = new RangeTracker.Range<>(i, i + 1, i);
+			ranges.add(range);
+			tracker.add(range);
+		}
+
+		for (int i=0; i<1000; i+=2) {
+			Assertions.assertTrue(tracker.remove(ranges.get(i)));
+			Assertions.assertFalse(ranges.get(i).isTracked());
+		}
+		Assertions.assertFalse(tracker.remove(ranges.get(0)));
+		Assertions.assertEquals(500, tracker.size());
+		Assertions.assertEquals(Arrays.asList(ranges.get(1), ranges.get(3)),
+			tracker.getRangesOverlapping(0, 4));
+	}
+
+
+	@Test
+	void testRemove_longestRange() throws Exception {
+
+		RangeTracker<Integer> tracker = new RangeTracker<>(createDocument(1000));
+		for (int i=0; i<500; i++) {
+			tracker.add(new RangeTracker.Range<>(i*2, i*2 + 2, i));
+		}
+		RangeTracker.Range<Integer> longest = new RangeTracker.Range<>(100, 900, -1);
+		tracker.add(longest);
+		Assertions.assertEquals(800, tracker.getMaxLength());
+
+		tracker.remove(longest);
+		Assertions.assertEquals(2, tracker.getMaxLength());
+	}
+
+
+	@Test
+	void testRemoveAll() throws Exception {
+
+		RangeTracker<Integer> tracker = new RangeTracker<>(createDocument(1000));
+		List<RangeTracker.Range<Integer>> ranges = new ArrayList<>();
+		for (int i=0; i<1000; i++) {
+			ranges.add(new RangeTracker.Range<>(i, i + 1, i));
+		}
+		tracker.addAll(ranges);
+
+		List<RangeTracker.Range<Integer>> toRemove = new ArrayList<>(ranges.subList(100, 900));
+		toRemove.add(new RangeTracker.Range<>(0, 1, -1)); // Not tracked
+		tracker.removeAll(toRemove);
+		Assertions.assertEquals(200, tracker.size());
+		Assertions.assertFalse(ranges.get(100).isTracked());
+		Assertions.assertTrue(ranges.get(99).isTracked());
+		Assertions.assertEquals(Arrays.asList(ranges.get(99), ranges.get(900)),
+			tracker.getRangesOverlapping(99, 901));
+	}
+
+
+	@Test
+	void testRemoveUpdate() throws Exception {
+
+		RDocument doc = createDocument(30);
+		RangeTracker<String> tracker = new RangeTracker<>(doc);
+		RangeTracker.Range<String> range = new RangeTracker.Range<>(10, 20, "a");
+		RangeTracker.Range<String> removed = new RangeTracker.Range<>(22, 24, "b");
+		tracker.add(range);
+		tracker.add(removed);
+
+		doc.remove(0, 2); // Before
+		assertRange(8, 18, range);
+		doc.remove(6, 4); // Overlapping the start
+		assertRange(6, 14, range);
+		doc.remove(8, 2); // Inside
+		assertRange(6, 12, range);
+		doc.remove(10, 4); // Overlapping the end
+		assertRange(6, 10, range);
+
+		// Ranges whose text is removed become empty
+		assertRange(10, 12, removed);
+		doc.remove(9, 5);
+		assertRange(9, 9, removed);
+		assertRange(6, 9, range);
+	}
+
+
+	@Test
+	void testRemoveUpdate_longestRangeShrinks() throws Exception {
+
+		RDocument doc = createDocument(1000);
+		RangeTracker<Integer> tracker = new RangeTracker<>(doc);
+		for (int i=0; i<500; i++) {
+			tracker.add(new RangeTracker.Range<>(i*2, i*2 + 2, i));
+		}
+		tracker.add(new RangeTracker.Range<>(100, 900, -1));
+
+		doc.remove(150, 700);
+		Assertions.assertEquals(100, tracker.getMaxLength());
+		doc.remove(100, 100);
+		Assertions.assertEquals(2, tracker.getMaxLength());
+	}
+
+
+}
@@ -0,0 +1,307 @@
+/*
+ * This library is distributed under a modified BSD license.  See the included
+ * LICENSE file for details.
+ */
+package org.fife.ui.rtextarea;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Element;
+import javax.swing.text.Position;
+import javax.swing.text.Segment;
+import javax.swing.undo.UndoManager;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Unit tests for the {@link RopeContent} class.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ */
+class RopeContentTest {
+
+
+	private static String createText(int lineCount) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < lineCount; i++) {
+			sb.append("line ").append(i).append(i % 5 == 0 ? "\n" : " ");
+		}
+		return sb.toString();
+	}
+
+
+	private static void assertSameContent(RDocument expected, RDocument actual) throws BadLocationException {
+
+		String text = expected.getText(0, expected.getLength());
+		Assertions.assertEquals(text, actual.getText(0, actual.getLength()));
+
+		Element root1 = expected.getDefaultRootElement();
+		Element root2 = actual.getDefaultRootElement();
+		Assertions.assertEquals(root1.getElementCount(), root2.getElementCount());
+		for (int i = 0; i < root1.getElementCount(); i++) {
+			Assertions.assertEquals(root1.getElement(i).getStartOffset(), root2.getElement(i).getStartOffset());
+			Assertions.assertEquals(root1.getElement(i).getEndOffset(), root2.getElement(i).getEndOffset());
+		}
+	}
+
+
+	@Test
+	void testCharAt() throws Exception {
+
+		String text = createText(20000);
+		RopeContent content = new RopeContent();
+		content.insertString(0, text);
+
+		for (int i = 0; i < text.length(); i += 7) {
+			Assertions.assertEquals(text.charAt(i), content.charAt(i));
+		}
+		Assertions.assertEquals('\n', content.charAt(text.length())); // Implied newline
+		Assertions.assertThrows(BadLocationException.class, () -> content.charAt(-1));
+		Assertions.assertThrows(BadLocationException.class, () -> content.charAt(text.length() + 1));
+	}
+
+
+	@Test
+	void testCreatePosition_movesWithEdits() throws Exception {
+
+		RopeContent content = new RopeContent();
+		content.insertString(0, "0123456789");
+		Position zero = content.createPosition(0);
+		Position five = content.createPosition(5);
+		Position eight = content.createPosition(8);
+
+		content.insertString(5, "ab"); // Positions at the insertion point move
+		Assertions.assertEquals(0, zero.getOffset());
+		Assertions.assertEquals(7, five.getOffset());
+		Assertions.assertEquals(10, eight.getOffset());
+
+		content.insertString(0, "xyz"); // ... except at offset 0
+		Assertions.assertEquals(0, zero.getOffset());
+		Assertions.assertEquals(10, five.getOffset());
+
+		content.remove(9, 4); // Positions in a removed range collapse to its start
+		Assertions.assertEquals(9, five.getOffset());
+		Assertions.assertEquals(9, eight.getOffset());
+		Assertions.assertEquals("xyz01234a89", content.getString(0, content.length() - 1));
+	}
+
+
+	@Test
+	void testCreateSnapshot_unaffectedByEdits() throws Exception {
+
+		String text = createText(30000);
+		RDocument doc = new RDocument(new RopeContent());
+		doc.insertString(0, text, null);
+		UndoManager undoManager = new UndoManager();
+		undoManager.setLimit(-1);
+		doc.addUndoableEditListener(undoManager);
+
+		List<TextSnapshot> snapshots = new ArrayList<>();
+		List<String> expected = new ArrayList<>();
+		Random random = new Random(7);
+		for (int i = 0; i < 1000; i++) {
+			int length = doc.getLength();
+			int op = random.nextInt(10);
+			if (op < 4) {
+				String str = random.nextInt(50) == 0 ? text.substring(0, random.nextInt(text.length())) : "ab\ncd";
+				doc.insertString(random.nextInt(length + 1), str, null);
+			}
+			else if (op < 7 && length > 0) {
+				int offs = random.nextInt(length);
+				int count = random.nextInt(50) == 0 ? length - offs : Math.min(length - offs, random.nextInt(10));
+				doc.remove(offs, count);
+			}
+			else if (op < 9 && undoManager.canUndo()) {
+				undoManager.undo();
+			}
+			else {
+				snapshots.add(doc.createTextSnapshot());
+				expected.add(doc.getText(0, doc.getLength()));
+			}
+		}
+
+		Segment s = new Segment();
+		for (int i = 0; i < snapshots.size(); i++) {
+			TextSnapshot snapshot = snapshots.get(i);
+			String str = expected.get(i);
+			Assertions.assertEquals(str, snapshot.toString());
+			int offs = random.nextInt(str.length() + 1);
+			snapshot.getText(offs, str.length() - offs, s);
+			Assertions.assertEquals(str.substring(offs), s.toString());
+			if (!str.isEmpty()) {
+				offs = random.nextInt(str.length());
+				Assertions.assertEquals(str.charAt(offs), snapshot.charAt(offs));
+			}
+		}
+		Assertions.assertThrows(IndexOutOfBoundsException.class, () -> snapshots.get(0).charAt(-1));
+	}
+
+
+	@Test
+	void testGetChars_acrossLeaves() throws Exception {
+
+		String text = createText(20000);
+		RopeContent content = new RopeContent();
+		content.insertString(0, text);
+
+		Segment s = new Segment();
+		content.getChars(0, text.length(), s);
+		Assertions.assertEquals(text, s.toString());
+
+		s.setPartialReturn(true);
+		content.getChars(0, text.length(), s);
+		Assertions.assertTrue(s.count > 0 && s.count <= RopeContent.MAX_LEAF_SIZE);
+		Assertions.assertEquals(text.substring(0, s.count), s.toString());
+
+		content.getChars(text.length(), 0, s);
+		Assertions.assertEquals(0, s.count);
+		Assertions.assertThrows(BadLocationException.class, () -> content.getChars(5, text.length(), s));
+	}
+
+
+	@Test
+	void testInsertString_largeText() throws Exception {
+
+		String text = createText(200000);
+		RopeContent content = new RopeContent();
+		content.insertString(0, text);
+
+		Assertions.assertEquals(text.length() + 1, content.length());
+		Assertions.assertEquals(text + "\n", content.getString(0, content.length()));
+		Assertions.assertTrue(content.getTreeHeight() > 1);
+
+		// Large text inserted in the middle
+		content.insertString(text.length() / 2, text);
+		String expected = text.substring(0, text.length() / 2) + text + text.substring(text.length() / 2);
+		Assertions.assertEquals(expected, content.getString(0, content.length() - 1));
+	}
+
+
+	@Test
+	void testLoad() throws Exception {
+
+		String text = createText(50000);
+		RDocument doc = new RDocument(new RopeContent());
+		doc.load(new StringReader(text.replace("\n", "\r\n")));
+
+		Assertions.assertEquals(text, doc.getText(0, doc.getLength()));
+		Assertions.assertEquals(10001, doc.getDefaultRootElement().getElementCount());
+
+		UndoManager undoManager = new UndoManager();
+		doc.addUndoableEditListener(undoManager);
+		doc.load(new StringReader("foo\nbar"));
+		Assertions.assertEquals(2, doc.getDefaultRootElement().getElementCount());
+		undoManager.undo();
+		Assertions.assertEquals(text, doc.getText(0, doc.getLength()));
+		Assertions.assertEquals(10001, doc.getDefaultRootElement().getElementCount());
+		Assertions.assertFalse(undoManager.canUndo());
+	}
+
+
+	@Test
+	void testRemove_everything() throws Exception {
+
+		String text = createText(100000);
+		RDocument doc = new RDocument(new RopeContent());
+		doc.insertString(0, text, null);
+		Position pos = doc.createPosition(text.length() / 3);
+		UndoManager undoManager = new UndoManager();
+		doc.addUndoableEditListener(undoManager);
+
+		doc.remove(0, doc.getLength());
+		Assertions.assertEquals(0, doc.getLength());
+		Assertions.assertEquals(0, pos.getOffset());
+		Assertions.assertEquals(1, doc.getDefaultRootElement().getElementCount());
+
+		undoManager.undo();
+		Assertions.assertEquals(text, doc.getText(0, doc.getLength()));
+		Assertions.assertEquals(text.length() / 3, pos.getOffset());
+		Assertions.assertEquals(20001, doc.getDefaultRootElement().getElementCount());
+	}
+
+
+	@Test
+	void testRandomEdits_sameAsGapContent() throws Exception {
+
+		String text = createText(30000);
+		RDocument expected = new RDocument();
+		RDocument actual = new RDocument(new RopeContent());
+		expected.insertString(0, text, null);
+		actual.insertString(0, text, null);
+		UndoManager expectedUndo = new UndoManager();
+		UndoManager actualUndo = new UndoManager();
+		expectedUndo.setLimit(-1);
+		actualUndo.setLimit(-1);
+		expected.addUndoableEditListener(expectedUndo);
+		actual.addUndoableEditListener(actualUndo);
+
+		Random random = new Random(42);
+		for (int i = 0; i < 2000; i++) {
+			int length = expected.getLength();
+			int op = random.nextInt(10);
+			if (op < 5) {
+				int offs = random.nextInt(length + 1);
+				String str = random.nextInt(50) == 0 ? text.substring(0, random.nextInt(text.length())) :
+					"ab\ncd".substring(random.nextInt(5));
+				expected.insertString(offs, str, null);
+				actual.insertString(offs, str, null);
+			}
+			else if (op < 8 && length > 0) {
+				int offs = random.nextInt(length);
+				int count = random.nextInt(50) == 0 ? random.nextInt(length - offs + 1) :
+					Math.min(length - offs, random.nextInt(10));
+				expected.remove(offs, count);
+				actual.remove(offs, count);
+			}
+			else if (op == 8 && expectedUndo.canUndo()) {
+				expectedUndo.undo();
+				actualUndo.undo();
+			}
+			else if (expectedUndo.canRedo()) {
+				expectedUndo.redo();
+				actualUndo.redo();
+			}
+			if (i % 100 == 0) {
+				assertSameContent(expected, actual);
+			}
+		}
+		assertSameContent(expected, actual);
+
+		while (expectedUndo.canUndo()) {
+			expectedUndo.undo();
+			actualUndo.undo();
+		}
+		assertSameContent(expected, actual);
+		Assertions.assertEquals(text, actual.getText(0, actual.getLength()));
+	}
+
+
+	@Test
+	void testSetUndoCompressionThreshold() throws Exception {
+
+		String text = createText(20000);
+		RDocument doc = new RDocument(new RopeContent());
+		doc.setUndoCompressionThreshold(1000);
+		Assertions.assertEquals(1000, doc.getUndoCompressionThreshold());
+		doc.insertString(0, "start" + text + "end", null);
+		UndoManager undoManager = new UndoManager();
+		doc.addUndoableEditListener(undoManager);
+
+		doc.remove(5, text.length());
+		Assertions.assertEquals("startend", doc.getText(0, doc.getLength()));
+		Assertions.assertTrue(doc.getLastRemoveUndoSize() < text.length());
+
+		undoManager.undo();
+		Assertions.assertEquals("start" + text + "end", doc.getText(0, doc.getLength()));
+		undoManager.redo();
+		Assertions.assertEquals("startend", doc.getText(0, doc.getLength()));
+	}
+
+
+}
@@ -8,6 +8,7 @@
  */
 package org.fife.ui.rtextarea;
 
+import java.awt.Color;
 import java.io.BufferedReader;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -23,6 +24,7 @@ import javax.swing.text.AbstractDocument;
 import javax.swing.text.AttributeSet;
 import javax.swing.text.BadLocationException;
 import javax.swing.text.DocumentFilter;
+import javax.swing.text.Position;
 
 
 /**
@@ -1190,4 +1192,114 @@ class SearchEngineTest {
 	}
 
 
+	/**
+	 * Runs a "replace all" twice: once normally, and once with a pass-through
+	 * {@code DocumentFilter}, which forces each match to be replaced
+	 * individually.  The results should be identical.
+	 */
+	private void assertReplaceAllMatchesIncremental(String content, String searchFor,
+			String replaceWith, boolean regex, boolean matchCase, boolean wholeWord) {
+
+		SearchContext context = new SearchContext(searchFor, matchCase);
+		context.setReplaceWith(replaceWith);
+		context.setRegularExpression(regex);
+		context.setWholeWord(wholeWord);
+
+		RSyntaxTextArea incremental = new RSyntaxTextArea(content);
+		((AbstractDocument)incremental.getDocument()).setDocumentFilter(new DocumentFilter());
+		SearchResult expected = SearchEngine.replaceAll(incremental, context.clone());
+
+		textArea.setText(content);
+		SearchResult actual = SearchEngine.replaceAll(textArea, context.clone());
+
+		String desc = searchFor + " -> " + replaceWith + " in: " + content;
+		assertEquals(incremental.getText(), textArea.getText(), desc);
+		assertEquals(expected.getCount(), actual.getCount(), desc);
+		assertEquals(expected.getMatchRange(), actual.getMatchRange(), desc);
+		assertEquals(incremental.getSelectionStart(), textArea.getSelectionStart(), desc);
+		assertEquals(incremental.getSelectionEnd(), textArea.getSelectionEnd(), desc);
+	}
+
+
+	@Test
+	void testSearchEngineReplaceAll_sameAsIncremental() {
+
+		assertReplaceAllMatchesIncremental(text, "wood", "FOOBAR", false, false, false);
+		assertReplaceAllMatchesIncremental(text, "wood", "FOOBAR", false, true, true);
+		assertReplaceAllMatchesIncremental(text, "o", "oo", false, true, false);
+		assertReplaceAllMatchesIncremental("-a-a-a", "-a", "x", false, true, true);
+		assertReplaceAllMatchesIncremental("aaa", "a", "", false, true, false);
+		assertReplaceAllMatchesIncremental(text, "wo(?:o|ul)d", "[$0]", true, false, false);
+		assertReplaceAllMatchesIncremental("aaa\naa", "^a", "X", true, true, false);
+		assertReplaceAllMatchesIncremental("one two three", ".*", "", true, true, false);
+		assertReplaceAllMatchesIncremental("", ".*", "x", true, true, false);
+		assertReplaceAllMatchesIncremental("a\nba\n\na", "(?=a)", "CCC", true, true, false);
+		assertReplaceAllMatchesIncremental("ab\ncd\n", "$", ";", true, true, false);
+		assertReplaceAllMatchesIncremental("root roOt root", "r(o+)t", "$1", true, false, false);
+		assertReplaceAllMatchesIncremental("no matches here", "xyz", "abc", false, true, false);
+	}
+
+
+	@Test
+	void testSearchEngineReplaceAll_singleUndoableEdit() {
+
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 5000; i++) {
+			sb.append("foo bar foo\n");
+		}
+		String content = sb.toString();
+		textArea.setText(content);
+		textArea.discardAllEdits();
+
+		SearchContext context = new SearchContext("foo", true);
+		context.setReplaceWith("x");
+		int count = replaceAllImpl(context);
+		assertEquals(10000, count);
+		assertEquals(content.replace("foo", "x"), textArea.getText());
+
+		textArea.undoLastAction();
+		assertEquals(content, textArea.getText());
+		assertFalse(textArea.canUndo());
+	}
+
+
+	@Test
+	void testSearchEngineReplaceAll_positionsBetweenMatchesKept() throws BadLocationException {
+
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 10; i++) {
+			sb.append("a foo line ").append(i).append('\n');
+		}
+		textArea.setText(sb.toString());
+		int line5 = textArea.getLineStartOffset(5);
+		Position pos = textArea.getDocument().createPosition(line5 + 6);
+		Object highlight = textArea.addLineHighlight(5, Color.RED);
+
+		SearchContext context = new SearchContext("foo", true);
+		context.setReplaceWith("x");
+		assertEquals(10, replaceAllImpl(context));
+
+		// Only the text of each match was replaced
+		int newLine5 = textArea.getLineStartOffset(5);
+		assertEquals(line5 - 5 * 2, newLine5);
+		assertEquals(newLine5 + 4, pos.getOffset());
+		assertEquals(textArea.addLineHighlight(5, Color.RED), highlight);
+	}
+
+
+	@Test
+	void testSearchEngineReplaceAll_tabsEmulated() {
+
+		textArea.setText("a\nba");
+		textArea.setTabsEmulated(true);
+		textArea.setTabSize(4);
+
+		SearchContext context = new SearchContext("a", true);
+		context.setReplaceWith("\tz");
+		int count = replaceAllImpl(context);
+		assertEquals(2, count);
+		assertEquals("    z\nb   z", textArea.getText());
+	}
+
+
 }
@@ -363,4 +363,15 @@ class DynamicIntArrayTest {
 			array.setUnsafe(9, 2)
 		);
 	}
+
+
+	@Test
+	void testToArray() {
+		DynamicIntArray array = new DynamicIntArray(new int[] { 1, 2, 3 });
+		array.add(4);
+		int[] copy = array.toArray();
+		Assertions.assertArrayEquals(new int[] { 1, 2, 3, 4 }, copy);
+		copy[0] = 9;
+		Assertions.assertEquals(1, array.get(0));
+	}
 }